@@ -0,0 +1,35 @@
+package com.diluv.schoomp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import com.diluv.schoomp.message.Message;
+
+/**
+ * Measures how long it takes to build messages with the fluent setters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageBenchmark {
+    
+    @Benchmark
+    public Message buildSmall () {
+        
+        return Messages.small();
+    }
+    
+    /**
+     * Builds a message with 10 embeds of 25 fields each.
+     * 
+     * @return The built message.
+     */
+    @Benchmark
+    public Message buildLarge () {
+        
+        return Messages.large();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.diluv.schoomp.benchmark;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Author;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.message.embed.Footer;
+
+/**
+ * Builds the messages used by the benchmarks, so every benchmark works with the same data.
+ */
+final class Messages {
+    
+    /**
+     * The most embeds Discord allows in a message.
+     */
+    static final int EMBEDS = 10;
+    
+    /**
+     * The most fields Discord allows in an embed.
+     */
+    static final int FIELDS = 25;
+    
+    static final OffsetDateTime TIMESTAMP = OffsetDateTime.of(2021, 6, 1, 12, 30, 0, 0, ZoneOffset.UTC);
+    
+    private Messages() {
+    
+    }
+    
+    /**
+     * Builds a message with only text content, which is the most common kind of message.
+     * 
+     * @return A small message.
+     */
+    static Message small () {
+        
+        return new Message().setUsername("Schoomp").setContent("A new file has been uploaded to the project.");
+    }
+    
+    /**
+     * Builds a message with the most embeds and fields Discord allows.
+     * 
+     * @return A large message.
+     */
+    static Message large () {
+        
+        final Message message = new Message().setUsername("Schoomp").setAvatarUrl("https://example.com/avatar.png").setContent("Build report");
+        
+        for (int i = 0; i < EMBEDS; i++) {
+            
+            final Embed embed = new Embed().setTitle("Module " + i).setUrl("https://example.com/modules/" + i).setDescription("Results for module " + i + " of the \"nightly\" build.").setColor(0x2ECC71 + i);
+            embed.setAuthor(new Author("Build Server", "https://example.com", "https://example.com/icon.png"));
+            embed.setFooter(new Footer("Build #1234", "https://example.com/footer.png"));
+            embed.setTimestamp(TIMESTAMP);
+            
+            for (int j = 0; j < FIELDS; j++) {
+                
+                embed.addField("Test " + j, j % 3 == 0 ? "failed <see log>" : "passed", j % 2 == 0);
+            }
+            
+            message.addEmbed(embed);
+        }
+        
+        return message;
+    }
+}
\ No newline at end of file
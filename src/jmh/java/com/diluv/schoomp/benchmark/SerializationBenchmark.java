@@ -0,0 +1,69 @@
+package com.diluv.schoomp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.message.Message;
+
+/**
+ * Measures how long it takes to encode messages. {@link Json#GSON} builds a String, which is
+ * what is used for logging, while {@link Json#toBytes(Message)} is what is sent to Discord. A
+ * frozen message is included to show what is saved by sending the same message again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+    
+    private Message small;
+    
+    private Message large;
+    
+    private Message frozen;
+    
+    @Setup
+    public void setup () {
+        
+        this.small = Messages.small();
+        this.large = Messages.large();
+        this.frozen = Messages.large().freeze();
+    }
+    
+    @Benchmark
+    public String gsonSmall () {
+        
+        return Json.GSON.toJson(this.small, Message.class);
+    }
+    
+    @Benchmark
+    public String gsonLarge () {
+        
+        return Json.GSON.toJson(this.large, Message.class);
+    }
+    
+    @Benchmark
+    public byte[] bytesSmall () {
+        
+        return Json.toBytes(this.small);
+    }
+    
+    @Benchmark
+    public byte[] bytesLarge () {
+        
+        return Json.toBytes(this.large);
+    }
+    
+    @Benchmark
+    public byte[] bytesFrozen () {
+        
+        return this.frozen.toBytes();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.diluv.schoomp.benchmark;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAccessor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.message.embed.Embed;
+import com.google.gson.JsonElement;
+
+/**
+ * Measures converting timestamps for embeds. Each kind of timestamp takes a different path
+ * through {@link Embed#setTimestamp(TemporalAccessor)}, and an
+ * {@link Instant} only succeeds after the other conversions have failed with an exception.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimestampBenchmark {
+    
+    private final Embed embed = new Embed();
+    
+    private final OffsetDateTime offset = Messages.TIMESTAMP;
+    
+    private final ZonedDateTime zoned = Messages.TIMESTAMP.atZoneSameInstant(ZoneId.of("America/New_York"));
+    
+    private final LocalDateTime local = Messages.TIMESTAMP.toLocalDateTime();
+    
+    private final Instant instant = Messages.TIMESTAMP.toInstant();
+    
+    /**
+     * The timestamp is passed as a {@link TemporalAccessor} so it is converted rather than
+     * set directly.
+     * 
+     * @return The embed.
+     */
+    @Benchmark
+    public Embed setOffsetDateTime () {
+        
+        return this.embed.setTimestamp((TemporalAccessor) this.offset);
+    }
+    
+    @Benchmark
+    public Embed setZonedDateTime () {
+        
+        return this.embed.setTimestamp(this.zoned);
+    }
+    
+    @Benchmark
+    public Embed setLocalDateTime () {
+        
+        return this.embed.setTimestamp(this.local);
+    }
+    
+    @Benchmark
+    public Embed setInstant () {
+        
+        return this.embed.setTimestamp(this.instant);
+    }
+    
+    @Benchmark
+    public JsonElement timeSerializer () {
+        
+        return Json.TIME_SERIALIZER.serialize(this.offset, OffsetDateTime.class, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+package com.diluv.schoomp.loadtest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+
+import com.diluv.schoomp.Webhook;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.metrics.HistogramSnapshot;
+import com.diluv.schoomp.metrics.LatencyHistogram;
+import com.diluv.schoomp.metrics.MetricsSnapshot;
+import com.diluv.schoomp.metrics.WebhookMetrics;
+import com.diluv.schoomp.transport.NioTransport;
+import com.diluv.schoomp.transport.Transport;
+import com.diluv.schoomp.transport.Transports;
+
+/**
+ * Sends messages to a {@link StubServer} at a fixed rate and reports how many were delivered,
+ * how long they took and how often they were rate limited. Messages are sent on a schedule
+ * regardless of how long earlier messages take, and latency is measured from when a message
+ * was scheduled, so a slow client can not hide its own delays.
+ * <p>
+ * Options are passed as <code>--name=value</code>:
+ * <ul>
+ * <li>rate: Messages sent per second. Defaults to 40.</li>
+ * <li>duration: How many seconds to send messages for. Defaults to 20.</li>
+ * <li>webhooks: How many webhooks the messages are spread over. Defaults to 20.</li>
+ * <li>transport: Either default, url or nio. Defaults to default.</li>
+ * <li>tls: Whether or not to use TLS. Defaults to false.</li>
+ * <li>wait: Whether or not to ask for the created messages to be sent back. Defaults to
+ * false.</li>
+ * <li>latency: How long the server takes to answer, in milliseconds, as either a single value or
+ * a range such as 20-80. Defaults to 0.</li>
+ * <li>faults: The chance of the server failing a request, from 0 to 1. Defaults to 0.</li>
+ * <li>bucket: The limit of each webhook as requests/milliseconds. Defaults to 5/2000.</li>
+ * <li>global: The amount of requests per second allowed across every webhook. Defaults to
+ * 50.</li>
+ * </ul>
+ */
+public final class LoadTest {
+    
+    private LoadTest() {
+    
+    }
+    
+    public static void main (String[] args) throws Exception {
+        
+        final Map<String, String> options = parse(args);
+        final int rate = Integer.parseInt(options.getOrDefault("rate", "40"));
+        final int duration = Integer.parseInt(options.getOrDefault("duration", "20"));
+        final int webhookCount = Integer.parseInt(options.getOrDefault("webhooks", "20"));
+        final String transportName = options.getOrDefault("transport", "default");
+        final boolean tls = Boolean.parseBoolean(options.getOrDefault("tls", "false"));
+        final boolean wait = Boolean.parseBoolean(options.getOrDefault("wait", "false"));
+        final String[] latency = options.getOrDefault("latency", "0").split("-");
+        final String[] bucket = options.getOrDefault("bucket", "5/2000").split("/");
+        
+        try (StubServer server = new StubServer(tls)) {
+            
+            server.setLatency(Long.parseLong(latency[0]), Long.parseLong(latency[latency.length - 1]));
+            server.setFaultRate(Double.parseDouble(options.getOrDefault("faults", "0")));
+            server.setBucketLimit(Integer.parseInt(bucket[0]), Long.parseLong(bucket[1]));
+            server.setGlobalLimit(Integer.parseInt(options.getOrDefault("global", "50")));
+            
+            final Transport transport = createTransport(transportName, server.getClientContext());
+            final WebhookMetrics metrics = new WebhookMetrics();
+            final Webhook[] webhooks = new Webhook[webhookCount];
+            
+            for (int i = 0; i < webhooks.length; i++) {
+                
+                webhooks[i] = new Webhook(server.getWebhookUrl(Long.toString(100000000000000000L + i)), "Schoomp-LoadTest", transport).setMetrics(metrics).setWait(wait);
+            }
+            
+            System.out.printf(Locale.ROOT, "Sending %d messages/s for %ds to %d webhooks using %s%s%n", rate, duration, webhookCount, transport.getClass().getSimpleName(), tls ? " over TLS" : "");
+            
+            final Result result = run(webhooks, rate, duration);
+            final MetricsSnapshot client = metrics.snapshot();
+            final HistogramSnapshot latencies = result.latency.snapshot();
+            final long requests = server.getRequests();
+            
+            System.out.printf(Locale.ROOT, "Delivered %d of %d messages in %.1fs (%.1f messages/s), %d failed%n", result.delivered.sum(), result.total, result.elapsedNanos / 1e9, result.delivered.sum() / (result.elapsedNanos / 1e9), result.failed.sum());
+            System.out.printf(Locale.ROOT, "Latency p50=%.1fms p99=%.1fms p999=%.1fms max=%.1fms%n", latencies.getP50Micros() / 1e3, latencies.getP99Micros() / 1e3, latencies.getP999Micros() / 1e3, latencies.getMaxMicros() / 1e3);
+            System.out.printf(Locale.ROOT, "Server received %d requests, %d rate limited (%.2f%%, %d global), %d faults%n", requests, server.getRateLimited(), requests == 0 ? 0d : 100d * server.getRateLimited() / requests, server.getGloballyLimited(), server.getFaults());
+            System.out.printf(Locale.ROOT, "Client made %d retries, %d requests failed without a response, status codes %s%n", client.getRetries(), client.getFailures(), client.getStatusCounts());
+            
+            if (transport instanceof NioTransport) {
+                
+                ((NioTransport) transport).close();
+            }
+        }
+        
+        System.exit(0);
+    }
+    
+    /**
+     * Sends messages on a fixed schedule and waits for all of them to finish.
+     * 
+     * @param webhooks The webhooks to send messages through, in turn.
+     * @param rate The amount of messages sent per second.
+     * @param duration How many seconds to send messages for.
+     * @return The outcome of the messages.
+     * @throws InterruptedException If interrupted while waiting for the messages.
+     */
+    private static Result run (Webhook[] webhooks, int rate, int duration) throws InterruptedException {
+        
+        final Result result = new Result((long) rate * duration);
+        final long period = TimeUnit.SECONDS.toNanos(1) / rate;
+        final AtomicLong next = new AtomicLong();
+        final CountDownLatch finished = new CountDownLatch((int) result.total);
+        final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        final long start = System.nanoTime();
+        
+        ticker.scheduleAtFixedRate( () -> {
+            
+            final long index = next.getAndIncrement();
+            
+            if (index >= result.total) {
+                
+                return;
+            }
+            
+            // Measured from when the message should have been sent, so delays in sending it
+            // are counted.
+            final long scheduled = start + index * period;
+            final Message message = new Message().setContent("Load test message " + index).addEmbed(new Embed().setTitle("Build #" + index).addField("Status", "passed", true));
+            
+            webhooks[(int) (index % webhooks.length)].sendMessageAsync(message).whenComplete( (response, error) -> {
+                
+                result.latency.record(System.nanoTime() - scheduled);
+                
+                if (error == null && response.getStatusCode() / 100 == 2) {
+                    
+                    result.delivered.increment();
+                }
+                else {
+                    
+                    result.failed.increment();
+                }
+                
+                finished.countDown();
+            });
+        }, 0, period, TimeUnit.NANOSECONDS);
+        
+        finished.await(duration + 300L, TimeUnit.SECONDS);
+        result.elapsedNanos = System.nanoTime() - start;
+        ticker.shutdownNow();
+        return result;
+    }
+    
+    private static Transport createTransport (String name, SSLContext sslContext) throws IOException {
+        
+        // The default transports use the default SSL context, so it has to trust the stub
+        // server before they are created.
+        if (sslContext != null) {
+            
+            SSLContext.setDefault(sslContext);
+            HttpsURLConnection.setDefaultSSLSocketFactory(sslContext.getSocketFactory());
+        }
+        
+        switch (name) {
+            
+            case "url":
+                return Transports.urlConnection();
+            
+            case "nio":
+                return sslContext != null ? new NioTransport(sslContext, 1, 16, 30000) : new NioTransport();
+            
+            case "default":
+                return Transports.getDefault();
+            
+            default:
+                throw new IllegalArgumentException("Unknown transport " + name);
+        }
+    }
+    
+    private static Map<String, String> parse (String[] args) {
+        
+        final Map<String, String> options = new HashMap<>();
+        
+        for (final String arg : args) {
+            
+            final int split = arg.indexOf('=');
+            
+            if (!arg.startsWith("--") || split < 0) {
+                
+                throw new IllegalArgumentException("Options must look like --name=value, got " + arg);
+            }
+            
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        
+        return options;
+    }
+    
+    /**
+     * The outcome of a load test.
+     */
+    private static final class Result {
+        
+        private final long total;
+        
+        private final LatencyHistogram latency = new LatencyHistogram();
+        
+        private final LongAdder delivered = new LongAdder();
+        
+        private final LongAdder failed = new LongAdder();
+        
+        private long elapsedNanos;
+        
+        private Result(long total) {
+            
+            this.total = total;
+        }
+    }
+}
\ No newline at end of file
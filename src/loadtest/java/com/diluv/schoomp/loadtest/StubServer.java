@@ -0,0 +1,524 @@
+package com.diluv.schoomp.loadtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * A local server which behaves like the Discord webhook API closely enough to load test the
+ * library without sending anything to Discord. Webhook requests are limited per webhook and
+ * globally, with the same headers and 429 responses Discord uses, and the server can be made
+ * slow or unreliable to see how clients cope.
+ * <p>
+ * When TLS is enabled a self signed certificate is created with keytool, and
+ * {@link #getClientContext()} gives an SSL context which trusts it.
+ */
+public final class StubServer implements Closeable {
+    
+    private static final String KEYSTORE_PASSWORD = "schoomp";
+    
+    private final HttpServer server;
+    
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        
+        final Thread thread = new Thread(runnable, "Stub-Server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final boolean secure;
+    
+    @Nullable
+    private final SSLContext clientContext;
+    
+    private final Map<String, Window> buckets = new ConcurrentHashMap<>();
+    
+    private final Window global = new Window();
+    
+    private final LongAdder requests = new LongAdder();
+    
+    private final LongAdder accepted = new LongAdder();
+    
+    private final LongAdder rateLimited = new LongAdder();
+    
+    private final LongAdder globallyLimited = new LongAdder();
+    
+    private final LongAdder faults = new LongAdder();
+    
+    private final AtomicLong nextMessageId = new AtomicLong(900000000000000000L);
+    
+    private volatile int bucketLimit = 5;
+    
+    private volatile long bucketWindowMillis = 2000;
+    
+    private volatile int globalLimit = 50;
+    
+    private volatile long minLatencyMillis;
+    
+    private volatile long maxLatencyMillis;
+    
+    private volatile double faultRate;
+    
+    /**
+     * Starts a server on a free port of 127.0.0.1.
+     * 
+     * @param secure Whether or not the server should use TLS.
+     * @throws IOException If the server could not be started.
+     */
+    public StubServer(boolean secure) throws IOException {
+        
+        final InetSocketAddress address = new InetSocketAddress("127.0.0.1", 0);
+        this.secure = secure;
+        
+        if (secure) {
+            
+            final KeyStore keyStore = createKeyStore();
+            final HttpsServer https = HttpsServer.create(address, 0);
+            https.setHttpsConfigurator(new HttpsConfigurator(createServerContext(keyStore)));
+            this.clientContext = createClientContext(keyStore);
+            this.server = https;
+        }
+        else {
+            
+            this.clientContext = null;
+            this.server = HttpServer.create(address, 0);
+        }
+        
+        this.server.createContext("/api/webhooks/", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+    
+    /**
+     * Sets the rate limit of each webhook. The default is 5 requests every 2 seconds.
+     * 
+     * @param limit The amount of requests allowed in a window.
+     * @param windowMillis How long a window lasts.
+     * @return The same server instance.
+     */
+    public StubServer setBucketLimit (int limit, long windowMillis) {
+        
+        this.bucketLimit = limit;
+        this.bucketWindowMillis = windowMillis;
+        return this;
+    }
+    
+    /**
+     * Sets the amount of requests allowed per second across every webhook. The default is 50.
+     * 
+     * @param limit The amount of requests allowed per second.
+     * @return The same server instance.
+     */
+    public StubServer setGlobalLimit (int limit) {
+        
+        this.globalLimit = limit;
+        return this;
+    }
+    
+    /**
+     * Sets how long the server waits before answering a request. Each request waits for a
+     * random time in the range.
+     * 
+     * @param minMillis The shortest wait.
+     * @param maxMillis The longest wait.
+     * @return The same server instance.
+     */
+    public StubServer setLatency (long minMillis, long maxMillis) {
+        
+        this.minLatencyMillis = minMillis;
+        this.maxLatencyMillis = Math.max(minMillis, maxMillis);
+        return this;
+    }
+    
+    /**
+     * Sets how often a request fails. Half of the failures are answered with a 503 and the
+     * other half have their connection closed without a response.
+     * 
+     * @param faultRate The chance of a request failing, from 0 to 1.
+     * @return The same server instance.
+     */
+    public StubServer setFaultRate (double faultRate) {
+        
+        this.faultRate = faultRate;
+        return this;
+    }
+    
+    /**
+     * Gets the URL of a webhook on this server.
+     * 
+     * @param id The id of the webhook.
+     * @return The URL of the webhook.
+     */
+    public String getWebhookUrl (String id) {
+        
+        final InetSocketAddress address = this.server.getAddress();
+        return (this.secure ? "https://" : "http://") + address.getAddress().getHostAddress() + ":" + address.getPort() + "/api/webhooks/" + id + "/stub-token";
+    }
+    
+    /**
+     * Gets an SSL context which trusts the certificate of the server.
+     * 
+     * @return The SSL context for clients, or null if the server does not use TLS.
+     */
+    @Nullable
+    public SSLContext getClientContext () {
+        
+        return this.clientContext;
+    }
+    
+    /**
+     * Gets the amount of requests the server received.
+     * 
+     * @return The amount of requests.
+     */
+    public long getRequests () {
+        
+        return this.requests.sum();
+    }
+    
+    /**
+     * Gets the amount of requests which were accepted.
+     * 
+     * @return The amount of accepted requests.
+     */
+    public long getAccepted () {
+        
+        return this.accepted.sum();
+    }
+    
+    /**
+     * Gets the amount of requests answered with a 429, including global limits.
+     * 
+     * @return The amount of rate limited requests.
+     */
+    public long getRateLimited () {
+        
+        return this.rateLimited.sum();
+    }
+    
+    /**
+     * Gets the amount of requests which hit the global limit.
+     * 
+     * @return The amount of globally limited requests.
+     */
+    public long getGloballyLimited () {
+        
+        return this.globallyLimited.sum();
+    }
+    
+    /**
+     * Gets the amount of requests which were failed on purpose.
+     * 
+     * @return The amount of injected faults.
+     */
+    public long getFaults () {
+        
+        return this.faults.sum();
+    }
+    
+    @Override
+    public void close () {
+        
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+    
+    private void handle (HttpExchange exchange) throws IOException {
+        
+        // The body is not checked, only read so the connection can be reused.
+        try (InputStream in = exchange.getRequestBody()) {
+            
+            in.readAllBytes();
+        }
+        
+        this.requests.increment();
+        
+        final String[] path = exchange.getRequestURI().getPath().split("/");
+        
+        final boolean edit = "PATCH".equals(exchange.getRequestMethod()) && path.length == 7 && "messages".equals(path[5]);
+        
+        if (!edit && (!"POST".equals(exchange.getRequestMethod()) || path.length != 5)) {
+            
+            this.send(exchange, 404, "{\"message\": \"404: Not Found\", \"code\": 0}");
+            return;
+        }
+        
+        this.sleep();
+        
+        final double fault = this.faultRate;
+        
+        if (fault > 0 && ThreadLocalRandom.current().nextDouble() < fault) {
+            
+            this.faults.increment();
+            
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                
+                this.send(exchange, 503, "upstream connect error or disconnect/reset before headers");
+            }
+            else {
+                
+                // Closing without a response drops the connection.
+                exchange.close();
+            }
+            
+            return;
+        }
+        
+        final long now = System.nanoTime();
+        final long globalWait = this.global.acquire(now, this.globalLimit, TimeUnit.SECONDS.toNanos(1));
+        
+        if (globalWait > 0) {
+            
+            this.globallyLimited.increment();
+            this.rateLimited(exchange, globalWait, true);
+            return;
+        }
+        
+        final String bucketId = path[3];
+        final Window bucket = this.buckets.computeIfAbsent(bucketId, id -> new Window());
+        final int limit = this.bucketLimit;
+        final long wait = bucket.acquire(now, limit, TimeUnit.MILLISECONDS.toNanos(this.bucketWindowMillis));
+        final long resetAfter = bucket.getResetAfter(now);
+        
+        exchange.getResponseHeaders().add("X-RateLimit-Bucket", Integer.toHexString(bucketId.hashCode()));
+        exchange.getResponseHeaders().add("X-RateLimit-Limit", Integer.toString(limit));
+        exchange.getResponseHeaders().add("X-RateLimit-Remaining", Integer.toString(bucket.getRemaining(limit)));
+        exchange.getResponseHeaders().add("X-RateLimit-Reset", seconds(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) + resetAfter));
+        exchange.getResponseHeaders().add("X-RateLimit-Reset-After", seconds(resetAfter));
+        
+        if (wait > 0) {
+            
+            this.rateLimited(exchange, wait, false);
+            return;
+        }
+        
+        this.accepted.increment();
+        
+        // Like Discord, the created message is only sent back when the client waits for it,
+        // while edits always send back the message.
+        final String query = exchange.getRequestURI().getQuery();
+        
+        if (edit || query != null && query.contains("wait=true")) {
+            
+            final String id = edit ? path[6] : Long.toString(this.nextMessageId.incrementAndGet());
+            final String timestamp = "\"" + OffsetDateTime.now(ZoneOffset.UTC) + "\"";
+            this.send(exchange, 200, "{\"id\": \"" + id + "\", \"type\": 0, \"content\": \"\", \"channel_id\": \"" + path[3] + "\", \"attachments\": [], \"embeds\": [], \"timestamp\": " + timestamp + ", \"edited_timestamp\": " + (edit ? timestamp : "null") + ", \"webhook_id\": \"" + path[3] + "\"}");
+            return;
+        }
+        
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+    
+    private void rateLimited (HttpExchange exchange, long waitNanos, boolean global) throws IOException {
+        
+        this.rateLimited.increment();
+        exchange.getResponseHeaders().add("Retry-After", Long.toString((long) Math.ceil(waitNanos / 1e9)));
+        exchange.getResponseHeaders().add("X-RateLimit-Scope", global ? "global" : "user");
+        
+        if (global) {
+            
+            exchange.getResponseHeaders().add("X-RateLimit-Global", "true");
+        }
+        
+        this.send(exchange, 429, "{\"message\": \"You are being rate limited.\", \"retry_after\": " + seconds(waitNanos) + ", \"global\": " + global + "}");
+    }
+    
+    private void send (HttpExchange exchange, int statusCode, String body) throws IOException {
+        
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        
+        try (OutputStream out = exchange.getResponseBody()) {
+            
+            out.write(bytes);
+        }
+    }
+    
+    private void sleep () {
+        
+        final long min = this.minLatencyMillis;
+        final long max = this.maxLatencyMillis;
+        
+        if (max > 0) {
+            
+            try {
+                
+                Thread.sleep(min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1));
+            }
+            
+            catch (final InterruptedException e) {
+                
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private static String seconds (long nanos) {
+        
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e9);
+    }
+    
+    /**
+     * Creates a key store with a new self signed certificate for the loopback address.
+     * 
+     * @return The key store.
+     * @throws IOException If keytool failed.
+     */
+    private static KeyStore createKeyStore () throws IOException {
+        
+        final Path directory = Files.createTempDirectory("schoomp-stub");
+        final Path file = directory.resolve("stub.p12");
+        
+        try {
+            
+            final String keytool = System.getProperty("java.home") + "/bin/keytool";
+            final Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "stub", "-keyalg", "RSA", "-keysize", "2048", "-validity", "2", "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-storetype", "PKCS12", "-keystore", file.toString(), "-storepass", KEYSTORE_PASSWORD, "-keypass", KEYSTORE_PASSWORD).redirectErrorStream(true).start();
+            final byte[] output = process.getInputStream().readAllBytes();
+            
+            if (process.waitFor() != 0) {
+                
+                throw new IOException("keytool failed: " + new String(output, StandardCharsets.UTF_8));
+            }
+            
+            final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(new ByteArrayInputStream(Files.readAllBytes(file)), KEYSTORE_PASSWORD.toCharArray());
+            return keyStore;
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while creating the certificate.", e);
+        }
+        
+        catch (final GeneralSecurityException e) {
+            
+            throw new IOException("The certificate could not be loaded.", e);
+        }
+        
+        finally {
+            
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+    
+    private static SSLContext createServerContext (KeyStore keyStore) throws IOException {
+        
+        try {
+            
+            final KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keys.init(keyStore, KEYSTORE_PASSWORD.toCharArray());
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keys.getKeyManagers(), null, null);
+            return context;
+        }
+        
+        catch (final GeneralSecurityException e) {
+            
+            throw new IOException("The server SSL context could not be created.", e);
+        }
+    }
+    
+    private static SSLContext createClientContext (KeyStore keyStore) throws IOException {
+        
+        try {
+            
+            final Certificate certificate = keyStore.getCertificate("stub");
+            final KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            trustStore.load(null, null);
+            trustStore.setCertificateEntry("stub", certificate);
+            
+            final TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trust.init(trustStore);
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, trust.getTrustManagers(), null);
+            return context;
+        }
+        
+        catch (final GeneralSecurityException e) {
+            
+            throw new IOException("The client SSL context could not be created.", e);
+        }
+    }
+    
+    /**
+     * A fixed rate limit window.
+     */
+    private static final class Window {
+        
+        private long start = Long.MIN_VALUE;
+        
+        private long length;
+        
+        private int used;
+        
+        /**
+         * Counts a request against the window.
+         * 
+         * @param now The current {@link System#nanoTime()}.
+         * @param limit The amount of requests allowed in a window.
+         * @param length How long a window lasts.
+         * @return 0 if the request is allowed, otherwise how long until the window resets.
+         */
+        synchronized long acquire (long now, int limit, long length) {
+            
+            if (this.start == Long.MIN_VALUE || now - this.start >= this.length) {
+                
+                this.start = now;
+                this.length = length;
+                this.used = 0;
+            }
+            
+            if (this.used >= limit) {
+                
+                return Math.max(this.start + this.length - now, 1);
+            }
+            
+            this.used++;
+            return 0;
+        }
+        
+        synchronized int getRemaining (int limit) {
+            
+            return Math.max(limit - this.used, 0);
+        }
+        
+        synchronized long getResetAfter (long now) {
+            
+            return Math.max(this.start + this.length - now, 0);
+        }
+    }
+}
\ No newline at end of file
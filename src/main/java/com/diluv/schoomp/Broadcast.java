@@ -0,0 +1,320 @@
+package com.diluv.schoomp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * Sends the same message to many webhooks, such as posting an announcement to every channel
+ * that follows a project. The message is encoded once and the same bytes are sent to every
+ * webhook, and the sends run in parallel so the whole broadcast takes about as long as the
+ * slowest webhook rather than all of them added together.
+ * <p>
+ * At most {@link #setMaxConcurrency(int)} webhooks are sent to at once, and the next webhook
+ * is started as soon as one of them finishes. Each webhook still follows its own rate limit
+ * and retry policy. A webhook that fails does not stop the others, and its failure is reported
+ * in its {@link Outcome}.
+ */
+public final class Broadcast {
+    
+    private final List<Webhook> webhooks;
+    
+    private int maxConcurrency = 16;
+    
+    private Executor executor = SendExecutors.defaultExecutor();
+    
+    /**
+     * Creates a broadcast to several webhooks.
+     * 
+     * @param webhooks The webhooks to send to.
+     */
+    public Broadcast(Webhook... webhooks) {
+        
+        this(Arrays.asList(webhooks));
+    }
+    
+    /**
+     * Creates a broadcast to several webhooks.
+     * 
+     * @param webhooks The webhooks to send to.
+     */
+    public Broadcast(List<Webhook> webhooks) {
+        
+        if (webhooks.isEmpty()) {
+            
+            throw new IllegalArgumentException("A broadcast needs at least one webhook.");
+        }
+        
+        this.webhooks = Collections.unmodifiableList(new ArrayList<>(webhooks));
+    }
+    
+    /**
+     * Gets the webhooks the broadcast sends to.
+     * 
+     * @return The webhooks of the broadcast.
+     */
+    public List<Webhook> getWebhooks () {
+        
+        return this.webhooks;
+    }
+    
+    /**
+     * Sets how many webhooks are sent to at the same time. The default is 16.
+     * 
+     * @param maxConcurrency The most webhooks with a request in flight at once.
+     * @return The same broadcast instance.
+     */
+    public synchronized Broadcast setMaxConcurrency (int maxConcurrency) {
+        
+        if (maxConcurrency < 1) {
+            
+            throw new IllegalArgumentException("At least one webhook must be sent to at a time, got " + maxConcurrency);
+        }
+        
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+    
+    /**
+     * Sets the executor used to send the requests. By default the same executor as
+     * {@link Webhook#sendMessageAsync(Message)} is used.
+     * 
+     * @param executor The executor to send requests with.
+     * @return The same broadcast instance.
+     */
+    public synchronized Broadcast setExecutor (Executor executor) {
+        
+        this.executor = Objects.requireNonNull(executor);
+        return this;
+    }
+    
+    /**
+     * Sends a message to every webhook. The message is encoded right away, so it can be
+     * changed once this returns. Messages with more content than Discord allows are split
+     * with {@link Message#split()}, and each webhook receives the parts in order.
+     * 
+     * @param message The message to send.
+     * @return A future that completes once every webhook has been sent to, with an outcome for
+     *         each webhook in the same order as {@link #getWebhooks()}. The future only
+     *         completes exceptionally if the message could not be encoded, or one of its
+     *         attachments could not be read.
+     */
+    public CompletableFuture<List<Outcome>> sendMessageAsync (Message message) {
+        
+        final List<RequestBody> bodies = new ArrayList<>();
+        
+        try {
+            
+            for (final Message part : message.split()) {
+                
+                bodies.add(Webhook.toBody(part));
+            }
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            final CompletableFuture<List<Outcome>> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        return this.sendAsync(bodies);
+    }
+    
+    /**
+     * Sends a request body to every webhook. This allows messages which have already been
+     * encoded, such as those created by a {@link com.diluv.schoomp.json.MessageTemplate}, to be
+     * broadcast. The body is written by several webhooks at once, so it must write the same
+     * bytes every time and must not be changed until the returned future has completed.
+     * 
+     * @param body The body to send.
+     * @return A future that completes once every webhook has been sent to, with an outcome for
+     *         each webhook in the same order as {@link #getWebhooks()}.
+     */
+    public CompletableFuture<List<Outcome>> sendAsync (RequestBody body) {
+        
+        return this.sendAsync(Collections.singletonList(body));
+    }
+    
+    private CompletableFuture<List<Outcome>> sendAsync (List<RequestBody> bodies) {
+        
+        final Run run;
+        final int concurrency;
+        
+        synchronized (this) {
+            
+            run = new Run(bodies, this.executor);
+            concurrency = Math.min(this.maxConcurrency, this.webhooks.size());
+        }
+        
+        for (int i = 0; i < concurrency; i++) {
+            
+            run.sendNext();
+        }
+        
+        return run.future;
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "Broadcast [webhooks=" + this.webhooks.size() + "]";
+    }
+    
+    /**
+     * A single broadcast which is in progress.
+     */
+    private final class Run {
+        
+        private final List<RequestBody> bodies;
+        
+        private final Executor executor;
+        
+        private final Outcome[] outcomes = new Outcome[Broadcast.this.webhooks.size()];
+        
+        /**
+         * The index of the next webhook to send to.
+         */
+        private final AtomicInteger next = new AtomicInteger();
+        
+        /**
+         * The amount of webhooks which have not finished yet.
+         */
+        private final AtomicInteger remaining = new AtomicInteger(this.outcomes.length);
+        
+        private final CompletableFuture<List<Outcome>> future = new CompletableFuture<>();
+        
+        private Run(List<RequestBody> bodies, Executor executor) {
+            
+            this.bodies = bodies;
+            this.executor = executor;
+        }
+        
+        /**
+         * Starts sending to the next webhook that has not been started yet, if there is one.
+         * Each webhook that finishes starts the next one, which keeps the amount of requests
+         * in flight at the limit until every webhook has been started.
+         */
+        private void sendNext () {
+            
+            final int index = this.next.getAndIncrement();
+            
+            if (index >= this.outcomes.length) {
+                
+                return;
+            }
+            
+            final Webhook webhook = Broadcast.this.webhooks.get(index);
+            CompletableFuture<Response> request;
+            
+            try {
+                
+                request = webhook.sendPartsAsync(this.bodies, this.executor);
+            }
+            
+            catch (final RuntimeException e) {
+                
+                request = new CompletableFuture<>();
+                request.completeExceptionally(e);
+            }
+            
+            request.whenComplete( (response, error) -> {
+                
+                this.outcomes[index] = new Outcome(webhook, response, error);
+                
+                // The final decrement happens after every outcome was written, so the list is
+                // complete when it is handed out.
+                if (this.remaining.decrementAndGet() == 0) {
+                    
+                    this.future.complete(Collections.unmodifiableList(Arrays.asList(this.outcomes)));
+                }
+                
+                else {
+                    
+                    this.sendNext();
+                }
+            });
+        }
+    }
+    
+    /**
+     * The result of sending a broadcast to one of its webhooks.
+     */
+    public static final class Outcome {
+        
+        private final Webhook webhook;
+        
+        @Nullable
+        private final Response response;
+        
+        @Nullable
+        private final Throwable error;
+        
+        private Outcome(Webhook webhook, @Nullable Response response, @Nullable Throwable error) {
+            
+            this.webhook = webhook;
+            this.response = response;
+            this.error = error;
+        }
+        
+        /**
+         * Gets the webhook the message was sent to.
+         * 
+         * @return The webhook of this outcome.
+         */
+        public Webhook getWebhook () {
+            
+            return this.webhook;
+        }
+        
+        /**
+         * Gets the response from Discord. When the message was split this is the response to
+         * the last part that was sent.
+         * 
+         * @return The response, or null if the request failed without one.
+         */
+        @Nullable
+        public Response getResponse () {
+            
+            return this.response;
+        }
+        
+        /**
+         * Gets the reason the request failed without a response.
+         * 
+         * @return The cause of the failure, or null if Discord responded.
+         */
+        @Nullable
+        public Throwable getError () {
+            
+            return this.error;
+        }
+        
+        /**
+         * Checks if Discord accepted the message.
+         * 
+         * @return Whether or not the webhook responded with a successful status code.
+         */
+        public boolean isDelivered () {
+            
+            return this.response != null && this.response.getStatusCode() / 100 == 2;
+        }
+        
+        @Override
+        public String toString () {
+            
+            return "Outcome [webhook=" + this.webhook.getId() + ", response=" + this.response + ", error=" + this.error + "]";
+        }
+    }
+}
\ No newline at end of file
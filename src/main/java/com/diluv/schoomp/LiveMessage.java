@@ -0,0 +1,346 @@
+package com.diluv.schoomp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * A message which is posted once and then kept up to date by editing it, such as a dashboard
+ * or a progress indicator. This avoids flooding the channel, and the rate limit, with a new
+ * message for every change.
+ * <p>
+ * The first update posts the message, and every update after that edits it. Updates are
+ * coalesced, so when updates arrive faster than edits are allowed only the newest state is
+ * sent and the states in between are dropped. Edits are sent one at a time and at most
+ * {@link #setMaxEditsPerSecond(double)} times per second. An edit is skipped entirely when the
+ * encoded message is exactly the same as the last one Discord accepted.
+ * <p>
+ * Edits can not change the username, avatar or text to speech setting of a message, so those
+ * are only taken from the first update. Attachments are never sent by a live message.
+ * <p>
+ * Edits are PATCH requests, which {@link com.diluv.schoomp.transport.UrlConnectionTransport}
+ * can not send, so a live message can not be created for a webhook that uses it. On Java 8,
+ * where that is the default transport, the webhook should be created with a
+ * {@link com.diluv.schoomp.transport.NioTransport}.
+ */
+public final class LiveMessage implements Closeable {
+    
+    private final Webhook webhook;
+    
+    /**
+     * The shortest amount of time between the start of two requests.
+     */
+    private long intervalNanos = TimeUnit.SECONDS.toNanos(1);
+    
+    private Executor executor = SendExecutors.defaultExecutor();
+    
+    /**
+     * The id of the posted message, or null if it has not been posted yet.
+     */
+    @Nullable
+    private String messageId;
+    
+    /**
+     * The newest state which has not been sent yet, or null if there is none.
+     */
+    @Nullable
+    private byte[] pending;
+    
+    /**
+     * The futures of every update which will be completed by sending the pending state.
+     */
+    private List<CompletableFuture<Response>> waiting = new ArrayList<>();
+    
+    /**
+     * The last state Discord accepted, and the response it was accepted with.
+     */
+    @Nullable
+    private byte[] lastSent;
+    
+    @Nullable
+    private Response lastResponse;
+    
+    /**
+     * Whether or not a request is being sent or is scheduled to be sent. Only one request is
+     * sent at a time so edits can not arrive out of order.
+     */
+    private boolean busy;
+    
+    /**
+     * The {@link System#nanoTime()} after which the next request may be sent.
+     */
+    private long nextSendAt;
+    
+    private boolean closed;
+    
+    /**
+     * Creates a live message which is posted through a webhook on its first update.
+     * 
+     * @param webhook The webhook to post and edit the message with.
+     * @throws IllegalArgumentException If the transport of the webhook can not edit messages.
+     */
+    public LiveMessage(Webhook webhook) {
+        
+        if (!webhook.getTransport().supportsMethod("PATCH")) {
+            
+            throw new IllegalArgumentException("The transport of the webhook can not send the PATCH requests used to edit messages. Use a NioTransport, or the default transport on Java 11 and newer.");
+        }
+        
+        this.webhook = webhook;
+        this.nextSendAt = System.nanoTime();
+    }
+    
+    /**
+     * Sets how many edits can be sent each second. The default is 1. Keep in mind that edits
+     * share the rate limit of the webhook with every other message it sends.
+     * 
+     * @param editsPerSecond The amount of edits allowed each second.
+     * @return The same live message instance.
+     */
+    public synchronized LiveMessage setMaxEditsPerSecond (double editsPerSecond) {
+        
+        if (!(editsPerSecond > 0)) {
+            
+            throw new IllegalArgumentException("At least some edits must be allowed, got " + editsPerSecond);
+        }
+        
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / editsPerSecond);
+        return this;
+    }
+    
+    /**
+     * Sets the executor used to send the requests. By default the same executor as
+     * {@link Webhook#sendMessageAsync(Message)} is used.
+     * 
+     * @param executor The executor to send requests with.
+     * @return The same live message instance.
+     */
+    public synchronized LiveMessage setExecutor (Executor executor) {
+        
+        this.executor = Objects.requireNonNull(executor);
+        return this;
+    }
+    
+    /**
+     * Gets the id of the posted message.
+     * 
+     * @return The id of the message, or null if it has not been posted yet.
+     */
+    @Nullable
+    public synchronized String getMessageId () {
+        
+        return this.messageId;
+    }
+    
+    /**
+     * Updates the message to a new state. The message is encoded right away, so it can be
+     * changed and passed to this method again once it returns.
+     * 
+     * @param message The new state of the message.
+     * @return A future that completes with the response to the request which sent this state,
+     *         or a newer state that replaced it. When nothing had to be sent because the state
+     *         did not change, the future completes with the response of the last request. The
+     *         future completes exceptionally if the request failed or Discord did not accept
+     *         it.
+     */
+    public CompletableFuture<Response> update (Message message) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        final byte[] payload;
+        
+        try {
+            
+            payload = message.toBytes();
+        }
+        
+        catch (final RuntimeException e) {
+            
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        synchronized (this) {
+            
+            if (this.closed) {
+                
+                future.completeExceptionally(new RejectedExecutionException("The live message has been closed."));
+                return future;
+            }
+            
+            this.pending = payload;
+            this.waiting.add(future);
+            
+            if (this.busy) {
+                
+                return future;
+            }
+            
+            this.busy = true;
+        }
+        
+        this.dispatch();
+        return future;
+    }
+    
+    /**
+     * Stops accepting updates. An update which is still waiting to be sent will be sent.
+     */
+    @Override
+    public synchronized void close () {
+        
+        this.closed = true;
+    }
+    
+    /**
+     * Sends the pending state if there is one, or schedules it to be sent once another request
+     * is allowed. Must only be called by whoever set {@link #busy}.
+     */
+    private void dispatch () {
+        
+        final byte[] payload;
+        final List<CompletableFuture<Response>> futures;
+        final String messageId;
+        final Executor executor;
+        final Response unchanged;
+        
+        synchronized (this) {
+            
+            if (this.pending == null) {
+                
+                this.busy = false;
+                return;
+            }
+            
+            if (this.messageId != null && Arrays.equals(this.pending, this.lastSent)) {
+                
+                futures = this.takeWaiting();
+                unchanged = this.lastResponse;
+                this.busy = false;
+                payload = null;
+                messageId = null;
+                executor = null;
+            }
+            
+            else {
+                
+                final long now = System.nanoTime();
+                
+                if (this.nextSendAt - now > 0) {
+                    
+                    SendExecutors.scheduler().schedule(this::dispatch, this.nextSendAt - now, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                
+                payload = this.pending;
+                futures = this.takeWaiting();
+                messageId = this.messageId;
+                executor = this.executor;
+                unchanged = null;
+                this.nextSendAt = now + this.intervalNanos;
+            }
+        }
+        
+        if (payload == null) {
+            
+            for (final CompletableFuture<Response> future : futures) {
+                
+                future.complete(unchanged);
+            }
+            
+            return;
+        }
+        
+        final RequestBody body = RequestBody.of(Json.CONTENT_TYPE, payload);
+        
+        // The message is posted with wait=true so Discord sends back its id.
+        final CompletableFuture<Response> request = messageId == null ? this.webhook.sendAsync(body, executor, true) : this.webhook.editAsync(messageId, body, executor);
+        request.whenComplete( (response, error) -> this.finish(payload, futures, response, error));
+    }
+    
+    /**
+     * Records the outcome of a request, completes the updates it sent, and moves on to the
+     * next pending state.
+     * 
+     * @param payload The state that was sent.
+     * @param futures The futures of the updates which were sent.
+     * @param response The response from Discord, or null if the request failed.
+     * @param error The reason the request failed, or null if it did not.
+     */
+    private void finish (byte[] payload, List<CompletableFuture<Response>> futures, @Nullable Response response, @Nullable Throwable error) {
+        
+        Throwable failure = error;
+        
+        synchronized (this) {
+            
+            // The state never reached Discord, so the updates that sent it fail. The next
+            // update is compared against the last accepted state, so it is sent even when it
+            // is the same as this one.
+            if (failure == null && response.getStatusCode() / 100 != 2) {
+                
+                failure = new IOException("Discord answered the " + (this.messageId == null ? "post" : "edit") + " of a live message with status " + response.getStatusCode() + ".");
+            }
+            
+            else if (failure == null) {
+                
+                if (this.messageId == null) {
+                    
+                    this.messageId = response.getMessageId();
+                }
+                
+                // Without an id the next update posts the message again.
+                if (this.messageId == null) {
+                    
+                    failure = new IOException("Discord did not send back the id of the posted message.");
+                }
+                
+                else {
+                    
+                    this.lastSent = payload;
+                    this.lastResponse = response;
+                }
+            }
+        }
+        
+        for (final CompletableFuture<Response> future : futures) {
+            
+            if (failure != null) {
+                
+                future.completeExceptionally(failure);
+            }
+            
+            else {
+                
+                future.complete(response);
+            }
+        }
+        
+        this.dispatch();
+    }
+    
+    /**
+     * Takes the pending state and the futures waiting on it. Must be called while holding the
+     * lock.
+     * 
+     * @return The futures which were waiting on the pending state.
+     */
+    private List<CompletableFuture<Response>> takeWaiting () {
+        
+        final List<CompletableFuture<Response>> futures = this.waiting;
+        this.waiting = new ArrayList<>();
+        this.pending = null;
+        return futures;
+    }
+}
\ No newline at end of file
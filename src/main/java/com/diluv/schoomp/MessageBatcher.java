@@ -0,0 +1,457 @@
+package com.diluv.schoomp;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.message.Attachment;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Embed;
+
+/**
+ * Buffers messages for a short amount of time and combines them into as few requests as
+ * Discord allows. Each request uses up part of the rate limit of a webhook, so sending many
+ * small messages together can send a lot more of them before being limited.
+ * <p>
+ * Messages are only combined when they have the same username, avatar and text to speech
+ * setting. A combined message holds at most 10 embeds, 10 attachments, 2000 characters of
+ * content, and 6000 characters of embed text. The content of combined messages is joined with
+ * new lines, and their embeds and attachments are kept in the order the messages were
+ * submitted.
+ * <p>
+ * Messages must not be changed after they have been submitted.
+ */
+public final class MessageBatcher implements Closeable {
+    
+    private final Webhook webhook;
+    
+    /**
+     * The messages waiting to be sent, in the order they were submitted.
+     */
+    private List<Pending> buffer = new ArrayList<>();
+    
+    /**
+     * The task that will flush the buffer once the linger time runs out.
+     */
+    @Nullable
+    private ScheduledFuture<?> scheduledFlush;
+    
+    private long lingerNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private int maxBuffered = 100;
+    
+    private Executor executor = SendExecutors.defaultExecutor();
+    
+    private boolean closed;
+    
+    /**
+     * Creates a batcher that sends combined messages through a webhook.
+     * 
+     * @param webhook The webhook to send messages to.
+     */
+    public MessageBatcher(Webhook webhook) {
+        
+        this.webhook = webhook;
+    }
+    
+    /**
+     * Sets how long a message may wait for other messages before it is sent. The default is
+     * 50 milliseconds.
+     * 
+     * @param linger The amount of time to wait.
+     * @param unit The unit of the linger time.
+     * @return The same batcher instance.
+     */
+    public synchronized MessageBatcher setLinger (long linger, TimeUnit unit) {
+        
+        if (linger < 0) {
+            
+            throw new IllegalArgumentException("The linger time can not be negative.");
+        }
+        
+        this.lingerNanos = unit.toNanos(linger);
+        return this;
+    }
+    
+    /**
+     * Sets how many messages can be buffered before they are sent without waiting for the
+     * linger time to run out. The default is 100.
+     * 
+     * @param maxBuffered The amount of messages to buffer.
+     * @return The same batcher instance.
+     */
+    public synchronized MessageBatcher setMaxBuffered (int maxBuffered) {
+        
+        if (maxBuffered < 1) {
+            
+            throw new IllegalArgumentException("At least one message must be buffered.");
+        }
+        
+        this.maxBuffered = maxBuffered;
+        return this;
+    }
+    
+    /**
+     * Sets the executor used to send the combined messages. By default the same executor as
+     * {@link Webhook#sendMessageAsync(Message)} is used.
+     * 
+     * @param executor The executor to send messages with.
+     * @return The same batcher instance.
+     */
+    public synchronized MessageBatcher setExecutor (Executor executor) {
+        
+        this.executor = Objects.requireNonNull(executor);
+        return this;
+    }
+    
+    /**
+     * Submits a message to be sent with the next batch.
+     * 
+     * @param message The message to send.
+     * @return A future that completes with the response to the request the message was sent
+     *         in. Messages that were combined share the same response.
+     */
+    public CompletableFuture<Response> submit (Message message) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        List<Pending> full = null;
+        
+        synchronized (this) {
+            
+            if (this.closed) {
+                
+                future.completeExceptionally(new RejectedExecutionException("The batcher has been closed."));
+                return future;
+            }
+            
+            this.buffer.add(new Pending(message, future));
+            
+            if (this.buffer.size() >= this.maxBuffered || this.lingerNanos == 0) {
+                
+                full = this.drain();
+            }
+            
+            else if (this.scheduledFlush == null) {
+                
+                // The flush encodes the messages, which is too much work for the scheduler thread.
+                final Executor executor = this.executor;
+                this.scheduledFlush = SendExecutors.scheduler().schedule( () -> executor.execute(this::flush), this.lingerNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        
+        if (full != null) {
+            
+            this.send(full);
+        }
+        
+        return future;
+    }
+    
+    /**
+     * Sends all buffered messages right away.
+     */
+    public void flush () {
+        
+        final List<Pending> pending;
+        
+        synchronized (this) {
+            
+            pending = this.drain();
+        }
+        
+        this.send(pending);
+    }
+    
+    /**
+     * Sends all buffered messages and stops accepting new ones.
+     */
+    @Override
+    public void close () {
+        
+        synchronized (this) {
+            
+            this.closed = true;
+        }
+        
+        this.flush();
+    }
+    
+    /**
+     * Takes all the messages out of the buffer. Must be called while holding the lock.
+     * 
+     * @return The messages that were in the buffer.
+     */
+    private List<Pending> drain () {
+        
+        if (this.scheduledFlush != null) {
+            
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+        
+        final List<Pending> pending = this.buffer;
+        this.buffer = new ArrayList<>();
+        return pending;
+    }
+    
+    private void send (List<Pending> pending) {
+        
+        if (pending.isEmpty()) {
+            
+            return;
+        }
+        
+        final Executor executor;
+        
+        synchronized (this) {
+            
+            executor = this.executor;
+        }
+        
+        for (final Batch batch : pack(pending)) {
+            
+            final Message message = batch.toMessage();
+            
+            this.webhook.sendMessageAsync(message, executor).whenComplete( (response, error) -> {
+                
+                for (final Pending part : batch.parts) {
+                    
+                    if (error != null) {
+                        
+                        part.future.completeExceptionally(error);
+                    }
+                    
+                    else {
+                        
+                        part.future.complete(response);
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Packs messages into as few batches as possible. Each message is added to the oldest
+     * batch with the same identity that still has room for it.
+     * 
+     * @param pending The messages to pack.
+     * @return The packed batches, in the order they were started.
+     */
+    private static List<Batch> pack (List<Pending> pending) {
+        
+        final Map<Identity, List<Batch>> open = new LinkedHashMap<>();
+        final List<Batch> batches = new ArrayList<>();
+        
+        for (final Pending part : pending) {
+            
+            final List<Batch> candidates = open.computeIfAbsent(new Identity(part.message), key -> new ArrayList<>());
+            Batch target = null;
+            
+            for (final Iterator<Batch> iterator = candidates.iterator(); iterator.hasNext();) {
+                
+                final Batch batch = iterator.next();
+                
+                if (batch.fits(part)) {
+                    
+                    target = batch;
+                    break;
+                }
+                
+                // Batches that are full are not checked again.
+                if (batch.isFull()) {
+                    
+                    iterator.remove();
+                }
+            }
+            
+            if (target == null) {
+                
+                target = new Batch(part.message);
+                candidates.add(target);
+                batches.add(target);
+            }
+            
+            target.add(part);
+        }
+        
+        return batches;
+    }
+    
+    private static int length (@Nullable String text) {
+        
+        return text == null ? 0 : text.length();
+    }
+    
+    /**
+     * A message waiting to be sent and the future to complete once it has been.
+     */
+    private static final class Pending {
+        
+        private final Message message;
+        
+        private final CompletableFuture<Response> future;
+        
+        private final int contentLength;
+        
+        private final int embedCount;
+        
+        private final int embedTextLength;
+        
+        private final int attachmentCount;
+        
+        private Pending(Message message, CompletableFuture<Response> future) {
+            
+            this.message = message;
+            this.future = future;
+            this.contentLength = length(message.getContent());
+            this.embedCount = message.getEmbeds() == null ? 0 : message.getEmbeds().size();
+            this.embedTextLength = message.getEmbedTextLength();
+            this.attachmentCount = message.hasAttachments() ? message.getAttachments().size() : 0;
+        }
+    }
+    
+    /**
+     * The parts of a message that must be the same for messages to be combined.
+     */
+    private static final class Identity {
+        
+        @Nullable
+        private final String username;
+        
+        @Nullable
+        private final String avatarUrl;
+        
+        private final boolean tts;
+        
+        private Identity(Message message) {
+            
+            this.username = message.getUsername();
+            this.avatarUrl = message.getAvatarUrl();
+            this.tts = message.isTts();
+        }
+        
+        @Override
+        public boolean equals (Object obj) {
+            
+            if (!(obj instanceof Identity)) {
+                
+                return false;
+            }
+            
+            final Identity other = (Identity) obj;
+            return this.tts == other.tts && Objects.equals(this.username, other.username) && Objects.equals(this.avatarUrl, other.avatarUrl);
+        }
+        
+        @Override
+        public int hashCode () {
+            
+            return Objects.hash(this.username, this.avatarUrl, this.tts);
+        }
+    }
+    
+    /**
+     * A group of messages that will be sent as one.
+     */
+    private static final class Batch {
+        
+        private final Message first;
+        
+        private final List<Pending> parts = new ArrayList<>();
+        
+        private int contentLength;
+        
+        private int embedCount;
+        
+        private int embedTextLength;
+        
+        private int attachmentCount;
+        
+        private Batch(Message first) {
+            
+            this.first = first;
+        }
+        
+        private boolean fits (Pending part) {
+            
+            // Content is joined with a new line when both messages have some.
+            final int separator = this.contentLength > 0 && part.contentLength > 0 ? 1 : 0;
+            return this.contentLength + separator + part.contentLength <= Message.MAX_CONTENT_LENGTH && this.embedCount + part.embedCount <= Message.MAX_EMBEDS && this.embedTextLength + part.embedTextLength <= Embed.MAX_TEXT_LENGTH && this.attachmentCount + part.attachmentCount <= Message.MAX_ATTACHMENTS;
+        }
+        
+        private boolean isFull () {
+            
+            return this.embedCount >= Message.MAX_EMBEDS && this.contentLength >= Message.MAX_CONTENT_LENGTH;
+        }
+        
+        private void add (Pending part) {
+            
+            final int separator = this.contentLength > 0 && part.contentLength > 0 ? 1 : 0;
+            this.contentLength += separator + part.contentLength;
+            this.embedCount += part.embedCount;
+            this.embedTextLength += part.embedTextLength;
+            this.attachmentCount += part.attachmentCount;
+            this.parts.add(part);
+        }
+        
+        private Message toMessage () {
+            
+            // A message that was not combined is sent exactly as it was submitted.
+            if (this.parts.size() == 1) {
+                
+                return this.first;
+            }
+            
+            final Message message = new Message().setUsername(this.first.getUsername()).setAvatarUrl(this.first.getAvatarUrl()).setTts(this.first.isTts());
+            final StringBuilder content = new StringBuilder();
+            
+            for (final Pending part : this.parts) {
+                
+                final String partContent = part.message.getContent();
+                
+                if (partContent != null && !partContent.isEmpty()) {
+                    
+                    if (content.length() > 0) {
+                        
+                        content.append('\n');
+                    }
+                    
+                    content.append(partContent);
+                }
+                
+                if (part.message.getEmbeds() != null) {
+                    
+                    for (final Embed embed : part.message.getEmbeds()) {
+                        
+                        message.addEmbed(embed);
+                    }
+                }
+                
+                if (part.message.hasAttachments()) {
+                    
+                    for (final Attachment attachment : part.message.getAttachments()) {
+                        
+                        message.addAttachment(attachment);
+                    }
+                }
+            }
+            
+            if (content.length() > 0) {
+                
+                message.setContent(content.toString());
+            }
+            
+            return message;
+        }
+    }
+}
\ No newline at end of file
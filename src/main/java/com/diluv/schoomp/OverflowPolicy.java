@@ -0,0 +1,27 @@
+package com.diluv.schoomp;
+
+/**
+ * Decides what happens when a message is added to a {@link SendQueue} that is full.
+ */
+public enum OverflowPolicy {
+    
+    /**
+     * The caller waits until there is room in the queue.
+     */
+    BLOCK,
+    
+    /**
+     * The new message is dropped.
+     */
+    DROP_NEWEST,
+    
+    /**
+     * The oldest message in the queue is dropped to make room for the new message.
+     */
+    DROP_OLDEST,
+    
+    /**
+     * An {@link IllegalStateException} is thrown to the caller.
+     */
+    FAIL_FAST
+}
\ No newline at end of file
@@ -0,0 +1,692 @@
+package com.diluv.schoomp;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the rate limits Discord sends back for each webhook and delays outgoing requests just
+ * long enough to avoid being rejected with a 429. Limits are tracked in buckets which are keyed
+ * by the id of the webhook. A global limit is also tracked which applies to every webhook
+ * using the same rate limiter.
+ * <p>
+ * Each request takes a slot before it is sent, and returns it once a response has been
+ * received. This allows many requests to be in flight at once without exceeding the limit, as
+ * the slots used by requests Discord has not answered yet are taken into account. Requests
+ * which do not fit into the current window wait in line, and take their slot once the window
+ * Discord reported has ended rather than at a time estimated when they were queued.
+ * <p>
+ * Requests are spread out under the global limit before Discord has to enforce it, and
+ * requests that were held back by a global 429 are released one after another once it is
+ * lifted rather than all at once.
+ */
+public final class RateLimiter {
+    
+    /**
+     * The window to assume when a bucket runs out before Discord has told us how long the
+     * window is. Webhooks are usually limited to 5 requests every 2 seconds.
+     */
+    static final long FALLBACK_WINDOW = TimeUnit.SECONDS.toNanos(2);
+    
+    /**
+     * The amount of requests to allow in the first window of a bucket, before Discord has told
+     * us the real limit. Without this a burst to a new webhook would all be sent at once and
+     * mostly be rejected.
+     */
+    static final int ASSUMED_LIMIT = 5;
+    
+    /**
+     * The amount of requests Discord allows per second across every webhook.
+     */
+    static final int DEFAULT_GLOBAL_LIMIT = 50;
+    
+    /**
+     * Extra time to wait after a window has ended before waiting requests try to take a slot
+     * in the next one, so timers that fire a little early do not land in the old window.
+     */
+    private static final long WINDOW_MARGIN = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    /**
+     * The window the global limit is counted over.
+     */
+    private static final long GLOBAL_WINDOW = TimeUnit.SECONDS.toNanos(1);
+    
+    /**
+     * The rate limiter shared by all webhooks in the JVM by default. This is created
+     * after the constants above, as its constructor uses them.
+     */
+    private static final RateLimiter SHARED = new RateLimiter();
+    
+    /**
+     * All the buckets that are being tracked, keyed by the webhook id.
+     */
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    
+    /**
+     * The time between two requests under the global limit.
+     */
+    private final long globalSpacing;
+    
+    /**
+     * The times at which requests that have been answered stop counting against the global
+     * limit, oldest first. Discord counts a request when it arrives, which can be any time
+     * until its response is received, so a request counts against the limit until a full
+     * window after its response. No more than the limit can be counted at once, so requests
+     * held up on the way, such as behind a slow connection, can not arrive together and
+     * exceed it.
+     */
+    private final long[] globalReleases;
+    
+    /**
+     * The index of the oldest time in {@link #globalReleases}.
+     */
+    private int globalReleaseHead;
+    
+    /**
+     * The amount of times in {@link #globalReleases}.
+     */
+    private int globalReleaseCount;
+    
+    /**
+     * The amount of requests that have been let through the global limit but not answered.
+     */
+    private int globalInFlight;
+    
+    /**
+     * The {@link System#nanoTime()} at which the next request may be sent under the global
+     * limit.
+     */
+    private final AtomicLong globalNextAt = new AtomicLong(System.nanoTime());
+    
+    /**
+     * The {@link System#nanoTime()} at which the global rate limit is lifted.
+     */
+    private volatile long globalResetAt;
+    
+    /**
+     * Whether or not {@link #globalResetAt} is set.
+     */
+    private volatile boolean globalLimited;
+    
+    /**
+     * Creates a rate limiter which assumes the global limit Discord usually applies, of 50
+     * requests per second.
+     */
+    public RateLimiter() {
+        
+        this(DEFAULT_GLOBAL_LIMIT);
+    }
+    
+    /**
+     * Creates a rate limiter with a different global limit.
+     * 
+     * @param globalLimit The amount of requests allowed per second across every webhook.
+     * @throws IllegalArgumentException If the limit is less than 1.
+     */
+    public RateLimiter(int globalLimit) {
+        
+        if (globalLimit < 1) {
+            
+            throw new IllegalArgumentException("The global limit must be at least 1, got " + globalLimit + ".");
+        }
+        
+        this.globalSpacing = Math.max(GLOBAL_WINDOW / globalLimit, 1);
+        this.globalReleases = new long[globalLimit];
+    }
+    
+    /**
+     * Gets the rate limiter that is shared by all webhooks in the JVM.
+     * 
+     * @return The shared rate limiter.
+     */
+    public static RateLimiter shared () {
+        
+        return SHARED;
+    }
+    
+    /**
+     * Takes a slot to send a request to a bucket, blocking the current thread until the
+     * request can be sent. This must be followed up with either
+     * {@link #update(String, Response)} once a response is received, or
+     * {@link #cancel(String)} if the request could not be sent.
+     * 
+     * @param bucketId The id of the bucket, usually the id of the webhook.
+     * @throws InterruptedIOException If the thread was interrupted while waiting.
+     */
+    public void acquire (String bucketId) throws InterruptedIOException {
+        
+        final Bucket bucket = this.getBucket(bucketId);
+        long delay = bucket.reserve(System.nanoTime());
+        
+        try {
+            
+            // Discord may have moved the end of the window while we were waiting in line.
+            while (delay > 0) {
+                
+                TimeUnit.NANOSECONDS.sleep(delay);
+                delay = bucket.claim(System.nanoTime());
+            }
+        }
+        
+        catch (final InterruptedException e) {
+            
+            bucket.leave();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit.");
+        }
+        
+        try {
+            
+            delay = this.reserveGlobal(System.nanoTime());
+            
+            // The global limit may be hit by another webhook while we are waiting.
+            while (delay > 0) {
+                
+                TimeUnit.NANOSECONDS.sleep(delay);
+                delay = this.admitGlobal(System.nanoTime());
+            }
+        }
+        
+        catch (final InterruptedException e) {
+            
+            bucket.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit.");
+        }
+    }
+    
+    /**
+     * Takes a slot to send a request to a bucket without blocking, and runs a task once the
+     * request can be sent. Waiting is done on a timer so no thread is held while waiting. The
+     * task is run on the calling thread if the request can be sent right away, and otherwise on
+     * a shared timer thread, so it should hand any real work off to another executor. This must
+     * be followed up in the same way as {@link #acquire(String)}.
+     * 
+     * @param bucketId The id of the bucket, usually the id of the webhook.
+     * @param task The task which sends the request.
+     */
+    public void acquireAsync (String bucketId, Runnable task) {
+        
+        final Bucket bucket = this.getBucket(bucketId);
+        this.awaitBucket(bucket, bucket.reserve(System.nanoTime()), task);
+    }
+    
+    private void awaitBucket (Bucket bucket, long delay, Runnable task) {
+        
+        if (delay > 0) {
+            
+            SendExecutors.scheduler().schedule( () -> this.awaitBucket(bucket, bucket.claim(System.nanoTime()), task), delay, TimeUnit.NANOSECONDS);
+        }
+        else {
+            
+            this.awaitGlobal(this.reserveGlobal(System.nanoTime()), task);
+        }
+    }
+    
+    private void awaitGlobal (long delay, Runnable task) {
+        
+        if (delay > 0) {
+            
+            SendExecutors.scheduler().schedule( () -> this.awaitGlobal(this.admitGlobal(System.nanoTime()), task), delay, TimeUnit.NANOSECONDS);
+        }
+        else {
+            
+            task.run();
+        }
+    }
+    
+    /**
+     * Takes a slot in a bucket, or gets in line for one.
+     * 
+     * @param bucketId The id of the bucket.
+     * @param now The current {@link System#nanoTime()}.
+     * @return 0 if a slot was taken, otherwise how long to wait before calling
+     *         {@link #claim(String, long)}.
+     */
+    long reserve (String bucketId, long now) {
+        
+        return this.getBucket(bucketId).reserve(now);
+    }
+    
+    /**
+     * Takes a slot in a bucket for a request that has been waiting in line.
+     * 
+     * @param bucketId The id of the bucket.
+     * @param now The current {@link System#nanoTime()}.
+     * @return 0 if a slot was taken, otherwise how long to wait before trying again.
+     */
+    long claim (String bucketId, long now) {
+        
+        return this.getBucket(bucketId).claim(now);
+    }
+    
+    /**
+     * Updates a bucket using the rate limit information from a response. This also returns
+     * the slot that was taken for the request.
+     * 
+     * @param bucketId The id of the bucket, usually the id of the webhook.
+     * @param response The response that Discord sent back.
+     */
+    public void update (String bucketId, Response response) {
+        
+        this.update(bucketId, response, System.nanoTime());
+    }
+    
+    void update (String bucketId, Response response, long now) {
+        
+        if (response.isRateLimited() && response.isGlobal()) {
+            
+            final long retryAfter = response.getRetryAfterMillis() >= 0 ? response.getRetryAfterMillis() : response.getRateLimitResetAfterMillis();
+            this.limitGlobally(now + TimeUnit.MILLISECONDS.toNanos(Math.max(retryAfter, 0)));
+        }
+        
+        this.releaseGlobal(now);
+        this.getBucket(bucketId).update(now, response);
+    }
+    
+    /**
+     * Returns a slot that was taken for a request that could not be sent.
+     * 
+     * @param bucketId The id of the bucket, usually the id of the webhook.
+     */
+    public void cancel (String bucketId) {
+        
+        this.releaseGlobal(System.nanoTime());
+        this.getBucket(bucketId).cancel();
+    }
+    
+    /**
+     * Takes the next slot under the global limit. Slots are handed out evenly spaced, starting
+     * once the global limit from a 429 has been lifted.
+     * 
+     * @param now The current {@link System#nanoTime()}.
+     * @return The amount of nanoseconds to wait before calling
+     *         {@link #admitGlobal(long)}, or 0 if the request was let through.
+     */
+    long reserveGlobal (long now) {
+        
+        final long earliest = now + this.getGlobalDelay(now);
+        
+        while (true) {
+            
+            final long next = this.globalNextAt.get();
+            final long slot = next - earliest > 0 ? next : earliest;
+            
+            if (this.globalNextAt.compareAndSet(next, slot + this.globalSpacing)) {
+                
+                return slot - now > 0 ? slot - now : this.admitGlobal(now);
+            }
+        }
+    }
+    
+    /**
+     * Lets a request which has waited for its slot through the global limit. The limit is
+     * checked again, as another webhook may have been globally limited in the meantime, in
+     * which case a new slot is taken.
+     * 
+     * @param now The current {@link System#nanoTime()}.
+     * @return The amount of nanoseconds to wait before trying again, or 0 if the request was
+     *         let through.
+     */
+    long admitGlobal (long now) {
+        
+        if (this.getGlobalDelay(now) > 0) {
+            
+            return this.reserveGlobal(now);
+        }
+        
+        synchronized (this.globalReleases) {
+            
+            while (this.globalReleaseCount > 0 && now - this.globalReleases[this.globalReleaseHead] >= 0) {
+                
+                this.globalReleaseHead = (this.globalReleaseHead + 1) % this.globalReleases.length;
+                this.globalReleaseCount--;
+            }
+            
+            if (this.globalInFlight + this.globalReleaseCount < this.globalReleases.length) {
+                
+                this.globalInFlight++;
+                return 0;
+            }
+            
+            // Every request in flight has yet to be answered, so there is no telling when the
+            // next one frees up.
+            return this.globalReleaseCount > 0 ? this.globalReleases[this.globalReleaseHead] - now : this.globalSpacing;
+        }
+    }
+    
+    /**
+     * Stops counting a request that was let through the global limit once a full window has
+     * passed.
+     * 
+     * @param now The current {@link System#nanoTime()}.
+     */
+    private void releaseGlobal (long now) {
+        
+        synchronized (this.globalReleases) {
+            
+            if (this.globalInFlight > 0) {
+                
+                this.globalInFlight--;
+                this.globalReleases[(this.globalReleaseHead + this.globalReleaseCount) % this.globalReleases.length] = now + GLOBAL_WINDOW;
+                this.globalReleaseCount++;
+            }
+        }
+    }
+    
+    /**
+     * Gets the amount of nanoseconds until the global rate limit is lifted.
+     * 
+     * @param now The current {@link System#nanoTime()}.
+     * @return The amount of nanoseconds to wait, or 0 if there is no global limit.
+     */
+    private long getGlobalDelay (long now) {
+        
+        if (this.globalLimited) {
+            
+            final long delay = this.globalResetAt - now;
+            
+            if (delay > 0) {
+                
+                return delay;
+            }
+            
+            this.globalLimited = false;
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Blocks all buckets until the given time.
+     * 
+     * @param resetAt The {@link System#nanoTime()} at which the global limit is lifted.
+     */
+    private synchronized void limitGlobally (long resetAt) {
+        
+        if (!this.globalLimited || resetAt - this.globalResetAt > 0) {
+            
+            this.globalResetAt = resetAt;
+            this.globalLimited = true;
+        }
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "RateLimiter [buckets=" + this.buckets.size() + ", globalLimited=" + this.globalLimited + "]";
+    }
+    
+    /**
+     * Removes a bucket that is no longer needed.
+     * 
+     * @param bucketId The id of the bucket to forget.
+     * @return Whether or not a bucket was removed.
+     */
+    public boolean forget (@Nullable String bucketId) {
+        
+        return bucketId != null && this.buckets.remove(bucketId) != null;
+    }
+    
+    private Bucket getBucket (String bucketId) {
+        
+        return this.buckets.computeIfAbsent(bucketId, id -> new Bucket());
+    }
+    
+    /**
+     * Gets the id of the bucket a webhook URL belongs to. Discord tracks rate limits for each
+     * webhook separately, so this is the id of the webhook.
+     * 
+     * @param webhookUrl The URL of the webhook.
+     * @return The id of the bucket the webhook belongs to.
+     */
+    public static String getBucketId (String webhookUrl) {
+        
+        final String marker = "/webhooks/";
+        final int start = webhookUrl.indexOf(marker);
+        
+        if (start >= 0) {
+            
+            final int idStart = start + marker.length();
+            int idEnd = idStart;
+            
+            while (idEnd < webhookUrl.length() && Character.isDigit(webhookUrl.charAt(idEnd))) {
+                
+                idEnd++;
+            }
+            
+            if (idEnd > idStart) {
+                
+                return webhookUrl.substring(idStart, idEnd);
+            }
+        }
+        
+        // Not a standard Discord URL, so the entire URL is used to keep it unique.
+        return webhookUrl;
+    }
+    
+    /**
+     * The rate limit state for a single webhook. All times are based on
+     * {@link System#nanoTime()}.
+     */
+    private static final class Bucket {
+        
+        /**
+         * The amount of requests allowed per window, or -1 if unknown.
+         */
+        private int limit = -1;
+        
+        /**
+         * The amount of requests left in the current window, or -1 if unknown. Requests that
+         * are in flight have already been taken out of this.
+         */
+        private int remaining = -1;
+        
+        /**
+         * When the current window ends, or 0 if no window has been started.
+         */
+        private long resetAt;
+        
+        /**
+         * The length of a full window, or 0 if unknown.
+         */
+        private long window;
+        
+        /**
+         * The amount of requests that have taken a slot but not been answered.
+         */
+        private int pending;
+        
+        /**
+         * The amount of requests waiting in line for a slot in a later window.
+         */
+        private int queued;
+        
+        /**
+         * The amount of requests that were still in flight when the current window started.
+         * They may reach Discord in either window, so they are counted against this one until
+         * their response shows otherwise.
+         */
+        private int carried;
+        
+        private synchronized long reserve (long now) {
+            
+            this.roll(now);
+            
+            if (this.remaining < 0) {
+                
+                // Nothing is known about this bucket yet, so the usual webhook limit is assumed
+                // until the first response tells us the real one.
+                this.limit = ASSUMED_LIMIT;
+                this.remaining = ASSUMED_LIMIT;
+            }
+            
+            // Requests that are already waiting go first.
+            if (this.queued == 0 && this.take(now)) {
+                
+                return 0;
+            }
+            
+            // The wait is only an estimate from the place in line. The slot is taken once the
+            // request is due, by which time Discord has told us when the window really ends.
+            final int ahead = this.queued++;
+            
+            if (ahead < this.remaining) {
+                
+                return 1;
+            }
+            
+            final long windows = (ahead - this.remaining) / Math.max(this.limit, 1);
+            final long nextWindow = this.resetAt != 0 ? this.resetAt : now + this.getWindow();
+            return Math.max(nextWindow + windows * this.getWindow() + WINDOW_MARGIN - now, 1);
+        }
+        
+        private synchronized long claim (long now) {
+            
+            this.roll(now);
+            
+            if (this.take(now)) {
+                
+                this.queued = Math.max(this.queued - 1, 0);
+                return 0;
+            }
+            
+            // Without a window the slots are all held by requests still in flight, so their
+            // responses are waited for.
+            return this.resetAt != 0 ? Math.max(this.resetAt + WINDOW_MARGIN - now, 1) : WINDOW_MARGIN;
+        }
+        
+        private synchronized void leave () {
+            
+            this.queued = Math.max(this.queued - 1, 0);
+        }
+        
+        /**
+         * Takes a slot in the current window if there is one left.
+         * 
+         * @param now The current time.
+         * @return Whether or not a slot was taken.
+         */
+        private boolean take (long now) {
+            
+            if (this.remaining <= 0) {
+                
+                return false;
+            }
+            
+            this.remaining--;
+            this.pending++;
+            
+            // Until Discord answers, the window is assumed to start now.
+            if (this.resetAt == 0) {
+                
+                this.resetAt = now + this.getWindow();
+            }
+            
+            return true;
+        }
+        
+        private synchronized void update (long now, Response response) {
+            
+            // The request was still in flight if the window ended before its response came.
+            this.roll(now);
+            this.pending = Math.max(this.pending - 1, 0);
+            
+            if (response.isRateLimited() && !response.isGlobal()) {
+                
+                final long retryAfter = response.getRetryAfterMillis() >= 0 ? response.getRetryAfterMillis() : response.getRateLimitResetAfterMillis();
+                final long resetAt = now + TimeUnit.MILLISECONDS.toNanos(Math.max(retryAfter, 0));
+                
+                if (this.resetAt == 0 || resetAt - this.resetAt > 0) {
+                    
+                    this.resetAt = resetAt;
+                }
+                
+                // The bucket may have been forgotten while the request was in flight. Without a
+                // limit the next window would start with no slots at all, so the usual webhook
+                // limit is assumed as it is for a new bucket.
+                if (this.limit < 0) {
+                    
+                    this.limit = ASSUMED_LIMIT;
+                }
+                
+                this.remaining = 0;
+                return;
+            }
+            
+            final int limit = response.getRateLimit(-1);
+            final int remaining = response.getRateLimitRemaining(-1);
+            final long resetAfter = response.getRateLimitResetAfterMillis();
+            
+            if (limit < 0 || remaining < 0 || resetAfter < 0) {
+                
+                return;
+            }
+            
+            final long resetAt = now + TimeUnit.MILLISECONDS.toNanos(resetAfter);
+            
+            // A late response from a window that has already ended says nothing about the
+            // current one, other than that its request did not use a slot in it. Until the
+            // length of a window is known the current one is only a guess, so it is not used.
+            if (this.window > 0 && this.resetAt != 0 && this.resetAt - resetAt > this.window / 2) {
+                
+                if (this.carried > 0) {
+                    
+                    this.carried--;
+                    this.remaining = Math.min(this.remaining + 1, this.limit);
+                }
+                
+                return;
+            }
+            
+            this.limit = limit;
+            
+            // A request at the start of a window sees the full length of the window.
+            if (remaining == limit - 1 || resetAfter > 0 && TimeUnit.MILLISECONDS.toNanos(resetAfter) > this.window) {
+                
+                this.window = TimeUnit.MILLISECONDS.toNanos(resetAfter);
+            }
+            
+            // The window ends when Discord says it does, which is later than the local guess
+            // when the request took a while to arrive. Discord has not seen the requests that
+            // are still in flight, so the local count is kept when it is lower.
+            final int known = this.remaining < 0 ? Math.max(remaining - this.pending, 0) : Math.min(this.remaining, remaining);
+            this.remaining = known;
+            this.resetAt = resetAt;
+        }
+        
+        private synchronized void cancel () {
+            
+            this.pending = Math.max(this.pending - 1, 0);
+            
+            if (this.remaining >= 0 && this.remaining < this.limit) {
+                
+                this.remaining++;
+            }
+        }
+        
+        /**
+         * Starts a new window if the current one has ended.
+         * 
+         * @param now The current time.
+         */
+        private void roll (long now) {
+            
+            if (this.resetAt != 0 && now - this.resetAt >= 0) {
+                
+                this.resetAt = 0;
+                this.carried = Math.min(this.pending, this.limit);
+                this.remaining = this.limit - this.carried;
+            }
+        }
+        
+        private long getWindow () {
+            
+            return this.window > 0 ? this.window : FALLBACK_WINDOW;
+        }
+    }
+}
\ No newline at end of file
@@ -1,10 +1,23 @@
 package com.diluv.schoomp;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.HttpsURLConnection;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
 /**
  * This class represents all the relevant information that Discord sends back after they
  * receive the request.
@@ -13,6 +26,20 @@ import javax.net.ssl.HttpsURLConnection;
  */
 public class Response {
     
+    /**
+     * Marks a header value which Discord did not send. The headers are kept as primitives so
+     * reading a response does not box them.
+     */
+    private static final int ABSENT = Integer.MIN_VALUE;
+    
+    private static final long ABSENT_LONG = Long.MIN_VALUE;
+    
+    /**
+     * The powers of ten that are exact as doubles, up to the most digits a decimal can have to
+     * be read without {@link Double#parseDouble(String)}.
+     */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+    
     /**
      * The response code given back by Discord.
      */
@@ -21,94 +48,224 @@ public class Response {
     /**
      * Only returned when {@link #statusCode} is 429. This is the global rate limit.
      */
-    private final Integer rateLimitGlobal;
+    private final int rateLimitGlobal;
     
     /**
      * The number of requests that can be made.
      */
-    private final Integer rateLimitLimit;
+    private final int rateLimitLimit;
     
     /**
      * The number of remaining requests that can be made.
      */
-    private final Integer rateLimitRemaining;
+    private final int rateLimitRemaining;
     
     /**
      * The epoch time for when the rate limit will be reset.
      */
-    private final Long rateLimitReset;
+    private final long rateLimitReset;
     
     /**
      * The amount of seconds remaining before the rate limit will reset.
      */
-    private final Integer rateLimitResetAfter;
+    private final int rateLimitResetAfter;
+    
+    /**
+     * The amount of milliseconds remaining before the rate limit will reset, or -1 if Discord
+     * did not send one. Discord sends this value with a fractional part, which
+     * {@link #rateLimitResetAfter} can not represent.
+     */
+    private final long rateLimitResetAfterMillis;
+    
+    /**
+     * Whether or not a 429 response was caused by the global rate limit rather than the rate
+     * limit of the webhook.
+     */
+    private final boolean global;
+    
+    /**
+     * The amount of milliseconds Discord asked us to wait before retrying, or -1 if Discord
+     * did not send one.
+     */
+    private final long retryAfterMillis;
+    
+    /**
+     * The body Discord sent back, or null if there was none.
+     */
+    @Nullable
+    private final byte[] body;
+    
+    /**
+     * The message that was created, or null if Discord did not send it back. Discord only
+     * sends the message when the request was sent with <code>wait=true</code>.
+     */
+    @Nullable
+    private final MessageBody message;
     
     public Response(HttpsURLConnection connection) throws IOException {
         
-        this.statusCode = connection.getResponseCode();
-        this.rateLimitGlobal = this.getParameterInt(connection, "X-RateLimit-Global");
-        this.rateLimitLimit = this.getParameterInt(connection, "X-RateLimit-Limit");
-        this.rateLimitRemaining = this.getParameterInt(connection, "X-RateLimit-Remaining");
-        this.rateLimitReset = this.getParameterLong(connection, "X-RateLimit-Reset");
-        this.rateLimitResetAfter = this.getParameterInt(connection, "X-RateLimit-Reset-After");
+        this(connection.getResponseCode(), connection::getHeaderField);
+    }
+    
+    /**
+     * Creates a response from a status code and a lookup for the response headers. This
+     * allows responses to be created independently of the connection type used to send the
+     * request.
+     * 
+     * @param statusCode The response code given back by Discord.
+     * @param headers A lookup that returns the value of a header, or null if it was not sent.
+     */
+    public Response(int statusCode, Function<String, String> headers) {
+        
+        this(statusCode, headers, null);
+    }
+    
+    /**
+     * Creates a response from a status code, a lookup for the response headers and the body
+     * of the response. When Discord rate limits a request the body says how long to wait more
+     * precisely than the headers do, so it is preferred when present.
+     * 
+     * @param statusCode The response code given back by Discord.
+     * @param headers A lookup that returns the value of a header, or null if it was not sent.
+     * @param body The body of the response, or null if there was none.
+     */
+    public Response(int statusCode, Function<String, String> headers, @Nullable byte[] body) {
+        
+        this.statusCode = statusCode;
+        this.body = body != null && body.length > 0 ? body : null;
+        
+        final double resetAfter = getParameterDouble(headers, "X-RateLimit-Reset-After");
+        final double reset = getParameterDouble(headers, "X-RateLimit-Reset");
+        final double retryAfter = getParameterDouble(headers, "Retry-After");
+        final String global = headers.apply("X-RateLimit-Global");
+        
+        final RateLimitBody limitBody = statusCode == 429 && this.body != null ? RateLimitBody.read(this.body) : null;
+        this.message = statusCode / 100 == 2 && this.body != null ? MessageBody.read(this.body) : null;
+        
+        this.global = "true".equalsIgnoreCase(global) || "1".equals(global) || limitBody != null && limitBody.global;
+        this.rateLimitGlobal = getParameterInt(headers, "X-RateLimit-Global");
+        this.rateLimitLimit = getParameterInt(headers, "X-RateLimit-Limit");
+        this.rateLimitRemaining = getParameterInt(headers, "X-RateLimit-Remaining");
+        this.rateLimitReset = !Double.isNaN(reset) ? (long) Math.floor(reset) : ABSENT_LONG;
+        this.rateLimitResetAfter = !Double.isNaN(resetAfter) ? (int) Math.ceil(resetAfter) : ABSENT;
+        this.rateLimitResetAfterMillis = !Double.isNaN(resetAfter) ? (long) Math.ceil(resetAfter * 1000d) : -1L;
+        
+        if (limitBody != null && limitBody.retryAfter >= 0) {
+            
+            this.retryAfterMillis = (long) Math.ceil(limitBody.retryAfter * 1000d);
+        }
+        
+        else {
+            
+            this.retryAfterMillis = !Double.isNaN(retryAfter) ? (long) Math.ceil(retryAfter * 1000d) : -1L;
+        }
     }
     
     /**
-     * Reads a Long parameter from the headers of a connection. If no parameter can be found it
-     * will return null.
+     * Reads a double parameter from the response headers. Discord sends several of its rate
+     * limit values with a fractional part.
      * 
-     * @param connection The connection to read from.
+     * @param headers The header lookup to read from.
      * @param name The name of the field.
-     * @return The parameter or null if no param could be found.
+     * @return The parameter, or NaN if no valid param could be found.
      */
-    @Nullable
-    private Long getParameterLong (HttpsURLConnection connection, String name) {
+    private static double getParameterDouble (Function<String, String> headers, String name) {
         
-        final String value = connection.getHeaderField(name);
+        final String value = headers.apply(name);
         
         if (value != null) {
             
             try {
                 
-                return Long.parseLong(value);
+                final double parsed = parseDecimal(value.trim());
+                return Double.isInfinite(parsed) ? Double.NaN : parsed;
             }
             
             catch (final NumberFormatException e) {
                 
-                return null;
+                return Double.NaN;
+            }
+        }
+        
+        return Double.NaN;
+    }
+    
+    /**
+     * Parses a decimal number. Discord sends plain decimals such as <code>1.5</code>, which
+     * are read here directly, while anything else is left to
+     * {@link Double#parseDouble(String)}. A whole number of up to 15 digits and a power of ten
+     * up to 10^15 are both exact as doubles, so dividing one by the other gives exactly the
+     * value {@link Double#parseDouble(String)} would, without the buffers it allocates.
+     * 
+     * @param value The text to parse.
+     * @return The parsed number.
+     * @throws NumberFormatException If the text is not a number.
+     */
+    private static double parseDecimal (String value) {
+        
+        long digits = 0;
+        int count = 0;
+        int scale = -1;
+        
+        for (int i = 0; i < value.length(); i++) {
+            
+            final char c = value.charAt(i);
+            
+            if (c == '.' && scale < 0) {
+                
+                scale = 0;
+            }
+            
+            else if (c >= '0' && c <= '9' && count < 15) {
+                
+                digits = digits * 10 + c - '0';
+                count++;
+                
+                if (scale >= 0) {
+                    
+                    scale++;
+                }
+            }
+            
+            else {
+                
+                return Double.parseDouble(value);
             }
         }
         
-        return null;
+        if (count == 0) {
+            
+            return Double.parseDouble(value);
+        }
+        
+        return scale > 0 ? digits / POWERS_OF_TEN[scale] : digits;
     }
     
     /**
-     * Reas an Integer parameter from the headers of a connection. If no parameter can be found
-     * it will return null.
+     * Reads an int parameter from the response headers.
      * 
-     * @param connection The connection to read from.
+     * @param headers The header lookup to read from.
      * @param name The name of the field.
-     * @return The parameter or null if no param could be found.
+     * @return The parameter, or {@link #ABSENT} if no valid param could be found.
      */
-    @Nullable
-    private Integer getParameterInt (HttpsURLConnection connection, String name) {
+    private static int getParameterInt (Function<String, String> headers, String name) {
         
-        final String value = connection.getHeaderField(name);
+        final String value = headers.apply(name);
         
         if (value != null) {
             
             try {
                 
-                return Integer.parseInt(value);
+                return Integer.parseInt(value.trim());
             }
             
             catch (final NumberFormatException e) {
                 
-                return null;
+                return ABSENT;
             }
         }
         
-        return null;
+        return ABSENT;
     }
     
     /**
@@ -130,7 +287,18 @@ public class Response {
     @Nullable
     public Integer getRateLimitGlobal () {
         
-        return this.rateLimitGlobal;
+        return this.rateLimitGlobal != ABSENT ? this.rateLimitGlobal : null;
+    }
+    
+    /**
+     * Gets the global rate limit value without boxing it.
+     * 
+     * @param fallback The value to return if Discord did not send one.
+     * @return The global rate limit, or the fallback if unknown.
+     */
+    public int getRateLimitGlobal (int fallback) {
+        
+        return this.rateLimitGlobal != ABSENT ? this.rateLimitGlobal : fallback;
     }
     
     /**
@@ -141,7 +309,18 @@ public class Response {
     @Nullable
     public Integer getRateLimit () {
         
-        return this.rateLimitLimit;
+        return this.rateLimitLimit != ABSENT ? this.rateLimitLimit : null;
+    }
+    
+    /**
+     * Gets the current rate limit without boxing it.
+     * 
+     * @param fallback The value to return if Discord did not send one.
+     * @return The current rate limit, or the fallback if unknown.
+     */
+    public int getRateLimit (int fallback) {
+        
+        return this.rateLimitLimit != ABSENT ? this.rateLimitLimit : fallback;
     }
     
     /**
@@ -152,7 +331,18 @@ public class Response {
     @Nullable
     public Integer getRateLimitRemaining () {
         
-        return this.rateLimitRemaining;
+        return this.rateLimitRemaining != ABSENT ? this.rateLimitRemaining : null;
+    }
+    
+    /**
+     * Gets the amount of calls remaining before we are limited, without boxing it.
+     * 
+     * @param fallback The value to return if Discord did not send one.
+     * @return The amount of remaining calls, or the fallback if unknown.
+     */
+    public int getRateLimitRemaining (int fallback) {
+        
+        return this.rateLimitRemaining != ABSENT ? this.rateLimitRemaining : fallback;
     }
     
     /**
@@ -160,9 +350,21 @@ public class Response {
      * 
      * @return When the rate limit will be reset.
      */
+    @Nullable
     public Long getRateLimitReset () {
         
-        return this.rateLimitReset;
+        return this.rateLimitReset != ABSENT_LONG ? this.rateLimitReset : null;
+    }
+    
+    /**
+     * Gets the epoch time of when the rate limit will be reset, without boxing it.
+     * 
+     * @param fallback The value to return if Discord did not send one.
+     * @return When the rate limit will be reset, or the fallback if unknown.
+     */
+    public long getRateLimitReset (long fallback) {
+        
+        return this.rateLimitReset != ABSENT_LONG ? this.rateLimitReset : fallback;
     }
     
     /**
@@ -170,14 +372,464 @@ public class Response {
      * 
      * @return The amount of seconds until the rate limit resets.
      */
+    @Nullable
     public Integer getRateLimitResetAfter () {
         
-        return this.rateLimitResetAfter;
+        return this.rateLimitResetAfter != ABSENT ? this.rateLimitResetAfter : null;
+    }
+    
+    /**
+     * Gets the amount of seconds until the rate limit resets, without boxing it.
+     * 
+     * @param fallback The value to return if Discord did not send one.
+     * @return The amount of seconds until the rate limit resets, or the fallback if unknown.
+     */
+    public int getRateLimitResetAfter (int fallback) {
+        
+        return this.rateLimitResetAfter != ABSENT ? this.rateLimitResetAfter : fallback;
+    }
+    
+    /**
+     * Gets the amount of milliseconds until the rate limit resets. Unlike
+     * {@link #getRateLimitResetAfter()} this keeps the fractional part sent by Discord.
+     * 
+     * @return The amount of milliseconds until the rate limit resets, or -1 if unknown.
+     */
+    public long getRateLimitResetAfterMillis () {
+        
+        return this.rateLimitResetAfterMillis;
+    }
+    
+    /**
+     * Checks if the request was rejected because of the global rate limit.
+     * 
+     * @return Whether or not the global rate limit was hit.
+     */
+    public boolean isGlobal () {
+        
+        return this.global;
+    }
+    
+    /**
+     * Gets the amount of milliseconds Discord asked us to wait before making another request.
+     * This is usually only sent along with a 429 status code.
+     * 
+     * @return The amount of milliseconds to wait, or -1 if unknown.
+     */
+    public long getRetryAfterMillis () {
+        
+        return this.retryAfterMillis;
+    }
+    
+    /**
+     * Gets the body that Discord sent back. This is usually empty unless the request failed.
+     * 
+     * @return The body of the response, or null if there was none.
+     */
+    @Nullable
+    public byte[] getBody () {
+        
+        return this.body;
+    }
+    
+    /**
+     * Gets the id of the message that was created. This is only known when the webhook sends
+     * messages with {@link Webhook#setWait(boolean)} enabled.
+     * 
+     * @return The id of the message, or null if Discord did not send the message back.
+     */
+    @Nullable
+    public String getMessageId () {
+        
+        return this.message != null ? this.message.id : null;
+    }
+    
+    /**
+     * Gets the id of the channel the message was posted in. This is only known when the
+     * webhook sends messages with {@link Webhook#setWait(boolean)} enabled.
+     * 
+     * @return The id of the channel, or null if Discord did not send the message back.
+     */
+    @Nullable
+    public String getChannelId () {
+        
+        return this.message != null ? this.message.channelId : null;
+    }
+    
+    /**
+     * Gets when the message was posted. This is only known when the webhook sends messages
+     * with {@link Webhook#setWait(boolean)} enabled.
+     * 
+     * @return When the message was posted, or null if Discord did not send the message back.
+     */
+    @Nullable
+    public OffsetDateTime getTimestamp () {
+        
+        return this.message != null ? this.message.timestamp : null;
+    }
+    
+    /**
+     * Gets when the message was last edited.
+     * 
+     * @return When the message was edited, or null if it has not been edited or Discord did
+     *         not send the message back.
+     */
+    @Nullable
+    public OffsetDateTime getEditedTimestamp () {
+        
+        return this.message != null ? this.message.editedTimestamp : null;
+    }
+    
+    /**
+     * Gets the files attached to the message. This is only known when the webhook sends
+     * messages with {@link Webhook#setWait(boolean)} enabled.
+     * 
+     * @return The attachments of the message. This is empty if there are none or Discord did
+     *         not send the message back.
+     */
+    public List<Attachment> getAttachments () {
+        
+        return this.message != null ? this.message.attachments : Collections.emptyList();
+    }
+    
+    /**
+     * Checks if the request was rejected because a rate limit was exceeded.
+     * 
+     * @return Whether or not the request was rate limited.
+     */
+    public boolean isRateLimited () {
+        
+        return this.statusCode == 429;
     }
     
     @Override
     public String toString () {
         
-        return "Response [getStatusCode()=" + this.getStatusCode() + ", getRateLimitGlobal()=" + this.getRateLimitGlobal() + ", getRateLimit()=" + this.getRateLimit() + ", getRateLimitRemaining()=" + this.getRateLimitRemaining() + ", getRateLimitReset()=" + this.getRateLimitReset() + ", getRateLimitResetAfter()=" + this.getRateLimitResetAfter() + "]";
+        return "Response [getStatusCode()=" + this.getStatusCode() + ", getMessageId()=" + this.getMessageId() + ", getRateLimitGlobal()=" + this.getRateLimitGlobal() + ", getRateLimit()=" + this.getRateLimit() + ", getRateLimitRemaining()=" + this.getRateLimitRemaining() + ", getRateLimitReset()=" + this.getRateLimitReset() + ", getRateLimitResetAfter()=" + this.getRateLimitResetAfter() + "]";
+    }
+    
+    /**
+     * A file attached to a message that Discord sent back.
+     */
+    public static final class Attachment {
+        
+        @Nullable
+        private String id;
+        
+        @Nullable
+        private String filename;
+        
+        private long size = -1;
+        
+        @Nullable
+        private String url;
+        
+        @Nullable
+        private String proxyUrl;
+        
+        @Nullable
+        private String contentType;
+        
+        private Attachment() {
+        
+        }
+        
+        /**
+         * Gets the id of the attachment.
+         * 
+         * @return The id of the attachment.
+         */
+        @Nullable
+        public String getId () {
+            
+            return this.id;
+        }
+        
+        /**
+         * Gets the name of the attached file.
+         * 
+         * @return The name of the file.
+         */
+        @Nullable
+        public String getFilename () {
+            
+            return this.filename;
+        }
+        
+        /**
+         * Gets the size of the attached file.
+         * 
+         * @return The size of the file in bytes, or -1 if unknown.
+         */
+        public long getSize () {
+            
+            return this.size;
+        }
+        
+        /**
+         * Gets the URL the file can be downloaded from.
+         * 
+         * @return The URL of the file.
+         */
+        @Nullable
+        public String getUrl () {
+            
+            return this.url;
+        }
+        
+        /**
+         * Gets the URL of the file on Discord's media proxy.
+         * 
+         * @return The proxied URL of the file.
+         */
+        @Nullable
+        public String getProxyUrl () {
+            
+            return this.proxyUrl;
+        }
+        
+        /**
+         * Gets the media type of the file.
+         * 
+         * @return The media type of the file, or null if Discord did not detect one.
+         */
+        @Nullable
+        public String getContentType () {
+            
+            return this.contentType;
+        }
+        
+        private static Attachment read (JsonReader reader) throws IOException {
+            
+            final Attachment attachment = new Attachment();
+            reader.beginObject();
+            
+            while (reader.hasNext()) {
+                
+                final String name = reader.nextName();
+                
+                if (reader.peek() == JsonToken.NULL) {
+                    
+                    reader.skipValue();
+                    continue;
+                }
+                
+                switch (name) {
+                    
+                    case "id":
+                        attachment.id = reader.nextString();
+                        break;
+                    
+                    case "filename":
+                        attachment.filename = reader.nextString();
+                        break;
+                    
+                    case "size":
+                        attachment.size = reader.nextLong();
+                        break;
+                    
+                    case "url":
+                        attachment.url = reader.nextString();
+                        break;
+                    
+                    case "proxy_url":
+                        attachment.proxyUrl = reader.nextString();
+                        break;
+                    
+                    case "content_type":
+                        attachment.contentType = reader.nextString();
+                        break;
+                    
+                    default:
+                        reader.skipValue();
+                }
+            }
+            
+            reader.endObject();
+            return attachment;
+        }
+        
+        @Override
+        public String toString () {
+            
+            return "Attachment [id=" + this.id + ", filename=" + this.filename + ", size=" + this.size + "]";
+        }
+    }
+    
+    /**
+     * The parts of the message object Discord sends back when a request is sent with
+     * <code>wait=true</code>. The body is read in a single pass, and fields that are not
+     * needed, such as the content and embeds, are skipped without being decoded.
+     */
+    private static final class MessageBody {
+        
+        @Nullable
+        private String id;
+        
+        @Nullable
+        private String channelId;
+        
+        @Nullable
+        private OffsetDateTime timestamp;
+        
+        @Nullable
+        private OffsetDateTime editedTimestamp;
+        
+        private List<Attachment> attachments = Collections.emptyList();
+        
+        /**
+         * Reads the message from the body of a response.
+         * 
+         * @param body The body of the response.
+         * @return The message, or null if the body is not a message.
+         */
+        @Nullable
+        private static MessageBody read (byte[] body) {
+            
+            final MessageBody message = new MessageBody();
+            
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+                
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    
+                    return null;
+                }
+                
+                reader.beginObject();
+                
+                while (reader.hasNext()) {
+                    
+                    final String name = reader.nextName();
+                    
+                    if (reader.peek() == JsonToken.NULL) {
+                        
+                        reader.skipValue();
+                        continue;
+                    }
+                    
+                    switch (name) {
+                        
+                        case "id":
+                            message.id = reader.nextString();
+                            break;
+                        
+                        case "channel_id":
+                            message.channelId = reader.nextString();
+                            break;
+                        
+                        case "timestamp":
+                            message.timestamp = readTimestamp(reader);
+                            break;
+                        
+                        case "edited_timestamp":
+                            message.editedTimestamp = readTimestamp(reader);
+                            break;
+                        
+                        case "attachments": {
+                            
+                            final List<Attachment> attachments = new ArrayList<>();
+                            reader.beginArray();
+                            
+                            while (reader.hasNext()) {
+                                
+                                attachments.add(Attachment.read(reader));
+                            }
+                            
+                            reader.endArray();
+                            message.attachments = Collections.unmodifiableList(attachments);
+                            break;
+                        }
+                        
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                
+                return message.id != null ? message : null;
+            }
+            
+            catch (final IOException | JsonParseException | NumberFormatException | IllegalStateException e) {
+                
+                return null;
+            }
+        }
+        
+        @Nullable
+        private static OffsetDateTime readTimestamp (JsonReader reader) throws IOException {
+            
+            try {
+                
+                return OffsetDateTime.parse(reader.nextString());
+            }
+            
+            catch (final DateTimeParseException e) {
+                
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * The parts of the body Discord sends with a 429 response.
+     */
+    private static final class RateLimitBody {
+        
+        /**
+         * The amount of seconds to wait, or -1 if it was not sent.
+         */
+        private double retryAfter = -1;
+        
+        private boolean global;
+        
+        /**
+         * Reads the rate limit information from the body of a response.
+         * 
+         * @param body The body of the response.
+         * @return The rate limit information, or null if the body could not be read.
+         */
+        @Nullable
+        private static RateLimitBody read (byte[] body) {
+            
+            final RateLimitBody limit = new RateLimitBody();
+            
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+                
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    
+                    return null;
+                }
+                
+                reader.beginObject();
+                
+                while (reader.hasNext()) {
+                    
+                    final String name = reader.nextName();
+                    final JsonToken token = reader.peek();
+                    
+                    if ("retry_after".equals(name) && token == JsonToken.NUMBER) {
+                        
+                        limit.retryAfter = Math.max(reader.nextDouble(), 0);
+                    }
+                    
+                    else if ("global".equals(name) && token == JsonToken.BOOLEAN) {
+                        
+                        limit.global = reader.nextBoolean();
+                    }
+                    
+                    else {
+                        
+                        reader.skipValue();
+                    }
+                }
+                
+                return limit;
+            }
+            
+            catch (final IOException | JsonParseException | NumberFormatException | IllegalStateException e) {
+                
+                // Not JSON, such as an error page from a proxy.
+                return null;
+            }
+        }
     }
 }
\ No newline at end of file
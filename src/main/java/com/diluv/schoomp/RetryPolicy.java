@@ -0,0 +1,302 @@
+package com.diluv.schoomp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.PortUnreachableException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Decides whether a failed request should be sent again, and how long to wait before doing so.
+ * Requests are retried when they fail in a way that is likely to go away on its own, such as
+ * being rate limited, Discord being briefly unavailable, or the connection being refused.
+ * Requests that Discord rejected, such as a malformed message or a deleted webhook, are never
+ * retried.
+ * <p>
+ * A request that failed after its body was written may still have reached Discord, and sending
+ * it again could post the message twice. Only errors that happen before anything is sent are
+ * retried by default. {@link #withRetryOnReset(boolean)} also retries connections that were
+ * reset or broken, at that risk.
+ * <p>
+ * When Discord says how long to wait, that exact amount of time is used. Otherwise the delay
+ * grows exponentially with each attempt, and a random part of it is removed so clients that
+ * failed at the same time do not all retry at the same time.
+ * <p>
+ * Policies can not be changed once created, so one can be shared by any amount of webhooks.
+ * The methods that configure a policy return a copy with the setting changed.
+ */
+public final class RetryPolicy {
+    
+    private final int maxAttempts;
+    
+    private final long initialBackoffMillis;
+    
+    private final long maxBackoffMillis;
+    
+    private final double multiplier;
+    
+    private final double jitter;
+    
+    private final boolean retryOnReset;
+    
+    /**
+     * Creates a retry policy with the default settings. Requests are attempted up to 3 times,
+     * starting with a 500 millisecond backoff which doubles after each attempt up to 30
+     * seconds, with up to half of the backoff removed at random.
+     */
+    public RetryPolicy() {
+        
+        this(3, 500, TimeUnit.SECONDS.toMillis(30), 2d, 0.5d, false);
+    }
+    
+    private RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double multiplier, double jitter, boolean retryOnReset) {
+        
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.retryOnReset = retryOnReset;
+    }
+    
+    /**
+     * Creates a retry policy that never retries.
+     * 
+     * @return A new policy that only allows one attempt.
+     */
+    public static RetryPolicy none () {
+        
+        return new RetryPolicy().withMaxAttempts(1);
+    }
+    
+    /**
+     * Creates a copy of this policy which sends a request at most a different amount of times,
+     * including the first attempt.
+     * 
+     * @param maxAttempts The most attempts for a request.
+     * @return A new policy with the given amount of attempts.
+     */
+    public RetryPolicy withMaxAttempts (int maxAttempts) {
+        
+        if (maxAttempts < 1) {
+            
+            throw new IllegalArgumentException("At least one attempt must be allowed.");
+        }
+        
+        return new RetryPolicy(maxAttempts, this.initialBackoffMillis, this.maxBackoffMillis, this.multiplier, this.jitter, this.retryOnReset);
+    }
+    
+    /**
+     * Creates a copy of this policy with a different backoff between attempts. The backoff is
+     * only used when Discord does not say how long to wait.
+     * 
+     * @param initial The delay before the first retry.
+     * @param max The longest delay between attempts.
+     * @param unit The unit of the delays.
+     * @return A new policy with the given backoff.
+     */
+    public RetryPolicy withBackoff (long initial, long max, TimeUnit unit) {
+        
+        if (initial < 0 || max < initial) {
+            
+            throw new IllegalArgumentException("Invalid backoff " + initial + " to " + max);
+        }
+        
+        return new RetryPolicy(this.maxAttempts, unit.toMillis(initial), unit.toMillis(max), this.multiplier, this.jitter, this.retryOnReset);
+    }
+    
+    /**
+     * Creates a copy of this policy whose backoff grows at a different rate.
+     * 
+     * @param multiplier The amount the backoff is multiplied by after each attempt.
+     * @return A new policy with the given multiplier.
+     */
+    public RetryPolicy withMultiplier (double multiplier) {
+        
+        if (!(multiplier >= 1d)) {
+            
+            throw new IllegalArgumentException("The multiplier must be at least 1.");
+        }
+        
+        return new RetryPolicy(this.maxAttempts, this.initialBackoffMillis, this.maxBackoffMillis, multiplier, this.jitter, this.retryOnReset);
+    }
+    
+    /**
+     * Creates a copy of this policy which removes a different amount of the backoff at random.
+     * 
+     * @param jitter The largest fraction of the backoff that is removed, from 0 to 1.
+     * @return A new policy with the given jitter.
+     */
+    public RetryPolicy withJitter (double jitter) {
+        
+        if (!(jitter >= 0d && jitter <= 1d)) {
+            
+            throw new IllegalArgumentException("The jitter must be between 0 and 1.");
+        }
+        
+        return new RetryPolicy(this.maxAttempts, this.initialBackoffMillis, this.maxBackoffMillis, this.multiplier, jitter, this.retryOnReset);
+    }
+    
+    /**
+     * Creates a copy of this policy which does or does not retry requests whose connection was
+     * reset or broken. The connection may have been lost after Discord received the request,
+     * in which case the message is posted twice. This is off by default.
+     * 
+     * @param retryOnReset Whether or not to retry reset and broken connections.
+     * @return A new policy with the given setting.
+     */
+    public RetryPolicy withRetryOnReset (boolean retryOnReset) {
+        
+        return new RetryPolicy(this.maxAttempts, this.initialBackoffMillis, this.maxBackoffMillis, this.multiplier, this.jitter, retryOnReset);
+    }
+    
+    /**
+     * Gets the most times a request is sent, including the first attempt.
+     * 
+     * @return The most attempts for a request.
+     */
+    public int getMaxAttempts () {
+        
+        return this.maxAttempts;
+    }
+    
+    /**
+     * Checks if reset and broken connections are retried.
+     * 
+     * @return Whether or not reset and broken connections are retried.
+     */
+    public boolean isRetryOnReset () {
+        
+        return this.retryOnReset;
+    }
+    
+    /**
+     * Checks if a response means the request should be sent again.
+     * 
+     * @param attempt The attempt that received the response, starting from 1.
+     * @param response The response Discord sent back.
+     * @return Whether or not the request should be retried.
+     */
+    public boolean shouldRetry (int attempt, Response response) {
+        
+        return attempt < this.maxAttempts && isRetryable(response.getStatusCode());
+    }
+    
+    /**
+     * Checks if an error means the request should be sent again.
+     * 
+     * @param attempt The attempt that failed, starting from 1.
+     * @param error The error the request failed with.
+     * @return Whether or not the request should be retried.
+     */
+    public boolean shouldRetry (int attempt, IOException error) {
+        
+        return attempt < this.maxAttempts && (isRetryable(error) || this.retryOnReset && isReset(error));
+    }
+    
+    /**
+     * Checks if a status code is caused by a problem that is likely to go away on its own.
+     * 
+     * @param statusCode The status code of a response.
+     * @return Whether or not the status code is retryable.
+     */
+    public static boolean isRetryable (int statusCode) {
+        
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+    
+    /**
+     * Checks if an error is caused by a problem that is likely to go away on its own, and
+     * happened before anything was sent. This includes connections that could not be opened,
+     * but not timeouts or reset connections, as the request may have reached Discord and
+     * sending it again would post the message twice.
+     * 
+     * @param error The error a request failed with.
+     * @return Whether or not the error is retryable.
+     */
+    public static boolean isRetryable (IOException error) {
+        
+        // Transports may wrap the error.
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            
+            if (cause instanceof InterruptedIOException) {
+                
+                return false;
+            }
+            
+            if (cause instanceof ConnectException || cause instanceof NoRouteToHostException || cause instanceof PortUnreachableException) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Checks if an error is caused by the connection being reset or broken while the request
+     * was being sent or its response was awaited.
+     * 
+     * @param error The error a request failed with.
+     * @return Whether or not the connection was reset or broken.
+     */
+    private static boolean isReset (IOException error) {
+        
+        // Older versions of Java report resets as a plain IOException.
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            
+            if (cause instanceof InterruptedIOException) {
+                
+                return false;
+            }
+            
+            final String message = cause.getMessage();
+            
+            if (message != null && (message.contains("Connection reset") || message.contains("Broken pipe"))) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Gets how long to wait before the next attempt.
+     * 
+     * @param attempt The attempt that failed, starting from 1.
+     * @param response The response for the failed attempt, or null if it failed with an error.
+     * @return The amount of milliseconds to wait.
+     */
+    public long getDelayMillis (int attempt, @Nullable Response response) {
+        
+        if (response != null) {
+            
+            // Discord knows exactly when the request will be allowed again.
+            if (response.getRetryAfterMillis() >= 0) {
+                
+                return response.getRetryAfterMillis();
+            }
+            
+            final boolean exhausted = response.isRateLimited() || response.getRateLimitRemaining(-1) == 0;
+            
+            if (exhausted && response.getRateLimitResetAfterMillis() >= 0) {
+                
+                return response.getRateLimitResetAfterMillis();
+            }
+        }
+        
+        final double backoff = Math.min(this.initialBackoffMillis * Math.pow(this.multiplier, attempt - 1), this.maxBackoffMillis);
+        return (long) (backoff * (1d - this.jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "RetryPolicy [maxAttempts=" + this.maxAttempts + ", initialBackoffMillis=" + this.initialBackoffMillis + ", maxBackoffMillis=" + this.maxBackoffMillis + ", multiplier=" + this.multiplier + ", jitter=" + this.jitter + ", retryOnReset=" + this.retryOnReset + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.diluv.schoomp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * A bounded queue which does not use locks. Each slot has a sequence number which tells
+ * producers and consumers whether the slot is free or holds an element for them, so they only
+ * ever compete on a single compare and set of the head or tail.
+ * <p>
+ * Any amount of threads may add and remove elements at once, although the queue is fastest
+ * with a single consumer.
+ * 
+ * @param <E> The type of element in the queue.
+ */
+final class RingBuffer<E> {
+    
+    private final int mask;
+    
+    private final AtomicReferenceArray<E> elements;
+    
+    /**
+     * The sequence of each slot. A slot is free to be written by the producer claiming
+     * position <code>p</code> when its sequence is <code>p</code>, and holds an element for the
+     * consumer claiming position <code>p</code> when its sequence is <code>p + 1</code>.
+     */
+    private final AtomicLongArray sequences;
+    
+    /**
+     * The next position to be claimed by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    
+    /**
+     * The next position to be claimed by a consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+    
+    /**
+     * Creates a new ring buffer.
+     * 
+     * @param capacity The least amount of elements the buffer can hold. This is rounded up to
+     *        a power of two.
+     */
+    RingBuffer(int capacity) {
+        
+        if (capacity < 1 || capacity > 1 << 30) {
+            
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        
+        for (int i = 0; i < size; i++) {
+            
+            this.sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Adds an element to the end of the queue if there is room.
+     * 
+     * @param element The element to add.
+     * @return Whether or not the element was added.
+     */
+    boolean offer (E element) {
+        
+        long position = this.tail.get();
+        
+        while (true) {
+            
+            final int index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - position;
+            
+            if (difference == 0) {
+                
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    
+                    this.elements.lazySet(index, element);
+                    this.sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                
+                position = this.tail.get();
+            }
+            
+            else if (difference < 0) {
+                
+                // The slot still holds an element from the previous lap, so the queue is full.
+                return false;
+            }
+            
+            else {
+                
+                position = this.tail.get();
+            }
+        }
+    }
+    
+    /**
+     * Removes the element at the front of the queue.
+     * 
+     * @return The removed element, or null if the queue is empty.
+     */
+    @Nullable
+    E poll () {
+        
+        long position = this.head.get();
+        
+        while (true) {
+            
+            final int index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - (position + 1);
+            
+            if (difference == 0) {
+                
+                if (this.head.compareAndSet(position, position + 1)) {
+                    
+                    final E element = this.elements.get(index);
+                    this.elements.lazySet(index, null);
+                    this.sequences.lazySet(index, position + this.mask + 1);
+                    return element;
+                }
+                
+                position = this.head.get();
+            }
+            
+            else if (difference < 0) {
+                
+                // The slot has not been written yet, so the queue is empty.
+                return null;
+            }
+            
+            else {
+                
+                position = this.head.get();
+            }
+        }
+    }
+    
+    /**
+     * Gets the amount of elements in the queue. This is only an estimate while other threads
+     * are using the queue.
+     * 
+     * @return The amount of elements in the queue.
+     */
+    int size () {
+        
+        final long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, this.mask + 1));
+    }
+    
+    /**
+     * Gets the amount of elements the queue can hold.
+     * 
+     * @return The capacity of the queue.
+     */
+    int capacity () {
+        
+        return this.mask + 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.diluv.schoomp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the executors used to dispatch asynchronous webhook requests when the caller does not
+ * provide their own.
+ */
+final class SendExecutors {
+    
+    /**
+     * The amount of threads used by the default executor. Requests beyond this amount are
+     * queued rather than given a thread of their own.
+     */
+    private static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    
+    private SendExecutors() {
+    
+    }
+    
+    /**
+     * Gets the shared executor used for asynchronous sends. The executor is bounded, so any
+     * amount of in flight requests can be composed without creating a thread for each one.
+     * Threads are daemons and are released when the executor is idle.
+     * 
+     * @return The shared default executor.
+     */
+    static Executor defaultExecutor () {
+        
+        return Holder.DEFAULT;
+    }
+    
+    /**
+     * Gets the shared scheduler used to delay requests, such as when waiting for a rate limit
+     * to reset. Tasks run on the scheduler must be short and should hand any real work off to
+     * another executor.
+     * 
+     * @return The shared scheduler.
+     */
+    static ScheduledExecutorService scheduler () {
+        
+        return SchedulerHolder.SCHEDULER;
+    }
+    
+    /**
+     * Creates a thread factory that produces daemon threads with a readable name.
+     * 
+     * @param name The base name for created threads.
+     * @return A new thread factory.
+     */
+    static ThreadFactory daemonFactory (String name) {
+        
+        final AtomicInteger count = new AtomicInteger();
+        
+        return runnable -> {
+            
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * Lazily initializes the default executor the first time an asynchronous send is made.
+     */
+    private static final class Holder {
+        
+        private static final Executor DEFAULT = createDefault();
+        
+        private static Executor createDefault () {
+            
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonFactory("Schoomp-Sender"));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+    
+    /**
+     * Lazily initializes the scheduler the first time a request needs to be delayed.
+     */
+    private static final class SchedulerHolder {
+        
+        private static final ScheduledExecutorService SCHEDULER = createScheduler();
+        
+        private static ScheduledExecutorService createScheduler () {
+            
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonFactory("Schoomp-Scheduler"));
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,461 @@
+package com.diluv.schoomp;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.diluv.schoomp.message.Message;
+
+/**
+ * A bounded queue in front of a webhook which lets any thread hand off a message without
+ * waiting on the network. Adding a message only has to claim a slot in a lock free ring
+ * buffer, and a dedicated thread takes messages off the queue and sends them.
+ * <p>
+ * The queue is bounded by the amount of messages, and optionally by the encoded size of the
+ * messages as given by {@link Message#estimatedSize()}. What happens when the queue is full is
+ * decided by its {@link OverflowPolicy}, and the amount of messages affected by the policy is
+ * counted.
+ */
+public final class SendQueue implements Closeable {
+    
+    private static final Logger LOGGER = Logger.getLogger("Schoomp");
+    
+    /**
+     * The longest time a blocked producer sleeps before checking for room again.
+     */
+    private static final long MAX_BLOCK_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final Webhook webhook;
+    
+    private final OverflowPolicy policy;
+    
+    private final RingBuffer<Entry> buffer;
+    
+    /**
+     * The estimated size of all messages in the queue.
+     */
+    private final AtomicLong bytes = new AtomicLong();
+    
+    /**
+     * The amount of requests that have been sent but not answered.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    private final LongAdder droppedNewest = new LongAdder();
+    
+    private final LongAdder droppedOldest = new LongAdder();
+    
+    private final LongAdder rejected = new LongAdder();
+    
+    private final LongAdder blocked = new LongAdder();
+    
+    private final LongAdder sent = new LongAdder();
+    
+    private final LongAdder failed = new LongAdder();
+    
+    private final Thread consumer;
+    
+    private volatile long maxBytes = Long.MAX_VALUE;
+    
+    private volatile int maxInFlight = 16;
+    
+    private volatile Executor executor = SendExecutors.defaultExecutor();
+    
+    /**
+     * Whether or not the consumer is waiting for messages or for requests to finish.
+     */
+    private volatile boolean idle;
+    
+    private volatile boolean closed;
+    
+    /**
+     * Creates a queue and starts the thread which sends its messages.
+     * 
+     * @param webhook The webhook to send messages to.
+     * @param capacity The most messages the queue can hold. This is rounded up to a power of
+     *        two.
+     * @param policy What to do when a message is added to a full queue.
+     */
+    public SendQueue(Webhook webhook, int capacity, OverflowPolicy policy) {
+        
+        this.webhook = webhook;
+        this.policy = policy;
+        this.buffer = new RingBuffer<>(capacity);
+        this.consumer = new Thread(this::drain, "Schoomp-Queue");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+    
+    /**
+     * Limits the queue by the estimated size of the messages in it, in addition to the amount
+     * of messages. A single message larger than the limit is still accepted when the queue is
+     * empty. By default there is no limit.
+     * 
+     * @param maxBytes The most bytes of messages the queue can hold.
+     * @return The same queue instance.
+     */
+    public SendQueue setMaxBytes (long maxBytes) {
+        
+        if (maxBytes < 1) {
+            
+            throw new IllegalArgumentException("The byte limit must be positive.");
+        }
+        
+        this.maxBytes = maxBytes;
+        return this;
+    }
+    
+    /**
+     * Sets the most requests that can be waiting for a response at once. Messages stay in the
+     * queue while this many requests are in flight. The default is 16.
+     * 
+     * @param maxInFlight The most requests in flight.
+     * @return The same queue instance.
+     */
+    public SendQueue setMaxInFlight (int maxInFlight) {
+        
+        if (maxInFlight < 1) {
+            
+            throw new IllegalArgumentException("At least one request must be allowed in flight.");
+        }
+        
+        this.maxInFlight = maxInFlight;
+        LockSupport.unpark(this.consumer);
+        return this;
+    }
+    
+    /**
+     * Sets the executor used to send requests. By default the same executor as
+     * {@link Webhook#sendMessageAsync(Message)} is used.
+     * 
+     * @param executor The executor to send requests with.
+     * @return The same queue instance.
+     */
+    public SendQueue setExecutor (Executor executor) {
+        
+        this.executor = Objects.requireNonNull(executor);
+        return this;
+    }
+    
+    /**
+     * Adds a message to the queue. The message must not be changed after it has been added.
+     * If the queue is full, the {@link OverflowPolicy} of the queue decides what happens.
+     * 
+     * @param message The message to send.
+     * @return Whether or not the message was added. This is false when the message was dropped
+     *         because the queue is full or closed, or the thread was interrupted while waiting
+     *         for room.
+     * @throws IllegalStateException If the queue is full and the policy is
+     *         {@link OverflowPolicy#FAIL_FAST}.
+     */
+    public boolean offer (Message message) {
+        
+        if (this.closed) {
+            
+            return false;
+        }
+        
+        final Entry entry = new Entry(message, message.estimatedSize());
+        long park = 1000;
+        boolean waited = false;
+        
+        while (!this.tryOffer(entry)) {
+            
+            switch (this.policy) {
+                
+                case DROP_NEWEST:
+                    this.droppedNewest.increment();
+                    return false;
+                
+                case DROP_OLDEST: {
+                    
+                    final Entry oldest = this.buffer.poll();
+                    
+                    if (oldest != null) {
+                        
+                        this.bytes.addAndGet(-oldest.size);
+                        this.droppedOldest.increment();
+                    }
+                    
+                    break;
+                }
+                
+                case FAIL_FAST:
+                    this.rejected.increment();
+                    throw new IllegalStateException("The send queue is full.");
+                
+                default:
+                    if (!waited) {
+                        
+                        this.blocked.increment();
+                        waited = true;
+                    }
+                    
+                    LockSupport.parkNanos(this, park);
+                    park = Math.min(park * 2, MAX_BLOCK_PARK);
+                    
+                    if (this.closed || Thread.currentThread().isInterrupted()) {
+                        
+                        return false;
+                    }
+                    
+                    break;
+            }
+        }
+        
+        if (this.idle) {
+            
+            LockSupport.unpark(this.consumer);
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Tries to add an entry without applying the overflow policy.
+     * 
+     * @param entry The entry to add.
+     * @return Whether or not there was room for the entry.
+     */
+    private boolean tryOffer (Entry entry) {
+        
+        final long size = this.bytes.addAndGet(entry.size);
+        
+        // The first message is always accepted so a large message can not block the queue.
+        if (size > this.maxBytes && size != entry.size) {
+            
+            this.bytes.addAndGet(-entry.size);
+            return false;
+        }
+        
+        if (!this.buffer.offer(entry)) {
+            
+            this.bytes.addAndGet(-entry.size);
+            return false;
+        }
+        
+        return true;
+    }
+    
+    private void drain () {
+        
+        while (true) {
+            
+            if (this.inFlight.get() >= this.maxInFlight) {
+                
+                this.await();
+                continue;
+            }
+            
+            final Entry entry = this.buffer.poll();
+            
+            if (entry == null) {
+                
+                if (this.closed) {
+                    
+                    return;
+                }
+                
+                this.await();
+                continue;
+            }
+            
+            this.bytes.addAndGet(-entry.size);
+            this.inFlight.incrementAndGet();
+            this.webhook.getMetrics().recordQueueWait(System.nanoTime() - entry.queuedAt);
+            
+            this.webhook.sendMessageAsync(entry.message, this.executor).whenComplete( (response, error) -> {
+                
+                if (error != null) {
+                    
+                    this.failed.increment();
+                    LOGGER.fine("A queued message could not be sent. Error: " + error.getMessage());
+                }
+                
+                else {
+                    
+                    this.sent.increment();
+                }
+                
+                this.inFlight.decrementAndGet();
+                
+                if (this.idle) {
+                    
+                    LockSupport.unpark(this.consumer);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Parks the consumer until a producer or a finished request wakes it up.
+     */
+    private void await () {
+        
+        // The flag is set before checking again so a wake up can not be missed.
+        this.idle = true;
+        
+        if (this.buffer.size() == 0 && !this.closed || this.inFlight.get() >= this.maxInFlight) {
+            
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        
+        this.idle = false;
+    }
+    
+    /**
+     * Stops accepting messages. Messages that are already in the queue are still sent, and
+     * this waits until all of them have been handed to the webhook.
+     */
+    @Override
+    public void close () {
+        
+        this.closed = true;
+        LockSupport.unpark(this.consumer);
+        
+        try {
+            
+            this.consumer.join();
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Gets the amount of messages waiting in the queue.
+     * 
+     * @return The amount of queued messages.
+     */
+    public int size () {
+        
+        return this.buffer.size();
+    }
+    
+    /**
+     * Gets the most messages the queue can hold.
+     * 
+     * @return The capacity of the queue.
+     */
+    public int getCapacity () {
+        
+        return this.buffer.capacity();
+    }
+    
+    /**
+     * Gets the estimated size of the messages waiting in the queue.
+     * 
+     * @return The estimated size of queued messages in bytes.
+     */
+    public long getBytes () {
+        
+        return this.bytes.get();
+    }
+    
+    /**
+     * Gets the policy applied when the queue is full.
+     * 
+     * @return The overflow policy of the queue.
+     */
+    public OverflowPolicy getPolicy () {
+        
+        return this.policy;
+    }
+    
+    /**
+     * Gets the amount of new messages dropped by {@link OverflowPolicy#DROP_NEWEST}.
+     * 
+     * @return The amount of dropped messages.
+     */
+    public long getDroppedNewest () {
+        
+        return this.droppedNewest.sum();
+    }
+    
+    /**
+     * Gets the amount of queued messages dropped by {@link OverflowPolicy#DROP_OLDEST}.
+     * 
+     * @return The amount of dropped messages.
+     */
+    public long getDroppedOldest () {
+        
+        return this.droppedOldest.sum();
+    }
+    
+    /**
+     * Gets the amount of messages rejected by {@link OverflowPolicy#FAIL_FAST}.
+     * 
+     * @return The amount of rejected messages.
+     */
+    public long getRejected () {
+        
+        return this.rejected.sum();
+    }
+    
+    /**
+     * Gets the amount of times a caller had to wait for room because of
+     * {@link OverflowPolicy#BLOCK}.
+     * 
+     * @return The amount of blocked calls.
+     */
+    public long getBlocked () {
+        
+        return this.blocked.sum();
+    }
+    
+    /**
+     * Gets the amount of messages that received a response from Discord.
+     * 
+     * @return The amount of sent messages.
+     */
+    public long getSent () {
+        
+        return this.sent.sum();
+    }
+    
+    /**
+     * Gets the amount of messages that could not be sent.
+     * 
+     * @return The amount of failed messages.
+     */
+    public long getFailed () {
+        
+        return this.failed.sum();
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "SendQueue [size=" + this.size() + ", capacity=" + this.getCapacity() + ", policy=" + this.policy + ", droppedNewest=" + this.getDroppedNewest() + ", droppedOldest=" + this.getDroppedOldest() + ", rejected=" + this.getRejected() + "]";
+    }
+    
+    /**
+     * A message in the queue along with its estimated size.
+     */
+    private static final class Entry {
+        
+        private final Message message;
+        
+        private final long size;
+        
+        /**
+         * The {@link System#nanoTime()} the message was added to the queue at.
+         */
+        private final long queuedAt;
+        
+        private Entry(Message message, long size) {
+            
+            this.message = message;
+            this.size = size;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.diluv.schoomp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.diluv.schoomp.transport.BlockingExecutor;
+
+/**
+ * Creates executors for sending requests, which can be given to
+ * {@link Webhook#setExecutor(Executor)} or any of the asynchronous send methods.
+ */
+public final class Senders {
+    
+    /**
+     * The most threads used when virtual threads are not available.
+     */
+    public static final int MAX_FALLBACK_THREADS = 256;
+    
+    private Senders() {
+    
+    }
+    
+    /**
+     * Checks if requests can be sent on virtual threads on the current version of Java.
+     * 
+     * @return Whether or not virtual threads are available.
+     */
+    public static boolean isVirtualThreadsAvailable () {
+        
+        return false;
+    }
+    
+    /**
+     * Creates an executor that sends each request on a virtual thread of its own, and lets at
+     * most the given amount of requests run at once. Requests beyond the limit wait for a
+     * permit without holding a platform thread, so the limit can be far higher than the size
+     * of a thread pool.
+     * <p>
+     * Virtual threads require Java 21 or newer. On older versions the executor falls back to a
+     * pool of daemon threads which costs a full thread for each request in flight, so the pool
+     * is capped at {@value #MAX_FALLBACK_THREADS} threads and requests beyond that wait in a
+     * queue.
+     * <p>
+     * Transports which do not block while waiting for Discord send their requests as blocking
+     * calls on this executor, so the limit applies to every transport.
+     * 
+     * @param maxConcurrency The most requests that can be running at once.
+     * @return An executor for sending requests.
+     */
+    public static Executor virtualThreads (int maxConcurrency) {
+        
+        if (maxConcurrency < 1) {
+            
+            throw new IllegalArgumentException("At least one request must be allowed at a time, got " + maxConcurrency);
+        }
+        
+        final int threads = Math.min(maxConcurrency, MAX_FALLBACK_THREADS);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), SendExecutors.daemonFactory("Schoomp-Sender"));
+        executor.allowCoreThreadTimeOut(true);
+        
+        final BlockingExecutor sender = executor::execute;
+        return sender;
+    }
+}
\ No newline at end of file
@@ -1,23 +1,32 @@
 package com.diluv.schoomp;
 
-import java.io.BufferedReader;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
-import javax.net.ssl.HttpsURLConnection;
 
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.json.JsonBody;
+import com.diluv.schoomp.json.MultipartBody;
 import com.diluv.schoomp.message.Message;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializer;
+import com.diluv.schoomp.metrics.WebhookMetrics;
+import com.diluv.schoomp.metrics.WireTracer;
+import com.diluv.schoomp.transport.Endpoint;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.RequestBody;
+import com.diluv.schoomp.transport.Transport;
+import com.diluv.schoomp.transport.Transports;
 
 /**
  * This class represents a Discord Webhook. Once an instance has been created using the
@@ -30,16 +39,6 @@ public class Webhook {
     
     private static final Logger LOGGER = Logger.getLogger("Schoomp");
     
-    /**
-     * Converts OffsetDateTime into a JSON string that Discord can use.
-     */
-    private static final JsonSerializer<OffsetDateTime> TIME_SERIALIZER = (s, t, c) -> new JsonPrimitive(s.format(DateTimeFormatter.ISO_INSTANT));
-    
-    /**
-     * The internal Gson instance used to serialize webhook messages.
-     */
-    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(OffsetDateTime.class, TIME_SERIALIZER).create();
-    
     /**
      * The webhook URL to send the message to. This should be considered a sensitive value as
      * it contains keys and can be misused.
@@ -58,6 +57,60 @@ public class Webhook {
      */
     private final boolean debugMode;
     
+    /**
+     * The id of the rate limit bucket this webhook belongs to. This is parsed from the URL.
+     */
+    private final String bucketId;
+    
+    /**
+     * The transport used to deliver requests to Discord.
+     */
+    private final Transport transport;
+    
+    /**
+     * The rate limiter used to delay requests so they are not rejected by Discord. A null
+     * value means no rate limiting is done.
+     */
+    @Nullable
+    private volatile RateLimiter rateLimiter = RateLimiter.shared();
+    
+    /**
+     * Decides which failed requests are sent again, and how long to wait before doing so.
+     */
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    
+    /**
+     * Records how the requests sent by this webhook perform.
+     */
+    private volatile WebhookMetrics metrics = WebhookMetrics.global();
+    
+    /**
+     * Whether or not Discord is asked to send back the message that was created.
+     */
+    private volatile boolean wait;
+    
+    /**
+     * The executor asynchronous requests are performed on when no executor is given.
+     */
+    private volatile Executor executor = SendExecutors.defaultExecutor();
+    
+    /**
+     * Records a sample of the requests sent by this webhook. A null value means no requests
+     * are traced.
+     */
+    @Nullable
+    private volatile WireTracer tracer;
+    
+    /**
+     * The parsed URLs messages are posted to, with and without <code>wait=true</code>. These
+     * are parsed when the first message is sent rather than for every message.
+     */
+    @Nullable
+    private volatile Endpoint endpoint;
+    
+    @Nullable
+    private volatile Endpoint waitEndpoint;
+    
     /**
      * Creates an object that represents a Discord Webhook for a Discord channel. With this you
      * can send messages to your Discord channel using your application. This type is reusable,
@@ -71,22 +124,218 @@ public class Webhook {
         this.webookUrl = webookUrl;
         this.userAgent = userAgent;
         this.debugMode = false;
+        this.bucketId = RateLimiter.getBucketId(webookUrl);
+        this.transport = Transports.getDefault();
     }
     
     /**
      * Creates an object that represents a Discord Webhook for a Discord channel. With this you
      * can send messages to your Discord channel using your application. This type is reusable,
      * so it is recommended that you keep a hard reference to your channels to save ram.
-     *
+     * 
      * @param webookUrl The URL of your webhook.
      * @param userAgent The user agent to use when sending your requests.
      * @param debugMode Should debug mode be enabled.
+     * @deprecated Debug mode logs every request and response in full. Use
+     *             {@link #setTracer(WireTracer)} to keep a sample of recent requests instead.
      */
+    @Deprecated
     public Webhook(String webookUrl, String userAgent, boolean debugMode) {
         
         this.webookUrl = webookUrl;
         this.userAgent = userAgent;
         this.debugMode = debugMode;
+        this.bucketId = RateLimiter.getBucketId(webookUrl);
+        this.transport = Transports.getDefault();
+    }
+    
+    /**
+     * Creates an object that represents a Discord Webhook for a Discord channel. With this you
+     * can send messages to your Discord channel using your application. This type is reusable,
+     * so it is recommended that you keep a hard reference to your channels to save ram.
+     * 
+     * @param webookUrl The URL of your webhook.
+     * @param userAgent The user agent to use when sending your requests.
+     * @param transport The transport used to deliver requests to Discord.
+     */
+    public Webhook(String webookUrl, String userAgent, Transport transport) {
+        
+        this.webookUrl = webookUrl;
+        this.userAgent = userAgent;
+        this.debugMode = false;
+        this.bucketId = RateLimiter.getBucketId(webookUrl);
+        this.transport = transport;
+    }
+    
+    /**
+     * Gets the id of the webhook. If the URL is not a standard Discord webhook URL this will
+     * be the entire URL, so it should be treated as sensitive.
+     * 
+     * @return The id of the webhook.
+     */
+    public String getId () {
+        
+        return this.bucketId;
+    }
+    
+    /**
+     * Gets the transport used to deliver requests to Discord.
+     * 
+     * @return The transport used by this webhook.
+     */
+    public Transport getTransport () {
+        
+        return this.transport;
+    }
+    
+    /**
+     * Gets the rate limiter used by this webhook.
+     * 
+     * @return The rate limiter, or null if rate limiting is disabled.
+     */
+    @Nullable
+    public RateLimiter getRateLimiter () {
+        
+        return this.rateLimiter;
+    }
+    
+    /**
+     * Sets the rate limiter used by this webhook. By default all webhooks share
+     * {@link RateLimiter#shared()} so the global limit is honoured across the JVM. Setting
+     * this to null will disable rate limiting.
+     * 
+     * @param rateLimiter The rate limiter to use.
+     * @return The same webhook instance.
+     */
+    public Webhook setRateLimiter (@Nullable RateLimiter rateLimiter) {
+        
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+    
+    /**
+     * Gets the retry policy used for requests sent by this webhook.
+     * 
+     * @return The retry policy of the webhook.
+     */
+    public RetryPolicy getRetryPolicy () {
+        
+        return this.retryPolicy;
+    }
+    
+    /**
+     * Sets the retry policy used for requests sent by this webhook. By default requests which
+     * fail because of a rate limit, a server error or a refused connection are attempted up to
+     * 3 times. Use {@link RetryPolicy#none()} to turn retries off.
+     * 
+     * @param retryPolicy The retry policy to use.
+     * @return The same webhook instance.
+     */
+    public Webhook setRetryPolicy (RetryPolicy retryPolicy) {
+        
+        this.retryPolicy = Objects.requireNonNull(retryPolicy);
+        return this;
+    }
+    
+    /**
+     * Gets the metrics this webhook records into.
+     * 
+     * @return The metrics of the webhook.
+     */
+    public WebhookMetrics getMetrics () {
+        
+        return this.metrics;
+    }
+    
+    /**
+     * Sets the metrics this webhook records into. By default every webhook records into
+     * {@link WebhookMetrics#global()}. Giving a webhook its own {@link WebhookMetrics} allows
+     * it to be monitored separately, while still being counted in the global metrics.
+     * 
+     * @param metrics The metrics to record into.
+     * @return The same webhook instance.
+     */
+    public Webhook setMetrics (WebhookMetrics metrics) {
+        
+        this.metrics = Objects.requireNonNull(metrics);
+        return this;
+    }
+    
+    /**
+     * Gets the tracer which records a sample of the requests sent by this webhook.
+     * 
+     * @return The tracer of the webhook, or null if requests are not traced.
+     */
+    @Nullable
+    public WireTracer getTracer () {
+        
+        return this.tracer;
+    }
+    
+    /**
+     * Sets the tracer which records a sample of the requests sent by this webhook. Each
+     * attempt at a sampled request is recorded with its payload, timings and response, with
+     * the webhook URL removed. Requests which are not sampled are sent the same as without a
+     * tracer.
+     * 
+     * @param tracer The tracer to record into, or null to stop tracing.
+     * @return The same webhook instance.
+     */
+    public Webhook setTracer (@Nullable WireTracer tracer) {
+        
+        this.tracer = tracer;
+        return this;
+    }
+    
+    /**
+     * Checks if Discord is asked to send back the messages that are created.
+     * 
+     * @return Whether or not the webhook waits for the created messages.
+     */
+    public boolean isWait () {
+        
+        return this.wait;
+    }
+    
+    /**
+     * Sets whether or not Discord is asked to send back the messages that are created. When
+     * enabled, messages are sent with <code>wait=true</code> and Discord only responds once the
+     * message has been saved. The id, channel, timestamp and attachments of the message can
+     * then be read from the {@link Response}. This is disabled by default, as Discord responds
+     * faster and with less data when it does not have to wait.
+     * 
+     * @param wait Whether or not to wait for the created messages.
+     * @return The same webhook instance.
+     */
+    public Webhook setWait (boolean wait) {
+        
+        this.wait = wait;
+        return this;
+    }
+    
+    /**
+     * Gets the executor asynchronous requests are performed on when no executor is given.
+     * 
+     * @return The executor of the webhook.
+     */
+    public Executor getExecutor () {
+        
+        return this.executor;
+    }
+    
+    /**
+     * Sets the executor asynchronous requests are performed on when no executor is given. By
+     * default a shared pool with a bounded amount of threads is used. On Java 21 and newer,
+     * {@link Senders#virtualThreads(int)} sends each request on a virtual thread instead, which
+     * lets a blocking transport have far more requests in flight.
+     * 
+     * @param executor The executor to perform requests on.
+     * @return The same webhook instance.
+     */
+    public Webhook setExecutor (Executor executor) {
+        
+        this.executor = Objects.requireNonNull(executor);
+        return this;
     }
     
     /**
@@ -113,66 +362,857 @@ public class Webhook {
     }
     
     /**
-     * Sends a message to Discord using your webhook.
+     * Sends a message to Discord using your webhook. Messages with more content than Discord
+     * allows are split into several messages with {@link Message#split()}, which are sent one
+     * after another in order. Sending stops at the first part Discord does not accept. Messages
+     * with attachments are sent as a multipart request, with the files streamed from disk.
      * 
      * @param message The message to send.
-     * @return A response object containing all the information sent back from Discord.
+     * @return A response object containing all the information sent back from Discord. When
+     *         the message was split this is the response to the last part that was sent.
      * @throws IOException This will happen if the request can not be sent properly.
      */
     @Nullable
     public Response sendMessage (Message message) throws IOException {
-
+        
         try {
-            // Encodes the message object as JSON.
-            final String encoded = GSON.toJson(message);
-
-            if (debugMode) {
-                LOGGER.info("Encoded message:");
-                LOGGER.info(encoded);
+            
+            return this.sendParts(message);
+        }
+        
+        catch (IOException e) {
+            LOGGER.severe("The webhook could not be sent. Error: " + this.redact(e.getMessage()));
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Splits a message into the parts Discord allows and sends them one after another in
+     * order, stopping at the first part Discord does not accept.
+     * 
+     * @param message The message to send.
+     * @return The response to the last part that was sent.
+     * @throws IOException If one of the parts could not be sent.
+     */
+    Response sendParts (Message message) throws IOException {
+        
+        final List<Message> parts = message.split();
+        
+        // The message is streamed straight into the connection when the request is sent.
+        if (parts.size() == 1) {
+            
+            return this.send(createBody(message));
+        }
+        
+        Response response = null;
+        
+        for (int i = 0; i < parts.size(); i++) {
+            
+            response = this.send(createBody(parts.get(i)), this.waitForPart(i, parts.size()));
+            
+            if (response.getStatusCode() / 100 != 2) {
+                
+                break;
             }
-
-            final URL url = new URL(this.webookUrl);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-
-            // Set up the request to send the message data.
-            connection.addRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            connection.addRequestProperty("User-Agent", this.userAgent);
-            connection.setDoOutput(true);
-            connection.setRequestMethod("POST");
-
-            connection.connect();
-
-            // Write the contents of the json to the output stream.
-            try (OutputStream out = connection.getOutputStream()) {
-
-                out.write(encoded.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        return response;
+    }
+    
+    /**
+     * Sends a message to Discord without blocking the calling thread. The request is performed
+     * on the executor of the webhook, which by default is a shared executor with a bounded
+     * amount of threads, so any number of sends can be in flight at once.
+     * 
+     * @param message The message to send.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendMessageAsync (Message message) {
+        
+        return this.sendMessageAsync(message, this.executor);
+    }
+    
+    /**
+     * Sends a message to Discord without blocking the calling thread. Unlike
+     * {@link #sendMessage(Message)} errors are not logged, instead the returned future is
+     * completed exceptionally with the cause.
+     * <p>
+     * Messages with more content than Discord allows are split with {@link Message#split()}.
+     * Every part is encoded up front, and each one is handed to the rate limiter as soon as
+     * Discord has accepted the one before it, so the parts arrive in order without a thread
+     * waiting between them.
+     * 
+     * @param message The message to send.
+     * @param executor The executor to perform the request on.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent. When the message was split this
+     *         is the response to the last part that was sent.
+     */
+    public CompletableFuture<Response> sendMessageAsync (Message message, Executor executor) {
+        
+        final List<RequestBody> bodies = new ArrayList<>();
+        
+        // The message is encoded right away so later changes to it do not affect the request,
+        // and so the encoding is not done on the thread that dispatches delayed requests.
+        try {
+            
+            for (final Message part : message.split()) {
+                
+                bodies.add(this.encode(part));
             }
-
-            // Actually sends our request, and gets the response back. Discord usually
-            // gives no response back, but debugMode will print whatever they give back if they do.
-            if (debugMode) {
-
-                try (BufferedReader responseReader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-
-                    responseReader.lines().forEach(LOGGER::info);
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            final CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        return this.sendPartsAsync(bodies, executor);
+    }
+    
+    /**
+     * Sends the encoded parts of a message in order, handing each part to the rate limiter
+     * once Discord has accepted the one before it. The bodies are only read, so the same
+     * bodies can be sent by several webhooks at once.
+     * 
+     * @param bodies The encoded parts of the message, of which there must be at least one.
+     * @param executor The executor to perform the requests on.
+     * @return A future that completes with the response to the last part that was sent.
+     */
+    CompletableFuture<Response> sendPartsAsync (List<RequestBody> bodies, Executor executor) {
+        
+        CompletableFuture<Response> future = this.sendAsync(bodies.get(0), executor, this.waitForPart(0, bodies.size()));
+        
+        for (int i = 1; i < bodies.size(); i++) {
+            
+            final RequestBody body = bodies.get(i);
+            final boolean wait = this.waitForPart(i, bodies.size());
+            future = future.thenCompose(response -> response.getStatusCode() / 100 == 2 ? this.sendAsync(body, executor, wait) : CompletableFuture.completedFuture(response));
+        }
+        
+        return future;
+    }
+    
+    /**
+     * Edits a message that was sent by this webhook without blocking the calling thread. The
+     * content and embeds of the message are replaced, while the username, avatar and text to
+     * speech setting can not be changed by an edit. The id of a message is known when it is
+     * sent with {@link #setWait(boolean)} enabled.
+     * 
+     * @param messageId The id of the message to edit.
+     * @param message The new state of the message.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> editMessageAsync (String messageId, Message message) {
+        
+        final RequestBody body;
+        
+        try {
+            
+            body = this.encode(message);
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            final CompletableFuture<Response> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        return this.editAsync(messageId, body, this.executor);
+    }
+    
+    /**
+     * Edits a message that was sent by this webhook without blocking the calling thread. The
+     * body may be written after this method returns, so it must not be changed until the
+     * returned future has completed.
+     * 
+     * @param messageId The id of the message to edit.
+     * @param body The new state of the message.
+     * @param executor The executor to perform the request on.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> editAsync (String messageId, RequestBody body, Executor executor) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        this.attemptAsync(this.createRequest("PATCH", this.getMessageUrl(messageId), body), executor, this.retryPolicy, 1, future);
+        return future;
+    }
+    
+    /**
+     * Sends a request body to the webhook without blocking the calling thread, choosing
+     * whether or not to wait for the created message regardless of {@link #setWait(boolean)}.
+     * 
+     * @param body The body to send.
+     * @param executor The executor to perform the request on.
+     * @param wait Whether or not Discord should send back the created message.
+     * @return A future that completes with the response from Discord.
+     */
+    CompletableFuture<Response> sendAsync (RequestBody body, Executor executor, boolean wait) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        this.attemptAsync(this.createPostRequest(wait, body), executor, this.retryPolicy, 1, future);
+        return future;
+    }
+    
+    /**
+     * Sends a request body to the webhook without blocking the calling thread. This allows
+     * messages which have already been encoded, such as those created by a
+     * {@link com.diluv.schoomp.json.MessageTemplate}, to be sent without encoding them again.
+     * 
+     * @param body The body to send.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendAsync (RequestBody body) {
+        
+        return this.sendAsync(body, this.executor);
+    }
+    
+    /**
+     * Sends a request body to the webhook without blocking the calling thread. This allows
+     * messages which have already been encoded, such as those created by a
+     * {@link com.diluv.schoomp.json.MessageTemplate}, to be sent without encoding them again.
+     * The body may be written after this method returns, so it must not be changed until the
+     * returned future has completed.
+     * 
+     * @param body The body to send.
+     * @param executor The executor to perform the request on.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendAsync (RequestBody body, Executor executor) {
+        
+        return this.sendAsync(body, executor, this.wait);
+    }
+    
+    /**
+     * Makes a single attempt at sending a request without blocking, and schedules another
+     * attempt if it fails in a way that can be retried.
+     * 
+     * @param request The request to send.
+     * @param executor The executor to perform the request on.
+     * @param retry The retry policy for the request.
+     * @param attempt The number of this attempt, starting from 1.
+     * @param future The future to complete once no more attempts will be made.
+     */
+    private void attemptAsync (Request request, Executor executor, RetryPolicy retry, int attempt, CompletableFuture<Response> future) {
+        
+        final RateLimiter limiter = this.rateLimiter;
+        final WebhookMetrics metrics = this.metrics;
+        final Runnable dispatch = () -> {
+            
+            final long start = this.start(request, metrics);
+            final WireTracer.Span span = begin(request);
+            
+            this.transport.sendAsync(request, executor).whenComplete( (response, error) -> {
+                
+                if (error != null) {
+                    
+                    metrics.recordFailure(System.nanoTime() - start);
+                    
+                    if (limiter != null) {
+                        
+                        limiter.cancel(this.bucketId);
+                    }
+                    
+                    final Throwable cause = this.unwrap(error);
+                    
+                    if (span != null) {
+                        
+                        span.fail(cause);
+                    }
+                    
+                    if (cause instanceof IOException && retry.shouldRetry(attempt, (IOException) cause)) {
+                        
+                        this.retryAsync(request, executor, retry, attempt, future, retry.getDelayMillis(attempt, null));
+                    }
+                    else {
+                        
+                        future.completeExceptionally(cause);
+                    }
                 }
-            } else {
-
-                connection.getInputStream().close();
+                else {
+                    
+                    metrics.recordResponse(response.getStatusCode(), System.nanoTime() - start);
+                    
+                    if (span != null) {
+                        
+                        span.finish(response);
+                    }
+                    
+                    if (limiter != null) {
+                        
+                        limiter.update(this.bucketId, response);
+                    }
+                    
+                    if (retry.shouldRetry(attempt, response)) {
+                        
+                        this.retryAsync(request, executor, retry, attempt, future, retry.getDelayMillis(attempt, response));
+                    }
+                    else {
+                        
+                        future.complete(response);
+                    }
+                }
+            });
+        };
+        
+        if (limiter != null) {
+            
+            final long waitStart = System.nanoTime();
+            
+            limiter.acquireAsync(this.bucketId, () -> {
+                
+                metrics.recordRateLimitDelay(System.nanoTime() - waitStart);
+                dispatch.run();
+            });
+        }
+        else {
+            
+            dispatch.run();
+        }
+    }
+    
+    private void retryAsync (Request request, Executor executor, RetryPolicy retry, int attempt, CompletableFuture<Response> future, long delayMillis) {
+        
+        this.metrics.recordRetry();
+        final Runnable next = () -> this.attemptAsync(request, executor, retry, attempt + 1, future);
+        
+        if (delayMillis > 0) {
+            
+            SendExecutors.scheduler().schedule(next, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        else {
+            
+            next.run();
+        }
+    }
+    
+    /**
+     * Sends a request body to the webhook. This allows messages which have already been
+     * encoded, such as those created by a {@link com.diluv.schoomp.json.MessageTemplate}, to be
+     * sent without encoding them again. Unlike {@link #sendMessage(Message)} errors are not
+     * logged.
+     * 
+     * @param body The body to send.
+     * @return A response object containing all the information sent back from Discord.
+     * @throws IOException This will happen if the request can not be sent properly.
+     */
+    public Response send (RequestBody body) throws IOException {
+        
+        return this.send(body, this.wait);
+    }
+    
+    private Response send (RequestBody body, boolean wait) throws IOException {
+        
+        return this.execute(this.createPostRequest(wait, body));
+    }
+    
+    /**
+     * Decides whether or not to wait for a part of a split message to be created. Without
+     * waiting Discord may answer before the message is saved, so every part but the last is
+     * waited for to keep them in order.
+     * 
+     * @param index The index of the part.
+     * @param parts The amount of parts.
+     * @return Whether or not to wait for the part.
+     */
+    private boolean waitForPart (int index, int parts) {
+        
+        return index < parts - 1 || this.wait;
+    }
+    
+    /**
+     * Edits a message that was sent by this webhook. The content and embeds of the message are
+     * replaced, while the username, avatar and text to speech setting can not be changed by an
+     * edit. Unlike {@link #sendMessage(Message)} errors are not logged.
+     * 
+     * @param messageId The id of the message to edit.
+     * @param body The new state of the message.
+     * @return A response object containing the edited message.
+     * @throws IOException This will happen if the request can not be sent properly.
+     */
+    public Response edit (String messageId, RequestBody body) throws IOException {
+        
+        return this.execute(this.createRequest("PATCH", this.getMessageUrl(messageId), body));
+    }
+    
+    /**
+     * Sends a request, retrying it as allowed by the retry policy.
+     * 
+     * @param request The request to send.
+     * @return The response from Discord.
+     * @throws IOException If the request could not be sent.
+     */
+    private Response execute (Request request) throws IOException {
+        
+        final RetryPolicy retry = this.retryPolicy;
+        
+        for (int attempt = 1;; attempt++) {
+            
+            final Response response;
+            
+            try {
+                
+                response = this.attempt(request);
             }
-
-            final Response response = new Response(connection);
-
-            // Closes the connection.
-            connection.disconnect();
-
-            return response;
+            
+            catch (final IOException e) {
+                
+                if (!retry.shouldRetry(attempt, e)) {
+                    
+                    throw e;
+                }
+                
+                this.metrics.recordRetry();
+                this.sleep(retry.getDelayMillis(attempt, null));
+                continue;
+            }
+            
+            if (!retry.shouldRetry(attempt, response)) {
+                
+                return response;
+            }
+            
+            this.metrics.recordRetry();
+            this.sleep(retry.getDelayMillis(attempt, response));
         }
-
-        catch (IOException e) {
-            LOGGER.severe("The webhook could not be sent. Error: " + e.getMessage().replace(this.webookUrl, "<webhook_url>"));
+    }
+    
+    /**
+     * Makes a single attempt at sending a request, waiting for the rate limit first.
+     * 
+     * @param request The request to send.
+     * @return The response from Discord.
+     * @throws IOException If the request could not be sent.
+     */
+    private Response attempt (Request request) throws IOException {
+        
+        final RateLimiter limiter = this.rateLimiter;
+        final WebhookMetrics metrics = this.metrics;
+        
+        if (limiter != null) {
+            
+            final long waitStart = System.nanoTime();
+            limiter.acquire(this.bucketId);
+            metrics.recordRateLimitDelay(System.nanoTime() - waitStart);
         }
-
+        
+        final long start = this.start(request, metrics);
+        final WireTracer.Span span = begin(request);
+        final Response response;
+        
+        try {
+            
+            response = this.transport.send(request);
+        }
+        
+        catch (final IOException e) {
+            
+            metrics.recordFailure(System.nanoTime() - start);
+            
+            if (limiter != null) {
+                
+                limiter.cancel(this.bucketId);
+            }
+            
+            final IOException redacted = new IOException(this.redact(e.getMessage()), e);
+            
+            if (span != null) {
+                
+                span.fail(redacted);
+            }
+            
+            throw redacted;
+        }
+        
+        catch (final RuntimeException e) {
+            
+            metrics.recordFailure(System.nanoTime() - start);
+            
+            if (limiter != null) {
+                
+                limiter.cancel(this.bucketId);
+            }
+            
+            if (span != null) {
+                
+                span.fail(e);
+            }
+            
+            throw e;
+        }
+        
+        metrics.recordResponse(response.getStatusCode(), System.nanoTime() - start);
+        
+        if (span != null) {
+            
+            span.finish(response);
+        }
+        
+        if (limiter != null) {
+            
+            limiter.update(this.bucketId, response);
+        }
+        
+        return response;
+    }
+    
+    /**
+     * Records that a request is about to be handed to the transport.
+     * 
+     * @param request The request being sent.
+     * @param metrics The metrics to record into.
+     * @return The {@link System#nanoTime()} the request started at.
+     */
+    private long start (Request request, WebhookMetrics metrics) {
+        
+        final long length = request.getBody().getContentLength();
+        
+        // Bodies of unknown length count their bytes as they are written.
+        if (length >= 0) {
+            
+            metrics.recordBytesSent(length);
+        }
+        
+        metrics.recordStart();
+        return System.nanoTime();
+    }
+    
+    /**
+     * Starts tracing an attempt at a request, if the request was sampled.
+     * 
+     * @param request The request being sent.
+     * @return The span tracing the request, or null if it is not traced.
+     */
+    @Nullable
+    private static WireTracer.Span begin (Request request) {
+        
+        if (request.getListener() instanceof WireTracer.Span) {
+            
+            final WireTracer.Span span = (WireTracer.Span) request.getListener();
+            span.begin();
+            return span;
+        }
+        
         return null;
     }
+    
+    private void sleep (long millis) throws InterruptedIOException {
+        
+        try {
+            
+            Thread.sleep(millis);
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry the request.");
+        }
+    }
+    
+    /**
+     * Encodes a message into a request body.
+     * 
+     * @param message The message to encode.
+     * @return The encoded message.
+     * @throws IOException If the message has an attachment which could not be read.
+     */
+    private RequestBody encode (Message message) throws IOException {
+        
+        final long start = System.nanoTime();
+        final RequestBody body = toBody(message);
+        this.metrics.recordSerialization(System.nanoTime() - start);
+        return body;
+    }
+    
+    /**
+     * Encodes a message into a request body which can be sent any number of times, by any
+     * amount of webhooks. Messages with attachments are sent as a multipart body.
+     * 
+     * @param message The message to encode.
+     * @return The encoded message.
+     * @throws IOException If the message has an attachment which could not be read.
+     */
+    static RequestBody toBody (Message message) throws IOException {
+        
+        return message.hasAttachments() ? new MultipartBody(message) : RequestBody.of(Json.CONTENT_TYPE, message.toBytes());
+    }
+    
+    /**
+     * Creates a body which streams a message into the connection, or a multipart body if the
+     * message has attachments.
+     * 
+     * @param message The message to send.
+     * @return A body for the message.
+     * @throws IOException If the message has an attachment which could not be read.
+     */
+    private static RequestBody createBody (Message message) throws IOException {
+        
+        return message.hasAttachments() ? new MultipartBody(message) : new JsonBody(message);
+    }
+    
+    /**
+     * Creates a request that posts a new message to the webhook.
+     * 
+     * @param wait Whether or not Discord should send back the message that was created.
+     * @param body The body of the request.
+     * @return A request that will send the body to the webhook.
+     */
+    private Request createPostRequest (boolean wait, RequestBody body) {
+        
+        Endpoint endpoint = wait ? this.waitEndpoint : this.endpoint;
+        
+        if (endpoint == null) {
+            
+            final String url = wait ? appendQuery(this.webookUrl, "wait=true") : this.webookUrl;
+            
+            try {
+                
+                endpoint = Endpoint.parse(url);
+            }
+            
+            catch (final IllegalArgumentException e) {
+                
+                // The transport reports the URL as invalid once the request is sent.
+                return this.createRequest("POST", url, null, body);
+            }
+            
+            if (wait) {
+                
+                this.waitEndpoint = endpoint;
+            }
+            else {
+                
+                this.endpoint = endpoint;
+            }
+        }
+        
+        return this.createRequest("POST", endpoint.getUrl(), endpoint, body);
+    }
+    
+    /**
+     * Creates a request that can be handed to the transport.
+     * 
+     * @param method The HTTP method of the request.
+     * @param url The URL to send the request to.
+     * @param body The body of the request.
+     * @return A request that will send the body to the webhook.
+     */
+    private Request createRequest (String method, String url, RequestBody body) {
+        
+        return this.createRequest(method, url, null, body);
+    }
+    
+    /**
+     * Creates a request that can be handed to the transport.
+     * 
+     * @param method The HTTP method of the request.
+     * @param url The URL to send the request to.
+     * @param endpoint The parsed URL, or null if the transport should parse it.
+     * @param body The body of the request.
+     * @return A request that will send the body to the webhook.
+     */
+    private Request createRequest (String method, String url, @Nullable Endpoint endpoint, RequestBody body) {
+        
+        if (debugMode) {
+            
+            try {
+                
+                // Attachments are left out, as they may be large and are usually not text.
+                if (body instanceof MultipartBody) {
+                    
+                    LOGGER.info("Encoded message, sent with its attachments in " + body.getContentLength() + " bytes:");
+                    LOGGER.info(new String(((MultipartBody) body).getPayload(), StandardCharsets.UTF_8));
+                }
+                else {
+                    
+                    LOGGER.info("Encoded message:");
+                    LOGGER.info(new String(body.toByteArray(), StandardCharsets.UTF_8));
+                }
+            }
+            
+            catch (final IOException e) {
+                
+                LOGGER.info("The message could not be encoded: " + e.getMessage());
+            }
+        }
+        
+        final WebhookMetrics metrics = this.metrics;
+        final RequestBody measured = body.getContentLength() < 0 ? new MeteredBody(body, metrics) : body;
+        final WireTracer tracer = this.tracer;
+        
+        if (tracer != null && tracer.sample()) {
+            
+            final WireTracer.Span span = tracer.start(method, this.redact(url), this.userAgent, metrics);
+            return endpoint != null ? new Request(method, endpoint, this.userAgent, span.wrap(measured), this.debugMode, span) : new Request(method, url, this.userAgent, span.wrap(measured), this.debugMode, span);
+        }
+        
+        return endpoint != null ? new Request(method, endpoint, this.userAgent, measured, this.debugMode, metrics) : new Request(method, url, this.userAgent, measured, this.debugMode, metrics);
+    }
+    
+    /**
+     * Gets the URL of a message sent by this webhook. Any query the webhook URL has, such as
+     * a <code>thread_id</code>, is kept.
+     * 
+     * @param messageId The id of the message.
+     * @return The URL of the message.
+     * @throws IllegalArgumentException If the id is not a valid message id.
+     */
+    private String getMessageUrl (String messageId) {
+        
+        if (messageId.isEmpty() || !messageId.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            
+            throw new IllegalArgumentException("The message id " + messageId + " is not valid.");
+        }
+        
+        final int query = this.webookUrl.indexOf('?');
+        
+        if (query < 0) {
+            
+            return this.webookUrl + "/messages/" + messageId;
+        }
+        
+        return this.webookUrl.substring(0, query) + "/messages/" + messageId + this.webookUrl.substring(query);
+    }
+    
+    /**
+     * Adds a parameter to the query of a URL, keeping any parameters it already has, such as
+     * the <code>thread_id</code> of a webhook that posts into a thread.
+     * 
+     * @param url The URL to add the parameter to.
+     * @param parameter The parameter, in the form <code>name=value</code>.
+     * @return The URL with the parameter added.
+     */
+    private static String appendQuery (String url, String parameter) {
+        
+        return url + (url.indexOf('?') < 0 ? '?' : '&') + parameter;
+    }
+    
+    /**
+     * Unwraps the cause of a failed future, and removes the webhook URL from any IO errors so
+     * they can be logged safely.
+     * 
+     * @param error The error the future failed with.
+     * @return The underlying error.
+     */
+    private Throwable unwrap (Throwable error) {
+        
+        Throwable cause = error;
+        
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            
+            cause = cause.getCause();
+        }
+        
+        if (cause instanceof IOException) {
+            
+            return new IOException(this.redact(cause.getMessage()), cause);
+        }
+        
+        return cause;
+    }
+    
+    /**
+     * Removes the webhook URL from a message so it can be logged or shown safely.
+     * 
+     * @param message The message to redact.
+     * @return The message without the webhook URL.
+     */
+    private String redact (@Nullable String message) {
+        
+        if (message == null) {
+            
+            return "Unknown error";
+        }
+        
+        // Only the part before the query is replaced, as the URLs of messages are inserted
+        // between the two.
+        final int query = this.webookUrl.indexOf('?');
+        return message.replace(query < 0 ? this.webookUrl : this.webookUrl.substring(0, query), "<webhook_url>");
+    }
+    
+    /**
+     * Wraps a body whose length is not known in advance so the bytes it writes are counted,
+     * and so the time spent encoding it is recorded when a transport needs it in full.
+     */
+    private static final class MeteredBody implements RequestBody {
+        
+        private final RequestBody body;
+        
+        private final WebhookMetrics metrics;
+        
+        private MeteredBody(RequestBody body, WebhookMetrics metrics) {
+            
+            this.body = body;
+            this.metrics = metrics;
+        }
+        
+        @Override
+        public String getContentType () {
+            
+            return this.body.getContentType();
+        }
+        
+        @Override
+        public long getContentLength () {
+            
+            return -1;
+        }
+        
+        @Override
+        public void writeTo (OutputStream out) throws IOException {
+            
+            final long[] written = new long[1];
+            
+            try {
+                
+                this.body.writeTo(new FilterOutputStream(out) {
+                    
+                    @Override
+                    public void write (int b) throws IOException {
+                        
+                        this.out.write(b);
+                        written[0]++;
+                    }
+                    
+                    @Override
+                    public void write (byte[] b, int off, int len) throws IOException {
+                        
+                        this.out.write(b, off, len);
+                        written[0] += len;
+                    }
+                    
+                    @Override
+                    public void close () {
+                        
+                        // The transport owns the underlying stream.
+                    }
+                });
+            }
+            
+            finally {
+                
+                this.metrics.recordBytesSent(written[0]);
+            }
+        }
+        
+        @Override
+        public byte[] toByteArray () throws IOException {
+            
+            final long start = System.nanoTime();
+            final byte[] bytes = this.body.toByteArray();
+            this.metrics.recordSerialization(System.nanoTime() - start);
+            this.metrics.recordBytesSent(bytes.length);
+            return bytes;
+        }
+    }
 }
\ No newline at end of file
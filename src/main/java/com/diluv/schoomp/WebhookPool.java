@@ -0,0 +1,361 @@
+package com.diluv.schoomp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * A group of webhooks that post to the same channel. Discord limits each webhook separately,
+ * so spreading messages over several webhooks allows more messages to be sent to a channel
+ * before being rate limited.
+ * <p>
+ * Each message is sent through the webhook with the most requests left in its current rate
+ * limit window, based on the last response it received and the requests it still has in
+ * flight. Once a webhook has used up its window, messages spill over to the others. When every
+ * webhook is used up, the one expected to allow another request first is used.
+ */
+public final class WebhookPool {
+    
+    private final Member[] members;
+    
+    /**
+     * Where the search for the best webhook starts, so webhooks with the same budget take
+     * turns.
+     */
+    private final AtomicInteger cursor = new AtomicInteger();
+    
+    /**
+     * Creates a pool from several webhooks.
+     * 
+     * @param webhooks The webhooks in the pool. They should all post to the same channel.
+     */
+    public WebhookPool(Webhook... webhooks) {
+        
+        this(Arrays.asList(webhooks));
+    }
+    
+    /**
+     * Creates a pool from several webhooks.
+     * 
+     * @param webhooks The webhooks in the pool. They should all post to the same channel.
+     */
+    public WebhookPool(List<Webhook> webhooks) {
+        
+        if (webhooks.isEmpty()) {
+            
+            throw new IllegalArgumentException("A webhook pool needs at least one webhook.");
+        }
+        
+        this.members = new Member[webhooks.size()];
+        
+        for (int i = 0; i < this.members.length; i++) {
+            
+            this.members[i] = new Member(webhooks.get(i));
+        }
+    }
+    
+    /**
+     * Gets the webhooks in the pool.
+     * 
+     * @return The webhooks in the pool.
+     */
+    public List<Webhook> getWebhooks () {
+        
+        final List<Webhook> webhooks = new ArrayList<>(this.members.length);
+        
+        for (final Member member : this.members) {
+            
+            webhooks.add(member.webhook);
+        }
+        
+        return Collections.unmodifiableList(webhooks);
+    }
+    
+    /**
+     * Sends a message through the webhook with the most rate limit budget left. Like
+     * {@link Webhook#sendMessage(Message)}, messages with more content than Discord allows are
+     * split and sent in order through that webhook, and messages with attachments are sent as
+     * a multipart request.
+     * 
+     * @param message The message to send.
+     * @return A response object containing all the information sent back from Discord. When
+     *         the message was split this is the response to the last part that was sent.
+     * @throws IOException This will happen if the request can not be sent properly.
+     */
+    public Response sendMessage (Message message) throws IOException {
+        
+        final Member member = this.select();
+        Response response = null;
+        
+        try {
+            
+            response = member.webhook.sendParts(message);
+            return response;
+        }
+        
+        finally {
+            
+            member.finish(response);
+        }
+    }
+    
+    /**
+     * Sends a message through the webhook with the most rate limit budget left, without
+     * blocking the calling thread.
+     * 
+     * @param message The message to send.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendMessageAsync (Message message) {
+        
+        return this.sendMessageAsync(message, SendExecutors.defaultExecutor());
+    }
+    
+    /**
+     * Sends a message through the webhook with the most rate limit budget left, without
+     * blocking the calling thread.
+     * 
+     * @param message The message to send.
+     * @param executor The executor to perform the request on.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendMessageAsync (Message message, Executor executor) {
+        
+        final Member member = this.select();
+        return this.track(member, member.webhook.sendMessageAsync(message, executor));
+    }
+    
+    /**
+     * Sends a request body through the webhook with the most rate limit budget left.
+     * 
+     * @param body The body to send.
+     * @return A response object containing all the information sent back from Discord.
+     * @throws IOException This will happen if the request can not be sent properly.
+     */
+    public Response send (RequestBody body) throws IOException {
+        
+        final Member member = this.select();
+        Response response = null;
+        
+        try {
+            
+            response = member.webhook.send(body);
+            return response;
+        }
+        
+        finally {
+            
+            member.finish(response);
+        }
+    }
+    
+    /**
+     * Sends a request body through the webhook with the most rate limit budget left, without
+     * blocking the calling thread.
+     * 
+     * @param body The body to send.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendAsync (RequestBody body) {
+        
+        return this.sendAsync(body, SendExecutors.defaultExecutor());
+    }
+    
+    /**
+     * Sends a request body through the webhook with the most rate limit budget left, without
+     * blocking the calling thread.
+     * 
+     * @param body The body to send.
+     * @param executor The executor to perform the request on.
+     * @return A future that completes with the response from Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    public CompletableFuture<Response> sendAsync (RequestBody body, Executor executor) {
+        
+        final Member member = this.select();
+        return this.track(member, member.webhook.sendAsync(body, executor));
+    }
+    
+    private CompletableFuture<Response> track (Member member, CompletableFuture<Response> future) {
+        
+        return future.whenComplete( (response, error) -> member.finish(response));
+    }
+    
+    /**
+     * Picks the webhook that can send a request the soonest and counts a request against it.
+     * When several webhooks can send a request right away, the one with the most budget left
+     * is picked.
+     * 
+     * @return The member to send the next request through.
+     */
+    private Member select () {
+        
+        final long now = System.nanoTime();
+        final int start = Math.floorMod(this.cursor.getAndIncrement(), this.members.length);
+        
+        Member best = null;
+        long bestDelay = Long.MAX_VALUE;
+        long bestBudget = Long.MIN_VALUE;
+        
+        for (int i = 0; i < this.members.length; i++) {
+            
+            final Member member = this.members[(start + i) % this.members.length];
+            
+            synchronized (member) {
+                
+                final long delay = member.getDelay(now);
+                final long budget = member.getBudget(now);
+                
+                if (delay < bestDelay || delay == bestDelay && budget > bestBudget) {
+                    
+                    best = member;
+                    bestDelay = delay;
+                    bestBudget = budget;
+                }
+            }
+        }
+        
+        best.inFlight.incrementAndGet();
+        return best;
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "WebhookPool [webhooks=" + this.members.length + "]";
+    }
+    
+    /**
+     * A webhook in the pool along with what is known about its rate limit.
+     */
+    private static final class Member {
+        
+        private final Webhook webhook;
+        
+        /**
+         * The amount of requests that have been sent but not answered.
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+        
+        /**
+         * The amount of requests allowed in a window. Until a response says otherwise, the
+         * same limit {@link RateLimiter} assumes is used.
+         */
+        private int limit = RateLimiter.ASSUMED_LIMIT;
+        
+        /**
+         * The amount of requests left in the current window.
+         */
+        private int remaining = RateLimiter.ASSUMED_LIMIT;
+        
+        /**
+         * The {@link System#nanoTime()} at which the current window ends.
+         */
+        private long resetAt = System.nanoTime();
+        
+        /**
+         * How long a full window lasts, in nanoseconds.
+         */
+        private long window = RateLimiter.FALLBACK_WINDOW;
+        
+        private Member(Webhook webhook) {
+            
+            this.webhook = webhook;
+        }
+        
+        /**
+         * Gets how many more requests can be sent through this webhook before it is limited.
+         * 
+         * @param now The current {@link System#nanoTime()}.
+         * @return The amount of requests left, which is negative when requests are already
+         *         waiting for a later window.
+         */
+        private synchronized long getBudget (long now) {
+            
+            final int available = now - this.resetAt >= 0 ? this.limit : this.remaining;
+            return available - (long) this.inFlight.get();
+        }
+        
+        /**
+         * Estimates how long a new request would wait before this webhook allows it, assuming
+         * the requests in flight are sent first.
+         * 
+         * @param now The current {@link System#nanoTime()}.
+         * @return The estimated wait in nanoseconds.
+         */
+        private synchronized long getDelay (long now) {
+            
+            final long budget = this.getBudget(now);
+            
+            if (budget > 0) {
+                
+                return 0;
+            }
+            
+            // Requests beyond the current window are sent one full window per limit later.
+            final long windows = -budget / Math.max(this.limit, 1);
+            final long wait = Math.max(this.resetAt - now, 0);
+            return now - this.resetAt >= 0 ? (windows + 1) * this.window : wait + windows * this.window;
+        }
+        
+        /**
+         * Records that a request has finished.
+         * 
+         * @param response The response to the request, or null if it failed.
+         */
+        private void finish (@Nullable Response response) {
+            
+            if (response != null) {
+                
+                this.update(response);
+            }
+            
+            this.inFlight.decrementAndGet();
+        }
+        
+        private synchronized void update (Response response) {
+            
+            final long now = System.nanoTime();
+            
+            if (response.isRateLimited()) {
+                
+                final long retryAfter = response.getRetryAfterMillis() >= 0 ? response.getRetryAfterMillis() : response.getRateLimitResetAfterMillis();
+                this.remaining = 0;
+                this.resetAt = now + TimeUnit.MILLISECONDS.toNanos(Math.max(retryAfter, 0));
+                return;
+            }
+            
+            final Integer limit = response.getRateLimit();
+            final Integer remaining = response.getRateLimitRemaining();
+            final long resetAfter = response.getRateLimitResetAfterMillis();
+            
+            if (remaining != null && resetAfter >= 0) {
+                
+                this.limit = limit != null ? Math.max(limit, 1) : this.limit;
+                
+                // The first request of a window reports how long the whole window lasts.
+                if (remaining + 1 >= this.limit) {
+                    
+                    this.window = Math.max(TimeUnit.MILLISECONDS.toNanos(resetAfter), 1);
+                }
+                
+                this.remaining = remaining;
+                this.resetAt = now + TimeUnit.MILLISECONDS.toNanos(resetAfter);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+import javax.annotation.Nullable;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Helpers shared by the type adapters for the message classes.
+ */
+final class Adapters {
+    
+    private Adapters() {
+    
+    }
+    
+    /**
+     * Reads a string value which may be null.
+     * 
+     * @param in The reader to read from.
+     * @return The string, or null if the value was null.
+     * @throws IOException If the value could not be read.
+     */
+    @Nullable
+    static String readString (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        return in.nextString();
+    }
+    
+    /**
+     * Reads a boolean value. Null is read as false.
+     * 
+     * @param in The reader to read from.
+     * @return The boolean value.
+     * @throws IOException If the value could not be read.
+     */
+    static boolean readBoolean (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return false;
+        }
+        
+        return in.nextBoolean();
+    }
+    
+    /**
+     * Reads a timestamp written by {@link #formatTimestamp(OffsetDateTime)}.
+     * 
+     * @param in The reader to read from.
+     * @return The timestamp, or null if the value was null.
+     * @throws IOException If the value could not be read.
+     */
+    @Nullable
+    static OffsetDateTime readTimestamp (JsonReader in) throws IOException {
+        
+        final String value = readString(in);
+        
+        try {
+            
+            return value != null ? OffsetDateTime.parse(value) : null;
+        }
+        
+        catch (final RuntimeException e) {
+            
+            throw new JsonSyntaxException("Invalid timestamp " + value, e);
+        }
+    }
+    
+    /**
+     * Formats a timestamp the way Discord expects it.
+     * 
+     * @param timestamp The timestamp to format.
+     * @return The formatted timestamp.
+     */
+    static String formatTimestamp (OffsetDateTime timestamp) {
+        
+        return DateTimeFormatter.ISO_INSTANT.format(timestamp);
+    }
+}
\ No newline at end of file
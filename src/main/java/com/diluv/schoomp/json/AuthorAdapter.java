@@ -0,0 +1,84 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+
+import com.diluv.schoomp.message.embed.Author;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Author} without using reflection.
+ */
+final class AuthorAdapter extends TypeAdapter<Author> {
+    
+    static final AuthorAdapter INSTANCE = new AuthorAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Author author) throws IOException {
+        
+        if (author == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (author.getName() != null) {
+            
+            out.name("name").value(author.getName());
+        }
+        
+        if (author.getUrl() != null) {
+            
+            out.name("url").value(author.getUrl());
+        }
+        
+        if (author.getIconUrl() != null) {
+            
+            out.name("icon_url").value(author.getIconUrl());
+        }
+        
+        out.endObject();
+    }
+    
+    @Override
+    public Author read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Author author = new Author();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            switch (in.nextName()) {
+                
+                case "name":
+                    author.setName(Adapters.readString(in));
+                    break;
+                
+                case "url":
+                    author.setUrl(Adapters.readString(in));
+                    break;
+                
+                case "icon_url":
+                    author.setIconUrl(Adapters.readString(in));
+                    break;
+                
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        
+        in.endObject();
+        return author;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.message.embed.Field;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Embed} without using reflection.
+ */
+final class EmbedAdapter extends TypeAdapter<Embed> {
+    
+    static final EmbedAdapter INSTANCE = new EmbedAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Embed embed) throws IOException {
+        
+        if (embed == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (embed.getTitle() != null) {
+            
+            out.name("title").value(embed.getTitle());
+        }
+        
+        if (embed.getUrl() != null) {
+            
+            out.name("url").value(embed.getUrl());
+        }
+        
+        if (embed.getDescription() != null) {
+            
+            out.name("description").value(embed.getDescription());
+        }
+        
+        out.name("color").value(embed.getColor());
+        
+        if (embed.getAuthor() != null) {
+            
+            out.name("author");
+            AuthorAdapter.INSTANCE.write(out, embed.getAuthor());
+        }
+        
+        final List<Field> fields = embed.getFields();
+        
+        if (fields != null) {
+            
+            out.name("fields").beginArray();
+            
+            for (int i = 0; i < fields.size(); i++) {
+                
+                FieldAdapter.INSTANCE.write(out, fields.get(i));
+            }
+            
+            out.endArray();
+        }
+        
+        if (embed.getThumbnail() != null) {
+            
+            out.name("thumbnail");
+            ThumbnailAdapter.INSTANCE.write(out, embed.getThumbnail());
+        }
+        
+        if (embed.getImage() != null) {
+            
+            out.name("image");
+            ImageAdapter.INSTANCE.write(out, embed.getImage());
+        }
+        
+        if (embed.getFooter() != null) {
+            
+            out.name("footer");
+            FooterAdapter.INSTANCE.write(out, embed.getFooter());
+        }
+        
+        if (embed.getTimestamp() != null) {
+            
+            out.name("timestamp").value(Adapters.formatTimestamp(embed.getTimestamp()));
+        }
+        
+        out.endObject();
+    }
+    
+    @Override
+    public Embed read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Embed embed = new Embed();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            switch (in.nextName()) {
+                
+                case "title":
+                    embed.setTitle(Adapters.readString(in));
+                    break;
+                
+                case "url":
+                    embed.setUrl(Adapters.readString(in));
+                    break;
+                
+                case "description":
+                    embed.setDescription(Adapters.readString(in));
+                    break;
+                
+                case "color":
+                    embed.setColor(in.nextInt());
+                    break;
+                
+                case "author":
+                    embed.setAuthor(AuthorAdapter.INSTANCE.read(in));
+                    break;
+                
+                case "fields":
+                    if (in.peek() == JsonToken.NULL) {
+                        
+                        in.nextNull();
+                        break;
+                    }
+                    
+                    in.beginArray();
+                    
+                    while (in.hasNext()) {
+                        
+                        embed.addField(FieldAdapter.INSTANCE.read(in));
+                    }
+                    
+                    in.endArray();
+                    break;
+                
+                case "thumbnail":
+                    embed.setThumbnail(ThumbnailAdapter.INSTANCE.read(in));
+                    break;
+                
+                case "image":
+                    embed.setImage(ImageAdapter.INSTANCE.read(in));
+                    break;
+                
+                case "footer":
+                    embed.setFooter(FooterAdapter.INSTANCE.read(in));
+                    break;
+                
+                case "timestamp":
+                    embed.setTimestamp(Adapters.readTimestamp(in));
+                    break;
+                
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        
+        in.endObject();
+        return embed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+
+import com.diluv.schoomp.message.embed.Field;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Field} without using reflection.
+ */
+final class FieldAdapter extends TypeAdapter<Field> {
+    
+    static final FieldAdapter INSTANCE = new FieldAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Field field) throws IOException {
+        
+        if (field == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (field.getName() != null) {
+            
+            out.name("name").value(field.getName());
+        }
+        
+        if (field.getValue() != null) {
+            
+            out.name("value").value(field.getValue());
+        }
+        
+        out.name("inline").value(field.isInline());
+        out.endObject();
+    }
+    
+    @Override
+    public Field read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Field field = new Field();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            switch (in.nextName()) {
+                
+                case "name":
+                    field.setName(Adapters.readString(in));
+                    break;
+                
+                case "value":
+                    field.setValue(Adapters.readString(in));
+                    break;
+                
+                case "inline":
+                    field.setInline(Adapters.readBoolean(in));
+                    break;
+                
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        
+        in.endObject();
+        return field;
+    }
+}
\ No newline at end of file
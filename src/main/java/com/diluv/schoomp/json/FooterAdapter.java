@@ -0,0 +1,75 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+
+import com.diluv.schoomp.message.embed.Footer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Footer} without using reflection.
+ */
+final class FooterAdapter extends TypeAdapter<Footer> {
+    
+    static final FooterAdapter INSTANCE = new FooterAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Footer footer) throws IOException {
+        
+        if (footer == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (footer.getText() != null) {
+            
+            out.name("text").value(footer.getText());
+        }
+        
+        if (footer.getIconUrl() != null) {
+            
+            out.name("icon_url").value(footer.getIconUrl());
+        }
+        
+        out.endObject();
+    }
+    
+    @Override
+    public Footer read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Footer footer = new Footer();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            switch (in.nextName()) {
+                
+                case "text":
+                    footer.setText(Adapters.readString(in));
+                    break;
+                
+                case "icon_url":
+                    footer.setIconUrl(Adapters.readString(in));
+                    break;
+                
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        
+        in.endObject();
+        return footer;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+
+import com.diluv.schoomp.message.embed.Image;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Image} without using reflection.
+ */
+final class ImageAdapter extends TypeAdapter<Image> {
+    
+    static final ImageAdapter INSTANCE = new ImageAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Image image) throws IOException {
+        
+        if (image == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (image.getUrl() != null) {
+            
+            out.name("url").value(image.getUrl());
+        }
+        
+        out.endObject();
+    }
+    
+    @Override
+    public Image read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Image image = new Image();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            if ("url".equals(in.nextName())) {
+                
+                image.setUrl(Adapters.readString(in));
+            }
+            else {
+                
+                in.skipValue();
+            }
+        }
+        
+        in.endObject();
+        return image;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Author;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.message.embed.Field;
+import com.diluv.schoomp.message.embed.Footer;
+import com.diluv.schoomp.message.embed.Image;
+import com.diluv.schoomp.message.embed.Thumbnail;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Handles encoding messages into the JSON format that Discord expects. Messages are written
+ * through a {@link JsonWriter} straight into the output as UTF-8, so no intermediate String or
+ * byte array has to be built for them.
+ * <p>
+ * The message classes are written by hand written type adapters rather than Gson's reflective
+ * serializer. This avoids reflection entirely, which makes the first message faster to send and
+ * allows the library to be used in native images without extra configuration.
+ */
+public final class Json {
+    
+    /**
+     * Converts OffsetDateTime into a JSON string that Discord can use.
+     */
+    public static final JsonSerializer<OffsetDateTime> TIME_SERIALIZER = (s, t, c) -> new JsonPrimitive(s.format(DateTimeFormatter.ISO_INSTANT));
+    
+    /**
+     * The internal Gson instance used to serialize webhook messages.
+     */
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(OffsetDateTime.class, TIME_SERIALIZER)
+            .registerTypeAdapter(Message.class, MessageAdapter.INSTANCE)
+            .registerTypeAdapter(Embed.class, EmbedAdapter.INSTANCE)
+            .registerTypeAdapter(Field.class, FieldAdapter.INSTANCE)
+            .registerTypeAdapter(Author.class, AuthorAdapter.INSTANCE)
+            .registerTypeAdapter(Footer.class, FooterAdapter.INSTANCE)
+            .registerTypeAdapter(Image.class, ImageAdapter.INSTANCE)
+            .registerTypeAdapter(Thumbnail.class, ThumbnailAdapter.INSTANCE)
+            .create();
+    
+    /**
+     * The content type of encoded messages.
+     */
+    public static final String CONTENT_TYPE = "application/json; charset=UTF-8";
+    
+    /**
+     * Sinks larger than this are not kept around for reuse once they have been used.
+     */
+    private static final int MAX_RETAINED_SINK = 256 * 1024;
+    
+    private static final ThreadLocal<ByteSink> SINKS = ThreadLocal.withInitial(ByteSink::new);
+    
+    private Json() {
+    
+    }
+    
+    /**
+     * Writes a message as UTF-8 encoded JSON to a stream.
+     * 
+     * @param message The message to write.
+     * @param out The stream to write to. The stream is not flushed or closed.
+     * @throws IOException If the stream could not be written to.
+     */
+    public static void write (Message message, OutputStream out) throws IOException {
+        
+        final Utf8Writer writer = Utf8Writer.get(out);
+        
+        try {
+            
+            // Configured the same way Gson configures writers, so the output is identical.
+            final JsonWriter json = new JsonWriter(writer);
+            json.setHtmlSafe(true);
+            json.setSerializeNulls(false);
+            MessageAdapter.INSTANCE.write(json, message);
+        }
+        
+        finally {
+            
+            writer.finish();
+        }
+    }
+    
+    /**
+     * Encodes a message as UTF-8 encoded JSON. A reusable buffer is used while encoding, so
+     * the only allocation is the returned array.
+     * 
+     * @param message The message to encode.
+     * @return The encoded message.
+     */
+    public static byte[] toBytes (Message message) {
+        
+        final ByteSink sink = SINKS.get();
+        
+        try {
+            
+            write(message, sink);
+            return Arrays.copyOf(sink.data, sink.size);
+        }
+        
+        catch (final IOException e) {
+            
+            // The sink never throws.
+            throw new IllegalStateException(e);
+        }
+        
+        finally {
+            
+            sink.size = 0;
+            
+            if (sink.data.length > MAX_RETAINED_SINK) {
+                
+                SINKS.remove();
+            }
+        }
+    }
+    
+    /**
+     * Gets the amount of bytes a string member of an object adds to the encoded object. This
+     * includes the quoted name, the escaped value and the comma that separates it from the
+     * next member. It is used by the message classes to keep track of their encoded size as
+     * they are changed.
+     * 
+     * @param name The name of the member.
+     * @param value The value of the member. Null values are not written.
+     * @return The amount of bytes the member takes up, or 0 if the value is null.
+     */
+    public static int getMemberSize (String name, @Nullable String value) {
+        
+        return value == null ? 0 : name.length() + 3 + Utf8Writer.getEscapedLength(value) + 3;
+    }
+    
+    /**
+     * Encodes a message as a JSON string. This is mostly useful for logging.
+     * 
+     * @param message The message to encode.
+     * @return The message as JSON.
+     */
+    public static String toJson (Message message) {
+        
+        return GSON.toJson(message, Message.class);
+    }
+    
+    /**
+     * Decodes a message from JSON.
+     * 
+     * @param json The JSON to decode.
+     * @return The decoded message.
+     */
+    public static Message fromJson (String json) {
+        
+        return GSON.fromJson(json, Message.class);
+    }
+    
+    /**
+     * A growable byte buffer that is reused by a thread to encode messages.
+     */
+    private static final class ByteSink extends OutputStream {
+        
+        private byte[] data = new byte[1024];
+        
+        private int size;
+        
+        @Override
+        public void write (int b) {
+            
+            this.ensure(1);
+            this.data[this.size++] = (byte) b;
+        }
+        
+        @Override
+        public void write (byte[] bytes, int offset, int length) {
+            
+            this.ensure(length);
+            System.arraycopy(bytes, offset, this.data, this.size, length);
+            this.size += length;
+        }
+        
+        private void ensure (int amount) {
+            
+            if (this.size + amount > this.data.length) {
+                
+                this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + amount));
+            }
+        }
+    }
+}
\ No newline at end of file
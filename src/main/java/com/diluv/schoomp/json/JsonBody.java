@@ -0,0 +1,57 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * A request body that streams a message as JSON directly into the connection. The length is
+ * not known in advance, so transports send it using chunked encoding. Frozen messages are the
+ * exception, as they keep their encoded bytes and those are sent as they are.
+ */
+public final class JsonBody implements RequestBody {
+    
+    /**
+     * The message to encode.
+     */
+    private final Message message;
+    
+    public JsonBody(Message message) {
+        
+        this.message = message;
+    }
+    
+    @Override
+    public String getContentType () {
+        
+        return Json.CONTENT_TYPE;
+    }
+    
+    @Override
+    public long getContentLength () {
+        
+        return this.message.isFrozen() ? this.message.toBytes().length : -1;
+    }
+    
+    @Override
+    public void writeTo (OutputStream out) throws IOException {
+        
+        if (this.message.isFrozen()) {
+            
+            out.write(this.message.toBytes());
+        }
+        
+        else {
+            
+            Json.write(this.message, out);
+        }
+    }
+    
+    @Override
+    public byte[] toByteArray () {
+        
+        return this.message.toBytes();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Embed;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Message} without using reflection. The output is the same as the
+ * reflective serializer Gson would otherwise use.
+ */
+final class MessageAdapter extends TypeAdapter<Message> {
+    
+    static final MessageAdapter INSTANCE = new MessageAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Message message) throws IOException {
+        
+        if (message == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (message.getUsername() != null) {
+            
+            out.name("username").value(message.getUsername());
+        }
+        
+        if (message.getAvatarUrl() != null) {
+            
+            out.name("avatar_url").value(message.getAvatarUrl());
+        }
+        
+        if (message.getContent() != null) {
+            
+            out.name("content").value(message.getContent());
+        }
+        
+        out.name("tts").value(message.isTts());
+        
+        final List<Embed> embeds = message.getEmbeds();
+        
+        if (embeds != null) {
+            
+            out.name("embeds").beginArray();
+            
+            for (int i = 0; i < embeds.size(); i++) {
+                
+                EmbedAdapter.INSTANCE.write(out, embeds.get(i));
+            }
+            
+            out.endArray();
+        }
+        
+        out.endObject();
+    }
+    
+    @Override
+    public Message read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Message message = new Message();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            switch (in.nextName()) {
+                
+                case "username":
+                    message.setUsername(Adapters.readString(in));
+                    break;
+                
+                case "avatar_url":
+                    message.setAvatarUrl(Adapters.readString(in));
+                    break;
+                
+                case "content":
+                    message.setContent(Adapters.readString(in));
+                    break;
+                
+                case "tts":
+                    message.setTts(Adapters.readBoolean(in));
+                    break;
+                
+                case "embeds":
+                    if (in.peek() == JsonToken.NULL) {
+                        
+                        in.nextNull();
+                        break;
+                    }
+                    
+                    in.beginArray();
+                    
+                    while (in.hasNext()) {
+                        
+                        message.addEmbed(EmbedAdapter.INSTANCE.read(in));
+                    }
+                    
+                    in.endArray();
+                    break;
+                
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        
+        in.endObject();
+        return message;
+    }
+}
\ No newline at end of file
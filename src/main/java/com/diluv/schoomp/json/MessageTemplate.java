@@ -0,0 +1,419 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * A message that has been encoded ahead of time with slots for the parts that change. This is
+ * useful for messages that are sent often with the same shape, such as alerts, where only a
+ * few values differ between each message. The constant parts of the message are encoded once,
+ * and sending a message only has to escape and encode the values of the slots.
+ * <p>
+ * Slots are created by putting <code>{name}</code> anywhere inside a text value of the
+ * prototype message, such as the content, a field value, or a footer. To make the timestamp
+ * of an embed a slot, set it to {@link #TIMESTAMP} and it will become a slot named
+ * <code>timestamp</code>.
+ * 
+ * <pre>
+ * final MessageTemplate template = MessageTemplate.compile(new Message().setContent("{service} is down!"));
+ * webhook.send(template.fill().set("service", "Database"));
+ * </pre>
+ */
+public final class MessageTemplate {
+    
+    /**
+     * A placeholder timestamp that turns the timestamp of an embed into a slot named
+     * <code>timestamp</code>.
+     */
+    public static final OffsetDateTime TIMESTAMP = OffsetDateTime.of(1, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    
+    /**
+     * The name of the slot created for {@link #TIMESTAMP}.
+     */
+    public static final String TIMESTAMP_SLOT = "timestamp";
+    
+    /**
+     * The encoded parts of the message. There is always one more part than there are slot
+     * references, the slots go between them.
+     */
+    private final byte[][] parts;
+    
+    /**
+     * The slot that goes after each part, except for the last part.
+     */
+    private final int[] references;
+    
+    /**
+     * The total length of all the constant parts.
+     */
+    private final int constantLength;
+    
+    /**
+     * All the slots in the template, keyed by name.
+     */
+    private final Map<String, Slot> slots;
+    
+    private MessageTemplate(List<byte[]> parts, List<Integer> references, Map<String, Slot> slots) {
+        
+        this.parts = parts.toArray(new byte[0][]);
+        this.references = new int[references.size()];
+        
+        for (int i = 0; i < this.references.length; i++) {
+            
+            this.references[i] = references.get(i);
+        }
+        
+        int length = 0;
+        
+        for (final byte[] part : this.parts) {
+            
+            length += part.length;
+        }
+        
+        this.constantLength = length;
+        this.slots = Collections.unmodifiableMap(slots);
+    }
+    
+    /**
+     * Compiles a template from a prototype message. The prototype is encoded right away, so
+     * changing it afterwards will not change the template.
+     * 
+     * @param prototype The message to create the template from.
+     * @return The compiled template.
+     */
+    public static MessageTemplate compile (Message prototype) {
+        
+        final String json = new String(Json.toBytes(prototype), StandardCharsets.UTF_8);
+        final String timestamp = "\"timestamp\":\"" + DateTimeFormatter.ISO_INSTANT.format(TIMESTAMP) + "\"";
+        
+        final List<byte[]> parts = new ArrayList<>();
+        final List<Integer> references = new ArrayList<>();
+        final Map<String, Slot> slots = new LinkedHashMap<>();
+        
+        final StringBuilder part = new StringBuilder();
+        boolean inString = false;
+        int i = 0;
+        
+        while (i < json.length()) {
+            
+            final char c = json.charAt(i);
+            
+            if (!inString && json.startsWith(timestamp, i)) {
+                
+                // The quotes stay constant, only the value inside them is replaced.
+                part.append("\"timestamp\":\"");
+                addReference(parts, references, slots, part, TIMESTAMP_SLOT);
+                part.append('"');
+                i += timestamp.length();
+                continue;
+            }
+            
+            if (inString && c == '{') {
+                
+                final int end = findSlotEnd(json, i + 1);
+                
+                if (end > 0) {
+                    
+                    addReference(parts, references, slots, part, json.substring(i + 1, end));
+                    i = end + 1;
+                    continue;
+                }
+            }
+            
+            if (c == '"') {
+                
+                inString = !inString;
+            }
+            
+            else if (c == '\\' && inString) {
+                
+                // Escape sequences are copied as is.
+                part.append(c);
+                i++;
+                
+                if (i < json.length()) {
+                    
+                    part.append(json.charAt(i));
+                }
+                
+                i++;
+                continue;
+            }
+            
+            part.append(c);
+            i++;
+        }
+        
+        parts.add(part.toString().getBytes(StandardCharsets.UTF_8));
+        return new MessageTemplate(parts, references, slots);
+    }
+    
+    private static void addReference (List<byte[]> parts, List<Integer> references, Map<String, Slot> slots, StringBuilder part, String name) {
+        
+        parts.add(part.toString().getBytes(StandardCharsets.UTF_8));
+        part.setLength(0);
+        references.add(slots.computeIfAbsent(name, key -> new Slot(key, slots.size())).index);
+    }
+    
+    /**
+     * Finds the end of a slot name.
+     * 
+     * @param json The encoded message.
+     * @param start The index after the opening brace.
+     * @return The index of the closing brace, or -1 if this is not a slot.
+     */
+    private static int findSlotEnd (String json, int start) {
+        
+        for (int i = start; i < json.length(); i++) {
+            
+            final char c = json.charAt(i);
+            
+            if (c == '}') {
+                
+                return i > start ? i : -1;
+            }
+            
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+                
+                return -1;
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Gets a slot by name.
+     * 
+     * @param name The name of the slot.
+     * @return The slot.
+     * @throws IllegalArgumentException If the template has no slot with that name.
+     */
+    public Slot getSlot (String name) {
+        
+        final Slot slot = this.slots.get(name);
+        
+        if (slot == null) {
+            
+            throw new IllegalArgumentException("The template has no slot named " + name);
+        }
+        
+        return slot;
+    }
+    
+    private String getSlotName (int index) {
+        
+        for (final Slot slot : this.slots.values()) {
+            
+            if (slot.index == index) {
+                
+                return slot.name;
+            }
+        }
+        
+        return Integer.toString(index);
+    }
+    
+    /**
+     * Gets all of the slots in the template, keyed by name.
+     * 
+     * @return The slots in the template.
+     */
+    public Map<String, Slot> getSlots () {
+        
+        return this.slots;
+    }
+    
+    /**
+     * Creates a new message from the template. The slots of the message must be set before
+     * it is sent.
+     * 
+     * @return A new message which can have its slots set.
+     */
+    public Filled fill () {
+        
+        return new Filled(this);
+    }
+    
+    /**
+     * A named place in the template where a value can be inserted. Looking slots up once and
+     * reusing them avoids looking them up by name for every message.
+     */
+    public static final class Slot {
+        
+        private final String name;
+        
+        private final int index;
+        
+        private Slot(String name, int index) {
+            
+            this.name = name;
+            this.index = index;
+        }
+        
+        /**
+         * Gets the name of the slot.
+         * 
+         * @return The name of the slot.
+         */
+        public String getName () {
+            
+            return this.name;
+        }
+        
+        @Override
+        public String toString () {
+            
+            return "{" + this.name + "}";
+        }
+    }
+    
+    /**
+     * A message created from a template which can be sent as the body of a request. This type
+     * is not thread safe, but it can be reused by setting new values after a send has
+     * completed.
+     */
+    public static final class Filled implements RequestBody {
+        
+        private final MessageTemplate template;
+        
+        private final String[] values;
+        
+        private Filled(MessageTemplate template) {
+            
+            this.template = template;
+            this.values = new String[template.slots.size()];
+        }
+        
+        /**
+         * Sets the value of a slot.
+         * 
+         * @param slot The slot to set.
+         * @param value The value of the slot. This will be escaped when the message is sent.
+         * @return The same instance.
+         */
+        public Filled set (Slot slot, @Nullable String value) {
+            
+            this.values[slot.index] = value;
+            return this;
+        }
+        
+        /**
+         * Sets the value of a slot.
+         * 
+         * @param name The name of the slot to set.
+         * @param value The value of the slot. This will be escaped when the message is sent.
+         * @return The same instance.
+         */
+        public Filled set (String name, @Nullable String value) {
+            
+            return this.set(this.template.getSlot(name), value);
+        }
+        
+        /**
+         * Sets the value of a slot to a number.
+         * 
+         * @param slot The slot to set.
+         * @param value The value of the slot.
+         * @return The same instance.
+         */
+        public Filled set (Slot slot, long value) {
+            
+            return this.set(slot, Long.toString(value));
+        }
+        
+        /**
+         * Sets the value of a slot to a point in time, formatted the same way as embed
+         * timestamps.
+         * 
+         * @param slot The slot to set.
+         * @param value The value of the slot.
+         * @return The same instance.
+         */
+        public Filled set (Slot slot, Instant value) {
+            
+            return this.set(slot, DateTimeFormatter.ISO_INSTANT.format(value));
+        }
+        
+        /**
+         * Sets the timestamp slot of the template.
+         * 
+         * @param timestamp The timestamp to use.
+         * @return The same instance.
+         */
+        public Filled setTimestamp (Instant timestamp) {
+            
+            return this.set(this.template.getSlot(TIMESTAMP_SLOT), timestamp);
+        }
+        
+        @Override
+        public String getContentType () {
+            
+            return Json.CONTENT_TYPE;
+        }
+        
+        @Override
+        public long getContentLength () {
+            
+            long length = this.template.constantLength;
+            
+            for (final int reference : this.template.references) {
+                
+                length += Utf8Writer.getEscapedLength(this.getValue(reference));
+            }
+            
+            return length;
+        }
+        
+        @Override
+        public void writeTo (OutputStream out) throws IOException {
+            
+            final byte[][] parts = this.template.parts;
+            final int[] references = this.template.references;
+            final Utf8Writer writer = Utf8Writer.get(out);
+            
+            try {
+                
+                for (int i = 0; i < references.length; i++) {
+                    
+                    writer.writeRaw(parts[i]);
+                    writer.writeEscaped(this.getValue(references[i]));
+                }
+                
+                writer.writeRaw(parts[parts.length - 1]);
+            }
+            
+            finally {
+                
+                writer.finish();
+            }
+        }
+        
+        private String getValue (int slot) {
+            
+            final String value = this.values[slot];
+            
+            if (value == null) {
+                
+                throw new IllegalStateException("The slot " + this.template.getSlotName(slot) + " has not been set.");
+            }
+            
+            return value;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,235 @@
+package com.diluv.schoomp.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.message.Attachment;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * A request body that sends a message along with its attachments as
+ * <code>multipart/form-data</code>. The message is encoded as JSON in a
+ * <code>payload_json</code> part, and every attachment is sent as a part of its own.
+ * <p>
+ * Files are never read into memory. They are copied from disk straight into the connection
+ * when the body is written, and transports that send buffers are given buffers mapped from the
+ * files. The size of every file is read when the body is created, so the length of the body is
+ * known up front and large files can be sent without chunked encoding. A file which changes
+ * size before it is sent fails the request rather than sending a broken body.
+ */
+public final class MultipartBody implements RequestBody {
+    
+    private static final byte[] CRLF = { '\r', '\n' };
+    
+    private final String boundary;
+    
+    /**
+     * The head of each part, starting with the boundary that opens it. The first part is the
+     * message itself and ends with the encoded message.
+     */
+    private final byte[][] heads;
+    
+    /**
+     * Where the encoded message starts in the first head.
+     */
+    private final int payloadStart;
+    
+    /**
+     * The files sent after each head besides the first, and their sizes.
+     */
+    private final Path[] files;
+    
+    private final long[] sizes;
+    
+    /**
+     * The boundary which ends the body.
+     */
+    private final byte[] end;
+    
+    private final long length;
+    
+    /**
+     * Creates a body for a message and its attachments. The message is encoded right away, so
+     * it can be changed once this returns, but the files are only read when the body is
+     * written.
+     * 
+     * @param message The message to send.
+     * @throws IOException If the size of one of the files could not be read.
+     */
+    public MultipartBody(Message message) throws IOException {
+        
+        final List<Attachment> attachments = message.getAttachments() != null ? message.getAttachments() : Collections.emptyList();
+        this.boundary = "Schoomp" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        this.heads = new byte[attachments.size() + 1][];
+        this.files = new Path[attachments.size()];
+        this.sizes = new long[attachments.size()];
+        
+        final byte[] json = message.toBytes();
+        final byte[] head = this.createHead("payload_json", null, Json.CONTENT_TYPE);
+        this.heads[0] = new byte[head.length + json.length];
+        this.payloadStart = head.length;
+        System.arraycopy(head, 0, this.heads[0], 0, head.length);
+        System.arraycopy(json, 0, this.heads[0], head.length, json.length);
+        
+        long length = this.heads[0].length;
+        
+        for (int i = 0; i < attachments.size(); i++) {
+            
+            final Attachment attachment = attachments.get(i);
+            this.heads[i + 1] = this.createHead("files[" + i + "]", attachment.getFilename(), "application/octet-stream");
+            this.files[i] = attachment.getFile();
+            this.sizes[i] = Files.size(attachment.getFile());
+            length += CRLF.length + this.heads[i + 1].length + this.sizes[i];
+        }
+        
+        this.end = ("\r\n--" + this.boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        this.length = length + this.end.length;
+    }
+    
+    /**
+     * Gets the message encoded as JSON, as it is sent in the <code>payload_json</code> part.
+     * 
+     * @return A copy of the encoded message.
+     */
+    public byte[] getPayload () {
+        
+        return Arrays.copyOfRange(this.heads[0], this.payloadStart, this.heads[0].length);
+    }
+    
+    @Override
+    public String getContentType () {
+        
+        return "multipart/form-data; boundary=" + this.boundary;
+    }
+    
+    @Override
+    public long getContentLength () {
+        
+        return this.length;
+    }
+    
+    @Override
+    public void writeTo (OutputStream out) throws IOException {
+        
+        final WritableByteChannel target = Channels.newChannel(out);
+        out.write(this.heads[0]);
+        
+        for (int i = 0; i < this.files.length; i++) {
+            
+            out.write(CRLF);
+            out.write(this.heads[i + 1]);
+            
+            try (FileChannel channel = FileChannel.open(this.files[i], StandardOpenOption.READ)) {
+                
+                this.checkSize(i, channel);
+                
+                // The file is copied in small chunks, so the heap used does not grow with it.
+                long position = 0;
+                
+                while (position < this.sizes[i]) {
+                    
+                    final long copied = channel.transferTo(position, this.sizes[i] - position, target);
+                    
+                    if (copied <= 0) {
+                        
+                        throw new EOFException("The attachment " + this.files[i] + " was shortened while it was being sent.");
+                    }
+                    
+                    position += copied;
+                }
+            }
+        }
+        
+        out.write(this.end);
+    }
+    
+    @Override
+    public ByteBuffer[] toBuffers () throws IOException {
+        
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        buffers.add(ByteBuffer.wrap(this.heads[0]));
+        
+        for (int i = 0; i < this.files.length; i++) {
+            
+            buffers.add(ByteBuffer.wrap(CRLF));
+            buffers.add(ByteBuffer.wrap(this.heads[i + 1]));
+            
+            // Mapped buffers live outside of the heap and stay valid once the channel closes.
+            try (FileChannel channel = FileChannel.open(this.files[i], StandardOpenOption.READ)) {
+                
+                this.checkSize(i, channel);
+                
+                for (long position = 0; position < this.sizes[i]; position += Integer.MAX_VALUE) {
+                    
+                    buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, this.sizes[i] - position)));
+                }
+            }
+        }
+        
+        buffers.add(ByteBuffer.wrap(this.end));
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+    
+    /**
+     * Creates the boundary and headers that open a part.
+     * 
+     * @param name The name of the form field.
+     * @param filename The name of the file in the part, or null if it is not a file.
+     * @param contentType The content type of the part.
+     * @return The encoded head of the part.
+     */
+    private byte[] createHead (String name, @Nullable String filename, String contentType) {
+        
+        final StringBuilder head = new StringBuilder(128);
+        head.append("--").append(this.boundary).append("\r\n");
+        head.append("Content-Disposition: form-data; name=\"").append(name).append('"');
+        
+        if (filename != null) {
+            
+            // Quotes and line breaks would end the header early, so they are escaped the same
+            // way browsers escape them.
+            head.append("; filename=\"").append(filename.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A")).append('"');
+        }
+        
+        head.append("\r\nContent-Type: ").append(contentType).append("\r\n\r\n");
+        return head.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Checks that a file still has the size the length of the body was worked out with.
+     * 
+     * @param index The index of the file.
+     * @param channel The open file.
+     * @throws IOException If the size of the file has changed.
+     */
+    private void checkSize (int index, FileChannel channel) throws IOException {
+        
+        if (channel.size() != this.sizes[index]) {
+            
+            throw new IOException("The attachment " + this.files[index] + " changed size from " + this.sizes[index] + " to " + channel.size() + " bytes before it was sent.");
+        }
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "MultipartBody [files=" + this.files.length + ", length=" + this.length + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+
+import com.diluv.schoomp.message.embed.Thumbnail;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes {@link Thumbnail} without using reflection.
+ */
+final class ThumbnailAdapter extends TypeAdapter<Thumbnail> {
+    
+    static final ThumbnailAdapter INSTANCE = new ThumbnailAdapter();
+    
+    @Override
+    public void write (JsonWriter out, Thumbnail thumbnail) throws IOException {
+        
+        if (thumbnail == null) {
+            
+            out.nullValue();
+            return;
+        }
+        
+        out.beginObject();
+        
+        if (thumbnail.getUrl() != null) {
+            
+            out.name("url").value(thumbnail.getUrl());
+        }
+        
+        out.endObject();
+    }
+    
+    @Override
+    public Thumbnail read (JsonReader in) throws IOException {
+        
+        if (in.peek() == JsonToken.NULL) {
+            
+            in.nextNull();
+            return null;
+        }
+        
+        final Thumbnail thumbnail = new Thumbnail();
+        in.beginObject();
+        
+        while (in.hasNext()) {
+            
+            if ("url".equals(in.nextName())) {
+                
+                thumbnail.setUrl(Adapters.readString(in));
+            }
+            else {
+                
+                in.skipValue();
+            }
+        }
+        
+        in.endObject();
+        return thumbnail;
+    }
+}
\ No newline at end of file
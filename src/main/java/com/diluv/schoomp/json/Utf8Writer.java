@@ -0,0 +1,346 @@
+package com.diluv.schoomp.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A writer that encodes characters as UTF-8 into a reusable buffer, and writes the buffer to a
+ * stream whenever it fills up. Unlike {@link java.io.OutputStreamWriter} this does not allocate
+ * an encoder or buffers for every use, as each thread reuses the same instance.
+ */
+final class Utf8Writer extends Writer {
+    
+    /**
+     * The size of the encoding buffer.
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+    
+    /**
+     * The escape sequences for ASCII characters that can not be written as they are.
+     */
+    private static final String[] REPLACEMENTS = new String[128];
+    
+    static {
+        
+        for (int i = 0; i < 0x20; i++) {
+            
+            REPLACEMENTS[i] = String.format("\\u%04x", i);
+        }
+        
+        REPLACEMENTS['"'] = "\\\"";
+        REPLACEMENTS['\\'] = "\\\\";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\f'] = "\\f";
+        REPLACEMENTS['<'] = "\\u003c";
+        REPLACEMENTS['>'] = "\\u003e";
+        REPLACEMENTS['&'] = "\\u0026";
+        REPLACEMENTS['='] = "\\u003d";
+        REPLACEMENTS['\''] = "\\u0027";
+    }
+    
+    private static final ThreadLocal<Utf8Writer> CACHE = ThreadLocal.withInitial(Utf8Writer::new);
+    
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    
+    private int position;
+    
+    /**
+     * A high surrogate that is waiting for the low surrogate of its pair, or 0 if there is
+     * none.
+     */
+    private char highSurrogate;
+    
+    private OutputStream out;
+    
+    private Utf8Writer() {
+    
+    }
+    
+    /**
+     * Gets the writer for the current thread and points it at a new stream. The writer must be
+     * finished with {@link #finish()} before it is used again.
+     * 
+     * @param out The stream to write to.
+     * @return The writer for the current thread.
+     */
+    static Utf8Writer get (OutputStream out) {
+        
+        final Utf8Writer writer = CACHE.get();
+        writer.out = out;
+        writer.position = 0;
+        writer.highSurrogate = 0;
+        return writer;
+    }
+    
+    @Override
+    public void write (int c) throws IOException {
+        
+        this.encode((char) c);
+    }
+    
+    @Override
+    public void write (char[] chars, int offset, int length) throws IOException {
+        
+        for (int i = offset; i < offset + length; i++) {
+            
+            this.encode(chars[i]);
+        }
+    }
+    
+    @Override
+    public void write (String text, int offset, int length) throws IOException {
+        
+        for (int i = offset; i < offset + length; i++) {
+            
+            this.encode(text.charAt(i));
+        }
+    }
+    
+    @Override
+    public Writer append (CharSequence text) throws IOException {
+        
+        final CharSequence sequence = text == null ? "null" : text;
+        
+        for (int i = 0; i < sequence.length(); i++) {
+            
+            this.encode(sequence.charAt(i));
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Writes bytes that have already been encoded. Any pending characters are written first
+     * so the output stays in order.
+     * 
+     * @param bytes The bytes to write.
+     * @throws IOException If the stream could not be written to.
+     */
+    void writeRaw (byte[] bytes) throws IOException {
+        
+        this.finishSurrogate();
+        
+        if (bytes.length <= BUFFER_SIZE - this.position) {
+            
+            System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+            this.position += bytes.length;
+        }
+        else {
+            
+            this.flushBuffer();
+            this.out.write(bytes);
+        }
+    }
+    
+    /**
+     * Writes the contents of a JSON string, escaped the same way as an HTML safe
+     * {@link com.google.gson.stream.JsonWriter}. The surrounding quotes are not written.
+     * 
+     * @param text The text to write.
+     * @throws IOException If the stream could not be written to.
+     */
+    void writeEscaped (String text) throws IOException {
+        
+        for (int i = 0; i < text.length(); i++) {
+            
+            final char c = text.charAt(i);
+            final String replacement = getReplacement(c);
+            
+            if (replacement != null) {
+                
+                this.write(replacement, 0, replacement.length());
+            }
+            
+            else {
+                
+                this.encode(c);
+            }
+        }
+        
+        this.finishSurrogate();
+    }
+    
+    /**
+     * Gets the amount of bytes {@link #writeEscaped(String)} writes for some text.
+     * 
+     * @param text The text to measure.
+     * @return The amount of bytes the escaped text takes up.
+     */
+    static int getEscapedLength (String text) {
+        
+        int length = 0;
+        
+        for (int i = 0; i < text.length(); i++) {
+            
+            final char c = text.charAt(i);
+            final String replacement = getReplacement(c);
+            
+            if (replacement != null) {
+                
+                length += replacement.length();
+            }
+            
+            else if (c < 0x80) {
+                
+                length++;
+            }
+            
+            else if (c < 0x800) {
+                
+                length += 2;
+            }
+            
+            else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                
+                length += 4;
+                i++;
+            }
+            
+            else if (Character.isSurrogate(c)) {
+                
+                length++;
+            }
+            
+            else {
+                
+                length += 3;
+            }
+        }
+        
+        return length;
+    }
+    
+    private static String getReplacement (char c) {
+        
+        if (c < REPLACEMENTS.length) {
+            
+            return REPLACEMENTS[c];
+        }
+        
+        if (c == '\u2028') {
+            
+            return "\\u2028";
+        }
+        
+        if (c == '\u2029') {
+            
+            return "\\u2029";
+        }
+        
+        return null;
+    }
+    
+    private void finishSurrogate () throws IOException {
+        
+        if (this.highSurrogate != 0) {
+            
+            this.highSurrogate = 0;
+            this.encode('?');
+        }
+    }
+    
+    private void encode (char c) throws IOException {
+        
+        if (this.position > BUFFER_SIZE - 4) {
+            
+            this.flushBuffer();
+        }
+        
+        final byte[] buffer = this.buffer;
+        
+        if (this.highSurrogate != 0) {
+            
+            final char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            
+            if (Character.isLowSurrogate(c)) {
+                
+                final int codePoint = Character.toCodePoint(high, c);
+                buffer[this.position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[this.position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[this.position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[this.position++] = (byte) (0x80 | codePoint & 0x3F);
+                return;
+            }
+            
+            // An unpaired surrogate is replaced, the same as String.getBytes does.
+            buffer[this.position++] = '?';
+            this.encode(c);
+            return;
+        }
+        
+        if (c < 0x80) {
+            
+            buffer[this.position++] = (byte) c;
+        }
+        
+        else if (c < 0x800) {
+            
+            buffer[this.position++] = (byte) (0xC0 | c >> 6);
+            buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+        }
+        
+        else if (Character.isHighSurrogate(c)) {
+            
+            this.highSurrogate = c;
+        }
+        
+        else if (Character.isLowSurrogate(c)) {
+            
+            buffer[this.position++] = '?';
+        }
+        
+        else {
+            
+            buffer[this.position++] = (byte) (0xE0 | c >> 12);
+            buffer[this.position++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+    
+    private void flushBuffer () throws IOException {
+        
+        if (this.position > 0) {
+            
+            this.out.write(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+    }
+    
+    /**
+     * Writes everything that is still buffered to the stream and releases the stream. The
+     * stream itself is not flushed or closed.
+     * 
+     * @throws IOException If the stream could not be written to.
+     */
+    void finish () throws IOException {
+        
+        this.finishSurrogate();
+        
+        try {
+            
+            this.flushBuffer();
+        }
+        
+        finally {
+            
+            this.out = null;
+        }
+    }
+    
+    @Override
+    public void flush () throws IOException {
+        
+        // The stream is only written to once the buffer is full or the writer is finished.
+    }
+    
+    @Override
+    public void close () throws IOException {
+        
+        // The writer is reused and never closed.
+    }
+}
\ No newline at end of file
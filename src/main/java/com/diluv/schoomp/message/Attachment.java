@@ -0,0 +1,76 @@
+package com.diluv.schoomp.message;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A file uploaded along with a message, such as a log or a report. The file is read from disk
+ * when the message is sent, and is streamed into the request rather than loaded into memory,
+ * so large files can be attached without a large heap.
+ */
+public final class Attachment {
+    
+    /**
+     * The name of the file as shown in Discord.
+     */
+    private final String filename;
+    
+    /**
+     * The file to upload.
+     */
+    private final Path file;
+    
+    /**
+     * Creates an attachment which uses the name of the file on disk.
+     * 
+     * @param file The file to upload.
+     */
+    public Attachment(Path file) {
+        
+        this(String.valueOf(file.getFileName()), file);
+    }
+    
+    /**
+     * Creates an attachment which is shown in Discord under a different name than the file on
+     * disk. The extension of the name decides how Discord displays the file.
+     * 
+     * @param filename The name of the file as shown in Discord.
+     * @param file The file to upload.
+     */
+    public Attachment(String filename, Path file) {
+        
+        if (filename.isEmpty()) {
+            
+            throw new IllegalArgumentException("Attachments need a file name.");
+        }
+        
+        this.filename = filename;
+        this.file = Objects.requireNonNull(file);
+    }
+    
+    /**
+     * Gets the name of the file as shown in Discord.
+     * 
+     * @return The name of the file.
+     */
+    public String getFilename () {
+        
+        return this.filename;
+    }
+    
+    /**
+     * Gets the file that is uploaded.
+     * 
+     * @return The path of the file.
+     */
+    public Path getFile () {
+        
+        return this.file;
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "Attachment [filename=" + this.filename + ", file=" + this.file + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,298 @@
+package com.diluv.schoomp.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Splits text which is too long for a single message into parts that Discord will accept.
+ * Text is split between lines where possible, and only lines which are too long by themselves
+ * are split between words or characters. When a split falls inside a code block, the block is
+ * closed at the end of one part and opened again with the same language at the start of the
+ * next, so every part renders on its own.
+ */
+final class ContentSplitter {
+    
+    private static final String FENCE = "```";
+    
+    /**
+     * Languages longer than this are not repeated when a code block is opened again.
+     */
+    private static final int MAX_LANGUAGE_LENGTH = 32;
+    
+    private final String text;
+    
+    private final int maxLength;
+    
+    private final List<String> parts = new ArrayList<>();
+    
+    private final StringBuilder part = new StringBuilder();
+    
+    /**
+     * The line that opened the code block the text is currently in, or null if it is not in
+     * one.
+     */
+    @Nullable
+    private String openFence;
+    
+    /**
+     * The length of the reopened code block the current part starts with.
+     */
+    private int prefixLength;
+    
+    /**
+     * Where the line that opened the current code block starts in the current part, or -1 if
+     * the block was not opened in this part.
+     */
+    private int openerStart = -1;
+    
+    /**
+     * Where the line that opened the current code block ends in the current part.
+     */
+    private int openerEnd = -1;
+    
+    private ContentSplitter(String text, int maxLength) {
+        
+        this.text = text;
+        this.maxLength = maxLength;
+    }
+    
+    /**
+     * Splits text into parts which are no longer than the given length, using as few parts as
+     * splitting between lines allows.
+     * 
+     * @param text The text to split.
+     * @param maxLength The most characters a part may have.
+     * @return The parts of the text, in order. This is the text itself if it already fits, and
+     *         is empty if the text is too long but has nothing besides whitespace.
+     */
+    static List<String> split (String text, int maxLength) {
+        
+        if (text.length() <= maxLength) {
+            
+            return Collections.singletonList(text);
+        }
+        
+        // A reopened code block and its closing fence have to fit alongside some text.
+        if (maxLength < 2 * MAX_LANGUAGE_LENGTH) {
+            
+            throw new IllegalArgumentException("Parts must allow at least " + 2 * MAX_LANGUAGE_LENGTH + " characters.");
+        }
+        
+        final ContentSplitter splitter = new ContentSplitter(text, maxLength);
+        splitter.run();
+        return splitter.parts;
+    }
+    
+    private void run () {
+        
+        int position = 0;
+        
+        while (position < this.text.length()) {
+            
+            final int newLine = this.text.indexOf('\n', position);
+            final int lineEnd = newLine < 0 ? this.text.length() : newLine + 1;
+            final String line = this.text.substring(position, lineEnd);
+            final String fenceAfter = this.getFenceAfter(line);
+            
+            // Room is kept for closing the code block in case the part ends after this line.
+            if (this.part.length() + line.length() + (fenceAfter != null ? FENCE.length() + 1 : 0) <= this.maxLength) {
+                
+                if (this.openFence == null && fenceAfter != null) {
+                    
+                    this.openerStart = this.part.length();
+                    this.openerEnd = this.openerStart + line.length();
+                }
+                
+                this.part.append(line);
+                this.openFence = fenceAfter;
+                position = lineEnd;
+            }
+            
+            else if (!this.isPartEmpty() && !this.endsWithOpener()) {
+                
+                this.finishPart();
+            }
+            
+            else if (this.openerStart > this.prefixLength) {
+                
+                // The part would end with an empty code block, so the line that opened it is
+                // moved to the next part along with the start of the line that did not fit.
+                final String opener = this.part.substring(this.openerStart);
+                final String fence = this.openFence;
+                this.part.setLength(this.openerStart);
+                this.openFence = null;
+                this.finishPart();
+                
+                this.part.append(opener);
+                this.openFence = fence;
+                this.openerStart = 0;
+                this.openerEnd = opener.length();
+            }
+            
+            else if (this.part.length() > this.prefixLength && this.isPartEmpty()) {
+                
+                // Discord trims the blank lines a message starts with, so they are dropped to
+                // make room for the line instead of being sent as a part of their own.
+                this.part.setLength(this.prefixLength);
+            }
+            
+            else {
+                
+                // The line does not fit even in an empty part, so as much of it as possible is
+                // written and the rest is handled like a line of its own.
+                position += this.appendPartial(line);
+                this.finishPart();
+            }
+        }
+        
+        this.finishPart();
+    }
+    
+    /**
+     * Appends as much of a line as fits in the current part, preferring to split after a
+     * space.
+     * 
+     * @param line The line to append part of.
+     * @return The amount of characters that were appended.
+     */
+    private int appendPartial (String line) {
+        
+        // Room is always kept for a closing fence, as the line may open a code block.
+        final int room = this.maxLength - this.part.length() - (FENCE.length() + 1);
+        int end = room;
+        
+        final int space = line.lastIndexOf(' ', room - 1);
+        
+        if (space > room / 2) {
+            
+            end = space + 1;
+        }
+        
+        // Surrogate pairs are kept together so no part ends with half a character.
+        else if (Character.isHighSurrogate(line.charAt(end - 1)) && Character.isLowSurrogate(line.charAt(end))) {
+            
+            end--;
+        }
+        
+        // A fence which is cut in half, or which would open an empty code block at the end of
+        // the part, is left for the next part instead.
+        final int fence = line.lastIndexOf(FENCE, end - 1);
+        
+        if (fence > 0 && (fence + FENCE.length() > end || line.substring(fence + FENCE.length(), end).trim().indexOf(' ') < 0)) {
+            
+            end = fence;
+        }
+        
+        final String written = line.substring(0, end);
+        this.part.append(written);
+        this.openFence = this.getFenceAfter(written);
+        return end;
+    }
+    
+    /**
+     * Adds the current part to the list of parts, closing any code block it ends in, and
+     * starts the next part. Parts with nothing but whitespace are left out, as Discord rejects
+     * empty messages.
+     */
+    private void finishPart () {
+        
+        if (!this.isPartEmpty()) {
+            
+            // Discord trims the ends of messages, so the new line a part was split on is dropped.
+            int end = this.part.length();
+            
+            while (end > 0 && this.part.charAt(end - 1) == '\n') {
+                
+                end--;
+            }
+            
+            this.part.setLength(end);
+            
+            if (this.openFence != null) {
+                
+                this.part.append('\n').append(FENCE);
+            }
+            
+            this.parts.add(this.part.toString());
+        }
+        
+        this.part.setLength(0);
+        
+        if (this.openFence != null) {
+            
+            this.part.append(this.openFence).append('\n');
+        }
+        
+        this.prefixLength = this.part.length();
+        this.openerStart = -1;
+        this.openerEnd = -1;
+    }
+    
+    /**
+     * Checks if the current part has no text besides a reopened code block. Discord trims
+     * messages, so a part with nothing but whitespace is empty as well.
+     * 
+     * @return Whether or not the part is empty.
+     */
+    private boolean isPartEmpty () {
+        
+        for (int index = this.prefixLength; index < this.part.length(); index++) {
+            
+            if (!Character.isWhitespace(this.part.charAt(index))) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Checks if the current part ends with the line that opened a code block, leaving room to
+     * add more of the block before the part is finished.
+     * 
+     * @return Whether or not the part ends with the line that opened a code block.
+     */
+    private boolean endsWithOpener () {
+        
+        return this.openerStart >= 0 && this.part.length() == this.openerEnd && this.openerEnd - this.openerStart + 2 * (FENCE.length() + 1) + MAX_LANGUAGE_LENGTH <= this.maxLength;
+    }
+    
+    /**
+     * Works out which code block the text is in after a line.
+     * 
+     * @param line The line being added.
+     * @return The fence that opened the code block the text is in after the line, or null if
+     *         it is not in a code block.
+     */
+    @Nullable
+    private String getFenceAfter (String line) {
+        
+        int fences = 0;
+        int last = -1;
+        
+        for (int index = line.indexOf(FENCE); index >= 0; index = line.indexOf(FENCE, index + FENCE.length())) {
+            
+            fences++;
+            last = index;
+        }
+        
+        // An even amount of fences, such as a block written on a single line, changes nothing.
+        if (fences % 2 == 0) {
+            
+            return this.openFence;
+        }
+        
+        if (this.openFence != null) {
+            
+            return null;
+        }
+        
+        // Only the language is kept, as anything else after the fence is content of the block.
+        final String language = line.substring(last + FENCE.length()).trim();
+        return language.isEmpty() || language.length() > MAX_LANGUAGE_LENGTH || language.indexOf(' ') >= 0 || language.contains(FENCE) ? FENCE : FENCE + language;
+    }
+}
\ No newline at end of file
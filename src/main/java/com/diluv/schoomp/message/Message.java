@@ -1,10 +1,13 @@
 package com.diluv.schoomp.message;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nullable;
 
+import com.diluv.schoomp.json.Json;
 import com.diluv.schoomp.message.embed.Embed;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
@@ -17,6 +20,26 @@ import com.google.gson.annotations.SerializedName;
  */
 public final class Message {
     
+    /**
+     * The most characters Discord allows in the content of a message.
+     */
+    public static final int MAX_CONTENT_LENGTH = 2000;
+    
+    /**
+     * The most embeds Discord allows in a message.
+     */
+    public static final int MAX_EMBEDS = 10;
+    
+    /**
+     * The most characters Discord allows in the username override of a message.
+     */
+    public static final int MAX_USERNAME_LENGTH = 80;
+    
+    /**
+     * The most files Discord allows to be attached to a message.
+     */
+    public static final int MAX_ATTACHMENTS = 10;
+    
     /**
      * The username to display for the message. This will override whatever the default name
      * is.
@@ -54,6 +77,30 @@ public final class Message {
     @Nullable
     private List<Embed> embeds;
     
+    /**
+     * The files uploaded with the message. These are sent as parts of a multipart request
+     * rather than as JSON.
+     */
+    @Nullable
+    private transient List<Attachment> attachments;
+    
+    /**
+     * The encoded size of the username, avatar and content, which is kept up to date by their
+     * setters.
+     */
+    private transient int size;
+    
+    /**
+     * Whether or not the message is a frozen snapshot which can no longer be changed.
+     */
+    private transient boolean frozen;
+    
+    /**
+     * The encoded form of a frozen message, or null if it has not been encoded yet.
+     */
+    @Nullable
+    private transient volatile byte[] encoded;
+    
     /**
      * Gets the display name override for the message. Null means the default in Discord will
      * be used.
@@ -76,6 +123,8 @@ public final class Message {
      */
     public Message setUsername (@Nullable String username) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("username", username) - Json.getMemberSize("username", this.username);
         this.username = username;
         return this;
     }
@@ -100,6 +149,8 @@ public final class Message {
      */
     public Message setAvatarUrl (@Nullable String avatarUrl) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("avatar_url", avatarUrl) - Json.getMemberSize("avatar_url", this.avatarUrl);
         this.avatarUrl = avatarUrl;
         return this;
     }
@@ -124,6 +175,8 @@ public final class Message {
      */
     public Message setContent (@Nullable String content) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("content", content) - Json.getMemberSize("content", this.content);
         this.content = content;
         return this;
     }
@@ -147,6 +200,7 @@ public final class Message {
      */
     public Message setTts (boolean tts) {
         
+        this.checkMutable();
         this.tts = tts;
         return this;
     }
@@ -161,18 +215,19 @@ public final class Message {
      */
     public Message addEmbed (Embed embed) {
         
+        this.checkMutable();
+        
         if (this.embeds == null) {
             
             this.embeds = new ArrayList<>();
         }
         
-        this.embeds.add(embed);
-        
-        if (this.embeds.size() > 10) {
+        if (this.embeds.size() >= MAX_EMBEDS) {
             
-            throw new IllegalArgumentException("Too many embeds for this message. Discord only allows for 10.");
+            throw new IllegalArgumentException("Too many embeds for this message. Discord only allows for " + MAX_EMBEDS + ".");
         }
         
+        this.embeds.add(embed);
         return this;
     }
     
@@ -185,6 +240,342 @@ public final class Message {
     @Nullable
     public List<Embed> getEmbeds () {
         
-        return this.embeds;
+        return this.embeds != null && !this.embeds.isEmpty() ? this.embeds : null;
+    }
+    
+    /**
+     * Attaches a file to the message, using the name of the file on disk.
+     * 
+     * @param file The file to upload.
+     * @return The same message instance.
+     */
+    public Message addAttachment (Path file) {
+        
+        return this.addAttachment(new Attachment(file));
+    }
+    
+    /**
+     * Attaches a file to the message. Messages with attachments are sent as a multipart
+     * request, and the files are streamed from disk when the message is sent, so they must
+     * not be changed until it has been. Keep in mind that there is a max of 10 attachments per
+     * message, adding more will cause an exception.
+     * 
+     * @param attachment The attachment to add.
+     * @return The same message instance.
+     */
+    public Message addAttachment (Attachment attachment) {
+        
+        this.checkMutable();
+        
+        if (this.attachments == null) {
+            
+            this.attachments = new ArrayList<>();
+        }
+        
+        if (this.attachments.size() >= MAX_ATTACHMENTS) {
+            
+            throw new IllegalArgumentException("Too many attachments for this message. Discord only allows for " + MAX_ATTACHMENTS + ".");
+        }
+        
+        this.attachments.add(attachment);
+        return this;
+    }
+    
+    /**
+     * Gets a list of all the files attached to this message.
+     * 
+     * @return A list of all the attachments, or null if no files have been attached.
+     */
+    @Nullable
+    public List<Attachment> getAttachments () {
+        
+        return this.hasAttachments() ? this.attachments : null;
+    }
+    
+    /**
+     * Checks if the message has any files attached, in which case it has to be sent as a
+     * multipart request.
+     * 
+     * @return Whether or not the message has attachments.
+     */
+    public boolean hasAttachments () {
+        
+        return this.attachments != null && !this.attachments.isEmpty();
+    }
+    
+    /**
+     * Splits the message into several messages if its content is longer than Discord allows.
+     * The content is split between lines where possible, and code blocks which are split are
+     * closed and opened again so each part renders properly. Every part keeps the username,
+     * avatar and text to speech setting of the message, while the embeds and attachments are
+     * only added to the last part so they appear below all of the content.
+     * 
+     * @return The parts of the message, in the order they should be sent. This only contains
+     *         the message itself if its content already fits. The parts of a frozen message are
+     *         frozen as well.
+     */
+    public List<Message> split () {
+        
+        if (this.content == null || this.content.length() <= MAX_CONTENT_LENGTH) {
+            
+            return Collections.singletonList(this);
+        }
+        
+        final List<String> contents = ContentSplitter.split(this.content, MAX_CONTENT_LENGTH);
+        final List<Message> parts = new ArrayList<>(contents.size());
+        
+        for (final String partContent : contents) {
+            
+            parts.add(new Message().setUsername(this.username).setAvatarUrl(this.avatarUrl).setTts(this.tts).setContent(partContent));
+        }
+        
+        // Content with nothing but whitespace has no parts, as Discord would trim it away.
+        if (parts.isEmpty()) {
+            
+            parts.add(new Message().setUsername(this.username).setAvatarUrl(this.avatarUrl).setTts(this.tts));
+        }
+        
+        final Message last = parts.get(parts.size() - 1);
+        
+        if (this.embeds != null) {
+            
+            for (final Embed embed : this.embeds) {
+                
+                last.addEmbed(embed);
+            }
+        }
+        
+        if (this.attachments != null) {
+            
+            for (final Attachment attachment : this.attachments) {
+                
+                last.addAttachment(attachment);
+            }
+        }
+        
+        // The parts of a frozen message are frozen too, so they keep their bytes across retries.
+        if (this.frozen) {
+            
+            parts.replaceAll(Message::freeze);
+        }
+        
+        return parts;
+    }
+    
+    /**
+     * Gets the amount of characters in all the embeds of the message combined, which Discord
+     * limits to {@link Embed#MAX_TEXT_LENGTH}.
+     * 
+     * @return The length of the text in the embeds.
+     */
+    public int getEmbedTextLength () {
+        
+        int length = 0;
+        
+        if (this.embeds != null) {
+            
+            for (int i = 0; i < this.embeds.size(); i++) {
+                
+                length += this.embeds.get(i).getTextLength();
+            }
+        }
+        
+        return length;
+    }
+    
+    /**
+     * Gets the amount of bytes the message takes up once encoded as JSON. The message and its
+     * embeds keep track of their own size as they are changed, so this is cheap enough to use
+     * for packing or bounding messages by size without encoding them.
+     * 
+     * @return The encoded size of the message in bytes.
+     */
+    public int estimatedSize () {
+        
+        int size = 2 + this.size + (this.tts ? 10 : 11);
+        
+        if (this.embeds != null && !this.embeds.isEmpty()) {
+            
+            size += 12 + Math.max(this.embeds.size() - 1, 0);
+            
+            for (int i = 0; i < this.embeds.size(); i++) {
+                
+                size += this.embeds.get(i).estimatedSize();
+            }
+        }
+        
+        return size;
+    }
+    
+    /**
+     * Checks that Discord will accept the message, so mistakes are found before a request is
+     * wasted on them.
+     * 
+     * @return The same message instance.
+     * @throws IllegalStateException If the message, or one of its embeds, breaks one of the
+     *         limits Discord places on messages.
+     */
+    public Message validate () {
+        
+        final boolean hasEmbeds = this.embeds != null && !this.embeds.isEmpty();
+        
+        if ((this.content == null || this.content.isEmpty()) && !hasEmbeds && !this.hasAttachments()) {
+            
+            throw new IllegalStateException("The message needs content, an embed or an attachment.");
+        }
+        
+        if (this.content != null && this.content.length() > MAX_CONTENT_LENGTH) {
+            
+            throw new IllegalStateException("The message content is " + this.content.length() + " characters long. Discord only allows for " + MAX_CONTENT_LENGTH + ".");
+        }
+        
+        if (this.username != null && (this.username.isEmpty() || this.username.length() > MAX_USERNAME_LENGTH)) {
+            
+            throw new IllegalStateException("The username must be between 1 and " + MAX_USERNAME_LENGTH + " characters long.");
+        }
+        
+        if (hasEmbeds) {
+            
+            if (this.embeds.size() > MAX_EMBEDS) {
+                
+                throw new IllegalStateException("Too many embeds for this message. Discord only allows for " + MAX_EMBEDS + ".");
+            }
+            
+            for (int i = 0; i < this.embeds.size(); i++) {
+                
+                this.embeds.get(i).validate();
+            }
+            
+            final int textLength = this.getEmbedTextLength();
+            
+            if (textLength > Embed.MAX_TEXT_LENGTH) {
+                
+                throw new IllegalStateException("The embeds of the message have " + textLength + " characters of text combined. Discord only allows for " + Embed.MAX_TEXT_LENGTH + ".");
+            }
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Clears the message so it can be filled in and sent again, as if it had just been
+     * created. The lists of embeds and attachments are emptied rather than replaced, so a
+     * message which is reused for every send stops allocating once it has grown to its usual
+     * size. The embeds themselves are not reset, as they may still be used elsewhere.
+     * <p>
+     * Messages are encoded as the request is written, so a message must not be reset until
+     * the send that uses it has completed.
+     * 
+     * @return The same message instance.
+     */
+    public Message reset () {
+        
+        this.checkMutable();
+        this.username = null;
+        this.avatarUrl = null;
+        this.content = null;
+        this.tts = false;
+        this.size = 0;
+        
+        if (this.embeds != null) {
+            
+            this.embeds.clear();
+        }
+        
+        if (this.attachments != null) {
+            
+            this.attachments.clear();
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Creates an immutable snapshot of the message. The snapshot can be handed to other
+     * threads, queued or sent any number of times without copying it, and it is only encoded
+     * once no matter how often it is sent. Embeds are frozen along with the message, and
+     * embeds which were already frozen are shared rather than copied.
+     * 
+     * @return A frozen copy of the message, or the message itself if it is already frozen.
+     */
+    public Message freeze () {
+        
+        if (this.frozen) {
+            
+            return this;
+        }
+        
+        final Message copy = new Message();
+        copy.username = this.username;
+        copy.avatarUrl = this.avatarUrl;
+        copy.content = this.content;
+        copy.tts = this.tts;
+        copy.size = this.size;
+        
+        if (this.embeds != null) {
+            
+            final List<Embed> embeds = new ArrayList<>(this.embeds.size());
+            
+            for (final Embed embed : this.embeds) {
+                
+                embeds.add(embed.freeze());
+            }
+            
+            copy.embeds = Collections.unmodifiableList(embeds);
+        }
+        
+        if (this.attachments != null) {
+            
+            copy.attachments = Collections.unmodifiableList(new ArrayList<>(this.attachments));
+        }
+        
+        copy.frozen = true;
+        return copy;
+    }
+    
+    /**
+     * Checks if the message is a frozen snapshot created by {@link #freeze()}.
+     * 
+     * @return Whether or not the message is frozen.
+     */
+    public boolean isFrozen () {
+        
+        return this.frozen;
+    }
+    
+    /**
+     * Encodes the message as JSON. A frozen message is only encoded the first time, and every
+     * call after that returns the same array, so sending it again or retrying it costs
+     * nothing.
+     * 
+     * @return The UTF-8 bytes of the encoded message. The array of a frozen message is shared
+     *         and must not be modified.
+     */
+    public byte[] toBytes () {
+        
+        if (!this.frozen) {
+            
+            return Json.toBytes(this);
+        }
+        
+        // Two threads may both encode the message at first, which is harmless as they produce
+        // the same bytes.
+        byte[] encoded = this.encoded;
+        
+        if (encoded == null) {
+            
+            encoded = Json.toBytes(this);
+            this.encoded = encoded;
+        }
+        
+        return encoded;
+    }
+    
+    private void checkMutable () {
+        
+        if (this.frozen) {
+            
+            throw new IllegalStateException("The message is frozen and can not be changed.");
+        }
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.diluv.schoomp.message.embed;
 
 import javax.annotation.Nullable;
 
+import com.diluv.schoomp.json.Json;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -13,6 +14,11 @@ import com.google.gson.annotations.SerializedName;
  */
 public final class Author {
     
+    /**
+     * The most characters Discord allows in the author name.
+     */
+    public static final int MAX_NAME_LENGTH = 256;
+    
     /**
      * The name of the author.
      */
@@ -35,6 +41,16 @@ public final class Author {
     @SerializedName("icon_url")
     private String iconUrl;
     
+    /**
+     * The encoded size of the name and URLs, which is kept up to date by their setters.
+     */
+    private transient int size;
+    
+    /**
+     * Whether or not the author is a frozen snapshot which can no longer be changed.
+     */
+    private transient boolean frozen;
+    
     public Author() {
         
         this(null, null, null);
@@ -55,6 +71,7 @@ public final class Author {
         this.name = name;
         this.url = url;
         this.iconUrl = iconUrl;
+        this.size = Json.getMemberSize("name", name) + Json.getMemberSize("url", url) + Json.getMemberSize("icon_url", iconUrl);
     }
     
     /**
@@ -76,6 +93,8 @@ public final class Author {
      */
     public Author setName (@Nullable String name) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("name", name) - Json.getMemberSize("name", this.name);
         this.name = name;
         return this;
     }
@@ -98,6 +117,8 @@ public final class Author {
      */
     public void setUrl (@Nullable String url) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("url", url) - Json.getMemberSize("url", this.url);
         this.url = url;
     }
     
@@ -120,7 +141,84 @@ public final class Author {
      */
     public Author setIconUrl (@Nullable String iconUrl) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("icon_url", iconUrl) - Json.getMemberSize("icon_url", this.iconUrl);
         this.iconUrl = iconUrl;
         return this;
     }
+    
+    /**
+     * Gets the amount of characters which count towards the limit Discord places on the text
+     * of an embed.
+     * 
+     * @return The length of the author name.
+     */
+    public int getTextLength () {
+        
+        return this.name == null ? 0 : this.name.length();
+    }
+    
+    /**
+     * Gets the amount of bytes the author takes up once encoded. This is kept up to date as it
+     * is changed, so it is not encoded to find out.
+     * 
+     * @return The encoded size in bytes.
+     */
+    public int estimatedSize () {
+        
+        // Every member counts the comma after it, but the last one is not followed by one.
+        return this.size > 0 ? this.size + 1 : 2;
+    }
+    
+    /**
+     * Checks that Discord will accept the author.
+     * 
+     * @throws IllegalStateException If the author name is too long.
+     */
+    public void validate () {
+        
+        if (this.name != null && this.name.length() > MAX_NAME_LENGTH) {
+            
+            throw new IllegalStateException("The author name is " + this.name.length() + " characters long. Discord only allows for " + MAX_NAME_LENGTH + ".");
+        }
+    }
+    
+    /**
+     * Creates an immutable snapshot of the author.
+     * 
+     * @return A frozen copy of the author, or the author itself if it is already frozen.
+     */
+    public Author freeze () {
+        
+        if (this.frozen) {
+            
+            return this;
+        }
+        
+        final Author copy = new Author();
+        copy.name = this.name;
+        copy.url = this.url;
+        copy.iconUrl = this.iconUrl;
+        copy.size = this.size;
+        copy.frozen = true;
+        return copy;
+    }
+    
+    /**
+     * Checks if the author is a frozen snapshot created by {@link #freeze()}.
+     * 
+     * @return Whether or not the author is frozen.
+     */
+    public boolean isFrozen () {
+        
+        return this.frozen;
+    }
+    
+    private void checkMutable () {
+        
+        if (this.frozen) {
+            
+            throw new IllegalStateException("The author is frozen and can not be changed.");
+        }
+    }
 }
\ No newline at end of file
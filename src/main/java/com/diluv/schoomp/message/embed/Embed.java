@@ -5,12 +5,15 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nullable;
 
+import com.diluv.schoomp.json.Json;
 import com.google.gson.annotations.Expose;
 
 /**
@@ -23,6 +26,33 @@ import com.google.gson.annotations.Expose;
  */
 public final class Embed {
     
+    /**
+     * The most characters Discord allows in the title of an embed.
+     */
+    public static final int MAX_TITLE_LENGTH = 256;
+    
+    /**
+     * The most characters Discord allows in the description of an embed.
+     */
+    public static final int MAX_DESCRIPTION_LENGTH = 4096;
+    
+    /**
+     * The most fields Discord allows in an embed.
+     */
+    public static final int MAX_FIELDS = 25;
+    
+    /**
+     * The most characters Discord allows in the text of an embed, which is its title,
+     * description, field names and values, footer text and author name. This limit also
+     * applies to all the embeds of a message combined.
+     */
+    public static final int MAX_TEXT_LENGTH = 6000;
+    
+    /**
+     * The encoded size of an empty embed, which only has its color.
+     */
+    private static final int BASE_SIZE = "\"color\":0".length();
+    
     /**
      * The title string for the embed.
      */
@@ -95,6 +125,17 @@ public final class Embed {
     @Nullable
     private OffsetDateTime timestamp;
     
+    /**
+     * The encoded size of the title, URL, description, color and timestamp, which is kept up
+     * to date by their setters. The color is always written, and starts out as 0.
+     */
+    private transient int size = BASE_SIZE;
+    
+    /**
+     * Whether or not the embed is a frozen snapshot which can no longer be changed.
+     */
+    private transient boolean frozen;
+    
     /**
      * Gets the title of the embed.
      * 
@@ -114,6 +155,8 @@ public final class Embed {
      */
     public Embed setTitle (@Nullable String title) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("title", title) - Json.getMemberSize("title", this.title);
         this.title = title;
         return this;
     }
@@ -138,6 +181,8 @@ public final class Embed {
      */
     public Embed setUrl (@Nullable String url) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("url", url) - Json.getMemberSize("url", this.url);
         this.url = url;
         return this;
     }
@@ -161,6 +206,8 @@ public final class Embed {
      */
     public Embed setDescription (@Nullable String description) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("description", description) - Json.getMemberSize("description", this.description);
         this.description = description;
         return this;
     }
@@ -183,6 +230,8 @@ public final class Embed {
      */
     public Embed setColor (int color) {
         
+        this.checkMutable();
+        this.size += getColorSize(color) - getColorSize(this.color);
         this.color = color;
         return this;
     }
@@ -206,6 +255,7 @@ public final class Embed {
      */
     public Embed setAuthor (@Nullable Author author) {
         
+        this.checkMutable();
         this.author = author;
         return this;
     }
@@ -218,7 +268,7 @@ public final class Embed {
     @Nullable
     public List<Field> getFields () {
         
-        return this.fields;
+        return this.fields != null && !this.fields.isEmpty() ? this.fields : null;
     }
     
     /**
@@ -255,11 +305,18 @@ public final class Embed {
      */
     public Embed addField (Field field) {
         
+        this.checkMutable();
+        
         if (this.fields == null) {
             
             this.fields = new ArrayList<>();
         }
         
+        if (this.fields.size() >= MAX_FIELDS) {
+            
+            throw new IllegalArgumentException("Too many fields for this embed. Discord only allows for " + MAX_FIELDS + ".");
+        }
+        
         this.fields.add(field);
         return this;
     }
@@ -294,6 +351,7 @@ public final class Embed {
      */
     public Embed setThumbnail (@Nullable Thumbnail thumbnail) {
         
+        this.checkMutable();
         this.thumbnail = thumbnail;
         return this;
     }
@@ -328,6 +386,7 @@ public final class Embed {
      */
     public Embed setImage (@Nullable Image image) {
         
+        this.checkMutable();
         this.image = image;
         return this;
     }
@@ -351,6 +410,7 @@ public final class Embed {
      */
     public Embed setFooter (@Nullable Footer footer) {
         
+        this.checkMutable();
         this.footer = footer;
         return this;
     }
@@ -395,10 +455,165 @@ public final class Embed {
      */
     public Embed setTimestamp (@Nullable OffsetDateTime timestamp) {
         
+        this.checkMutable();
+        this.size += getTimestampSize(timestamp) - getTimestampSize(this.timestamp);
         this.timestamp = timestamp;
         return this;
     }
     
+    /**
+     * Gets the amount of characters in the embed which count towards the limit Discord places
+     * on the text of embeds.
+     * 
+     * @return The length of the text in the embed.
+     */
+    public int getTextLength () {
+        
+        int length = (this.title == null ? 0 : this.title.length()) + (this.description == null ? 0 : this.description.length());
+        
+        if (this.fields != null) {
+            
+            for (int i = 0; i < this.fields.size(); i++) {
+                
+                length += this.fields.get(i).getTextLength();
+            }
+        }
+        
+        if (this.author != null) {
+            
+            length += this.author.getTextLength();
+        }
+        
+        if (this.footer != null) {
+            
+            length += this.footer.getTextLength();
+        }
+        
+        return length;
+    }
+    
+    /**
+     * Gets the amount of bytes the embed takes up once encoded. The embed and its parts keep
+     * track of their own size as they are changed, so this only adds up at most a few dozen
+     * numbers and never encodes anything.
+     * 
+     * @return The encoded size of the embed in bytes.
+     */
+    public int estimatedSize () {
+        
+        // Each part counts the comma after it. The color is always written and has no comma,
+        // so the commas add up to one less than the amount of parts.
+        int size = 2 + this.size;
+        
+        if (this.author != null) {
+            
+            size += 10 + this.author.estimatedSize();
+        }
+        
+        if (this.fields != null && !this.fields.isEmpty()) {
+            
+            size += 12 + Math.max(this.fields.size() - 1, 0);
+            
+            for (int i = 0; i < this.fields.size(); i++) {
+                
+                size += this.fields.get(i).estimatedSize();
+            }
+        }
+        
+        if (this.thumbnail != null) {
+            
+            size += 13 + this.thumbnail.estimatedSize();
+        }
+        
+        if (this.image != null) {
+            
+            size += 9 + this.image.estimatedSize();
+        }
+        
+        if (this.footer != null) {
+            
+            size += 10 + this.footer.estimatedSize();
+        }
+        
+        return size;
+    }
+    
+    /**
+     * Checks that Discord will accept the embed. This catches mistakes which Discord would
+     * otherwise reject the whole message for, without sending it first.
+     * 
+     * @throws IllegalStateException If the embed breaks one of the limits Discord places on
+     *         embeds.
+     */
+    public void validate () {
+        
+        if (this.title != null && this.title.length() > MAX_TITLE_LENGTH) {
+            
+            throw new IllegalStateException("The embed title is " + this.title.length() + " characters long. Discord only allows for " + MAX_TITLE_LENGTH + ".");
+        }
+        
+        if (this.description != null && this.description.length() > MAX_DESCRIPTION_LENGTH) {
+            
+            throw new IllegalStateException("The embed description is " + this.description.length() + " characters long. Discord only allows for " + MAX_DESCRIPTION_LENGTH + ".");
+        }
+        
+        if (this.fields != null) {
+            
+            if (this.fields.size() > MAX_FIELDS) {
+                
+                throw new IllegalStateException("Too many fields for this embed. Discord only allows for " + MAX_FIELDS + ".");
+            }
+            
+            for (int i = 0; i < this.fields.size(); i++) {
+                
+                this.fields.get(i).validate();
+            }
+        }
+        
+        if (this.author != null) {
+            
+            this.author.validate();
+        }
+        
+        if (this.footer != null) {
+            
+            this.footer.validate();
+        }
+        
+        final int textLength = this.getTextLength();
+        
+        if (textLength > MAX_TEXT_LENGTH) {
+            
+            throw new IllegalStateException("The embed has " + textLength + " characters of text. Discord only allows for " + MAX_TEXT_LENGTH + ".");
+        }
+    }
+    
+    /**
+     * Gets the amount of characters the color takes up once encoded, without creating a string
+     * for it.
+     * 
+     * @param color The color to measure.
+     * @return The length of the color in decimal.
+     */
+    private static int getColorSize (int color) {
+        
+        long value = Math.abs((long) color);
+        int size = color < 0 ? 2 : 1;
+        
+        while (value >= 10) {
+            
+            value /= 10;
+            size++;
+        }
+        
+        return size;
+    }
+    
+    private static int getTimestampSize (@Nullable OffsetDateTime timestamp) {
+        
+        return timestamp == null ? 0 : Json.getMemberSize("timestamp", DateTimeFormatter.ISO_INSTANT.format(timestamp));
+    }
+    
     /**
      * Converts several types of time objects into an OffsetDateTime. This allows serializing
      * timezones to be a bit simpler. This code is adapted from JDA and is licensed under
@@ -456,4 +671,97 @@ public final class Embed {
             }
         }
     }
-}
+    
+    /**
+     * Clears the embed so it can be filled in again, as if it had just been created. The list
+     * of fields is emptied rather than replaced, so an embed which is reused for every message
+     * stops allocating once it has grown to its usual size. The author, images and footer are
+     * removed but not reset, as they may still be used elsewhere.
+     * <p>
+     * Embeds are encoded as the request is written, so an embed must not be reset until the
+     * send that uses it has completed.
+     * 
+     * @return The same embed instance.
+     */
+    public Embed reset () {
+        
+        this.checkMutable();
+        this.title = null;
+        this.url = null;
+        this.description = null;
+        this.color = 0;
+        this.author = null;
+        this.thumbnail = null;
+        this.image = null;
+        this.footer = null;
+        this.timestamp = null;
+        this.size = BASE_SIZE;
+        
+        if (this.fields != null) {
+            
+            this.fields.clear();
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Creates an immutable snapshot of the embed. Its author, fields, images and footer are
+     * frozen along with it, and parts which were already frozen are shared rather than copied.
+     * Frozen embeds can be added to any amount of messages.
+     * 
+     * @return A frozen copy of the embed, or the embed itself if it is already frozen.
+     */
+    public Embed freeze () {
+        
+        if (this.frozen) {
+            
+            return this;
+        }
+        
+        final Embed copy = new Embed();
+        copy.title = this.title;
+        copy.url = this.url;
+        copy.description = this.description;
+        copy.color = this.color;
+        copy.timestamp = this.timestamp;
+        copy.size = this.size;
+        copy.author = this.author != null ? this.author.freeze() : null;
+        copy.thumbnail = this.thumbnail != null ? this.thumbnail.freeze() : null;
+        copy.image = this.image != null ? this.image.freeze() : null;
+        copy.footer = this.footer != null ? this.footer.freeze() : null;
+        
+        if (this.fields != null) {
+            
+            final List<Field> fields = new ArrayList<>(this.fields.size());
+            
+            for (final Field field : this.fields) {
+                
+                fields.add(field.freeze());
+            }
+            
+            copy.fields = Collections.unmodifiableList(fields);
+        }
+        
+        copy.frozen = true;
+        return copy;
+    }
+    
+    /**
+     * Checks if the embed is a frozen snapshot created by {@link #freeze()}.
+     * 
+     * @return Whether or not the embed is frozen.
+     */
+    public boolean isFrozen () {
+        
+        return this.frozen;
+    }
+    
+    private void checkMutable () {
+        
+        if (this.frozen) {
+            
+            throw new IllegalStateException("The embed is frozen and can not be changed.");
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.diluv.schoomp.message.embed;
 
+import com.diluv.schoomp.json.Json;
 import com.google.gson.annotations.Expose;
 
 /**
@@ -10,6 +11,16 @@ import com.google.gson.annotations.Expose;
  */
 public final class Field {
     
+    /**
+     * The most characters Discord allows in the name of a field.
+     */
+    public static final int MAX_NAME_LENGTH = 256;
+    
+    /**
+     * The most characters Discord allows in the value of a field.
+     */
+    public static final int MAX_VALUE_LENGTH = 1024;
+    
     /**
      * The name of the field.
      */
@@ -30,14 +41,24 @@ public final class Field {
     @Expose
     private boolean inline = false;
     
+    /**
+     * The encoded size of the name and value, which is kept up to date by their setters.
+     */
+    private transient int size;
+    
+    /**
+     * Whether or not the field is a frozen snapshot which can no longer be changed.
+     */
+    private transient boolean frozen;
+    
     public Field() {
-        
+    
     }
     
     public Field(String name, String value, boolean inline) {
         
-        this.name = name;
-        this.value = value;
+        this.setName(name);
+        this.setValue(value);
         this.inline = inline;
     }
     
@@ -58,6 +79,8 @@ public final class Field {
      */
     public void setName (String name) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("name", name) - Json.getMemberSize("name", this.name);
         this.name = name;
     }
     
@@ -78,6 +101,8 @@ public final class Field {
      */
     public void setValue (String value) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("value", value) - Json.getMemberSize("value", this.value);
         this.value = value;
     }
     
@@ -98,6 +123,92 @@ public final class Field {
      */
     public void setInline (boolean inline) {
         
+        this.checkMutable();
         this.inline = inline;
     }
-}
+    
+    /**
+     * Gets the amount of characters in the field which count towards the limit Discord places
+     * on the text of an embed.
+     * 
+     * @return The length of the name and value.
+     */
+    public int getTextLength () {
+        
+        return (this.name == null ? 0 : this.name.length()) + (this.value == null ? 0 : this.value.length());
+    }
+    
+    /**
+     * Gets the amount of bytes the field takes up once encoded. This is kept up to date as
+     * the field is changed, so it is not encoded to find out.
+     * 
+     * @return The encoded size of the field in bytes.
+     */
+    public int estimatedSize () {
+        
+        return 2 + this.size + (this.inline ? 13 : 14);
+    }
+    
+    /**
+     * Checks that Discord will accept the field.
+     * 
+     * @throws IllegalStateException If the field is missing its name or value, or either is
+     *         too long.
+     */
+    public void validate () {
+        
+        if (this.name == null || this.name.isEmpty() || this.value == null || this.value.isEmpty()) {
+            
+            throw new IllegalStateException("Fields must have a name and a value.");
+        }
+        
+        if (this.name.length() > MAX_NAME_LENGTH) {
+            
+            throw new IllegalStateException("The field name is " + this.name.length() + " characters long. Discord only allows for " + MAX_NAME_LENGTH + ".");
+        }
+        
+        if (this.value.length() > MAX_VALUE_LENGTH) {
+            
+            throw new IllegalStateException("The value of field " + this.name + " is " + this.value.length() + " characters long. Discord only allows for " + MAX_VALUE_LENGTH + ".");
+        }
+    }
+    
+    /**
+     * Creates an immutable snapshot of the field.
+     * 
+     * @return A frozen copy of the field, or the field itself if it is already frozen.
+     */
+    public Field freeze () {
+        
+        if (this.frozen) {
+            
+            return this;
+        }
+        
+        final Field copy = new Field();
+        copy.name = this.name;
+        copy.value = this.value;
+        copy.inline = this.inline;
+        copy.size = this.size;
+        copy.frozen = true;
+        return copy;
+    }
+    
+    /**
+     * Checks if the field is a frozen snapshot created by {@link #freeze()}.
+     * 
+     * @return Whether or not the field is frozen.
+     */
+    public boolean isFrozen () {
+        
+        return this.frozen;
+    }
+    
+    private void checkMutable () {
+        
+        if (this.frozen) {
+            
+            throw new IllegalStateException("The field is frozen and can not be changed.");
+        }
+    }
+}
\ No newline at end of file
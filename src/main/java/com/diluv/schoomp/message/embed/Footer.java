@@ -2,6 +2,7 @@ package com.diluv.schoomp.message.embed;
 
 import javax.annotation.Nullable;
 
+import com.diluv.schoomp.json.Json;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -13,6 +14,11 @@ import com.google.gson.annotations.SerializedName;
  */
 public final class Footer {
     
+    /**
+     * The most characters Discord allows in the footer text.
+     */
+    public static final int MAX_TEXT_LENGTH = 2048;
+    
     /**
      * Text to display at the bottom of the message. This will not support markdown strings!
      */
@@ -28,6 +34,16 @@ public final class Footer {
     @SerializedName("icon_url")
     private String iconUrl;
     
+    /**
+     * The encoded size of the text and icon, which is kept up to date by their setters.
+     */
+    private transient int size;
+    
+    /**
+     * Whether or not the footer is a frozen snapshot which can no longer be changed.
+     */
+    private transient boolean frozen;
+    
     public Footer() {
         
         this(null, null);
@@ -42,6 +58,7 @@ public final class Footer {
         
         this.text = text;
         this.iconUrl = icon;
+        this.size = Json.getMemberSize("text", text) + Json.getMemberSize("icon_url", icon);
     }
     
     /**
@@ -63,6 +80,8 @@ public final class Footer {
      */
     public Footer setText (@Nullable String text) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("text", text) - Json.getMemberSize("text", this.text);
         this.text = text;
         return this;
     }
@@ -86,7 +105,83 @@ public final class Footer {
      */
     public Footer setIconUrl (@Nullable String iconUrl) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("icon_url", iconUrl) - Json.getMemberSize("icon_url", this.iconUrl);
         this.iconUrl = iconUrl;
         return this;
     }
-}
+    
+    /**
+     * Gets the amount of characters which count towards the limit Discord places on the text
+     * of an embed.
+     * 
+     * @return The length of the footer text.
+     */
+    public int getTextLength () {
+        
+        return this.text == null ? 0 : this.text.length();
+    }
+    
+    /**
+     * Gets the amount of bytes the footer takes up once encoded. This is kept up to date as it
+     * is changed, so it is not encoded to find out.
+     * 
+     * @return The encoded size in bytes.
+     */
+    public int estimatedSize () {
+        
+        // Every member counts the comma after it, but the last one is not followed by one.
+        return this.size > 0 ? this.size + 1 : 2;
+    }
+    
+    /**
+     * Checks that Discord will accept the footer.
+     * 
+     * @throws IllegalStateException If the footer text is too long.
+     */
+    public void validate () {
+        
+        if (this.text != null && this.text.length() > MAX_TEXT_LENGTH) {
+            
+            throw new IllegalStateException("The footer text is " + this.text.length() + " characters long. Discord only allows for " + MAX_TEXT_LENGTH + ".");
+        }
+    }
+    
+    /**
+     * Creates an immutable snapshot of the footer.
+     * 
+     * @return A frozen copy of the footer, or the footer itself if it is already frozen.
+     */
+    public Footer freeze () {
+        
+        if (this.frozen) {
+            
+            return this;
+        }
+        
+        final Footer copy = new Footer();
+        copy.text = this.text;
+        copy.iconUrl = this.iconUrl;
+        copy.size = this.size;
+        copy.frozen = true;
+        return copy;
+    }
+    
+    /**
+     * Checks if the footer is a frozen snapshot created by {@link #freeze()}.
+     * 
+     * @return Whether or not the footer is frozen.
+     */
+    public boolean isFrozen () {
+        
+        return this.frozen;
+    }
+    
+    private void checkMutable () {
+        
+        if (this.frozen) {
+            
+            throw new IllegalStateException("The footer is frozen and can not be changed.");
+        }
+    }
+}
\ No newline at end of file
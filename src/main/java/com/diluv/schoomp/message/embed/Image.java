@@ -2,13 +2,14 @@ package com.diluv.schoomp.message.embed;
 
 import javax.annotation.Nullable;
 
+import com.diluv.schoomp.json.Json;
 import com.google.gson.annotations.Expose;
 
 /**
  * This class represents an image element in an embedded message.
  * 
  * @author Tyler Hancock (Darkhax)
- *
+ * 
  */
 public class Image {
     
@@ -19,6 +20,16 @@ public class Image {
     @Nullable
     private String url;
     
+    /**
+     * The encoded size of the URL, or 0 if there is none.
+     */
+    private transient int size;
+    
+    /**
+     * Whether or not the image is a frozen snapshot which can no longer be changed.
+     */
+    private transient boolean frozen;
+    
     public Image() {
         
         this(null);
@@ -27,6 +38,7 @@ public class Image {
     public Image(@Nullable String url) {
         
         this.url = url;
+        this.size = Json.getMemberSize("url", url);
     }
     
     /**
@@ -48,7 +60,56 @@ public class Image {
      */
     public Image setUrl (@Nullable String url) {
         
+        this.checkMutable();
+        this.size += Json.getMemberSize("url", url) - Json.getMemberSize("url", this.url);
         this.url = url;
         return this;
     }
+    
+    /**
+     * Gets the amount of bytes the image takes up once encoded.
+     * 
+     * @return The encoded size in bytes.
+     */
+    public int estimatedSize () {
+        
+        return this.size > 0 ? this.size + 1 : 2;
+    }
+    
+    /**
+     * Creates an immutable snapshot of the image.
+     * 
+     * @return A frozen copy of the image, or the image itself if it is already frozen.
+     */
+    public Image freeze () {
+        
+        if (this.frozen) {
+            
+            return this;
+        }
+        
+        final Image copy = new Image();
+        copy.url = this.url;
+        copy.size = this.size;
+        copy.frozen = true;
+        return copy;
+    }
+    
+    /**
+     * Checks if the image is a frozen snapshot created by {@link #freeze()}.
+     * 
+     * @return Whether or not the image is frozen.
+     */
+    public boolean isFrozen () {
+        
+        return this.frozen;
+    }
+    
+    private void checkMutable () {
+        
+        if (this.frozen) {
+            
+            throw new IllegalStateException("The image is frozen and can not be changed.");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.diluv.schoomp.metrics;
+
+/**
+ * A copy of the values recorded by a {@link LatencyHistogram} at a point in time. All values
+ * are in microseconds.
+ */
+public final class HistogramSnapshot {
+    
+    private final long[] counts;
+    
+    private final long count;
+    
+    private final long min;
+    
+    private final long max;
+    
+    private final long sum;
+    
+    HistogramSnapshot(long[] counts, long count, long min, long max, long sum) {
+        
+        this.counts = counts;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+    }
+    
+    /**
+     * Gets the amount of recorded values.
+     * 
+     * @return The amount of recorded values.
+     */
+    public long getCount () {
+        
+        return this.count;
+    }
+    
+    /**
+     * Gets the smallest recorded value.
+     * 
+     * @return The smallest value, or 0 if nothing was recorded.
+     */
+    public long getMinMicros () {
+        
+        return this.min;
+    }
+    
+    /**
+     * Gets the largest recorded value.
+     * 
+     * @return The largest value, or 0 if nothing was recorded.
+     */
+    public long getMaxMicros () {
+        
+        return this.max;
+    }
+    
+    /**
+     * Gets the average of the recorded values.
+     * 
+     * @return The average value, or 0 if nothing was recorded.
+     */
+    public double getMeanMicros () {
+        
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+    
+    /**
+     * Gets the median of the recorded values.
+     * 
+     * @return The value at the percentile.
+     */
+    public long getP50Micros () {
+        
+        return this.getValueAtPercentile(50);
+    }
+    
+    /**
+     * Gets the value 90% of recorded values are less than or equal to.
+     * 
+     * @return The value at the percentile.
+     */
+    public long getP90Micros () {
+        
+        return this.getValueAtPercentile(90);
+    }
+    
+    /**
+     * Gets the value 99% of recorded values are less than or equal to.
+     * 
+     * @return The value at the percentile.
+     */
+    public long getP99Micros () {
+        
+        return this.getValueAtPercentile(99);
+    }
+    
+    /**
+     * Gets the value 99.9% of recorded values are less than or equal to.
+     * 
+     * @return The value at the percentile.
+     */
+    public long getP999Micros () {
+        
+        return this.getValueAtPercentile(99.9);
+    }
+    
+    /**
+     * Gets the value which the given percentage of recorded values are less than or equal to.
+     * The value is rounded up to the largest value of its bucket, but is never more than the
+     * largest recorded value.
+     * 
+     * @param percentile The percentile to get, from 0 to 100.
+     * @return The value at the percentile, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile (double percentile) {
+        
+        if (this.count == 0) {
+            
+            return 0;
+        }
+        
+        final double clamped = Math.min(Math.max(percentile, 0d), 100d);
+        final long target = Math.max((long) Math.ceil(clamped / 100d * this.count), 1);
+        long seen = 0;
+        
+        for (int i = 0; i < this.counts.length; i++) {
+            
+            seen += this.counts[i];
+            
+            if (seen >= target) {
+                
+                return Math.min(LatencyHistogram.highestValueOf(i), this.max);
+            }
+        }
+        
+        return this.max;
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "HistogramSnapshot [count=" + this.count + ", min=" + this.min + ", p50=" + this.getP50Micros() + ", p99=" + this.getP99Micros() + ", p999=" + this.getP999Micros() + ", max=" + this.max + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.diluv.schoomp.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations which can be recorded from any amount of threads without locking.
+ * Durations are stored with microsecond resolution in buckets whose width grows with the
+ * value, so every value is kept to within about 1.6% of its true size while the whole
+ * histogram only needs a couple of thousand counters. Values up to 128 microseconds are exact.
+ * <p>
+ * Durations longer than about 19 hours are counted as the longest bucket, although the
+ * maximum is still tracked exactly.
+ */
+public final class LatencyHistogram {
+    
+    /**
+     * The amount of bits used to tell values with the same magnitude apart. Each bucket
+     * covers 1/64 of its magnitude.
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+    
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS - 1;
+    
+    /**
+     * Values are limited to this many bits, which is about 19 hours in microseconds.
+     */
+    private static final int VALUE_BITS = 36;
+    
+    private static final long MAX_VALUE = (1L << VALUE_BITS) - 1;
+    
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    
+    private final LongAdder sum = new LongAdder();
+    
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Records a duration.
+     * 
+     * @param nanos The duration in nanoseconds. Negative durations are counted as zero.
+     */
+    public void record (long nanos) {
+        
+        final long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+        
+        this.counts.incrementAndGet(indexOf(Math.min(micros, MAX_VALUE)));
+        this.sum.add(micros);
+        
+        long current = this.min.get();
+        
+        while (micros < current && !this.min.compareAndSet(current, micros)) {
+            
+            current = this.min.get();
+        }
+        
+        current = this.max.get();
+        
+        while (micros > current && !this.max.compareAndSet(current, micros)) {
+            
+            current = this.max.get();
+        }
+    }
+    
+    /**
+     * Takes a copy of the recorded values. Values recorded while the copy is taken may or may
+     * not be included.
+     * 
+     * @return A snapshot of the histogram.
+     */
+    public HistogramSnapshot snapshot () {
+        
+        final long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        
+        for (int i = 0; i < copy.length; i++) {
+            
+            copy[i] = this.counts.get(i);
+            total += copy[i];
+        }
+        
+        final long min = this.min.get();
+        return new HistogramSnapshot(copy, total, total == 0 ? 0 : min, this.max.get(), this.sum.sum());
+    }
+    
+    @Override
+    public String toString () {
+        
+        return this.snapshot().toString();
+    }
+    
+    /**
+     * Gets the bucket a value is counted in. Values below 128 get a bucket each, and every
+     * doubling after that is split into 64 buckets.
+     * 
+     * @param value The value in microseconds.
+     * @return The index of the bucket.
+     */
+    static int indexOf (long value) {
+        
+        final int shift = Math.max(64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS, 0);
+        return (shift << SUB_BUCKET_BITS - 1) + (int) (value >>> shift);
+    }
+    
+    /**
+     * Gets the largest value that is counted in a bucket.
+     * 
+     * @param index The index of the bucket.
+     * @return The largest value in the bucket, in microseconds.
+     */
+    static long highestValueOf (int index) {
+        
+        if (index < SUB_BUCKET_HALF << 1) {
+            
+            return index;
+        }
+        
+        final int shift = (index >> SUB_BUCKET_BITS - 1) - 1;
+        final long lowest = (long) (index - (shift << SUB_BUCKET_BITS - 1)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,205 @@
+package com.diluv.schoomp.metrics;
+
+import java.util.Map;
+
+/**
+ * A copy of everything recorded by {@link WebhookMetrics} at a point in time. Counters only
+ * ever grow, so rates such as requests per second can be found by comparing two snapshots.
+ */
+public final class MetricsSnapshot {
+    
+    private final long timestamp;
+    
+    private final long requests;
+    
+    private final long failures;
+    
+    private final long retries;
+    
+    private final long rateLimited;
+    
+    private final long bytesSent;
+    
+    private final int inFlight;
+    
+    private final Map<Integer, Long> statusCounts;
+    
+    private final HistogramSnapshot serialization;
+    
+    private final HistogramSnapshot connect;
+    
+    private final HistogramSnapshot firstByte;
+    
+    private final HistogramSnapshot total;
+    
+    private final HistogramSnapshot queueWait;
+    
+    private final HistogramSnapshot rateLimitDelay;
+    
+    MetricsSnapshot(WebhookMetrics metrics) {
+        
+        this.timestamp = System.currentTimeMillis();
+        this.requests = metrics.getRequests();
+        this.failures = metrics.getFailures();
+        this.retries = metrics.getRetries();
+        this.rateLimited = metrics.getRateLimited();
+        this.bytesSent = metrics.getBytesSent();
+        this.inFlight = metrics.getInFlight();
+        this.statusCounts = metrics.getStatusCounts();
+        this.serialization = metrics.getSerialization();
+        this.connect = metrics.getConnect();
+        this.firstByte = metrics.getFirstByte();
+        this.total = metrics.getTotal();
+        this.queueWait = metrics.getQueueWait();
+        this.rateLimitDelay = metrics.getRateLimitDelay();
+    }
+    
+    /**
+     * Gets when the snapshot was taken.
+     * 
+     * @return The time the snapshot was taken, in milliseconds since the epoch.
+     */
+    public long getTimestamp () {
+        
+        return this.timestamp;
+    }
+    
+    /**
+     * Gets the amount of requests which received a response, including error responses.
+     * 
+     * @return The amount of answered requests.
+     */
+    public long getRequests () {
+        
+        return this.requests;
+    }
+    
+    /**
+     * Gets the amount of requests which failed without a response.
+     * 
+     * @return The amount of failed requests.
+     */
+    public long getFailures () {
+        
+        return this.failures;
+    }
+    
+    /**
+     * Gets the amount of times a request was sent again.
+     * 
+     * @return The amount of retries.
+     */
+    public long getRetries () {
+        
+        return this.retries;
+    }
+    
+    /**
+     * Gets the amount of responses with status code 429.
+     * 
+     * @return The amount of rate limited requests.
+     */
+    public long getRateLimited () {
+        
+        return this.rateLimited;
+    }
+    
+    /**
+     * Gets the amount of request body bytes that were sent.
+     * 
+     * @return The amount of bytes sent.
+     */
+    public long getBytesSent () {
+        
+        return this.bytesSent;
+    }
+    
+    /**
+     * Gets the amount of requests waiting for a response when the snapshot was taken.
+     * 
+     * @return The amount of requests in flight.
+     */
+    public int getInFlight () {
+        
+        return this.inFlight;
+    }
+    
+    /**
+     * Gets the amount of responses for each status code. Status codes which were never
+     * received are left out.
+     * 
+     * @return An unmodifiable map of status codes to the amount of responses.
+     */
+    public Map<Integer, Long> getStatusCounts () {
+        
+        return this.statusCounts;
+    }
+    
+    /**
+     * Gets how long messages took to encode. Messages which are streamed straight into the
+     * connection are not included, as encoding them is part of sending them.
+     * 
+     * @return The serialization time histogram.
+     */
+    public HistogramSnapshot getSerialization () {
+        
+        return this.serialization;
+    }
+    
+    /**
+     * Gets how long opening a connection took.
+     * 
+     * @return The connect time histogram.
+     */
+    public HistogramSnapshot getConnect () {
+        
+        return this.connect;
+    }
+    
+    /**
+     * Gets how long it took for responses to start arriving after a request was sent.
+     * 
+     * @return The time to first byte histogram.
+     */
+    public HistogramSnapshot getFirstByte () {
+        
+        return this.firstByte;
+    }
+    
+    /**
+     * Gets how long each request took from being handed to the transport until the response
+     * was read, including requests which failed.
+     * 
+     * @return The total request time histogram.
+     */
+    public HistogramSnapshot getTotal () {
+        
+        return this.total;
+    }
+    
+    /**
+     * Gets how long messages waited in a {@link com.diluv.schoomp.SendQueue} before being sent.
+     * 
+     * @return The queue wait histogram.
+     */
+    public HistogramSnapshot getQueueWait () {
+        
+        return this.queueWait;
+    }
+    
+    /**
+     * Gets how long requests were held back by the rate limiter.
+     * 
+     * @return The rate limit delay histogram.
+     */
+    public HistogramSnapshot getRateLimitDelay () {
+        
+        return this.rateLimitDelay;
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "MetricsSnapshot [requests=" + this.requests + ", failures=" + this.failures + ", retries=" + this.retries + ", rateLimited=" + this.rateLimited + ", bytesSent=" + this.bytesSent + ", inFlight=" + this.inFlight + ", statusCounts=" + this.statusCounts + ", total=" + this.total + "]";
+    }
+}
\ No newline at end of file
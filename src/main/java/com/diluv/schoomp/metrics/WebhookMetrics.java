@@ -0,0 +1,427 @@
+package com.diluv.schoomp.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.diluv.schoomp.transport.RequestListener;
+
+/**
+ * Records how requests to Discord perform, such as how long they take, how many were rate
+ * limited and how much data was sent. Recording only updates counters and histograms which do
+ * not lock, so it is cheap enough to always leave on.
+ * <p>
+ * Every webhook records into {@link #global()} by default. A webhook can be given its own
+ * metrics with {@link com.diluv.schoomp.Webhook#setMetrics(WebhookMetrics)}, which also
+ * record into the global metrics. Metrics can be read with {@link #snapshot()} or through JMX,
+ * where the global metrics are registered as
+ * <code>com.diluv.schoomp:type=WebhookMetrics,name=global</code>.
+ */
+public final class WebhookMetrics implements RequestListener, WebhookMetricsMXBean {
+    
+    private static final Logger LOGGER = Logger.getLogger("Schoomp");
+    
+    private static final String DOMAIN = "com.diluv.schoomp";
+    
+    /**
+     * The status codes which are counted separately. Anything else is counted as 0.
+     */
+    private static final int MAX_STATUS_CODE = 599;
+    
+    @Nullable
+    private final WebhookMetrics parent;
+    
+    private final LongAdder requests = new LongAdder();
+    
+    private final LongAdder failures = new LongAdder();
+    
+    private final LongAdder retries = new LongAdder();
+    
+    private final LongAdder rateLimited = new LongAdder();
+    
+    private final LongAdder bytesSent = new LongAdder();
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS_CODE + 1);
+    
+    private final LatencyHistogram serialization = new LatencyHistogram();
+    
+    private final LatencyHistogram connect = new LatencyHistogram();
+    
+    private final LatencyHistogram firstByte = new LatencyHistogram();
+    
+    private final LatencyHistogram total = new LatencyHistogram();
+    
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    
+    private final LatencyHistogram rateLimitDelay = new LatencyHistogram();
+    
+    /**
+     * The name the metrics are registered with in JMX, or null if they are not registered.
+     */
+    @Nullable
+    private ObjectName objectName;
+    
+    /**
+     * Creates metrics which also record into the global metrics.
+     */
+    public WebhookMetrics() {
+        
+        this(Holder.GLOBAL);
+    }
+    
+    private WebhookMetrics(@Nullable WebhookMetrics parent) {
+        
+        this.parent = parent;
+    }
+    
+    /**
+     * Gets the metrics which every webhook records into.
+     * 
+     * @return The global metrics.
+     */
+    public static WebhookMetrics global () {
+        
+        return Holder.GLOBAL;
+    }
+    
+    /**
+     * Registers the metrics with the platform MBean server so they can be read through JMX.
+     * 
+     * @param name The name to register the metrics under. This is used as the name property of
+     *        <code>com.diluv.schoomp:type=WebhookMetrics</code>, so it can not contain commas,
+     *        colons, equals signs or quotes.
+     * @return The same metrics instance.
+     * @throws IllegalStateException If the metrics could not be registered, for example because
+     *         the name is already used or is not valid.
+     */
+    public synchronized WebhookMetrics register (String name) {
+        
+        if (this.objectName != null) {
+            
+            throw new IllegalStateException("The metrics are already registered as " + this.objectName);
+        }
+        
+        try {
+            
+            final ObjectName objectName = new ObjectName(DOMAIN + ":type=WebhookMetrics,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        }
+        
+        catch (final JMException e) {
+            
+            throw new IllegalStateException("The metrics could not be registered as " + name, e);
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Removes the metrics from the platform MBean server if they were registered.
+     */
+    public synchronized void unregister () {
+        
+        if (this.objectName != null) {
+            
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            
+            try {
+                
+                if (server.isRegistered(this.objectName)) {
+                    
+                    server.unregisterMBean(this.objectName);
+                }
+            }
+            
+            catch (final JMException e) {
+                
+                LOGGER.fine("The metrics could not be unregistered. Error: " + e.getMessage());
+            }
+            
+            this.objectName = null;
+        }
+    }
+    
+    /**
+     * Takes a copy of everything that has been recorded.
+     * 
+     * @return A snapshot of the metrics.
+     */
+    public MetricsSnapshot snapshot () {
+        
+        return new MetricsSnapshot(this);
+    }
+    
+    /**
+     * Records how long a message took to encode.
+     * 
+     * @param nanos The time spent encoding.
+     */
+    public void recordSerialization (long nanos) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.serialization.record(nanos);
+        }
+    }
+    
+    /**
+     * Records how long a message waited in a queue before it was sent.
+     * 
+     * @param nanos The time spent waiting.
+     */
+    public void recordQueueWait (long nanos) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.queueWait.record(nanos);
+        }
+    }
+    
+    /**
+     * Records how long a request was held back by the rate limiter.
+     * 
+     * @param nanos The time spent waiting.
+     */
+    public void recordRateLimitDelay (long nanos) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.rateLimitDelay.record(nanos);
+        }
+    }
+    
+    /**
+     * Records that request body bytes were sent.
+     * 
+     * @param bytes The amount of bytes.
+     */
+    public void recordBytesSent (long bytes) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.bytesSent.add(bytes);
+        }
+    }
+    
+    /**
+     * Records that a request was handed to the transport. Every call must be followed by a
+     * call to {@link #recordResponse(int, long)} or {@link #recordFailure(long)}.
+     */
+    public void recordStart () {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.inFlight.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Records that a request received a response.
+     * 
+     * @param statusCode The status code of the response.
+     * @param nanos How long the request took.
+     */
+    public void recordResponse (int statusCode, long nanos) {
+        
+        final int index = statusCode >= 100 && statusCode <= MAX_STATUS_CODE ? statusCode : 0;
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.inFlight.decrementAndGet();
+            metrics.requests.increment();
+            metrics.statusCounts.incrementAndGet(index);
+            metrics.total.record(nanos);
+            
+            if (statusCode == 429) {
+                
+                metrics.rateLimited.increment();
+            }
+        }
+    }
+    
+    /**
+     * Records that a request failed without receiving a response.
+     * 
+     * @param nanos How long the request took to fail.
+     */
+    public void recordFailure (long nanos) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.inFlight.decrementAndGet();
+            metrics.failures.increment();
+            metrics.total.record(nanos);
+        }
+    }
+    
+    /**
+     * Records that a request is going to be sent again.
+     */
+    public void recordRetry () {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.retries.increment();
+        }
+    }
+    
+    @Override
+    public void onConnected (long nanos) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.connect.record(nanos);
+        }
+    }
+    
+    @Override
+    public void onFirstByte (long nanos) {
+        
+        for (WebhookMetrics metrics = this; metrics != null; metrics = metrics.parent) {
+            
+            metrics.firstByte.record(nanos);
+        }
+    }
+    
+    @Override
+    public void onEncoded (long nanos) {
+        
+        this.recordSerialization(nanos);
+    }
+    
+    @Override
+    public long getRequests () {
+        
+        return this.requests.sum();
+    }
+    
+    @Override
+    public long getFailures () {
+        
+        return this.failures.sum();
+    }
+    
+    @Override
+    public long getRetries () {
+        
+        return this.retries.sum();
+    }
+    
+    @Override
+    public long getRateLimited () {
+        
+        return this.rateLimited.sum();
+    }
+    
+    @Override
+    public long getBytesSent () {
+        
+        return this.bytesSent.sum();
+    }
+    
+    @Override
+    public int getInFlight () {
+        
+        return this.inFlight.get();
+    }
+    
+    @Override
+    public Map<Integer, Long> getStatusCounts () {
+        
+        final Map<Integer, Long> counts = new TreeMap<>();
+        
+        for (int i = 0; i <= MAX_STATUS_CODE; i++) {
+            
+            final long count = this.statusCounts.get(i);
+            
+            if (count > 0) {
+                
+                counts.put(i, count);
+            }
+        }
+        
+        return Collections.unmodifiableMap(counts);
+    }
+    
+    @Override
+    public HistogramSnapshot getSerialization () {
+        
+        return this.serialization.snapshot();
+    }
+    
+    @Override
+    public HistogramSnapshot getConnect () {
+        
+        return this.connect.snapshot();
+    }
+    
+    @Override
+    public HistogramSnapshot getFirstByte () {
+        
+        return this.firstByte.snapshot();
+    }
+    
+    @Override
+    public HistogramSnapshot getTotal () {
+        
+        return this.total.snapshot();
+    }
+    
+    @Override
+    public HistogramSnapshot getQueueWait () {
+        
+        return this.queueWait.snapshot();
+    }
+    
+    @Override
+    public HistogramSnapshot getRateLimitDelay () {
+        
+        return this.rateLimitDelay.snapshot();
+    }
+    
+    @Override
+    public String toString () {
+        
+        return "WebhookMetrics [requests=" + this.getRequests() + ", failures=" + this.getFailures() + ", rateLimited=" + this.getRateLimited() + ", inFlight=" + this.getInFlight() + "]";
+    }
+    
+    /**
+     * Holds the global metrics so they are only created, and registered with JMX, once they
+     * are first used.
+     */
+    private static final class Holder {
+        
+        private static final WebhookMetrics GLOBAL = createGlobal();
+        
+        private static WebhookMetrics createGlobal () {
+            
+            final WebhookMetrics metrics = new WebhookMetrics(null);
+            
+            // Another copy of the library may already have registered its own global metrics.
+            try {
+                
+                metrics.register("global");
+            }
+            
+            catch (final IllegalStateException | SecurityException e) {
+                
+                LOGGER.fine("The global metrics could not be registered with JMX. Error: " + e.getMessage());
+            }
+            
+            return metrics;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.diluv.schoomp.metrics;
+
+import java.util.Map;
+
+/**
+ * The attributes of {@link WebhookMetrics} which are exposed through JMX. Histograms are
+ * exposed as composite values with their count, mean and percentiles in microseconds.
+ */
+public interface WebhookMetricsMXBean {
+    
+    long getRequests ();
+    
+    long getFailures ();
+    
+    long getRetries ();
+    
+    long getRateLimited ();
+    
+    long getBytesSent ();
+    
+    int getInFlight ();
+    
+    Map<Integer, Long> getStatusCounts ();
+    
+    HistogramSnapshot getSerialization ();
+    
+    HistogramSnapshot getConnect ();
+    
+    HistogramSnapshot getFirstByte ();
+    
+    HistogramSnapshot getTotal ();
+    
+    HistogramSnapshot getQueueWait ();
+    
+    HistogramSnapshot getRateLimitDelay ();
+}
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.diluv.schoomp.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * What was sent and received during a single attempt at a request, as recorded by a
+ * {@link WireTracer}. The URL has the webhook token removed, and the payload and response body
+ * are cut short at {@link WireTracer#getMaxPayloadBytes()}.
+ */
+public final class WireTrace {
+    
+    private final Instant startedAt;
+    
+    private final String method;
+    
+    private final String url;
+    
+    private final int attempt;
+    
+    private final Map<String, String> requestHeaders;
+    
+    private final byte[] payload;
+    
+    private final long payloadLength;
+    
+    private final int statusCode;
+    
+    private final Map<String, String> responseHeaders;
+    
+    @Nullable
+    private final byte[] responseBody;
+    
+    @Nullable
+    private final String error;
+    
+    private final long connectNanos;
+    
+    private final long firstByteNanos;
+    
+    private final long totalNanos;
+    
+    WireTrace(Instant startedAt, String method, String url, int attempt, Map<String, String> requestHeaders, byte[] payload, long payloadLength, int statusCode, Map<String, String> responseHeaders, @Nullable byte[] responseBody, @Nullable String error, long connectNanos, long firstByteNanos, long totalNanos) {
+        
+        this.startedAt = startedAt;
+        this.method = method;
+        this.url = url;
+        this.attempt = attempt;
+        this.requestHeaders = requestHeaders;
+        this.payload = payload;
+        this.payloadLength = payloadLength;
+        this.statusCode = statusCode;
+        this.responseHeaders = responseHeaders;
+        this.responseBody = responseBody;
+        this.error = error;
+        this.connectNanos = connectNanos;
+        this.firstByteNanos = firstByteNanos;
+        this.totalNanos = totalNanos;
+    }
+    
+    /**
+     * Gets the time the attempt was started at.
+     * 
+     * @return When the attempt started.
+     */
+    public Instant getStartedAt () {
+        
+        return this.startedAt;
+    }
+    
+    /**
+     * Gets the HTTP method of the request.
+     * 
+     * @return The HTTP method.
+     */
+    public String getMethod () {
+        
+        return this.method;
+    }
+    
+    /**
+     * Gets the URL the request was sent to, with the webhook URL replaced by
+     * <code>&lt;webhook_url&gt;</code>.
+     * 
+     * @return The redacted URL of the request.
+     */
+    public String getUrl () {
+        
+        return this.url;
+    }
+    
+    /**
+     * Gets the number of the attempt, starting from 1. Retries of a request are traced as
+     * attempts of their own.
+     * 
+     * @return The number of the attempt.
+     */
+    public int getAttempt () {
+        
+        return this.attempt;
+    }
+    
+    /**
+     * Gets the headers the request was sent with by the library. Transports may add headers
+     * of their own which are not included.
+     * 
+     * @return The headers of the request.
+     */
+    public Map<String, String> getRequestHeaders () {
+        
+        return this.requestHeaders;
+    }
+    
+    /**
+     * Gets the start of the body that was sent.
+     * 
+     * @return The bytes of the body that were kept.
+     */
+    public byte[] getPayload () {
+        
+        return this.payload.clone();
+    }
+    
+    /**
+     * Gets the amount of bytes the transport took from the body, which can be more than was
+     * kept.
+     * 
+     * @return The length of the body in bytes.
+     */
+    public long getPayloadLength () {
+        
+        return this.payloadLength;
+    }
+    
+    /**
+     * Gets the status code Discord responded with.
+     * 
+     * @return The status code, or -1 if the attempt failed without a response.
+     */
+    public int getStatusCode () {
+        
+        return this.statusCode;
+    }
+    
+    /**
+     * Gets the rate limit headers Discord responded with.
+     * 
+     * @return The rate limit headers of the response, which is empty if there was none.
+     */
+    public Map<String, String> getResponseHeaders () {
+        
+        return this.responseHeaders;
+    }
+    
+    /**
+     * Gets the start of the body Discord responded with.
+     * 
+     * @return The bytes of the response body that were kept, or null if there was none.
+     */
+    @Nullable
+    public byte[] getResponseBody () {
+        
+        return this.responseBody != null ? this.responseBody.clone() : null;
+    }
+    
+    /**
+     * Gets the reason the attempt failed without a response.
+     * 
+     * @return The error, or null if Discord responded.
+     */
+    @Nullable
+    public String getError () {
+        
+        return this.error;
+    }
+    
+    /**
+     * Gets how long it took to open a connection for the attempt.
+     * 
+     * @return The connect time in nanoseconds, or -1 if the transport did not report it.
+     */
+    public long getConnectNanos () {
+        
+        return this.connectNanos;
+    }
+    
+    /**
+     * Gets how long it took for the response to start arriving.
+     * 
+     * @return The time to the first byte in nanoseconds, or -1 if the transport did not
+     *         report it.
+     */
+    public long getFirstByteNanos () {
+        
+        return this.firstByteNanos;
+    }
+    
+    /**
+     * Gets how long the whole attempt took.
+     * 
+     * @return The duration of the attempt in nanoseconds.
+     */
+    public long getTotalNanos () {
+        
+        return this.totalNanos;
+    }
+    
+    @Override
+    public String toString () {
+        
+        final StringBuilder builder = new StringBuilder(256 + this.payload.length);
+        builder.append(this.startedAt).append(' ').append(this.method).append(' ').append(this.url).append(" attempt=").append(this.attempt);
+        builder.append(" status=").append(this.statusCode);
+        builder.append(" connect=").append(toMillis(this.connectNanos)).append(" firstByte=").append(toMillis(this.firstByteNanos)).append(" total=").append(toMillis(this.totalNanos));
+        
+        if (this.error != null) {
+            
+            builder.append(" error=").append(this.error);
+        }
+        
+        builder.append("\n  > ").append(this.requestHeaders);
+        builder.append("\n  > ").append(new String(this.payload, StandardCharsets.UTF_8));
+        
+        if (this.payload.length < this.payloadLength) {
+            
+            builder.append("... (").append(this.payloadLength).append(" bytes)");
+        }
+        
+        builder.append("\n  < ").append(this.responseHeaders);
+        
+        if (this.responseBody != null && this.responseBody.length > 0) {
+            
+            builder.append("\n  < ").append(new String(this.responseBody, StandardCharsets.UTF_8));
+        }
+        
+        return builder.toString();
+    }
+    
+    private static String toMillis (long nanos) {
+        
+        return nanos < 0 ? "-" : String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+    }
+}
\ No newline at end of file
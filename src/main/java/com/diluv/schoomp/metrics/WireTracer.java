@@ -0,0 +1,536 @@
+package com.diluv.schoomp.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.Response;
+import com.diluv.schoomp.transport.RequestBody;
+import com.diluv.schoomp.transport.RequestListener;
+
+/**
+ * Keeps a record of recent requests as they were sent over the wire, for finding out what went
+ * wrong after the fact. Only a sample of requests is traced, and only the most recent traces
+ * are kept in a fixed amount of memory, so a tracer can be left on in production and read with
+ * {@link #dump()} when something goes wrong.
+ * <p>
+ * A request that is not sampled costs a single random number. A sampled request keeps the
+ * start of its body as it is written, and each attempt at it is recorded with its redacted
+ * URL, headers, timings, status code and the start of the response. The transport is asked for
+ * every header of the response, except for cookies which are left out.
+ * <p>
+ * A tracer is given to a webhook with {@link com.diluv.schoomp.Webhook#setTracer(WireTracer)},
+ * and can be shared by any amount of webhooks.
+ */
+public final class WireTracer {
+    
+    private final AtomicReferenceArray<WireTrace> traces;
+    
+    /**
+     * The amount of traces that have ever been recorded. The next trace goes into the slot
+     * this points at, overwriting the oldest trace.
+     */
+    private final AtomicLong recorded = new AtomicLong();
+    
+    private volatile double sampleRate;
+    
+    private volatile int maxPayloadBytes = 4096;
+    
+    /**
+     * Creates a tracer.
+     * 
+     * @param capacity The amount of recent traces to keep.
+     * @param sampleRate The share of requests to trace, from 0 to 1.
+     */
+    public WireTracer(int capacity, double sampleRate) {
+        
+        if (capacity < 1) {
+            
+            throw new IllegalArgumentException("At least one trace must be kept, got " + capacity);
+        }
+        
+        this.traces = new AtomicReferenceArray<>(capacity);
+        this.setSampleRate(sampleRate);
+    }
+    
+    /**
+     * Gets the share of requests which are traced.
+     * 
+     * @return The sample rate, from 0 to 1.
+     */
+    public double getSampleRate () {
+        
+        return this.sampleRate;
+    }
+    
+    /**
+     * Sets the share of requests which are traced. This can be raised while investigating a
+     * problem and lowered again afterwards.
+     * 
+     * @param sampleRate The share of requests to trace, from 0 for none to 1 for all.
+     * @return The same tracer instance.
+     */
+    public WireTracer setSampleRate (double sampleRate) {
+        
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            
+            throw new IllegalArgumentException("The sample rate must be between 0 and 1, got " + sampleRate);
+        }
+        
+        this.sampleRate = sampleRate;
+        return this;
+    }
+    
+    /**
+     * Gets the most bytes of a request or response body which are kept in a trace.
+     * 
+     * @return The most bytes kept from each body.
+     */
+    public int getMaxPayloadBytes () {
+        
+        return this.maxPayloadBytes;
+    }
+    
+    /**
+     * Sets the most bytes of a request or response body which are kept in a trace. The
+     * default is 4096.
+     * 
+     * @param maxPayloadBytes The most bytes to keep from each body.
+     * @return The same tracer instance.
+     */
+    public WireTracer setMaxPayloadBytes (int maxPayloadBytes) {
+        
+        if (maxPayloadBytes < 0) {
+            
+            throw new IllegalArgumentException("The payload size can not be negative, got " + maxPayloadBytes);
+        }
+        
+        this.maxPayloadBytes = maxPayloadBytes;
+        return this;
+    }
+    
+    /**
+     * Decides if a request should be traced.
+     * 
+     * @return Whether or not to trace the request.
+     */
+    public boolean sample () {
+        
+        final double rate = this.sampleRate;
+        return rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+    
+    /**
+     * Starts tracing a request which was sampled.
+     * 
+     * @param method The HTTP method of the request.
+     * @param url The URL of the request, which must already be redacted.
+     * @param userAgent The user agent of the request.
+     * @param listener The listener the request would otherwise use, which is still given
+     *        every timing.
+     * @return A span that records each attempt at the request.
+     */
+    public Span start (String method, String url, String userAgent, RequestListener listener) {
+        
+        return new Span(method, url, userAgent, listener);
+    }
+    
+    /**
+     * Gets the traces which are currently kept, from oldest to newest. Traces recorded while
+     * this is running may or may not be included.
+     * 
+     * @return The recent traces.
+     */
+    public List<WireTrace> getTraces () {
+        
+        final long end = this.recorded.get();
+        final int capacity = this.traces.length();
+        final List<WireTrace> traces = new ArrayList<>(capacity);
+        
+        for (long index = Math.max(0, end - capacity); index < end; index++) {
+            
+            final WireTrace trace = this.traces.get((int) (index % capacity));
+            
+            if (trace != null) {
+                
+                traces.add(trace);
+            }
+        }
+        
+        return traces;
+    }
+    
+    /**
+     * Gets the amount of traces that have been recorded, including those which have since been
+     * overwritten.
+     * 
+     * @return The total amount of traces.
+     */
+    public long getRecorded () {
+        
+        return this.recorded.get();
+    }
+    
+    /**
+     * Formats the recent traces as text, from oldest to newest.
+     * 
+     * @return The recent traces, with a few lines for each.
+     */
+    public String dump () {
+        
+        final StringBuilder builder = new StringBuilder();
+        
+        for (final WireTrace trace : this.getTraces()) {
+            
+            builder.append(trace).append('\n');
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Removes every kept trace.
+     */
+    public void clear () {
+        
+        for (int i = 0; i < this.traces.length(); i++) {
+            
+            this.traces.set(i, null);
+        }
+    }
+    
+    private void record (WireTrace trace) {
+        
+        final long index = this.recorded.getAndIncrement();
+        this.traces.set((int) (index % this.traces.length()), trace);
+    }
+    
+    /**
+     * Records the attempts at a single sampled request. Attempts are made one after another,
+     * so a span is only used by one thread at a time.
+     */
+    public final class Span implements RequestListener {
+        
+        private final String method;
+        
+        private final String url;
+        
+        private final String userAgent;
+        
+        private final RequestListener listener;
+        
+        private int attempt;
+        
+        private Instant startedAt;
+        
+        private long start;
+        
+        private long connectNanos;
+        
+        private long firstByteNanos;
+        
+        /**
+         * Every header of the response to the current attempt, or null if the transport did
+         * not report them.
+         */
+        @Nullable
+        private Map<String, String> responseHeaders;
+        
+        /**
+         * The start of the body written by the current attempt.
+         */
+        private byte[] payload = new byte[0];
+        
+        private int payloadSize;
+        
+        private long payloadLength;
+        
+        @Nullable
+        private RequestBody body;
+        
+        private Span(String method, String url, String userAgent, RequestListener listener) {
+            
+            this.method = method;
+            this.url = url;
+            this.userAgent = userAgent;
+            this.listener = listener;
+        }
+        
+        /**
+         * Wraps the body of the request so the start of it is kept as it is written.
+         * 
+         * @param body The body of the request.
+         * @return A body which writes the same bytes.
+         */
+        public RequestBody wrap (RequestBody body) {
+            
+            this.body = body;
+            return new CapturingBody(body);
+        }
+        
+        /**
+         * Starts recording an attempt at the request.
+         */
+        public synchronized void begin () {
+            
+            this.attempt++;
+            this.startedAt = Instant.now();
+            this.start = System.nanoTime();
+            this.connectNanos = -1;
+            this.firstByteNanos = -1;
+            this.responseHeaders = null;
+            this.payloadSize = 0;
+            this.payloadLength = 0;
+            
+            final long known = this.body != null ? this.body.getContentLength() : -1;
+            final int size = (int) Math.min(WireTracer.this.maxPayloadBytes, known >= 0 ? known : Integer.MAX_VALUE);
+            
+            if (this.payload.length != size) {
+                
+                this.payload = new byte[size];
+            }
+        }
+        
+        /**
+         * Records the response to the current attempt. The headers are those the transport
+         * reported, or if it did not, those the response was read from.
+         * 
+         * @param response The response from Discord.
+         */
+        public void finish (Response response) {
+            
+            final Map<String, String> reported;
+            
+            synchronized (this) {
+                
+                reported = this.responseHeaders;
+            }
+            
+            final Map<String, String> headers = reported != null ? reported : new LinkedHashMap<>();
+            
+            if (reported == null) {
+                
+                this.putRateLimitHeaders(headers, response);
+            }
+            
+            final byte[] body = response.getBody();
+            final byte[] kept = body != null ? Arrays.copyOf(body, Math.min(body.length, WireTracer.this.maxPayloadBytes)) : null;
+            this.end(response.getStatusCode(), Collections.unmodifiableMap(headers), kept, null);
+        }
+        
+        /**
+         * Adds the rate limit headers a response was read from, for transports which do not
+         * report every header.
+         * 
+         * @param headers The headers to add to.
+         * @param response The response from Discord.
+         */
+        private void putRateLimitHeaders (Map<String, String> headers, Response response) {
+            
+            putHeader(headers, "X-RateLimit-Limit", response.getRateLimit());
+            putHeader(headers, "X-RateLimit-Remaining", response.getRateLimitRemaining());
+            putHeader(headers, "X-RateLimit-Reset-After", response.getRateLimitResetAfterMillis() >= 0 ? response.getRateLimitResetAfterMillis() / 1000d : null);
+            putHeader(headers, "Retry-After", response.getRetryAfterMillis() >= 0 ? response.getRetryAfterMillis() / 1000d : null);
+            putHeader(headers, "X-RateLimit-Global", response.isGlobal() ? Boolean.TRUE : null);
+        }
+        
+        /**
+         * Records that the current attempt failed without a response.
+         * 
+         * @param error The reason the attempt failed.
+         */
+        public void fail (Throwable error) {
+            
+            this.end(-1, Collections.emptyMap(), null, error.getClass().getSimpleName() + ": " + error.getMessage());
+        }
+        
+        @Override
+        public void onConnected (long nanos) {
+            
+            this.connectNanos = nanos;
+            this.listener.onConnected(nanos);
+        }
+        
+        @Override
+        public void onFirstByte (long nanos) {
+            
+            this.firstByteNanos = nanos;
+            this.listener.onFirstByte(nanos);
+        }
+        
+        @Override
+        public void onEncoded (long nanos) {
+            
+            this.listener.onEncoded(nanos);
+        }
+        
+        @Override
+        public boolean wantsResponseHeaders () {
+            
+            return true;
+        }
+        
+        @Override
+        public void onResponseHeaders (Map<String, String> headers) {
+            
+            final Map<String, String> kept = new LinkedHashMap<>();
+            
+            for (final Map.Entry<String, String> header : headers.entrySet()) {
+                
+                if (!"Set-Cookie".equalsIgnoreCase(header.getKey())) {
+                    
+                    kept.put(header.getKey(), header.getValue());
+                }
+            }
+            
+            synchronized (this) {
+                
+                this.responseHeaders = kept;
+            }
+            
+            if (this.listener.wantsResponseHeaders()) {
+                
+                this.listener.onResponseHeaders(headers);
+            }
+        }
+        
+        private synchronized void end (int statusCode, Map<String, String> responseHeaders, @Nullable byte[] responseBody, @Nullable String error) {
+            
+            final Map<String, String> requestHeaders = new LinkedHashMap<>();
+            requestHeaders.put("User-Agent", this.userAgent);
+            
+            if (this.body != null) {
+                
+                requestHeaders.put("Content-Type", this.body.getContentType());
+                
+                if (this.body.getContentLength() >= 0) {
+                    
+                    requestHeaders.put("Content-Length", Long.toString(this.body.getContentLength()));
+                }
+            }
+            
+            final byte[] payload = Arrays.copyOf(this.payload, this.payloadSize);
+            WireTracer.this.record(new WireTrace(this.startedAt, this.method, this.url, this.attempt, Collections.unmodifiableMap(requestHeaders), payload, this.payloadLength, statusCode, responseHeaders, responseBody, error, this.connectNanos, this.firstByteNanos, System.nanoTime() - this.start));
+        }
+        
+        private synchronized void capture (byte[] bytes, int offset, int length) {
+            
+            final int amount = Math.min(length, this.payload.length - this.payloadSize);
+            
+            if (amount > 0) {
+                
+                System.arraycopy(bytes, offset, this.payload, this.payloadSize, amount);
+                this.payloadSize += amount;
+            }
+            
+            this.payloadLength += length;
+        }
+        
+        private synchronized void capture (ByteBuffer buffer) {
+            
+            final int amount = Math.min(buffer.remaining(), this.payload.length - this.payloadSize);
+            
+            if (amount > 0) {
+                
+                buffer.duplicate().get(this.payload, this.payloadSize, amount);
+                this.payloadSize += amount;
+            }
+            
+            this.payloadLength += buffer.remaining();
+        }
+        
+        private void putHeader (Map<String, String> headers, String name, @Nullable Object value) {
+            
+            if (value != null) {
+                
+                headers.put(name, value.toString());
+            }
+        }
+        
+        /**
+         * Passes a body through while keeping the start of what the transport takes from it.
+         */
+        private final class CapturingBody implements RequestBody {
+            
+            private final RequestBody body;
+            
+            private CapturingBody(RequestBody body) {
+                
+                this.body = body;
+            }
+            
+            @Override
+            public String getContentType () {
+                
+                return this.body.getContentType();
+            }
+            
+            @Override
+            public long getContentLength () {
+                
+                return this.body.getContentLength();
+            }
+            
+            @Override
+            public void writeTo (OutputStream out) throws IOException {
+                
+                this.body.writeTo(new FilterOutputStream(out) {
+                    
+                    @Override
+                    public void write (int b) throws IOException {
+                        
+                        this.out.write(b);
+                        Span.this.capture(new byte[] { (byte) b }, 0, 1);
+                    }
+                    
+                    @Override
+                    public void write (byte[] b, int off, int len) throws IOException {
+                        
+                        this.out.write(b, off, len);
+                        Span.this.capture(b, off, len);
+                    }
+                    
+                    @Override
+                    public void close () {
+                        
+                        // The stream belongs to the transport.
+                    }
+                });
+            }
+            
+            @Override
+            public byte[] toByteArray () throws IOException {
+                
+                final byte[] bytes = this.body.toByteArray();
+                Span.this.capture(bytes, 0, bytes.length);
+                return bytes;
+            }
+            
+            @Override
+            public ByteBuffer[] toBuffers () throws IOException {
+                
+                final ByteBuffer[] buffers = this.body.toBuffers();
+                
+                for (final ByteBuffer buffer : buffers) {
+                    
+                    Span.this.capture(buffer);
+                }
+                
+                return buffers;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,674 @@
+package com.diluv.schoomp.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+import com.diluv.schoomp.Response;
+import com.diluv.schoomp.Webhook;
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.RequestBody;
+
+/**
+ * A persistent queue of messages that are delivered to a webhook in the background. Messages
+ * are written to a log on disk before they are sent, and are only removed from it once Discord
+ * has accepted them. Anything left in the log when the JVM stops is sent the next time an
+ * outbox is opened on the same directory, so messages are delivered at least once even if the
+ * application crashes or Discord is unavailable for a while.
+ * <p>
+ * The log is made of segment files which are mapped into memory, so appending a message is
+ * about as fast as copying it. The log is written to disk by a background thread every few
+ * milliseconds, and all messages appended since the last write are made durable together.
+ * Callers that need to know a message is on disk can call {@link #sync()}.
+ * <p>
+ * Messages are delivered one at a time in the order they were appended. Requests that fail
+ * because of a network error, a rate limit or a server error are retried until they succeed.
+ * Messages that Discord rejects outright are logged and dropped, as sending them again would
+ * never succeed.
+ */
+public final class Outbox implements Closeable {
+    
+    private static final Logger LOGGER = Logger.getLogger("Schoomp");
+    
+    /**
+     * The default size of a segment file.
+     */
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    
+    /**
+     * The shortest time to wait before retrying a failed request.
+     */
+    private static final long MIN_BACKOFF = TimeUnit.SECONDS.toMillis(1);
+    
+    /**
+     * The longest time to wait before retrying a failed request.
+     */
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toMillis(1);
+    
+    private static final String SEGMENT_PREFIX = "segment-";
+    
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    private static final String ACK_FILE = "ack";
+    
+    /**
+     * A value mixed into the checksum of the acknowledgement file.
+     */
+    private static final long ACK_MAGIC = 0x5363686F6F6D70L;
+    
+    private final Path directory;
+    
+    private final Webhook webhook;
+    
+    /**
+     * The segments that have not been fully delivered, from oldest to newest. The newest
+     * segment is the one being written to.
+     */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    
+    /**
+     * A small mapped file which holds the position of the next message to deliver.
+     */
+    private final MappedByteBuffer ack;
+    
+    private final CRC32 crc = new CRC32();
+    
+    /**
+     * The lock held while writing the log to disk, so callers waiting for the same write can
+     * share it. This is not a monitor, so a virtual thread waiting on the disk does not pin its
+     * carrier thread.
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+    
+    /**
+     * The amount of messages that have not been delivered yet.
+     */
+    private final AtomicLong pending = new AtomicLong();
+    
+    /**
+     * The amount of messages appended since the outbox was opened.
+     */
+    private long appended;
+    
+    /**
+     * The value of {@link #appended} that has been written to disk.
+     */
+    private volatile long synced;
+    
+    private Segment writer;
+    
+    private final int segmentSize;
+    
+    private long syncIntervalMillis = 10;
+    
+    /**
+     * The segment the next message is delivered from. Only used by the delivery thread.
+     */
+    private Segment reader;
+    
+    /**
+     * The position of the next message in {@link #reader}.
+     */
+    private int readPosition;
+    
+    @Nullable
+    private Thread deliveryThread;
+    
+    @Nullable
+    private Thread syncThread;
+    
+    /**
+     * Whether or not the delivery thread is waiting for new messages.
+     */
+    private volatile boolean idle;
+    
+    private volatile boolean closed;
+    
+    /**
+     * Opens an outbox in a directory, creating it if it does not exist. Messages that were
+     * left in the directory are delivered once the outbox is {@link #start() started}.
+     * 
+     * @param directory The directory to keep the log in. Only one outbox may use a directory
+     *        at a time.
+     * @param webhook The webhook to deliver messages to.
+     * @throws IOException If the log could not be opened.
+     */
+    public Outbox(Path directory, Webhook webhook) throws IOException {
+        
+        this(directory, webhook, DEFAULT_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Opens an outbox in a directory, creating it if it does not exist. Messages that were
+     * left in the directory are delivered once the outbox is {@link #start() started}.
+     * 
+     * @param directory The directory to keep the log in. Only one outbox may use a directory
+     *        at a time.
+     * @param webhook The webhook to deliver messages to.
+     * @param segmentSize The size of new segment files in bytes. Larger segments are created
+     *        when a single message does not fit. The default is 64 MiB.
+     * @throws IOException If the log could not be opened.
+     */
+    public Outbox(Path directory, Webhook webhook, int segmentSize) throws IOException {
+        
+        if (segmentSize < 1024) {
+            
+            throw new IllegalArgumentException("Segments must be at least 1024 bytes.");
+        }
+        
+        this.directory = directory;
+        this.webhook = webhook;
+        this.segmentSize = segmentSize;
+        
+        Files.createDirectories(directory);
+        
+        try (FileChannel channel = FileChannel.open(directory.resolve(ACK_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            
+            this.ack = channel.map(FileChannel.MapMode.READ_WRITE, 0, 20);
+        }
+        
+        this.recover();
+    }
+    
+    /**
+     * Opens the segments left by a previous outbox, and deletes the ones that were already
+     * delivered.
+     * 
+     * @throws IOException If the segments could not be opened.
+     */
+    private void recover () throws IOException {
+        
+        final long ackSegment = this.ack.getLong(0);
+        final int ackPosition = this.ack.getInt(8);
+        final boolean ackValid = this.ack.getLong(12) == (ackSegment * 31 + ackPosition ^ ACK_MAGIC);
+        
+        final TreeMap<Long, Path> files = new TreeMap<>();
+        
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            
+            for (final Path file : stream) {
+                
+                final String name = file.getFileName().toString();
+                
+                try {
+                    
+                    files.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                }
+                
+                catch (final NumberFormatException e) {
+                    
+                    LOGGER.warning("Ignoring unknown file in the outbox: " + file);
+                }
+            }
+        }
+        
+        for (final Map.Entry<Long, Path> entry : files.entrySet()) {
+            
+            final long index = entry.getKey();
+            final Path file = entry.getValue();
+            
+            if (ackValid && index < ackSegment) {
+                
+                Files.deleteIfExists(file);
+                continue;
+            }
+            
+            final Segment segment = Segment.open(file, index);
+            int position = ackValid && index == ackSegment ? Math.min(ackPosition, segment.getWritten()) : 0;
+            
+            if (this.reader == null) {
+                
+                this.reader = segment;
+                this.readPosition = position;
+            }
+            
+            while (position < segment.getWritten()) {
+                
+                this.pending.incrementAndGet();
+                position += Segment.HEADER + segment.getLength(position);
+            }
+            
+            this.segments.addLast(segment);
+        }
+        
+        // New messages always go to a new segment, so nothing is written after a record that
+        // may have been torn.
+        this.writer = this.createSegment(files.isEmpty() ? 0 : files.lastKey() + 1, this.segmentSize);
+        
+        if (this.reader == null) {
+            
+            this.reader = this.writer;
+            this.readPosition = 0;
+        }
+        
+        if (this.pending.get() > 0) {
+            
+            LOGGER.info("Recovered " + this.pending.get() + " undelivered messages from the outbox.");
+        }
+    }
+    
+    private Segment createSegment (long index, int size) throws IOException {
+        
+        final Segment segment = Segment.create(this.directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX)), index, size);
+        this.segments.addLast(segment);
+        return segment;
+    }
+    
+    /**
+     * Sets how often the log is written to disk in the background. The default is 10
+     * milliseconds. Must be set before the outbox is started.
+     * 
+     * @param interval The time between writes.
+     * @param unit The unit of the interval.
+     * @return The same outbox instance.
+     */
+    public synchronized Outbox setSyncInterval (long interval, TimeUnit unit) {
+        
+        if (interval <= 0) {
+            
+            throw new IllegalArgumentException("The sync interval must be positive.");
+        }
+        
+        this.syncIntervalMillis = Math.max(unit.toMillis(interval), 1);
+        return this;
+    }
+    
+    /**
+     * Starts delivering messages to the webhook and writing the log to disk in the background.
+     * 
+     * @return The same outbox instance.
+     */
+    public synchronized Outbox start () {
+        
+        if (this.closed) {
+            
+            throw new IllegalStateException("The outbox has been closed.");
+        }
+        
+        if (this.deliveryThread == null) {
+            
+            this.deliveryThread = new Thread(this::deliver, "Schoomp-Outbox");
+            this.deliveryThread.setDaemon(true);
+            this.deliveryThread.start();
+            
+            this.syncThread = new Thread(this::syncPeriodically, "Schoomp-Outbox-Sync");
+            this.syncThread.setDaemon(true);
+            this.syncThread.start();
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Adds a message to the outbox. The message is encoded right away, so it can be changed
+     * or reused once this returns. Messages with more content than Discord allows are split
+     * with {@link Message#split()} and each part is written to the log as its own message, so
+     * the parts are delivered in order. Messages with attachments can not be added, as only the
+     * message itself is written to the log and not the files.
+     * 
+     * @param message The message to deliver.
+     * @throws IllegalStateException If Discord would reject the message, as it would never be
+     *         delivered.
+     * @throws IOException If the message could not be written to the log.
+     */
+    public void append (Message message) throws IOException {
+        
+        if (message.hasAttachments()) {
+            
+            throw new IllegalArgumentException("Messages with attachments can not be added to an outbox.");
+        }
+        
+        final List<Message> parts = message.split();
+        final byte[][] records = new byte[parts.size()][];
+        
+        for (int i = 0; i < records.length; i++) {
+            
+            records[i] = parts.get(i).validate().toBytes();
+        }
+        
+        final Thread waiting;
+        
+        synchronized (this) {
+            
+            if (this.closed) {
+                
+                throw new IOException("The outbox has been closed.");
+            }
+            
+            for (final byte[] record : records) {
+                
+                if (!this.writer.hasRoom(record.length)) {
+                    
+                    this.writer.seal();
+                    this.writer = this.createSegment(this.writer.getIndex() + 1, Math.max(this.segmentSize, record.length + Segment.HEADER));
+                }
+                
+                this.writer.append(record, this.crc);
+                this.appended++;
+            }
+            
+            waiting = this.idle ? this.deliveryThread : null;
+        }
+        
+        this.pending.addAndGet(records.length);
+        
+        if (waiting != null) {
+            
+            LockSupport.unpark(waiting);
+        }
+    }
+    
+    /**
+     * Writes every message appended so far to disk, blocking until it is done. Calls made at
+     * the same time share a single write.
+     * 
+     * @throws IOException If the log could not be written.
+     */
+    public void sync () throws IOException {
+        
+        final long target;
+        
+        synchronized (this) {
+            
+            target = this.appended;
+        }
+        
+        if (this.synced >= target) {
+            
+            return;
+        }
+        
+        this.syncLock.lock();
+        
+        try {
+            
+            if (this.synced >= target) {
+                
+                return;
+            }
+            
+            final long covered;
+            final List<Segment> dirty;
+            
+            synchronized (this) {
+                
+                covered = this.appended;
+                dirty = new ArrayList<>(this.segments);
+            }
+            
+            try {
+                
+                for (final Segment segment : dirty) {
+                    
+                    segment.force();
+                }
+                
+                this.ack.force();
+            }
+            
+            catch (final RuntimeException e) {
+                
+                // Mapped buffers report I/O errors as unchecked exceptions.
+                throw new IOException("Could not write the outbox to disk.", e);
+            }
+            
+            this.synced = covered;
+        }
+        
+        finally {
+            
+            this.syncLock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the amount of messages that have not been delivered yet.
+     * 
+     * @return The amount of undelivered messages.
+     */
+    public long getPending () {
+        
+        return this.pending.get();
+    }
+    
+    /**
+     * Stops delivering messages and writes the log to disk. Messages that were not delivered
+     * stay in the log and are delivered the next time an outbox is opened on the directory.
+     * 
+     * @throws IOException If the log could not be written to disk.
+     */
+    @Override
+    public void close () throws IOException {
+        
+        final Thread delivery;
+        final Thread sync;
+        
+        synchronized (this) {
+            
+            if (this.closed) {
+                
+                return;
+            }
+            
+            this.closed = true;
+            delivery = this.deliveryThread;
+            sync = this.syncThread;
+        }
+        
+        for (final Thread thread : new Thread[] { delivery, sync }) {
+            
+            if (thread != null) {
+                
+                thread.interrupt();
+                
+                try {
+                    
+                    thread.join();
+                }
+                
+                catch (final InterruptedException e) {
+                    
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while closing the outbox.");
+                }
+            }
+        }
+        
+        this.sync();
+        
+        this.syncLock.lock();
+        
+        try {
+            
+            this.ack.force();
+        }
+        
+        finally {
+            
+            this.syncLock.unlock();
+        }
+    }
+    
+    private void syncPeriodically () {
+        
+        while (!this.closed) {
+            
+            try {
+                
+                Thread.sleep(this.syncIntervalMillis);
+                this.sync();
+            }
+            
+            catch (final InterruptedException e) {
+                
+                return;
+            }
+            
+            catch (final IOException e) {
+                
+                LOGGER.log(Level.SEVERE, "Could not write the outbox to disk.", e);
+            }
+        }
+    }
+    
+    private void deliver () {
+        
+        long backoff = MIN_BACKOFF;
+        
+        while (!this.closed) {
+            
+            final byte[] record = this.next();
+            
+            if (record == null) {
+                
+                // The flag is set before checking again so an append can not be missed.
+                this.idle = true;
+                
+                if (this.next() == null) {
+                    
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                
+                this.idle = false;
+                continue;
+            }
+            
+            try {
+                
+                final Response response = this.webhook.send(RequestBody.of(Json.CONTENT_TYPE, record));
+                final int status = response.getStatusCode();
+                
+                if (status >= 200 && status < 300) {
+                    
+                    this.acknowledge();
+                    backoff = MIN_BACKOFF;
+                }
+                
+                else if (status == 429 || status >= 500) {
+                    
+                    final long retryAfter = response.getRetryAfterMillis();
+                    Thread.sleep(retryAfter >= 0 ? retryAfter : backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                }
+                
+                else {
+                    
+                    LOGGER.warning("Discord rejected a message from the outbox with status " + status + ". The message has been dropped.");
+                    this.acknowledge();
+                }
+            }
+            
+            catch (final InterruptedException | InterruptedIOException e) {
+                
+                return;
+            }
+            
+            catch (final IOException e) {
+                
+                LOGGER.fine("Could not deliver a message from the outbox, retrying in " + backoff + "ms. Error: " + e.getMessage());
+                
+                try {
+                    
+                    Thread.sleep(backoff);
+                }
+                
+                catch (final InterruptedException e2) {
+                    
+                    return;
+                }
+                
+                backoff = Math.min(backoff * 2, MAX_BACKOFF);
+            }
+        }
+    }
+    
+    /**
+     * Reads the next message to deliver without removing it. Segments that have been fully
+     * delivered are deleted along the way.
+     * 
+     * @return The next message, or null if there is none yet.
+     */
+    @Nullable
+    private byte[] next () {
+        
+        while (true) {
+            
+            // The sealed flag is read first, as it is set after the last record is written.
+            final boolean sealed = this.reader.isSealed();
+            
+            if (this.readPosition < this.reader.getWritten()) {
+                
+                return this.reader.read(this.readPosition);
+            }
+            
+            if (!sealed) {
+                
+                return null;
+            }
+            
+            final Segment finished = this.reader;
+            
+            synchronized (this) {
+                
+                this.segments.remove(finished);
+                this.reader = this.segments.getFirst();
+            }
+            
+            this.readPosition = 0;
+            this.writeAck();
+            
+            try {
+                
+                finished.delete();
+            }
+            
+            catch (final IOException e) {
+                
+                // The segment is deleted when the outbox is opened again.
+                LOGGER.log(Level.WARNING, "Could not delete a delivered outbox segment.", e);
+            }
+        }
+    }
+    
+    /**
+     * Marks the message returned by {@link #next()} as delivered.
+     */
+    private void acknowledge () {
+        
+        this.readPosition += Segment.HEADER + this.reader.getLength(this.readPosition);
+        this.pending.decrementAndGet();
+        this.writeAck();
+    }
+    
+    private void writeAck () {
+        
+        // The ack is only changed by the delivery thread, and written to disk by sync.
+        final long segment = this.reader.getIndex();
+        final int position = this.readPosition;
+        this.ack.putLong(0, segment);
+        this.ack.putInt(8, position);
+        this.ack.putLong(12, segment * 31 + position ^ ACK_MAGIC);
+    }
+}
\ No newline at end of file
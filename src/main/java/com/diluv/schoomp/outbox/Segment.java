@@ -0,0 +1,244 @@
+package com.diluv.schoomp.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A single file of the outbox log, which is mapped into memory. Records are written one after
+ * the other, each starting with the length of the record and a checksum of its contents. A
+ * length of zero marks the end of the written records, as new files are filled with zeros.
+ */
+final class Segment {
+    
+    /**
+     * The size of the header in front of every record.
+     */
+    static final int HEADER = 8;
+    
+    private final long index;
+    
+    private final Path path;
+    
+    private final MappedByteBuffer buffer;
+    
+    /**
+     * A view of the buffer used by the writer, so writing does not move the position of the
+     * buffer itself.
+     */
+    private final ByteBuffer writeView;
+    
+    /**
+     * The end of the last complete record. Readers may read anything before this point.
+     */
+    private volatile int written;
+    
+    /**
+     * The value of {@link #written} the last time the segment was forced to disk.
+     */
+    private volatile int forced;
+    
+    /**
+     * Whether or not the writer has moved on to a newer segment.
+     */
+    private volatile boolean sealed;
+    
+    private Segment(long index, Path path, MappedByteBuffer buffer) {
+        
+        this.index = index;
+        this.path = path;
+        this.buffer = buffer;
+        this.writeView = buffer.duplicate();
+    }
+    
+    /**
+     * Creates a new, empty segment.
+     * 
+     * @param path The file to create.
+     * @param index The index of the segment.
+     * @param size The size of the segment in bytes.
+     * @return The new segment.
+     * @throws IOException If the file could not be created.
+     */
+    static Segment create (Path path, long index, int size) throws IOException {
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            
+            // The mapping stays valid after the channel is closed.
+            return new Segment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+    
+    /**
+     * Opens a segment that was written before and finds the end of its records. Records that
+     * were only partly written, such as when the system crashed, are ignored along with
+     * everything after them. Opened segments are always sealed.
+     * 
+     * @param path The file to open.
+     * @param index The index of the segment.
+     * @return The opened segment.
+     * @throws IOException If the file could not be opened.
+     */
+    static Segment open (Path path, long index) throws IOException {
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            
+            final long size = Files.size(path);
+            
+            if (size > Integer.MAX_VALUE) {
+                
+                throw new IOException("The outbox segment " + path + " is too large.");
+            }
+            
+            final Segment segment = new Segment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            final int end = segment.scan();
+            segment.written = end;
+            segment.forced = end;
+            segment.sealed = true;
+            return segment;
+        }
+    }
+    
+    /**
+     * Finds the end of the valid records in the segment.
+     * 
+     * @return The position after the last valid record.
+     */
+    private int scan () {
+        
+        final CRC32 crc = new CRC32();
+        final ByteBuffer view = this.buffer.duplicate();
+        int position = 0;
+        
+        while (position + HEADER <= view.capacity()) {
+            
+            final int length = view.getInt(position);
+            
+            if (length <= 0 || length > view.capacity() - position - HEADER) {
+                
+                break;
+            }
+            
+            view.limit(position + HEADER + length).position(position + HEADER);
+            crc.reset();
+            crc.update(view);
+            view.limit(view.capacity());
+            
+            if ((int) crc.getValue() != view.getInt(position + 4)) {
+                
+                break;
+            }
+            
+            position += HEADER + length;
+        }
+        
+        return position;
+    }
+    
+    /**
+     * Checks if a record of the given size can still be written to the segment.
+     * 
+     * @param length The length of the record, not including the header.
+     * @return Whether or not the record fits.
+     */
+    boolean hasRoom (int length) {
+        
+        return this.buffer.capacity() - this.written >= HEADER + length;
+    }
+    
+    /**
+     * Writes a record to the end of the segment. Only one thread may write at a time.
+     * 
+     * @param record The contents of the record.
+     * @param crc The checksum calculator to use.
+     */
+    void append (byte[] record, CRC32 crc) {
+        
+        crc.reset();
+        crc.update(record, 0, record.length);
+        
+        final int position = this.written;
+        this.writeView.position(position + HEADER);
+        this.writeView.put(record);
+        this.writeView.putInt(position + 4, (int) crc.getValue());
+        
+        // The length is written last, so a record is never seen without its contents.
+        this.writeView.putInt(position, record.length);
+        this.written = position + HEADER + record.length;
+    }
+    
+    /**
+     * Reads the length of the record at a position.
+     * 
+     * @param position The position of the record.
+     * @return The length of the record, not including the header.
+     */
+    int getLength (int position) {
+        
+        return this.buffer.getInt(position);
+    }
+    
+    /**
+     * Reads the contents of the record at a position.
+     * 
+     * @param position The position of the record.
+     * @return The contents of the record.
+     */
+    byte[] read (int position) {
+        
+        final byte[] record = new byte[this.getLength(position)];
+        final ByteBuffer view = this.buffer.duplicate();
+        view.position(position + HEADER);
+        view.get(record);
+        return record;
+    }
+    
+    /**
+     * Writes the records in the segment to disk.
+     */
+    void force () {
+        
+        final int written = this.written;
+        
+        if (written != this.forced) {
+            
+            this.buffer.force();
+            this.forced = written;
+        }
+    }
+    
+    /**
+     * Deletes the file of the segment.
+     * 
+     * @throws IOException If the file could not be deleted.
+     */
+    void delete () throws IOException {
+        
+        Files.deleteIfExists(this.path);
+    }
+    
+    long getIndex () {
+        
+        return this.index;
+    }
+    
+    int getWritten () {
+        
+        return this.written;
+    }
+    
+    boolean isSealed () {
+        
+        return this.sealed;
+    }
+    
+    void seal () {
+        
+        this.sealed = true;
+    }
+}
\ No newline at end of file
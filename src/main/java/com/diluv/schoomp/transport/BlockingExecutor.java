@@ -0,0 +1,14 @@
+package com.diluv.schoomp.transport;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An executor which runs every task on a thread that is cheap to block, and limits how many of
+ * its tasks run at once. Transports that would otherwise send a request without blocking send
+ * it as a blocking call on this executor instead, so its limit also applies to the amount of
+ * requests in flight. Executors of this kind are created by
+ * {@link com.diluv.schoomp.Senders#virtualThreads(int)}.
+ */
+public interface BlockingExecutor extends Executor {
+
+}
\ No newline at end of file
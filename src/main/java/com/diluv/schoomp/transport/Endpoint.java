@@ -0,0 +1,187 @@
+package com.diluv.schoomp.transport;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * A URL which has been parsed once so it can be sent to any number of times. Transports would
+ * otherwise parse the URL of every request again, which costs more than the rest of preparing
+ * a small request. Webhooks keep an endpoint for their URL, while requests made from a plain
+ * URL parse it the first time a transport asks for it.
+ * <p>
+ * Like the URL it was parsed from, an endpoint usually contains the webhook token and should
+ * be treated as a sensitive value.
+ */
+public final class Endpoint {
+    
+    private final String url;
+    
+    private final URI uri;
+    
+    private final boolean secure;
+    
+    private final String host;
+    
+    private final int port;
+    
+    /**
+     * The host as it is sent in the <code>Host</code> header, which only includes the port if
+     * the URL names one.
+     */
+    private final String hostHeader;
+    
+    /**
+     * The raw path and query of the URL, as it is sent in the request line.
+     */
+    private final String target;
+    
+    /**
+     * Identifies the connections that can be shared by requests to this endpoint.
+     */
+    private final String connectionKey;
+    
+    /**
+     * The URL as used by {@link java.net.HttpURLConnection}, which is created the first time
+     * it is needed.
+     */
+    @Nullable
+    private volatile URL javaUrl;
+    
+    private Endpoint(String url) {
+        
+        final URI uri = URI.create(url);
+        final String scheme = uri.getScheme();
+        
+        if (!"https".equalsIgnoreCase(scheme) && !"http".equalsIgnoreCase(scheme) || uri.getHost() == null) {
+            
+            throw new IllegalArgumentException("Only absolute http and https URLs are supported.");
+        }
+        
+        this.url = url;
+        this.uri = uri;
+        this.secure = "https".equalsIgnoreCase(scheme);
+        this.host = uri.getHost();
+        this.port = uri.getPort() != -1 ? uri.getPort() : this.secure ? 443 : 80;
+        this.hostHeader = uri.getPort() != -1 ? this.host + ":" + this.port : this.host;
+        this.target = (uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath()) + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        this.connectionKey = scheme.toLowerCase(Locale.ROOT) + "://" + this.host + ":" + this.port;
+    }
+    
+    /**
+     * Parses a URL into an endpoint.
+     * 
+     * @param url The URL to parse.
+     * @return The parsed endpoint.
+     * @throws IllegalArgumentException If the URL is not an absolute http or https URL.
+     */
+    public static Endpoint parse (String url) {
+        
+        return new Endpoint(url);
+    }
+    
+    /**
+     * Gets the URL the endpoint was parsed from.
+     * 
+     * @return The URL of the endpoint.
+     */
+    public String getUrl () {
+        
+        return this.url;
+    }
+    
+    /**
+     * Gets the endpoint as a URI.
+     * 
+     * @return The URI of the endpoint.
+     */
+    public URI toUri () {
+        
+        return this.uri;
+    }
+    
+    /**
+     * Gets the endpoint as a {@link URL}. The URL is only created once and shared after that.
+     * 
+     * @return The URL of the endpoint.
+     * @throws MalformedURLException If the URL can not be used by {@link java.net.URL}.
+     */
+    public URL toUrl () throws MalformedURLException {
+        
+        URL javaUrl = this.javaUrl;
+        
+        if (javaUrl == null) {
+            
+            javaUrl = new URL(this.url);
+            this.javaUrl = javaUrl;
+        }
+        
+        return javaUrl;
+    }
+    
+    /**
+     * Checks if the endpoint is reached over TLS.
+     * 
+     * @return Whether or not the endpoint uses https.
+     */
+    public boolean isSecure () {
+        
+        return this.secure;
+    }
+    
+    /**
+     * Gets the host of the endpoint.
+     * 
+     * @return The host name.
+     */
+    public String getHost () {
+        
+        return this.host;
+    }
+    
+    /**
+     * Gets the port of the endpoint. The default port of the scheme is used when the URL does
+     * not name one.
+     * 
+     * @return The port to connect to.
+     */
+    public int getPort () {
+        
+        return this.port;
+    }
+    
+    /**
+     * Gets the value of the <code>Host</code> header for requests to the endpoint.
+     * 
+     * @return The host, along with the port if the URL names one.
+     */
+    public String getHostHeader () {
+        
+        return this.hostHeader;
+    }
+    
+    /**
+     * Gets the path and query of the endpoint, as it is sent in the request line.
+     * 
+     * @return The raw path and query.
+     */
+    public String getTarget () {
+        
+        return this.target;
+    }
+    
+    String getConnectionKey () {
+        
+        return this.connectionKey;
+    }
+    
+    @Override
+    public String toString () {
+        
+        // The path holds the webhook token, so only the host is shown.
+        return "Endpoint [host=" + this.hostHeader + ", secure=" + this.secure + "]";
+    }
+}
\ No newline at end of file
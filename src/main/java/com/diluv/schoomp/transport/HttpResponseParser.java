@@ -0,0 +1,686 @@
+package com.diluv.schoomp.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+/**
+ * An incremental parser for HTTP/1.1 responses. Bytes can be fed to the parser as they arrive
+ * from the network, and it will report when a full response has been read. Bodies sent with a
+ * content length, chunked encoding, or until the connection closes are supported.
+ * <p>
+ * Lines are parsed where they are read rather than turned into strings, and only the headers
+ * that are used are kept, so a response without a body is read without allocating. Every
+ * header can be kept instead when a response is traced.
+ */
+final class HttpResponseParser {
+    
+    /**
+     * The largest status line or header line that will be accepted.
+     */
+    private static final int MAX_LINE = 16 * 1024;
+    
+    private static final byte[] EMPTY_BODY = new byte[0];
+    
+    /**
+     * The headers which are kept. These are the headers the parser needs itself, and the rate
+     * limit headers read by {@link com.diluv.schoomp.Response}. Any other header is skipped.
+     */
+    private static final String[] KEPT_HEADERS = { "Connection", "Transfer-Encoding", "Content-Length", "Retry-After", "X-RateLimit-Global", "X-RateLimit-Limit", "X-RateLimit-Remaining", "X-RateLimit-Reset", "X-RateLimit-Reset-After" };
+    
+    private enum State {
+        STATUS_LINE,
+        HEADERS,
+        BODY_LENGTH,
+        BODY_EOF,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_END,
+        TRAILERS,
+        DONE
+    }
+    
+    /**
+     * The line currently being read. HTTP headers are ASCII so each byte is a char.
+     */
+    private final StringBuilder line = new StringBuilder(128);
+    
+    /**
+     * The values of the kept headers, in the same order as {@link #KEPT_HEADERS}.
+     */
+    private final String[] headers = new String[KEPT_HEADERS.length];
+    
+    /**
+     * Looks up the value of a kept header by its name.
+     */
+    private final Function<String, String> headerLookup = this::getHeader;
+    
+    /**
+     * The body of the response.
+     */
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    
+    private State state = State.STATUS_LINE;
+    
+    private boolean lastWasCarriageReturn;
+    
+    private boolean headRequest;
+    
+    private boolean started;
+    
+    private boolean keepAlive;
+    
+    private int statusCode;
+    
+    private long remaining;
+    
+    /**
+     * The index of the kept header read last, or -1 if the last header was not kept. Folded
+     * lines are added to the value of this header.
+     */
+    private int lastHeader = -1;
+    
+    /**
+     * Every header of the response keyed by its name, or null if only the kept headers are
+     * being read.
+     */
+    @Nullable
+    private Map<String, String> allHeaders;
+    
+    /**
+     * The name of the header read last in {@link #allHeaders}, or null if there is none.
+     */
+    @Nullable
+    private String lastName;
+    
+    /**
+     * Resets the parser so it can read the next response on a connection.
+     * 
+     * @param headRequest Whether or not the response is for a HEAD request, which never has a
+     *        body.
+     */
+    void reset (boolean headRequest) {
+        
+        this.reset(headRequest, false);
+    }
+    
+    /**
+     * Resets the parser so it can read the next response on a connection.
+     * 
+     * @param headRequest Whether or not the response is for a HEAD request, which never has a
+     *        body.
+     * @param keepAllHeaders Whether or not to keep every header rather than only the ones that
+     *        are used.
+     */
+    void reset (boolean headRequest, boolean keepAllHeaders) {
+        
+        this.line.setLength(0);
+        Arrays.fill(this.headers, null);
+        this.body.reset();
+        this.state = State.STATUS_LINE;
+        this.lastWasCarriageReturn = false;
+        this.headRequest = headRequest;
+        this.started = false;
+        this.keepAlive = false;
+        this.statusCode = 0;
+        this.remaining = 0;
+        this.lastHeader = -1;
+        this.allHeaders = keepAllHeaders ? new LinkedHashMap<>() : null;
+        this.lastName = null;
+    }
+    
+    /**
+     * Reads as much of the response as possible from a buffer. The buffer must be in read
+     * mode, and bytes that belong to the response are consumed from it.
+     * 
+     * @param buffer The buffer to read from.
+     * @return Whether or not the full response has been read.
+     * @throws IOException If the response is not valid HTTP.
+     */
+    boolean feed (ByteBuffer buffer) throws IOException {
+        
+        while (buffer.hasRemaining() && this.state != State.DONE) {
+            
+            this.started = true;
+            
+            switch (this.state) {
+                
+                case BODY_LENGTH:
+                case CHUNK_DATA: {
+                    
+                    final int amount = (int) Math.min(this.remaining, buffer.remaining());
+                    this.readBody(buffer, amount);
+                    this.remaining -= amount;
+                    
+                    if (this.remaining == 0) {
+                        
+                        this.state = this.state == State.BODY_LENGTH ? State.DONE : State.CHUNK_END;
+                    }
+                    
+                    break;
+                }
+                
+                case BODY_EOF:
+                    this.readBody(buffer, buffer.remaining());
+                    break;
+                
+                default:
+                    this.readLine(buffer);
+                    break;
+            }
+        }
+        
+        return this.state == State.DONE;
+    }
+    
+    /**
+     * Finishes a response whose body is delimited by the connection being closed.
+     * 
+     * @return Whether or not the response is complete.
+     */
+    boolean finishOnClose () {
+        
+        if (this.state == State.BODY_EOF) {
+            
+            this.state = State.DONE;
+        }
+        
+        return this.state == State.DONE;
+    }
+    
+    private void readBody (ByteBuffer buffer, int amount) {
+        
+        if (buffer.hasArray()) {
+            
+            this.body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), amount);
+            buffer.position(buffer.position() + amount);
+        }
+        else {
+            
+            for (int i = 0; i < amount; i++) {
+                
+                this.body.write(buffer.get());
+            }
+        }
+    }
+    
+    private void readLine (ByteBuffer buffer) throws IOException {
+        
+        while (buffer.hasRemaining()) {
+            
+            final char c = (char) (buffer.get() & 0xFF);
+            
+            if (c == '\n') {
+                
+                if (this.lastWasCarriageReturn) {
+                    
+                    this.line.setLength(this.line.length() - 1);
+                }
+                
+                this.lastWasCarriageReturn = false;
+                this.onLine(this.line);
+                this.line.setLength(0);
+                return;
+            }
+            
+            if (this.line.length() >= MAX_LINE) {
+                
+                throw new ProtocolException("HTTP response line is too long.");
+            }
+            
+            this.lastWasCarriageReturn = c == '\r';
+            this.line.append(c);
+        }
+    }
+    
+    private void onLine (StringBuilder text) throws IOException {
+        
+        switch (this.state) {
+            
+            case STATUS_LINE: {
+                
+                // Blank lines before the status line are tolerated.
+                if (text.length() == 0) {
+                    
+                    return;
+                }
+                
+                final int first = text.indexOf(" ");
+                
+                if (!startsWith(text, "HTTP/") || first < 0 || text.length() < first + 4) {
+                    
+                    throw new ProtocolException("Invalid HTTP status line: " + text);
+                }
+                
+                int statusCode = 0;
+                
+                for (int i = first + 1; i < first + 4; i++) {
+                    
+                    final char c = text.charAt(i);
+                    
+                    if (c < '0' || c > '9') {
+                        
+                        throw new ProtocolException("Invalid HTTP status line: " + text);
+                    }
+                    
+                    statusCode = statusCode * 10 + c - '0';
+                }
+                
+                this.statusCode = statusCode;
+                this.keepAlive = startsWith(text, "HTTP/1.1");
+                this.state = State.HEADERS;
+                break;
+            }
+            
+            case HEADERS: {
+                
+                if (text.length() != 0) {
+                    
+                    // A line starting with whitespace continues the value of the header before
+                    // it, which is obsolete but still allowed in responses.
+                    if (isWhitespace(text.charAt(0))) {
+                        
+                        this.onFoldedLine(text);
+                        return;
+                    }
+                    
+                    final int colon = text.indexOf(":");
+                    
+                    if (colon > 0) {
+                        
+                        this.onHeader(text, colon);
+                    }
+                    
+                    return;
+                }
+                
+                this.onHeadersComplete();
+                break;
+            }
+            
+            case CHUNK_SIZE: {
+                
+                final int extension = text.indexOf(";");
+                int start = 0;
+                int end = extension >= 0 ? extension : text.length();
+                
+                while (start < end && isWhitespace(text.charAt(start))) {
+                    
+                    start++;
+                }
+                
+                while (end > start && isWhitespace(text.charAt(end - 1))) {
+                    
+                    end--;
+                }
+                
+                // Up to 15 digits, so the size can not overflow.
+                if (start == end || end - start > 15) {
+                    
+                    throw new ProtocolException("Invalid chunk size: " + text);
+                }
+                
+                long size = 0;
+                
+                for (int i = start; i < end; i++) {
+                    
+                    final int digit = Character.digit(text.charAt(i), 16);
+                    
+                    if (digit < 0) {
+                        
+                        throw new ProtocolException("Invalid chunk size: " + text);
+                    }
+                    
+                    size = size << 4 | digit;
+                }
+                
+                this.remaining = size;
+                this.state = this.remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+                break;
+            }
+            
+            case CHUNK_END:
+                this.state = State.CHUNK_SIZE;
+                break;
+            
+            case TRAILERS:
+                if (text.length() == 0) {
+                    
+                    this.state = State.DONE;
+                }
+                
+                break;
+            
+            default:
+                throw new IllegalStateException("Unexpected line in state " + this.state);
+        }
+    }
+    
+    /**
+     * Keeps the value of a header line if it is one of the kept headers, or if every header is
+     * being kept.
+     * 
+     * @param text The header line.
+     * @param colon The index of the colon which ends the name.
+     */
+    private void onHeader (StringBuilder text, int colon) {
+        
+        int nameStart = 0;
+        int nameEnd = colon;
+        
+        while (nameStart < nameEnd && isWhitespace(text.charAt(nameStart))) {
+            
+            nameStart++;
+        }
+        
+        while (nameEnd > nameStart && isWhitespace(text.charAt(nameEnd - 1))) {
+            
+            nameEnd--;
+        }
+        
+        for (int index = 0; index < KEPT_HEADERS.length; index++) {
+            
+            if (regionMatchesIgnoreCase(text, nameStart, nameEnd, KEPT_HEADERS[index])) {
+                
+                int start = colon + 1;
+                int end = text.length();
+                
+                while (start < end && isWhitespace(text.charAt(start))) {
+                    
+                    start++;
+                }
+                
+                while (end > start && isWhitespace(text.charAt(end - 1))) {
+                    
+                    end--;
+                }
+                
+                this.headers[index] = text.substring(start, end);
+                this.lastHeader = index;
+                this.keepHeader(text, nameStart, nameEnd, this.headers[index]);
+                return;
+            }
+        }
+        
+        this.lastHeader = -1;
+        
+        if (this.allHeaders != null) {
+            
+            int start = colon + 1;
+            int end = text.length();
+            
+            while (start < end && isWhitespace(text.charAt(start))) {
+                
+                start++;
+            }
+            
+            while (end > start && isWhitespace(text.charAt(end - 1))) {
+                
+                end--;
+            }
+            
+            this.keepHeader(text, nameStart, nameEnd, text.substring(start, end));
+        }
+    }
+    
+    /**
+     * Adds a header to {@link #allHeaders} if every header is being kept. The values of a
+     * header that is sent more than once are joined by commas.
+     * 
+     * @param text The header line.
+     * @param nameStart The index the name starts at.
+     * @param nameEnd The index the name ends at.
+     * @param value The value of the header.
+     */
+    private void keepHeader (StringBuilder text, int nameStart, int nameEnd, String value) {
+        
+        if (this.allHeaders != null) {
+            
+            this.lastName = text.substring(nameStart, nameEnd);
+            this.allHeaders.merge(this.lastName, value, (first, second) -> first + ", " + second);
+        }
+    }
+    
+    /**
+     * Adds a folded line to the value of the header before it. Each fold is replaced with a
+     * single space.
+     * 
+     * @param text The folded line.
+     */
+    private void onFoldedLine (StringBuilder text) {
+        
+        if (this.lastHeader < 0 && this.lastName == null) {
+            
+            return;
+        }
+        
+        int start = 0;
+        int end = text.length();
+        
+        while (start < end && isWhitespace(text.charAt(start))) {
+            
+            start++;
+        }
+        
+        while (end > start && isWhitespace(text.charAt(end - 1))) {
+            
+            end--;
+        }
+        
+        if (start < end) {
+            
+            final String fold = text.substring(start, end);
+            
+            if (this.lastHeader >= 0) {
+                
+                final String value = this.headers[this.lastHeader];
+                this.headers[this.lastHeader] = value.isEmpty() ? fold : value + ' ' + fold;
+            }
+            
+            if (this.lastName != null) {
+                
+                this.allHeaders.computeIfPresent(this.lastName, (name, value) -> value.isEmpty() ? fold : value + ' ' + fold);
+            }
+        }
+    }
+    
+    private void onHeadersComplete () throws ProtocolException {
+        
+        // Interim responses are followed by the real response.
+        if (this.statusCode >= 100 && this.statusCode < 200) {
+            
+            Arrays.fill(this.headers, null);
+            this.lastHeader = -1;
+            this.lastName = null;
+            
+            if (this.allHeaders != null) {
+                
+                this.allHeaders.clear();
+            }
+            
+            this.state = State.STATUS_LINE;
+            return;
+        }
+        
+        final String connection = this.getHeader("Connection");
+        
+        if (connection != null) {
+            
+            if ("close".equalsIgnoreCase(connection)) {
+                
+                this.keepAlive = false;
+            }
+            
+            else if ("keep-alive".equalsIgnoreCase(connection)) {
+                
+                this.keepAlive = true;
+            }
+        }
+        
+        final String encoding = this.getHeader("Transfer-Encoding");
+        final String length = this.getHeader("Content-Length");
+        
+        if (this.headRequest || this.statusCode == 204 || this.statusCode == 304) {
+            
+            this.state = State.DONE;
+        }
+        
+        else if (encoding != null && encoding.toLowerCase().contains("chunked")) {
+            
+            this.state = State.CHUNK_SIZE;
+        }
+        
+        else if (length != null) {
+            
+            try {
+                
+                this.remaining = Long.parseLong(length.trim());
+            }
+            
+            catch (final NumberFormatException e) {
+                
+                throw new ProtocolException("Invalid content length: " + length);
+            }
+            
+            this.state = this.remaining == 0 ? State.DONE : State.BODY_LENGTH;
+        }
+        
+        else {
+            
+            this.keepAlive = false;
+            this.state = State.BODY_EOF;
+        }
+    }
+    
+    /**
+     * Checks if any part of a response has been read.
+     * 
+     * @return Whether or not any bytes have been read.
+     */
+    boolean isStarted () {
+        
+        return this.started;
+    }
+    
+    /**
+     * Checks if the connection can be reused once the response has been read.
+     * 
+     * @return Whether or not the connection can be reused.
+     */
+    boolean isKeepAlive () {
+        
+        return this.keepAlive;
+    }
+    
+    int getStatusCode () {
+        
+        return this.statusCode;
+    }
+    
+    /**
+     * Gets a lookup for the headers of the response. Only the headers the parser keeps can be
+     * found, and the lookup is only valid until the parser is reset.
+     * 
+     * @return A lookup that returns the value of a header, or null if it was not sent.
+     */
+    Function<String, String> getHeaders () {
+        
+        return this.headerLookup;
+    }
+    
+    /**
+     * Gets every header of the response, if the parser was reset to keep them.
+     * 
+     * @return The headers keyed by their name, or null if only the used headers were kept.
+     */
+    @Nullable
+    Map<String, String> getAllHeaders () {
+        
+        return this.allHeaders;
+    }
+    
+    /**
+     * Gets the value of a header. Header names are case insensitive.
+     * 
+     * @param name The name of the header.
+     * @return The value of the header, or null if it was not sent or is not kept.
+     */
+    @Nullable
+    String getHeader (String name) {
+        
+        for (int index = 0; index < KEPT_HEADERS.length; index++) {
+            
+            if (KEPT_HEADERS[index].equalsIgnoreCase(name)) {
+                
+                return this.headers[index];
+            }
+        }
+        
+        return null;
+    }
+    
+    byte[] getBody () {
+        
+        return this.body.size() > 0 ? this.body.toByteArray() : EMPTY_BODY;
+    }
+    
+    private static boolean startsWith (StringBuilder text, String prefix) {
+        
+        if (text.length() < prefix.length()) {
+            
+            return false;
+        }
+        
+        for (int i = 0; i < prefix.length(); i++) {
+            
+            if (text.charAt(i) != prefix.charAt(i)) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Checks if part of a line matches a name, ignoring case.
+     * 
+     * @param text The line to check.
+     * @param start The start of the part to compare.
+     * @param end The end of the part to compare.
+     * @param name The name to compare against.
+     * @return Whether or not the part of the line is the name.
+     */
+    private static boolean regionMatchesIgnoreCase (StringBuilder text, int start, int end, String name) {
+        
+        if (end - start != name.length()) {
+            
+            return false;
+        }
+        
+        for (int i = 0; i < name.length(); i++) {
+            
+            final char a = text.charAt(start + i);
+            final char b = name.charAt(i);
+            
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    private static boolean isWhitespace (char c) {
+        
+        return c == ' ' || c == '\t';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,648 @@
+package com.diluv.schoomp.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * A single persistent HTTP/1.1 connection owned by an event loop of a {@link NioTransport}.
+ * Every method must be called from the event loop thread, and only the delegated tasks of the
+ * TLS engine are run elsewhere. A connection carries one exchange at a time and is handed back
+ * to its pool once the response has been read.
+ */
+final class NioConnection {
+    
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    
+    /**
+     * The size of the buffers used for plain text connections.
+     */
+    private static final int PLAIN_BUFFER_SIZE = 16 * 1024;
+    
+    private final NioTransport.HostPool pool;
+    
+    private final SocketChannel channel;
+    
+    private final SelectionKey key;
+    
+    /**
+     * The TLS engine for the connection, or null if the connection is not encrypted.
+     */
+    private final SSLEngine engine;
+    
+    /**
+     * Encrypted bytes read from the network that have not been unwrapped. Unused for plain
+     * text connections. Always kept in write mode.
+     */
+    private ByteBuffer netIn;
+    
+    /**
+     * Bytes waiting to be written to the network. Always kept in write mode.
+     */
+    private final ByteBuffer netOut;
+    
+    /**
+     * Plain text bytes that have been read and not yet parsed. Always kept in write mode.
+     */
+    private ByteBuffer appIn;
+    
+    private final HttpResponseParser parser = new HttpResponseParser();
+    
+    private NioTransport.Exchange exchange;
+    
+    private boolean connected;
+    
+    private boolean reused;
+    
+    /**
+     * Whether or not the connection has been opened and is ready for requests to be written.
+     */
+    private boolean ready;
+    
+    private boolean endOfStream;
+    
+    /**
+     * Whether or not the delegated tasks of the TLS engine are running on another thread.
+     */
+    private boolean delegating;
+    
+    private boolean closed;
+    
+    /**
+     * The {@link System#nanoTime()} the connection became idle at.
+     */
+    private long idleSince;
+    
+    NioConnection(NioTransport.HostPool pool, Selector selector, SSLContext sslContext) throws IOException {
+        
+        this.pool = pool;
+        this.channel = SocketChannel.open();
+        
+        try {
+            
+            this.channel.configureBlocking(false);
+            this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            this.channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            
+            if (pool.isSecure()) {
+                
+                this.engine = sslContext.createSSLEngine(pool.getHost(), pool.getPort());
+                this.engine.setUseClientMode(true);
+                
+                final SSLParameters parameters = this.engine.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                this.engine.setSSLParameters(parameters);
+                
+                this.netIn = ByteBuffer.allocateDirect(this.engine.getSession().getPacketBufferSize());
+                this.netOut = ByteBuffer.allocateDirect(this.engine.getSession().getPacketBufferSize());
+                this.appIn = ByteBuffer.allocateDirect(this.engine.getSession().getApplicationBufferSize());
+            }
+            else {
+                
+                this.engine = null;
+                this.netOut = ByteBuffer.allocateDirect(PLAIN_BUFFER_SIZE);
+                this.appIn = ByteBuffer.allocateDirect(PLAIN_BUFFER_SIZE);
+            }
+            
+            this.connected = this.channel.connect(new InetSocketAddress(pool.getAddress(), pool.getPort()));
+            this.key = this.channel.register(selector, this.connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            this.channel.close();
+            throw e;
+        }
+        
+        if (this.connected) {
+            
+            this.onConnected();
+        }
+    }
+    
+    /**
+     * Starts sending an exchange on this connection.
+     * 
+     * @param exchange The exchange to send.
+     */
+    void start (NioTransport.Exchange exchange) {
+        
+        this.exchange = exchange;
+        this.exchange.startTimer();
+        this.parser.reset("HEAD".equalsIgnoreCase(exchange.getRequest().getMethod()), exchange.getRequest().getListener().wantsResponseHeaders());
+        
+        try {
+            
+            this.progress();
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            this.fail(e);
+        }
+    }
+    
+    /**
+     * Handles the network events reported by the selector.
+     */
+    void handle () {
+        
+        try {
+            
+            if (this.key.isConnectable()) {
+                
+                this.channel.finishConnect();
+                this.onConnected();
+            }
+            
+            if (this.key.isValid() && this.key.isReadable()) {
+                
+                this.read();
+            }
+            
+            this.progress();
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            this.fail(e);
+        }
+    }
+    
+    private void onConnected () throws IOException {
+        
+        this.connected = true;
+        
+        if (this.engine != null) {
+            
+            this.engine.beginHandshake();
+        }
+    }
+    
+    private void read () throws IOException {
+        
+        final ByteBuffer target = this.engine != null ? this.netIn : this.appIn;
+        
+        // Keep reading until the socket is drained or there is no more room.
+        while (target.hasRemaining()) {
+            
+            final int read = this.channel.read(target);
+            
+            if (read < 0) {
+                
+                this.endOfStream = true;
+                return;
+            }
+            
+            if (read == 0) {
+                
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Moves the connection forward as far as possible without blocking. This handles the TLS
+     * handshake, writing the request and reading the response.
+     * 
+     * @throws IOException If the connection has failed.
+     */
+    private void progress () throws IOException {
+        
+        if (!this.connected || this.closed) {
+            
+            return;
+        }
+        
+        boolean moved = true;
+        
+        while (moved && !this.closed) {
+            
+            moved = false;
+            
+            if (this.netOut.position() > 0 && !this.flush()) {
+                
+                // The socket can not take any more right now.
+                break;
+            }
+            
+            if (this.engine != null && this.isHandshaking()) {
+                
+                moved = this.handshake();
+                continue;
+            }
+            
+            if (this.exchange != null && !this.ready) {
+                
+                // The first exchange is the one the connection was opened for.
+                this.ready = true;
+                this.exchange.connected();
+            }
+            
+            if (this.exchange != null && this.exchange.hasRemaining()) {
+                
+                moved |= this.writeRequest();
+            }
+            
+            if (this.engine != null && this.netIn.position() > 0) {
+                
+                moved |= this.unwrap();
+            }
+            
+            if (this.appIn.position() > 0) {
+                
+                moved |= this.parse();
+            }
+            
+            if (!moved && this.endOfStream) {
+                
+                this.onEndOfStream();
+            }
+        }
+        
+        this.updateInterest();
+    }
+    
+    private boolean isHandshaking () {
+        
+        final SSLEngineResult.HandshakeStatus status = this.engine.getHandshakeStatus();
+        return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING && status != SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+    
+    /**
+     * Performs the next step of the TLS handshake.
+     * 
+     * @return Whether or not the handshake made any progress.
+     * @throws IOException If the handshake failed.
+     */
+    private boolean handshake () throws IOException {
+        
+        switch (this.engine.getHandshakeStatus()) {
+            
+            case NEED_TASK:
+                this.delegateTasks();
+                return false;
+            
+            case NEED_WRAP:
+                final SSLEngineResult result = this.engine.wrap(EMPTY, this.netOut);
+                this.checkClosed(result);
+                return result.getStatus() == SSLEngineResult.Status.OK;
+            
+            default:
+                // Waiting on data from the server. Java 9 adds NEED_UNWRAP_AGAIN which is also
+                // handled by unwrapping.
+                if (this.endOfStream && this.netIn.position() == 0) {
+                    
+                    throw new EOFException("Connection closed during the TLS handshake.");
+                }
+                
+                return this.unwrap();
+        }
+    }
+    
+    /**
+     * Runs the delegated tasks of the TLS engine, such as checking the certificates of the
+     * server. They can take a while, so they are run off the event loop and the handshake
+     * carries on from the event loop once they are done.
+     */
+    private void delegateTasks () {
+        
+        if (this.delegating) {
+            
+            return;
+        }
+        
+        this.delegating = true;
+        this.pool.runBlocking( () -> {
+            
+            try {
+                
+                Runnable task;
+                
+                while ((task = this.engine.getDelegatedTask()) != null) {
+                    
+                    task.run();
+                }
+                
+                this.pool.runOnLoop(this::resume);
+            }
+            
+            catch (final RuntimeException e) {
+                
+                this.pool.runOnLoop( () -> this.fail(e));
+            }
+        });
+    }
+    
+    /**
+     * Carries on with the connection once the delegated tasks of the TLS engine are done.
+     */
+    private void resume () {
+        
+        this.delegating = false;
+        
+        try {
+            
+            this.progress();
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            this.fail(e);
+        }
+    }
+    
+    private boolean writeRequest () throws IOException {
+        
+        final ByteBuffer[] data = this.exchange.getData();
+        
+        if (this.engine != null) {
+            
+            final SSLEngineResult result = this.engine.wrap(data, this.netOut);
+            this.checkClosed(result);
+            return result.bytesConsumed() > 0;
+        }
+        
+        boolean moved = false;
+        
+        for (final ByteBuffer buffer : data) {
+            
+            while (buffer.hasRemaining() && this.netOut.hasRemaining()) {
+                
+                // Buffers which fit are copied whole, so no slice of them has to be made.
+                if (buffer.remaining() <= this.netOut.remaining()) {
+                    
+                    this.netOut.put(buffer);
+                }
+                else {
+                    
+                    final int amount = this.netOut.remaining();
+                    final ByteBuffer slice = buffer.duplicate();
+                    slice.limit(slice.position() + amount);
+                    this.netOut.put(slice);
+                    buffer.position(buffer.position() + amount);
+                }
+                
+                moved = true;
+            }
+        }
+        
+        return moved;
+    }
+    
+    private boolean unwrap () throws IOException {
+        
+        this.netIn.flip();
+        final SSLEngineResult result;
+        
+        try {
+            
+            result = this.engine.unwrap(this.netIn, this.appIn);
+        }
+        
+        finally {
+            
+            this.netIn.compact();
+        }
+        
+        switch (result.getStatus()) {
+            
+            case BUFFER_UNDERFLOW:
+                // The packet buffer size may grow after the handshake.
+                if (!this.netIn.hasRemaining()) {
+                    
+                    this.netIn = grow(this.netIn, this.engine.getSession().getPacketBufferSize());
+                    return true;
+                }
+                
+                return false;
+            
+            case BUFFER_OVERFLOW:
+                if (this.parse()) {
+                    
+                    return true;
+                }
+                
+                this.appIn = grow(this.appIn, this.engine.getSession().getApplicationBufferSize());
+                return true;
+            
+            case CLOSED:
+                this.endOfStream = true;
+                return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+            
+            default:
+                return result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+        }
+    }
+    
+    /**
+     * Feeds the received plain text to the response parser.
+     * 
+     * @return Whether or not any bytes were consumed.
+     * @throws IOException If the response is not valid.
+     */
+    private boolean parse () throws IOException {
+        
+        if (this.exchange == null) {
+            
+            // Servers should not send anything to an idle connection, so it can not be reused.
+            throw new IOException("Unexpected data on an idle connection.");
+        }
+        
+        if (!this.parser.isStarted()) {
+            
+            this.exchange.firstByte();
+        }
+        
+        this.appIn.flip();
+        final int before = this.appIn.remaining();
+        final boolean done;
+        
+        try {
+            
+            done = this.parser.feed(this.appIn);
+        }
+        
+        finally {
+            
+            this.appIn.compact();
+        }
+        
+        if (done) {
+            
+            this.complete();
+            return true;
+        }
+        
+        return this.appIn.position() != before;
+    }
+    
+    private void complete () {
+        
+        final NioTransport.Exchange completed = this.exchange;
+        this.exchange = null;
+        completed.complete(this.parser.getStatusCode(), this.parser.getHeaders(), this.parser.getAllHeaders(), this.parser.getBody());
+        
+        if (this.parser.isKeepAlive() && !this.endOfStream && this.appIn.position() == 0) {
+            
+            this.reused = true;
+            this.idleSince = System.nanoTime();
+            this.pool.release(this);
+        }
+        else {
+            
+            this.close();
+        }
+    }
+    
+    private void onEndOfStream () throws IOException {
+        
+        if (this.exchange != null && this.parser.finishOnClose()) {
+            
+            this.complete();
+            return;
+        }
+        
+        if (this.exchange != null && !this.parser.isStarted() && this.reused && this.exchange.retry()) {
+            
+            // The server closed a kept alive connection before it saw the request, so the
+            // request can safely be sent again on another connection.
+            final NioTransport.Exchange retry = this.exchange;
+            this.exchange = null;
+            this.close();
+            this.pool.submit(retry);
+            return;
+        }
+        
+        if (this.exchange != null) {
+            
+            throw new EOFException("Connection closed before the response was received.");
+        }
+        
+        this.close();
+    }
+    
+    /**
+     * Writes as much pending output to the socket as it will take.
+     * 
+     * @return Whether or not all pending output was written.
+     * @throws IOException If the write failed.
+     */
+    private boolean flush () throws IOException {
+        
+        this.netOut.flip();
+        
+        try {
+            
+            this.channel.write(this.netOut);
+            return !this.netOut.hasRemaining();
+        }
+        
+        finally {
+            
+            this.netOut.compact();
+        }
+    }
+    
+    private void updateInterest () {
+        
+        if (this.closed || !this.key.isValid()) {
+            
+            return;
+        }
+        
+        if (!this.connected) {
+            
+            this.key.interestOps(SelectionKey.OP_CONNECT);
+            return;
+        }
+        
+        this.key.interestOps(this.netOut.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+    
+    private void checkClosed (SSLEngineResult result) throws SSLException {
+        
+        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+            
+            throw new SSLException("The TLS session was closed.");
+        }
+    }
+    
+    /**
+     * Fails the current exchange and closes the connection.
+     * 
+     * @param error The cause of the failure.
+     */
+    void fail (Throwable error) {
+        
+        final NioTransport.Exchange failed = this.exchange;
+        this.exchange = null;
+        this.close();
+        
+        if (failed != null) {
+            
+            failed.fail(error);
+        }
+    }
+    
+    /**
+     * Closes the connection and removes it from its pool.
+     */
+    void close () {
+        
+        if (this.closed) {
+            
+            return;
+        }
+        
+        this.closed = true;
+        this.key.cancel();
+        
+        try {
+            
+            this.channel.close();
+        }
+        
+        catch (final IOException e) {
+            
+            // The connection is being discarded anyway.
+        }
+        
+        this.pool.closed(this);
+    }
+    
+    /**
+     * Checks if the current exchange has run out of time.
+     * 
+     * @param now The current {@link System#nanoTime()}.
+     * @return Whether or not the exchange has expired.
+     */
+    boolean isExpired (long now) {
+        
+        return this.exchange != null && now - this.exchange.getDeadline() > 0;
+    }
+    
+    long getIdleSince () {
+        
+        return this.idleSince;
+    }
+    
+    private static ByteBuffer grow (ByteBuffer buffer, int size) {
+        
+        final ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,961 @@
+package com.diluv.schoomp.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+
+import com.diluv.schoomp.Response;
+
+/**
+ * A non-blocking HTTP/1.1 transport built on {@link java.nio.channels.SocketChannel} and
+ * {@link javax.net.ssl.SSLEngine}. All requests are handled by a small, fixed amount of event
+ * loop threads, so the amount of threads does not grow with the amount of requests in flight.
+ * Connections are kept alive and reused, and network buffers are allocated directly.
+ * <p>
+ * This transport is available on every version of Java, and is mostly useful on Java 8 where
+ * {@link java.net.HttpURLConnection} would otherwise be the only option. Transports hold
+ * threads and connections, so they should be shared and closed once they are no longer needed.
+ */
+public final class NioTransport implements Transport, Closeable {
+    
+    private static final Logger LOGGER = Logger.getLogger("Schoomp");
+    
+    /**
+     * The amount of connections that can be open to a single host at once.
+     */
+    private static final int DEFAULT_MAX_CONNECTIONS = 16;
+    
+    /**
+     * How long a request can take before it is failed.
+     */
+    private static final long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+    
+    /**
+     * How long a connection can be idle before it is closed.
+     */
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+    
+    /**
+     * The most threads used for work which may block, such as resolving hosts and the slower
+     * steps of TLS handshakes. This work is kept off the event loops so a slow DNS server or
+     * certificate check does not hold up every other connection.
+     */
+    private static final int BLOCKING_THREADS = 4;
+    
+    private static final AtomicInteger TRANSPORT_COUNT = new AtomicInteger();
+    
+    private final SSLContext sslContext;
+    
+    private final int maxConnections;
+    
+    private final long timeout;
+    
+    private final EventLoop[] loops;
+    
+    private final ThreadPoolExecutor blockingTasks;
+    
+    private volatile boolean closed;
+    
+    /**
+     * Creates a transport with one event loop that uses the default TLS settings of the JVM.
+     * 
+     * @throws IOException If the transport could not be started.
+     */
+    public NioTransport() throws IOException {
+        
+        this(getDefaultContext(), 1, DEFAULT_MAX_CONNECTIONS, TimeUnit.NANOSECONDS.toMillis(DEFAULT_TIMEOUT));
+    }
+    
+    /**
+     * Creates a transport.
+     * 
+     * @param sslContext The context used to create TLS connections. This allows a custom
+     *        trust store to be used, such as when testing against a local server.
+     * @param ioThreads The amount of event loop threads. One or two is enough for most uses.
+     * @param maxConnections The amount of connections that can be open to one host at once.
+     *        Requests beyond this are queued until a connection is free.
+     * @param timeoutMillis How long a request can take once it has been given a connection
+     *        before it is failed.
+     * @throws IOException If the transport could not be started.
+     */
+    public NioTransport(SSLContext sslContext, int ioThreads, int maxConnections, long timeoutMillis) throws IOException {
+        
+        if (ioThreads < 1 || maxConnections < 1 || timeoutMillis < 1) {
+            
+            throw new IllegalArgumentException("The amount of threads, connections and the timeout must be positive.");
+        }
+        
+        this.sslContext = sslContext;
+        this.maxConnections = maxConnections;
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.loops = new EventLoop[ioThreads];
+        
+        final int id = TRANSPORT_COUNT.incrementAndGet();
+        final AtomicInteger blockingThreads = new AtomicInteger();
+        
+        this.blockingTasks = new ThreadPoolExecutor(BLOCKING_THREADS, BLOCKING_THREADS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            
+            final Thread thread = new Thread(task, "Schoomp-IO-" + id + "-Blocking-" + blockingThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.blockingTasks.allowCoreThreadTimeOut(true);
+        
+        try {
+            
+            for (int i = 0; i < ioThreads; i++) {
+                
+                this.loops[i] = new EventLoop("Schoomp-IO-" + id + "-" + (i + 1));
+            }
+        }
+        
+        catch (final IOException e) {
+            
+            this.close();
+            throw e;
+        }
+        
+        for (final EventLoop loop : this.loops) {
+            
+            loop.thread.start();
+        }
+    }
+    
+    @Override
+    public Response send (Request request) throws IOException {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        this.submit(request, future, Runnable::run);
+        
+        try {
+            
+            return future.get();
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending the request.");
+        }
+        
+        catch (final ExecutionException e) {
+            
+            final Throwable cause = e.getCause();
+            
+            if (cause instanceof IOException) {
+                
+                throw (IOException) cause;
+            }
+            
+            if (cause instanceof RuntimeException) {
+                
+                throw (RuntimeException) cause;
+            }
+            
+            throw new IOException(cause);
+        }
+    }
+    
+    /**
+     * Sends a request without blocking. The event loop threads never run user code, so the
+     * returned future is completed on the given executor. A {@link BlockingExecutor} instead
+     * waits for the response on one of its threads, so its limit on concurrent requests
+     * applies.
+     * 
+     * @param request The request to send.
+     * @param executor The executor the returned future is completed on.
+     * @return A future that completes with the response sent back by Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    @Override
+    public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        
+        if (!(executor instanceof BlockingExecutor)) {
+            
+            this.submit(request, future, executor);
+            return future;
+        }
+        
+        try {
+            
+            executor.execute( () -> {
+                
+                try {
+                    
+                    future.complete(this.send(request));
+                }
+                
+                catch (final IOException | RuntimeException e) {
+                    
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        
+        catch (final RejectedExecutionException e) {
+            
+            future.completeExceptionally(e);
+        }
+        
+        return future;
+    }
+    
+    private void submit (Request request, CompletableFuture<Response> future, Executor executor) {
+        
+        if (this.closed) {
+            
+            future.completeExceptionally(new IOException("The transport has been closed."));
+            return;
+        }
+        
+        final Exchange exchange;
+        
+        try {
+            
+            exchange = new Exchange(request, future, executor, this.timeout);
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            future.completeExceptionally(e);
+            return;
+        }
+        
+        // Every connection to a host belongs to the same loop so pools need no locking.
+        final EventLoop loop = this.loops[Math.floorMod(exchange.poolKey.hashCode(), this.loops.length)];
+        loop.execute( () -> {
+            
+            if (this.closed) {
+                
+                exchange.fail(new IOException("The transport has been closed."));
+            }
+            else {
+                
+                loop.getPool(exchange).submit(exchange);
+            }
+        });
+    }
+    
+    /**
+     * Stops the event loops, closes all connections and fails any requests in flight.
+     */
+    @Override
+    public void close () {
+        
+        this.closed = true;
+        
+        for (final EventLoop loop : this.loops) {
+            
+            if (loop != null) {
+                
+                loop.shutdown();
+            }
+        }
+        
+        this.blockingTasks.shutdown();
+    }
+    
+    private static SSLContext getDefaultContext () throws IOException {
+        
+        try {
+            
+            return SSLContext.getDefault();
+        }
+        
+        catch (final NoSuchAlgorithmException e) {
+            
+            throw new IOException("TLS is not available.", e);
+        }
+    }
+    
+    /**
+     * A request that is being sent, along with the future to complete once it is done.
+     */
+    static final class Exchange {
+        
+        private final Request request;
+        
+        private final CompletableFuture<Response> future;
+        
+        private final Executor executor;
+        
+        /**
+         * How long the exchange can take once it has been given a connection.
+         */
+        private final long timeout;
+        
+        private long deadline;
+        
+        private final String host;
+        
+        private final int port;
+        
+        private final boolean secure;
+        
+        private final String poolKey;
+        
+        /**
+         * The encoded request head followed by the body.
+         */
+        private final ByteBuffer[] data;
+        
+        /**
+         * The buffers the head and body were encoded into, which go back to the pool once the
+         * exchange is done. Bodies which are already encoded are not copied into a buffer.
+         */
+        @Nullable
+        private PooledBuffer head;
+        
+        @Nullable
+        private PooledBuffer encoded;
+        
+        private boolean retried;
+        
+        /**
+         * The {@link System#nanoTime()} the exchange was created at.
+         */
+        private final long createdAt = System.nanoTime();
+        
+        private Exchange(Request request, CompletableFuture<Response> future, Executor executor, long timeout) throws IOException {
+            
+            this.request = request;
+            this.future = future;
+            this.executor = executor;
+            this.timeout = timeout;
+            
+            final Endpoint endpoint = request.getEndpoint();
+            this.secure = endpoint.isSecure();
+            this.host = endpoint.getHost();
+            this.port = endpoint.getPort();
+            this.poolKey = endpoint.getConnectionKey();
+            
+            final RequestBody requestBody = request.getBody();
+            
+            try {
+                
+                // The body is written later by the event loop, so it is encoded in full here.
+                // Bodies of unknown length are encoded into a pooled buffer, while bodies which
+                // send files give buffers mapped from the files, which are not on the heap.
+                final ByteBuffer[] body;
+                long length = 0;
+                
+                if (requestBody.getContentLength() < 0) {
+                    
+                    this.encoded = PooledBuffer.acquire();
+                    final long start = System.nanoTime();
+                    requestBody.writeTo(this.encoded);
+                    request.getListener().onEncoded(System.nanoTime() - start);
+                    length = this.encoded.size();
+                    body = null;
+                }
+                else {
+                    
+                    body = requestBody.toBuffers();
+                    
+                    for (final ByteBuffer buffer : body) {
+                        
+                        length += buffer.remaining();
+                    }
+                }
+                
+                final PooledBuffer head = PooledBuffer.acquire();
+                this.head = head;
+                head.writeLatin1(request.getMethod());
+                head.writeLatin1(" ");
+                head.writeLatin1(endpoint.getTarget());
+                head.writeLatin1(" HTTP/1.1\r\nHost: ");
+                head.writeLatin1(endpoint.getHostHeader());
+                head.writeLatin1("\r\nUser-Agent: ");
+                head.writeLatin1(request.getUserAgent());
+                head.writeLatin1("\r\nContent-Type: ");
+                head.writeLatin1(requestBody.getContentType());
+                head.writeLatin1("\r\nContent-Length: ");
+                head.writeDecimal(length);
+                head.writeLatin1("\r\nConnection: keep-alive\r\n\r\n");
+                
+                if (body == null) {
+                    
+                    this.data = new ByteBuffer[] { head.toByteBuffer(), this.encoded.toByteBuffer() };
+                }
+                else {
+                    
+                    this.data = new ByteBuffer[body.length + 1];
+                    this.data[0] = head.toByteBuffer();
+                    System.arraycopy(body, 0, this.data, 1, body.length);
+                }
+            }
+            
+            catch (final IOException | RuntimeException e) {
+                
+                this.release();
+                throw e;
+            }
+        }
+        
+        Request getRequest () {
+            
+            return this.request;
+        }
+        
+        ByteBuffer[] getData () {
+            
+            return this.data;
+        }
+        
+        long getDeadline () {
+            
+            return this.deadline;
+        }
+        
+        /**
+         * Starts the timeout for the exchange. Time spent waiting for a free connection is not
+         * counted, so large bursts of requests are queued rather than failed.
+         */
+        void startTimer () {
+            
+            this.deadline = System.nanoTime() + this.timeout;
+        }
+        
+        boolean hasRemaining () {
+            
+            for (final ByteBuffer buffer : this.data) {
+                
+                if (buffer.hasRemaining()) {
+                    
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+        
+        /**
+         * Prepares the exchange to be sent again after a kept alive connection was closed by
+         * the server. This is only allowed once.
+         * 
+         * @return Whether or not the exchange can be sent again.
+         */
+        boolean retry () {
+            
+            if (this.retried) {
+                
+                return false;
+            }
+            
+            this.retried = true;
+            
+            for (final ByteBuffer buffer : this.data) {
+                
+                buffer.rewind();
+            }
+            
+            return true;
+        }
+        
+        void connected () {
+            
+            this.request.getListener().onConnected(System.nanoTime() - this.createdAt);
+        }
+        
+        void firstByte () {
+            
+            this.request.getListener().onFirstByte(System.nanoTime() - this.createdAt);
+        }
+        
+        void complete (int statusCode, Function<String, String> headers, @Nullable Map<String, String> allHeaders, byte[] body) {
+            
+            this.release();
+            
+            if (allHeaders != null) {
+                
+                this.request.getListener().onResponseHeaders(allHeaders);
+            }
+            
+            // Discord usually gives no response back, but debug requests will print whatever
+            // they give back.
+            if (this.request.isDebug() && body.length > 0) {
+                
+                for (final String line : new String(body, StandardCharsets.UTF_8).split("\r?\n")) {
+                    
+                    LOGGER.info(line);
+                }
+            }
+            
+            final Response response = new Response(statusCode, headers, body);
+            this.dispatch( () -> this.future.complete(response));
+        }
+        
+        void fail (Throwable error) {
+            
+            this.release();
+            this.dispatch( () -> this.future.completeExceptionally(error));
+        }
+        
+        /**
+         * Returns the buffers of the exchange to the pool. The exchange is no longer written
+         * once it has completed or failed, so its buffers can be used by the next request.
+         */
+        private synchronized void release () {
+            
+            if (this.head != null) {
+                
+                this.head.release();
+                this.head = null;
+            }
+            
+            if (this.encoded != null) {
+                
+                this.encoded.release();
+                this.encoded = null;
+            }
+        }
+        
+        private void dispatch (Runnable completion) {
+            
+            try {
+                
+                this.executor.execute(completion);
+            }
+            
+            catch (final RejectedExecutionException e) {
+                
+                completion.run();
+            }
+        }
+    }
+    
+    /**
+     * The connections to a single host. Pools are owned by a single event loop and are only
+     * accessed from its thread.
+     */
+    final class HostPool {
+        
+        private final EventLoop loop;
+        
+        private final String host;
+        
+        private final int port;
+        
+        private final boolean secure;
+        
+        private final Deque<NioConnection> idle = new ArrayDeque<>();
+        
+        private final Queue<Exchange> waiting = new ArrayDeque<>();
+        
+        private final List<NioConnection> open = new ArrayList<>();
+        
+        /**
+         * The address of the host, or null if it has to be resolved before connecting.
+         */
+        @Nullable
+        private InetAddress address;
+        
+        private boolean resolving;
+        
+        private HostPool(EventLoop loop, Exchange exchange) {
+            
+            this.loop = loop;
+            this.host = exchange.host;
+            this.port = exchange.port;
+            this.secure = exchange.secure;
+        }
+        
+        String getHost () {
+            
+            return this.host;
+        }
+        
+        int getPort () {
+            
+            return this.port;
+        }
+        
+        boolean isSecure () {
+            
+            return this.secure;
+        }
+        
+        /**
+         * Gets the address of the host. The address is resolved once and reused while the
+         * pool has open connections.
+         * 
+         * @return The address of the host, which has been resolved before any connection is
+         *         opened.
+         */
+        InetAddress getAddress () {
+            
+            return this.address;
+        }
+        
+        /**
+         * Runs work which may block on a thread of its own, so the event loop keeps serving
+         * every other connection in the meantime. The work has to hand its result back with
+         * {@link #runOnLoop(Runnable)}.
+         * 
+         * @param work The work to run.
+         * @throws RejectedExecutionException If the transport has been closed.
+         */
+        void runBlocking (Runnable work) {
+            
+            NioTransport.this.blockingTasks.execute(work);
+        }
+        
+        /**
+         * Runs a task on the event loop that owns this pool.
+         * 
+         * @param task The task to run.
+         */
+        void runOnLoop (Runnable task) {
+            
+            this.loop.execute(task);
+        }
+        
+        void submit (Exchange exchange) {
+            
+            final NioConnection connection = this.idle.pollFirst();
+            
+            if (connection != null) {
+                
+                connection.start(exchange);
+            }
+            
+            else if (this.open.size() < NioTransport.this.maxConnections) {
+                
+                this.connect(exchange);
+            }
+            
+            else {
+                
+                this.waiting.add(exchange);
+            }
+        }
+        
+        void release (NioConnection connection) {
+            
+            final Exchange next = this.waiting.poll();
+            
+            if (next != null) {
+                
+                connection.start(next);
+            }
+            else {
+                
+                this.idle.addFirst(connection);
+            }
+        }
+        
+        void closed (NioConnection connection) {
+            
+            this.open.remove(connection);
+            this.idle.remove(connection);
+            
+            if (this.open.isEmpty()) {
+                
+                // Resolve again next time in case the host has moved.
+                this.address = null;
+            }
+            
+            final Exchange next = this.waiting.poll();
+            
+            if (next != null) {
+                
+                this.submit(next);
+            }
+        }
+        
+        private void connect (Exchange exchange) {
+            
+            if (this.address == null) {
+                
+                // The exchange waits for the host to be resolved, along with any others.
+                this.waiting.add(exchange);
+                this.resolve();
+                return;
+            }
+            
+            final NioConnection connection;
+            
+            try {
+                
+                connection = new NioConnection(this, this.loop.selector, NioTransport.this.sslContext);
+            }
+            
+            catch (final IOException | RuntimeException e) {
+                
+                exchange.fail(e);
+                return;
+            }
+            
+            this.open.add(connection);
+            connection.start(exchange);
+        }
+        
+        /**
+         * Starts resolving the host, unless it is already being resolved. Lookups can take
+         * seconds when a DNS server is slow, so they are done off the event loop.
+         */
+        private void resolve () {
+            
+            if (this.resolving) {
+                
+                return;
+            }
+            
+            this.resolving = true;
+            
+            try {
+                
+                this.runBlocking( () -> {
+                    
+                    try {
+                        
+                        final InetAddress resolved = InetAddress.getByName(this.host);
+                        this.runOnLoop( () -> this.resolved(resolved, null));
+                    }
+                    
+                    catch (final IOException | RuntimeException e) {
+                        
+                        this.runOnLoop( () -> this.resolved(null, e));
+                    }
+                });
+            }
+            
+            catch (final RejectedExecutionException e) {
+                
+                this.resolved(null, new IOException("The transport has been closed."));
+            }
+        }
+        
+        /**
+         * Opens connections for the exchanges that waited for the host to be resolved, or
+         * fails them if it could not be.
+         * 
+         * @param resolved The address of the host, or null if it could not be resolved.
+         * @param error Why the host could not be resolved.
+         */
+        private void resolved (@Nullable InetAddress resolved, @Nullable Exception error) {
+            
+            this.resolving = false;
+            
+            if (resolved == null) {
+                
+                Exchange exchange;
+                
+                while ((exchange = this.waiting.poll()) != null) {
+                    
+                    exchange.fail(error);
+                }
+                
+                return;
+            }
+            
+            this.address = resolved;
+            
+            while (!this.waiting.isEmpty() && this.open.size() < NioTransport.this.maxConnections) {
+                
+                this.connect(this.waiting.poll());
+            }
+        }
+        
+        private void expire (long now) {
+            
+            for (final NioConnection connection : new ArrayList<>(this.open)) {
+                
+                if (connection.isExpired(now)) {
+                    
+                    connection.fail(new SocketTimeoutException("The request timed out."));
+                }
+            }
+            
+            for (final NioConnection connection : new ArrayList<>(this.idle)) {
+                
+                if (now - connection.getIdleSince() > IDLE_TIMEOUT) {
+                    
+                    connection.close();
+                }
+            }
+        }
+        
+        private void shutdown () {
+            
+            for (final NioConnection connection : new ArrayList<>(this.open)) {
+                
+                connection.fail(new IOException("The transport has been closed."));
+            }
+            
+            Exchange exchange;
+            
+            while ((exchange = this.waiting.poll()) != null) {
+                
+                exchange.fail(new IOException("The transport has been closed."));
+            }
+        }
+    }
+    
+    /**
+     * A thread that waits on a selector and handles the network events for all of the
+     * connections it owns.
+     */
+    private final class EventLoop implements Runnable {
+        
+        private final Selector selector;
+        
+        private final Thread thread;
+        
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        
+        /**
+         * Whether or not the selector has already been woken up. This avoids waking the
+         * selector for every task when many are submitted at once.
+         */
+        private final AtomicBoolean woken = new AtomicBoolean();
+        
+        private final Map<String, HostPool> pools = new HashMap<>();
+        
+        private volatile boolean running = true;
+        
+        private EventLoop(String name) throws IOException {
+            
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+        
+        private HostPool getPool (Exchange exchange) {
+            
+            // Looked up before creating the pool, as a capturing lambda would be allocated for
+            // every request.
+            HostPool pool = this.pools.get(exchange.poolKey);
+            
+            if (pool == null) {
+                
+                pool = new HostPool(this, exchange);
+                this.pools.put(exchange.poolKey, pool);
+            }
+            
+            return pool;
+        }
+        
+        private void execute (Runnable task) {
+            
+            this.tasks.add(task);
+            
+            if (this.woken.compareAndSet(false, true)) {
+                
+                this.selector.wakeup();
+            }
+        }
+        
+        @Override
+        public void run () {
+            
+            long lastExpiry = System.nanoTime();
+            
+            while (this.running) {
+                
+                try {
+                    
+                    this.selector.select(1000L);
+                    this.woken.set(false);
+                    
+                    final Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                    
+                    while (keys.hasNext()) {
+                        
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        
+                        if (key.isValid()) {
+                            
+                            ((NioConnection) key.attachment()).handle();
+                        }
+                    }
+                    
+                    Runnable task;
+                    
+                    while ((task = this.tasks.poll()) != null) {
+                        
+                        task.run();
+                    }
+                    
+                    final long now = System.nanoTime();
+                    
+                    if (now - lastExpiry > TimeUnit.SECONDS.toNanos(1)) {
+                        
+                        lastExpiry = now;
+                        
+                        for (final HostPool pool : new ArrayList<>(this.pools.values())) {
+                            
+                            pool.expire(now);
+                        }
+                    }
+                }
+                
+                catch (final IOException | RuntimeException e) {
+                    
+                    LOGGER.severe("Unexpected error in the Schoomp event loop: " + e.getMessage());
+                }
+            }
+            
+            for (final HostPool pool : this.pools.values()) {
+                
+                pool.shutdown();
+            }
+            
+            Runnable task;
+            
+            while ((task = this.tasks.poll()) != null) {
+                
+                task.run();
+            }
+            
+            try {
+                
+                this.selector.close();
+            }
+            
+            catch (final IOException e) {
+                
+                // The loop is stopping anyway.
+            }
+        }
+        
+        private void shutdown () {
+            
+            this.running = false;
+            this.selector.wakeup();
+        }
+    }
+}
\ No newline at end of file
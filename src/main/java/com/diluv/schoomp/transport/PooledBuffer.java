@@ -0,0 +1,150 @@
+package com.diluv.schoomp.transport;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A growable byte buffer which is returned to a shared pool once the request it was encoded
+ * for is done. Requests are encoded on the sending thread and written by an event loop, so the
+ * buffers are pooled rather than kept per thread. The pool is backed by an array, so taking
+ * and returning buffers does not allocate either.
+ */
+final class PooledBuffer extends OutputStream {
+    
+    /**
+     * The most buffers that are kept in the pool. Any more are left to the garbage collector.
+     */
+    private static final int POOL_SIZE = 256;
+    
+    /**
+     * Buffers larger than this are not kept in the pool once they have been used.
+     */
+    private static final int MAX_RETAINED_SIZE = 256 * 1024;
+    
+    private static final BlockingQueue<PooledBuffer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    
+    private byte[] data = new byte[1024];
+    
+    private int size;
+    
+    /**
+     * A view of the data, which is kept until the data has to grow.
+     */
+    private ByteBuffer view = ByteBuffer.wrap(this.data);
+    
+    private PooledBuffer() {
+    
+    }
+    
+    /**
+     * Takes an empty buffer from the pool, or creates one if the pool is empty.
+     * 
+     * @return An empty buffer.
+     */
+    static PooledBuffer acquire () {
+        
+        final PooledBuffer buffer = POOL.poll();
+        return buffer != null ? buffer : new PooledBuffer();
+    }
+    
+    /**
+     * Empties the buffer and returns it to the pool. The buffer and any views of it must not
+     * be used afterwards.
+     */
+    void release () {
+        
+        this.size = 0;
+        
+        if (this.data.length <= MAX_RETAINED_SIZE) {
+            
+            POOL.offer(this);
+        }
+    }
+    
+    /**
+     * Gets a view of the bytes written so far, positioned at the start of the buffer.
+     * 
+     * @return A view of the buffer.
+     */
+    ByteBuffer toByteBuffer () {
+        
+        if (this.view.array() != this.data) {
+            
+            this.view = ByteBuffer.wrap(this.data);
+        }
+        
+        this.view.clear();
+        this.view.limit(this.size);
+        return this.view;
+    }
+    
+    int size () {
+        
+        return this.size;
+    }
+    
+    /**
+     * Writes a string as ISO-8859-1, which is how the head of a request is encoded. Characters
+     * which can not be encoded are written as a question mark.
+     * 
+     * @param text The text to write.
+     */
+    void writeLatin1 (String text) {
+        
+        this.ensure(text.length());
+        
+        for (int i = 0; i < text.length(); i++) {
+            
+            final char c = text.charAt(i);
+            this.data[this.size++] = (byte) (c <= 0xFF ? c : '?');
+        }
+    }
+    
+    /**
+     * Writes a number in decimal, without creating a string for it.
+     * 
+     * @param value The number to write, which can not be negative.
+     */
+    void writeDecimal (long value) {
+        
+        long divisor = 1;
+        
+        while (divisor <= value / 10) {
+            
+            divisor *= 10;
+        }
+        
+        this.ensure(19);
+        
+        for (; divisor > 0; divisor /= 10) {
+            
+            this.data[this.size++] = (byte) ('0' + value / divisor % 10);
+        }
+    }
+    
+    @Override
+    public void write (int b) {
+        
+        this.ensure(1);
+        this.data[this.size++] = (byte) b;
+    }
+    
+    @Override
+    public void write (byte[] bytes, int offset, int length) {
+        
+        this.ensure(length);
+        System.arraycopy(bytes, offset, this.data, this.size, length);
+        this.size += length;
+    }
+    
+    private void ensure (int amount) {
+        
+        if (this.size + amount > this.data.length) {
+            
+            this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + amount));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.diluv.schoomp.transport;
+
+import javax.annotation.Nullable;
+
+/**
+ * This class represents a single HTTP request to be sent to Discord by a {@link Transport}.
+ */
+public final class Request {
+    
+    /**
+     * The HTTP method of the request.
+     */
+    private final String method;
+    
+    /**
+     * The URL to send the request to. This should be considered a sensitive value as it
+     * usually contains the webhook token.
+     */
+    private final String url;
+    
+    /**
+     * The parsed URL, which is only parsed once a transport asks for it if the request was
+     * not given one.
+     */
+    @Nullable
+    private volatile Endpoint endpoint;
+    
+    /**
+     * The user agent to send with the request.
+     */
+    private final String userAgent;
+    
+    /**
+     * The body of the request.
+     */
+    private final RequestBody body;
+    
+    /**
+     * Whether or not the transport should log the response that Discord sends back.
+     */
+    private final boolean debug;
+    
+    /**
+     * Receives timings from the transport while the request is sent.
+     */
+    private final RequestListener listener;
+    
+    public Request(String method, String url, String userAgent, RequestBody body, boolean debug) {
+        
+        this(method, url, userAgent, body, debug, RequestListener.NONE);
+    }
+    
+    public Request(String method, String url, String userAgent, RequestBody body, boolean debug, RequestListener listener) {
+        
+        this.method = method;
+        this.url = url;
+        this.userAgent = userAgent;
+        this.body = body;
+        this.debug = debug;
+        this.listener = listener;
+    }
+    
+    /**
+     * Creates a request to an endpoint that has already been parsed, so transports do not have
+     * to parse its URL again.
+     * 
+     * @param method The HTTP method of the request.
+     * @param endpoint The endpoint to send the request to.
+     * @param userAgent The user agent to send with the request.
+     * @param body The body of the request.
+     * @param debug Whether or not the transport should log the response.
+     * @param listener Receives timings from the transport while the request is sent.
+     */
+    public Request(String method, Endpoint endpoint, String userAgent, RequestBody body, boolean debug, RequestListener listener) {
+        
+        this(method, endpoint.getUrl(), userAgent, body, debug, listener);
+        this.endpoint = endpoint;
+    }
+    
+    /**
+     * Gets the HTTP method of the request.
+     * 
+     * @return The HTTP method.
+     */
+    public String getMethod () {
+        
+        return this.method;
+    }
+    
+    /**
+     * Gets the URL the request is sent to.
+     * 
+     * @return The URL of the request.
+     */
+    public String getUrl () {
+        
+        return this.url;
+    }
+    
+    /**
+     * Gets the parsed URL the request is sent to.
+     * 
+     * @return The endpoint of the request.
+     * @throws IllegalArgumentException If the URL is not an absolute http or https URL.
+     */
+    public Endpoint getEndpoint () {
+        
+        Endpoint endpoint = this.endpoint;
+        
+        if (endpoint == null) {
+            
+            endpoint = Endpoint.parse(this.url);
+            this.endpoint = endpoint;
+        }
+        
+        return endpoint;
+    }
+    
+    /**
+     * Gets the user agent sent with the request.
+     * 
+     * @return The user agent.
+     */
+    public String getUserAgent () {
+        
+        return this.userAgent;
+    }
+    
+    /**
+     * Gets the body of the request.
+     * 
+     * @return The body of the request.
+     */
+    public RequestBody getBody () {
+        
+        return this.body;
+    }
+    
+    /**
+     * Checks if the response to this request should be logged.
+     * 
+     * @return Whether or not the response should be logged.
+     */
+    public boolean isDebug () {
+        
+        return this.debug;
+    }
+    
+    /**
+     * Gets the listener which receives timings while the request is sent.
+     * 
+     * @return The listener of the request.
+     */
+    public RequestListener getListener () {
+        
+        return this.listener;
+    }
+}
\ No newline at end of file
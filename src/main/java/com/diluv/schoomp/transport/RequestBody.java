@@ -0,0 +1,103 @@
+package com.diluv.schoomp.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The body of a request. Bodies are written directly to the connection by the transport, which
+ * allows them to be encoded without first building the whole payload in memory.
+ */
+public interface RequestBody {
+    
+    /**
+     * Gets the content type of the body.
+     * 
+     * @return The content type of the body.
+     */
+    String getContentType ();
+    
+    /**
+     * Gets the amount of bytes the body will write. Bodies which do not know their length in
+     * advance will be sent using chunked encoding when the transport allows it.
+     * 
+     * @return The length of the body in bytes, or -1 if it is not known.
+     */
+    long getContentLength ();
+    
+    /**
+     * Writes the body to the stream. This may be called more than once if the request has to
+     * be sent again, and must write the same bytes every time.
+     * 
+     * @param out The stream to write to. This stream must not be closed by the body.
+     * @throws IOException If the body could not be written.
+     */
+    void writeTo (OutputStream out) throws IOException;
+    
+    /**
+     * Encodes the entire body into an array. This is used by transports which need the full
+     * body up front.
+     * 
+     * @return The encoded body.
+     * @throws IOException If the body could not be written.
+     */
+    default byte[] toByteArray () throws IOException {
+        
+        final long length = this.getContentLength();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(length >= 0 && length <= Integer.MAX_VALUE ? (int) length : 512);
+        this.writeTo(out);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Gets the entire body as buffers, which are sent one after another. This is used by
+     * transports which write from buffers rather than to a stream. By default the body is
+     * encoded into an array, while bodies that send files can map them instead so large files
+     * are never copied onto the heap.
+     * 
+     * @return New buffers which together hold the body, positioned at the start of the body.
+     * @throws IOException If the body could not be written.
+     */
+    default ByteBuffer[] toBuffers () throws IOException {
+        
+        return new ByteBuffer[] { ByteBuffer.wrap(this.toByteArray()) };
+    }
+    
+    /**
+     * Creates a body from bytes that have already been encoded.
+     * 
+     * @param contentType The content type of the body.
+     * @param bytes The encoded body. The array is not copied and must not be modified.
+     * @return A body that writes the given bytes.
+     */
+    static RequestBody of (String contentType, byte[] bytes) {
+        
+        return new RequestBody() {
+            
+            @Override
+            public String getContentType () {
+                
+                return contentType;
+            }
+            
+            @Override
+            public long getContentLength () {
+                
+                return bytes.length;
+            }
+            
+            @Override
+            public void writeTo (OutputStream out) throws IOException {
+                
+                out.write(bytes);
+            }
+            
+            @Override
+            public byte[] toByteArray () {
+                
+                return bytes;
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.diluv.schoomp.transport;
+
+import java.util.Map;
+
+/**
+ * Receives timings from a transport while it sends a request. Durations are measured from
+ * when the transport started handling the request. Transports only report the timings they
+ * are able to measure, and listeners may be called from any thread.
+ */
+public interface RequestListener {
+    
+    /**
+     * A listener which ignores every timing.
+     */
+    RequestListener NONE = new RequestListener() {
+    
+    };
+    
+    /**
+     * Called when a new connection has been opened for the request, including the TLS
+     * handshake. This is not called when an existing connection is reused, unless the
+     * transport can not tell, in which case it reports how long getting a connection took.
+     * 
+     * @param nanos How long it took to open the connection.
+     */
+    default void onConnected (long nanos) {
+    
+    }
+    
+    /**
+     * Called when the response starts arriving.
+     * 
+     * @param nanos How long it took for the response to start arriving.
+     */
+    default void onFirstByte (long nanos) {
+    
+    }
+    
+    /**
+     * Called when the transport has encoded a body whose length was not known in advance into
+     * memory before sending it.
+     * 
+     * @param nanos How long it took to encode the body.
+     */
+    default void onEncoded (long nanos) {
+    
+    }
+    
+    /**
+     * Checks if the listener wants every header of the response. Transports only keep the
+     * headers they need, and skip the rest unless a listener asks for them.
+     * 
+     * @return Whether or not {@link #onResponseHeaders(Map)} should be called.
+     */
+    default boolean wantsResponseHeaders () {
+        
+        return false;
+    }
+    
+    /**
+     * Called with every header of the response, if {@link #wantsResponseHeaders()} is true.
+     * 
+     * @param headers The headers of the response, keyed by their name. The values of a header
+     *        sent more than once are joined by commas.
+     */
+    default void onResponseHeaders (Map<String, String> headers) {
+    
+    }
+}
\ No newline at end of file
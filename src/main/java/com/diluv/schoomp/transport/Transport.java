@@ -0,0 +1,46 @@
+package com.diluv.schoomp.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.diluv.schoomp.Response;
+
+/**
+ * A transport is responsible for delivering a request to Discord and reading the response
+ * that is sent back. Transports are shared between webhooks and must be thread safe.
+ */
+public interface Transport {
+    
+    /**
+     * Sends a request and blocks the current thread until the response has been received.
+     * 
+     * @param request The request to send.
+     * @return The response sent back by Discord.
+     * @throws IOException This will happen if the request can not be sent properly.
+     */
+    Response send (Request request) throws IOException;
+    
+    /**
+     * Sends a request without blocking the current thread. Transports that can only perform
+     * blocking requests will do so using the given executor.
+     * 
+     * @param request The request to send.
+     * @param executor An executor that blocking work may be performed on.
+     * @return A future that completes with the response sent back by Discord, or completes
+     *         exceptionally if the request could not be sent.
+     */
+    CompletableFuture<Response> sendAsync (Request request, Executor executor);
+    
+    /**
+     * Checks if this transport can send requests with an HTTP method. Requests with a method
+     * it can not send fail before anything is sent.
+     * 
+     * @param method The HTTP method, such as PATCH.
+     * @return Whether or not requests with the method can be sent.
+     */
+    default boolean supportsMethod (String method) {
+        
+        return true;
+    }
+}
\ No newline at end of file
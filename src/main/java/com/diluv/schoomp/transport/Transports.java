@@ -0,0 +1,33 @@
+package com.diluv.schoomp.transport;
+
+/**
+ * Provides the transports that are available on the current version of Java.
+ */
+public final class Transports {
+    
+    private Transports() {
+    
+    }
+    
+    /**
+     * Gets the fastest transport available on the current version of Java. On Java 11 and
+     * newer this is a transport that reuses connections through a shared HTTP/2 client.
+     * 
+     * @return The default transport.
+     */
+    public static Transport getDefault () {
+        
+        return UrlConnectionTransport.INSTANCE;
+    }
+    
+    /**
+     * Gets the transport that uses {@link java.net.HttpURLConnection}. This transport is
+     * available on every version of Java.
+     * 
+     * @return The URL connection transport.
+     */
+    public static Transport urlConnection () {
+        
+        return UrlConnectionTransport.INSTANCE;
+    }
+}
\ No newline at end of file
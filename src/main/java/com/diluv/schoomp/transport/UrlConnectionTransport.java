@@ -0,0 +1,215 @@
+package com.diluv.schoomp.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+import com.diluv.schoomp.Response;
+
+/**
+ * A transport that sends requests using {@link HttpURLConnection}. This is available on every
+ * version of Java but performs every request on the calling thread.
+ * <p>
+ * Messages can not be edited through this transport, as {@link HttpURLConnection} does not
+ * allow PATCH requests. Edits fail with a {@link ProtocolException} before anything is sent,
+ * and {@link #supportsMethod(String)} reports that they can not be sent.
+ * Use a {@link NioTransport}, or the default transport on Java 11 and newer, for webhooks that
+ * edit messages, such as those used by a {@link com.diluv.schoomp.LiveMessage}.
+ */
+public final class UrlConnectionTransport implements Transport {
+    
+    private static final Logger LOGGER = Logger.getLogger("Schoomp");
+    
+    /**
+     * The shared instance of this transport.
+     */
+    static final UrlConnectionTransport INSTANCE = new UrlConnectionTransport();
+    
+    private static final byte[] EMPTY_BODY = new byte[0];
+    
+    /**
+     * The methods {@link HttpURLConnection} allows.
+     */
+    private static final Set<String> METHODS = new HashSet<>(Arrays.asList("GET", "POST", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE"));
+    
+    /**
+     * The buffers responses are read through, which are reused by each sending thread.
+     */
+    private static final ThreadLocal<byte[]> READ_BUFFERS = ThreadLocal.withInitial( () -> new byte[4096]);
+    
+    @Override
+    public Response send (Request request) throws IOException {
+        
+        final long start = System.nanoTime();
+        final HttpURLConnection connection = (HttpURLConnection) request.getEndpoint().toUrl().openConnection();
+        
+        final RequestBody requestBody = request.getBody();
+        final long length = requestBody.getContentLength();
+        
+        // Set up the request to send the message data.
+        connection.addRequestProperty("Content-Type", requestBody.getContentType());
+        connection.addRequestProperty("User-Agent", request.getUserAgent());
+        connection.setDoOutput(true);
+        setRequestMethod(connection, request.getMethod());
+        
+        // Without a streaming mode the connection copies the whole body into its own buffer
+        // before anything is sent.
+        if (length >= 0) {
+            
+            connection.setFixedLengthStreamingMode(length);
+        }
+        else {
+            
+            connection.setChunkedStreamingMode(0);
+        }
+        
+        connection.connect();
+        request.getListener().onConnected(System.nanoTime() - start);
+        
+        // Write the contents of the body to the output stream.
+        try (OutputStream out = connection.getOutputStream()) {
+            
+            requestBody.writeTo(out);
+        }
+        
+        // Actually sends our request, and gets the response back. Discord usually
+        // gives no response back, but errors such as 429 explain themselves in the body.
+        // Errors are sent on the error stream, which still has to be consumed.
+        final int statusCode = connection.getResponseCode();
+        request.getListener().onFirstByte(System.nanoTime() - start);
+        
+        if (request.getListener().wantsResponseHeaders()) {
+            
+            request.getListener().onResponseHeaders(joinHeaders(connection.getHeaderFields()));
+        }
+        
+        final InputStream stream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        byte[] body = null;
+        
+        if (stream != null) {
+            
+            try (InputStream in = stream) {
+                
+                // Discord usually sends no body, so nothing is allocated until it does.
+                final byte[] buffer = READ_BUFFERS.get();
+                ByteArrayOutputStream out = null;
+                int read;
+                
+                while ((read = in.read(buffer)) != -1) {
+                    
+                    if (out == null) {
+                        
+                        out = new ByteArrayOutputStream(read);
+                    }
+                    
+                    out.write(buffer, 0, read);
+                }
+                
+                body = out != null ? out.toByteArray() : EMPTY_BODY;
+            }
+            
+            // Debug requests will print whatever Discord gives back.
+            if (request.isDebug() && body.length > 0) {
+                
+                for (final String line : new String(body, StandardCharsets.UTF_8).split("\r?\n")) {
+                    
+                    LOGGER.info(line);
+                }
+            }
+        }
+        
+        return new Response(statusCode, connection::getHeaderField, body);
+    }
+    
+    /**
+     * Sets the method of a connection. {@link HttpURLConnection} refuses methods it does not
+     * know, including the PATCH used to edit messages, so those fail before anything is sent.
+     * 
+     * @param connection The connection to set the method of.
+     * @param method The HTTP method.
+     * @throws ProtocolException If the method can not be used with this transport.
+     */
+    private static void setRequestMethod (HttpURLConnection connection, String method) throws ProtocolException {
+        
+        try {
+            
+            connection.setRequestMethod(method);
+        }
+        
+        catch (final ProtocolException e) {
+            
+            throw new ProtocolException(method + " requests are not supported by " + HttpURLConnection.class.getSimpleName() + ". Use a NioTransport, or the default transport on Java 11 and newer, to edit messages.");
+        }
+    }
+    
+    /**
+     * Joins the values of each header that was sent more than once.
+     * 
+     * @param fields The headers of a response. The status line is kept under a null name,
+     *        which is skipped.
+     * @return The headers, keyed by their name.
+     */
+    private static Map<String, String> joinHeaders (Map<String, List<String>> fields) {
+        
+        final Map<String, String> headers = new LinkedHashMap<>();
+        
+        for (final Map.Entry<String, List<String>> field : fields.entrySet()) {
+            
+            if (field.getKey() != null) {
+                
+                headers.put(field.getKey(), String.join(", ", field.getValue()));
+            }
+        }
+        
+        return headers;
+    }
+    
+    @Override
+    public boolean supportsMethod (String method) {
+        
+        return METHODS.contains(method);
+    }
+    
+    @Override
+    public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        
+        try {
+            
+            executor.execute( () -> {
+                
+                try {
+                    
+                    future.complete(this.send(request));
+                }
+                
+                catch (final IOException | RuntimeException e) {
+                    
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        
+        catch (final RejectedExecutionException e) {
+            
+            future.completeExceptionally(e);
+        }
+        
+        return future;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,380 @@
+package com.diluv.schoomp.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import com.diluv.schoomp.Response;
+
+/**
+ * A transport that sends requests through a shared {@link HttpClient}. Connections are pooled
+ * and kept alive between requests, and HTTP/2 is used when available so many requests can be
+ * multiplexed over a single connection. Asynchronous requests do not block any thread while
+ * waiting for Discord, unless they are given a {@link BlockingExecutor}, in which case they are
+ * sent as blocking calls on it so its limit on concurrent requests applies.
+ */
+final class HttpClientTransport implements Transport {
+    
+    private static final Logger LOGGER = Logger.getLogger("Schoomp");
+    
+    /**
+     * Bodies larger than this are read from {@link RequestBody#toBuffers()} as they are sent,
+     * rather than copied into an array first.
+     */
+    private static final long STREAMED_BODY_SIZE = 64 * 1024;
+    
+    /**
+     * How long a request can take once it has been sent before it is failed. Without this
+     * a request to a connection that stopped responding would never complete.
+     */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    
+    /**
+     * The shared instance of this transport.
+     */
+    static final HttpClientTransport INSTANCE = new HttpClientTransport();
+    
+    /**
+     * The client used to send all requests. Sharing a single client allows connections to be
+     * reused across every webhook.
+     */
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).connectTimeout(Duration.ofSeconds(30)).build();
+    
+    @Override
+    public Response send (Request request) throws IOException {
+        
+        final HttpRequest.BodyPublisher publisher = this.createPublisher(request);
+        
+        try {
+            
+            final Response response = this.handle(request, this.client.send(this.createRequest(request, publisher), this.createHandler(request)));
+            release(publisher);
+            return response;
+        }
+        
+        catch (final InterruptedException e) {
+            
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending the request.");
+        }
+    }
+    
+    @Override
+    public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+        
+        if (executor instanceof BlockingExecutor) {
+            
+            return this.sendBlocking(request, executor);
+        }
+        
+        try {
+            
+            final HttpRequest.BodyPublisher publisher = this.createPublisher(request);
+            
+            return this.client.sendAsync(this.createRequest(request, publisher), this.createHandler(request)).thenApply(response -> {
+                
+                release(publisher);
+                return this.handle(request, response);
+            });
+        }
+        
+        catch (final IOException | RuntimeException e) {
+            
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Sends a request as a blocking call on an executor, which holds one of the executor's
+     * permits until the response has been received.
+     * 
+     * @param request The request to send.
+     * @param executor The executor to send the request on.
+     * @return A future that completes with the response.
+     */
+    private CompletableFuture<Response> sendBlocking (Request request, Executor executor) {
+        
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        
+        try {
+            
+            executor.execute( () -> {
+                
+                try {
+                    
+                    future.complete(this.send(request));
+                }
+                
+                catch (final IOException | RuntimeException e) {
+                    
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        
+        catch (final RejectedExecutionException e) {
+            
+            future.completeExceptionally(e);
+        }
+        
+        return future;
+    }
+    
+    /**
+     * Creates the publisher for the body of a request. The client sends bodies as byte
+     * buffers. Bodies of unknown length, such as messages encoded as they are written, are
+     * encoded into a pooled buffer. Large bodies with a known length, such as those with
+     * attachments, are read from their buffers while they are sent. Other bodies already know
+     * their bytes, so their array is sent as it is.
+     * 
+     * @param request The request to send.
+     * @return The publisher for the body.
+     * @throws IOException If the body could not be encoded.
+     */
+    private HttpRequest.BodyPublisher createPublisher (Request request) throws IOException {
+        
+        final RequestBody body = request.getBody();
+        final long length = body.getContentLength();
+        
+        if (length < 0) {
+            
+            final PooledBuffer encoded = PooledBuffer.acquire();
+            
+            try {
+                
+                final long start = System.nanoTime();
+                body.writeTo(encoded);
+                request.getListener().onEncoded(System.nanoTime() - start);
+            }
+            
+            catch (final IOException | RuntimeException e) {
+                
+                encoded.release();
+                throw e;
+            }
+            
+            return new PooledPublisher(encoded);
+        }
+        
+        if (length > STREAMED_BODY_SIZE) {
+            
+            return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream( () -> new BufferInputStream(body)), length);
+        }
+        
+        return HttpRequest.BodyPublishers.ofByteArray(body.toByteArray());
+    }
+    
+    /**
+     * Returns the buffer of a pooled body once a response has been received, as the client
+     * will not send the body again. Bodies of requests that failed are left to the garbage
+     * collector instead, as the client may still be writing them.
+     * 
+     * @param publisher The publisher of the body.
+     */
+    private static void release (HttpRequest.BodyPublisher publisher) {
+        
+        if (publisher instanceof PooledPublisher) {
+            
+            ((PooledPublisher) publisher).buffer.release();
+        }
+    }
+    
+    private HttpRequest createRequest (Request request, HttpRequest.BodyPublisher publisher) {
+        
+        return HttpRequest.newBuilder(request.getEndpoint().toUri())
+                .header("Content-Type", request.getBody().getContentType())
+                .header("User-Agent", request.getUserAgent())
+                .timeout(REQUEST_TIMEOUT)
+                .method(request.getMethod(), publisher)
+                .build();
+    }
+    
+    /**
+     * Creates the handler which reads the response body. The client calls the handler once
+     * the response headers have been received, which is reported as the first byte.
+     * 
+     * @param request The request being sent.
+     * @return The handler for the response body.
+     */
+    private HttpResponse.BodyHandler<byte[]> createHandler (Request request) {
+        
+        final long start = System.nanoTime();
+        
+        return info -> {
+            
+            request.getListener().onFirstByte(System.nanoTime() - start);
+            return HttpResponse.BodySubscribers.ofByteArray();
+        };
+    }
+    
+    private Response handle (Request request, HttpResponse<byte[]> response) {
+        
+        // Discord usually gives no response back, but errors such as 429 explain themselves in
+        // the body. Debug requests will print whatever they give back.
+        if (request.isDebug() && response.body() != null) {
+            
+            new String(response.body(), StandardCharsets.UTF_8).lines().forEach(LOGGER::info);
+        }
+        
+        if (request.getListener().wantsResponseHeaders()) {
+            
+            final Map<String, String> headers = new LinkedHashMap<>();
+            response.headers().map().forEach( (name, values) -> headers.put(name, String.join(", ", values)));
+            request.getListener().onResponseHeaders(headers);
+        }
+        
+        return new Response(response.statusCode(), name -> response.headers().firstValue(name).orElse(null), response.body());
+    }
+    
+    /**
+     * Publishes a body that has been encoded into a pooled buffer as a single buffer. The client
+     * subscribes again if it has to resend the body, and every subscriber reads its own view
+     * of the buffer.
+     */
+    private static final class PooledPublisher implements HttpRequest.BodyPublisher {
+        
+        private final PooledBuffer buffer;
+        
+        private final ByteBuffer body;
+        
+        private PooledPublisher(PooledBuffer buffer) {
+            
+            this.buffer = buffer;
+            this.body = buffer.toByteBuffer();
+        }
+        
+        @Override
+        public long contentLength () {
+            
+            return this.body.remaining();
+        }
+        
+        @Override
+        public void subscribe (Flow.Subscriber<? super ByteBuffer> subscriber) {
+            
+            subscriber.onSubscribe(new BufferSubscription(subscriber, this.body.duplicate()));
+        }
+    }
+    
+    /**
+     * Hands a single buffer to a subscriber once it asks for anything.
+     */
+    private static final class BufferSubscription implements Flow.Subscription {
+        
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        
+        private final ByteBuffer buffer;
+        
+        private final AtomicBoolean done = new AtomicBoolean();
+        
+        private BufferSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, ByteBuffer buffer) {
+            
+            this.subscriber = subscriber;
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public void request (long amount) {
+            
+            if (this.done.getAndSet(true)) {
+                
+                return;
+            }
+            
+            if (amount <= 0) {
+                
+                this.subscriber.onError(new IllegalArgumentException("At least one buffer must be requested, got " + amount));
+                return;
+            }
+            
+            this.subscriber.onNext(this.buffer);
+            this.subscriber.onComplete();
+        }
+        
+        @Override
+        public void cancel () {
+            
+            this.done.set(true);
+        }
+    }
+    
+    /**
+     * Reads a body from its buffers. The buffers are only created once the client starts
+     * reading, so a body sent more than once gets new buffers each time.
+     */
+    private static final class BufferInputStream extends InputStream {
+        
+        private final RequestBody body;
+        
+        private ByteBuffer[] buffers;
+        
+        private int index;
+        
+        private BufferInputStream(RequestBody body) {
+            
+            this.body = body;
+        }
+        
+        @Override
+        public int read () throws IOException {
+            
+            final ByteBuffer buffer = this.next();
+            return buffer != null ? buffer.get() & 0xFF : -1;
+        }
+        
+        @Override
+        public int read (byte[] bytes, int offset, int length) throws IOException {
+            
+            if (length == 0) {
+                
+                return 0;
+            }
+            
+            final ByteBuffer buffer = this.next();
+            
+            if (buffer == null) {
+                
+                return -1;
+            }
+            
+            final int amount = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, amount);
+            return amount;
+        }
+        
+        /**
+         * Gets the buffer reading should continue from.
+         * 
+         * @return The first buffer with bytes remaining, or null if the body has been read.
+         * @throws IOException If the buffers of the body could not be created.
+         */
+        private ByteBuffer next () throws IOException {
+            
+            if (this.buffers == null) {
+                
+                this.buffers = this.body.toBuffers();
+            }
+            
+            while (this.index < this.buffers.length && !this.buffers[this.index].hasRemaining()) {
+                
+                this.index++;
+            }
+            
+            return this.index < this.buffers.length ? this.buffers[this.index] : null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.diluv.schoomp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import com.diluv.schoomp.transport.BlockingExecutor;
+
+/**
+ * Creates executors for sending requests, which can be given to
+ * {@link Webhook#setExecutor(Executor)} or any of the asynchronous send methods. This version
+ * of the class is used on Java 21 and newer.
+ */
+public final class Senders {
+    
+    private Senders() {
+    
+    }
+    
+    /**
+     * Checks if requests can be sent on virtual threads on the current version of Java.
+     * 
+     * @return Whether or not virtual threads are available.
+     */
+    public static boolean isVirtualThreadsAvailable () {
+        
+        return true;
+    }
+    
+    /**
+     * Creates an executor that sends each request on a virtual thread of its own, and lets at
+     * most the given amount of requests run at once. Requests beyond the limit wait for a
+     * permit without holding a platform thread, so the limit can be far higher than the size
+     * of a thread pool.
+     * <p>
+     * Transports which do not block while waiting for Discord send their requests as blocking
+     * calls on this executor, so the limit applies to every transport.
+     * 
+     * @param maxConcurrency The most requests that can be running at once.
+     * @return An executor for sending requests.
+     */
+    public static Executor virtualThreads (int maxConcurrency) {
+        
+        if (maxConcurrency < 1) {
+            
+            throw new IllegalArgumentException("At least one request must be allowed at a time, got " + maxConcurrency);
+        }
+        
+        return new VirtualThreadExecutor(maxConcurrency);
+    }
+    
+    /**
+     * Starts a virtual thread for every task, which waits for a permit before running it. A
+     * waiting virtual thread is parked on the semaphore, and only takes up the memory of its
+     * small stack.
+     */
+    private static final class VirtualThreadExecutor implements BlockingExecutor {
+        
+        private final Semaphore permits;
+        
+        private final ThreadFactory factory = Thread.ofVirtual().name("Schoomp-Sender-", 1).factory();
+        
+        private VirtualThreadExecutor(int maxConcurrency) {
+            
+            this.permits = new Semaphore(maxConcurrency);
+        }
+        
+        @Override
+        public void execute (Runnable task) {
+            
+            final Thread thread = this.factory.newThread( () -> {
+                
+                this.permits.acquireUninterruptibly();
+                
+                try {
+                    
+                    task.run();
+                }
+                
+                finally {
+                    
+                    this.permits.release();
+                }
+            });
+            
+            if (thread == null) {
+                
+                throw new RejectedExecutionException("Could not start a virtual thread.");
+            }
+            
+            thread.start();
+        }
+        
+        @Override
+        public String toString () {
+            
+            return "VirtualThreadExecutor [available=" + this.permits.availablePermits() + "]";
+        }
+    }
+}
\ No newline at end of file
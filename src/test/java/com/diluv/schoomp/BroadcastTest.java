@@ -0,0 +1,238 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class BroadcastTest {
+    
+    private final HeldTransport transport = new HeldTransport();
+    
+    @Test
+    void sendsSameBytesToEveryWebhook () throws Exception {
+        
+        final Broadcast broadcast = this.broadcast(3);
+        final CompletableFuture<List<Broadcast.Outcome>> future = broadcast.sendMessageAsync(new Message().setContent("Hello"));
+        final List<String> bodies = new ArrayList<>();
+        
+        for (int i = 0; i < 3; i++) {
+            
+            final HeldRequest request = this.transport.next();
+            bodies.add(request.body);
+            request.answer(204);
+        }
+        
+        assertEquals(Collections.nCopies(3, new String(new Message().setContent("Hello").toBytes(), StandardCharsets.UTF_8)), bodies);
+        
+        final List<Broadcast.Outcome> outcomes = future.get(5, TimeUnit.SECONDS);
+        
+        for (int i = 0; i < 3; i++) {
+            
+            assertSame(broadcast.getWebhooks().get(i), outcomes.get(i).getWebhook());
+            assertTrue(outcomes.get(i).isDelivered());
+        }
+    }
+    
+    @Test
+    void limitsWebhooksInFlight () throws Exception {
+        
+        final Broadcast broadcast = this.broadcast(5).setMaxConcurrency(2);
+        final CompletableFuture<List<Broadcast.Outcome>> future = broadcast.sendMessageAsync(new Message().setContent("Hello"));
+        
+        final HeldRequest first = this.transport.next();
+        final HeldRequest second = this.transport.next();
+        assertNull(this.transport.held.poll(50, TimeUnit.MILLISECONDS));
+        
+        // Each webhook that finishes starts the next one.
+        first.answer(204);
+        final HeldRequest third = this.transport.next();
+        assertNull(this.transport.held.poll(50, TimeUnit.MILLISECONDS));
+        
+        second.answer(204);
+        third.answer(204);
+        this.transport.next().answer(204);
+        this.transport.next().answer(204);
+        
+        assertEquals(5, future.get(5, TimeUnit.SECONDS).size());
+        assertEquals(5, this.transport.webhooks.size());
+        assertEquals(5, this.transport.webhooks.stream().distinct().count());
+    }
+    
+    @Test
+    void reportsFailuresPerWebhook () throws Exception {
+        
+        final Broadcast broadcast = this.broadcast(3);
+        final CompletableFuture<List<Broadcast.Outcome>> future = broadcast.sendMessageAsync(new Message().setContent("Hello"));
+        final Map<String, HeldRequest> requests = new HashMap<>();
+        
+        for (int i = 0; i < 3; i++) {
+            
+            final HeldRequest request = this.transport.next();
+            requests.put(request.webhook, request);
+        }
+        
+        requests.get("1").answer(204);
+        requests.get("2").answer(404);
+        requests.get("3").future.completeExceptionally(new IOException("Connection refused"));
+        
+        final List<Broadcast.Outcome> outcomes = future.get(5, TimeUnit.SECONDS);
+        
+        assertTrue(outcomes.get(0).isDelivered());
+        assertNull(outcomes.get(0).getError());
+        
+        assertFalse(outcomes.get(1).isDelivered());
+        assertEquals(404, outcomes.get(1).getResponse().getStatusCode());
+        
+        assertFalse(outcomes.get(2).isDelivered());
+        assertNull(outcomes.get(2).getResponse());
+        assertNotNull(outcomes.get(2).getError());
+    }
+    
+    @Test
+    void sendsPartsInOrderToEachWebhook () throws Exception {
+        
+        final StringBuilder content = new StringBuilder();
+        
+        for (int i = 0; i < 500; i++) {
+            
+            content.append("line ").append(i).append('\n');
+        }
+        
+        final List<Message> parts = new Message().setContent(content.toString()).split();
+        final CompletableFuture<List<Broadcast.Outcome>> future = this.broadcast(2).sendMessageAsync(new Message().setContent(content.toString()));
+        final Map<String, List<String>> received = new HashMap<>();
+        
+        for (int i = 0; i < 2 * parts.size(); i++) {
+            
+            final HeldRequest request = this.transport.next();
+            received.computeIfAbsent(request.webhook, webhook -> new ArrayList<>()).add(request.body);
+            request.answer(200);
+        }
+        
+        final List<String> expected = new ArrayList<>();
+        
+        for (final Message part : parts) {
+            
+            expected.add(new String(part.toBytes(), StandardCharsets.UTF_8));
+        }
+        
+        assertEquals(expected, received.get("1"));
+        assertEquals(expected, received.get("2"));
+        assertEquals(2, future.get(5, TimeUnit.SECONDS).size());
+    }
+    
+    @Test
+    void rejectsInvalidSettings () {
+        
+        assertThrows(IllegalArgumentException.class, () -> new Broadcast());
+        assertThrows(IllegalArgumentException.class, () -> this.broadcast(1).setMaxConcurrency(0));
+    }
+    
+    private Broadcast broadcast (int webhooks) {
+        
+        final List<Webhook> list = new ArrayList<>();
+        
+        for (int i = 1; i <= webhooks; i++) {
+            
+            list.add(new Webhook("https://discord.com/api/webhooks/" + i + "/token", "Test", this.transport).setRateLimiter(null).setRetryPolicy(RetryPolicy.none()));
+        }
+        
+        return new Broadcast(list);
+    }
+    
+    /**
+     * A request which is waiting for the test to answer it.
+     */
+    private static final class HeldRequest {
+        
+        private final String webhook;
+        
+        private final String body;
+        
+        private final CompletableFuture<Response> future = new CompletableFuture<>();
+        
+        private HeldRequest(Request request) throws IOException {
+            
+            this.webhook = RateLimiter.getBucketId(request.getUrl());
+            this.body = new String(request.getBody().toByteArray(), StandardCharsets.UTF_8);
+        }
+        
+        private void answer (int statusCode) {
+            
+            this.future.complete(new Response(statusCode, name -> null));
+        }
+    }
+    
+    /**
+     * A transport which holds every request until the test answers it.
+     */
+    private static final class HeldTransport implements Transport {
+        
+        private final BlockingQueue<HeldRequest> held = new LinkedBlockingQueue<>();
+        
+        /**
+         * The ids of the webhooks requests were sent to, in order.
+         */
+        private final List<String> webhooks = Collections.synchronizedList(new ArrayList<>());
+        
+        @Override
+        public Response send (Request request) {
+            
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            try {
+                
+                final HeldRequest held = new HeldRequest(request);
+                this.webhooks.add(held.webhook);
+                this.held.add(held);
+                return held.future;
+            }
+            
+            catch (final IOException e) {
+                
+                final CompletableFuture<Response> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+        
+        /**
+         * Waits for the next request.
+         * 
+         * @return The request, which has not been answered yet.
+         */
+        private HeldRequest next () throws InterruptedException {
+            
+            final HeldRequest request = this.held.poll(5, TimeUnit.SECONDS);
+            assertNotNull(request, "No request was sent");
+            return request;
+        }
+    }
+}
\ No newline at end of file
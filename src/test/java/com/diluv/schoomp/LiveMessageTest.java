@@ -0,0 +1,219 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+import com.diluv.schoomp.transport.UrlConnectionTransport;
+
+class LiveMessageTest {
+    
+    private static final String URL = "https://discord.com/api/webhooks/1/token";
+    
+    private final HeldTransport transport = new HeldTransport();
+    
+    private final LiveMessage live = new LiveMessage(new Webhook(URL, "Test", this.transport).setRateLimiter(null).setRetryPolicy(RetryPolicy.none())).setMaxEditsPerSecond(1000);
+    
+    @Test
+    void postsOnceThenEdits () throws Exception {
+        
+        final CompletableFuture<Response> posted = this.live.update(message("a"));
+        final HeldRequest post = this.transport.next();
+        
+        assertEquals("POST", post.method);
+        assertTrue(post.url.contains("wait=true"));
+        post.answer(200, "{\"id\":\"10\",\"channel_id\":\"2\"}");
+        
+        assertEquals("10", posted.get(5, TimeUnit.SECONDS).getMessageId());
+        assertEquals("10", this.live.getMessageId());
+        
+        final CompletableFuture<Response> edited = this.live.update(message("b"));
+        final HeldRequest edit = this.transport.next();
+        
+        assertEquals("PATCH", edit.method);
+        assertTrue(edit.url.startsWith(URL + "/messages/10"));
+        assertEquals(body("b"), edit.body);
+        edit.answer(200, "{\"id\":\"10\",\"channel_id\":\"2\"}");
+        
+        assertEquals(200, edited.get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+    
+    @Test
+    void sendsOnlyNewestStateWhileBusy () throws Exception {
+        
+        this.live.update(message("a"));
+        final HeldRequest post = this.transport.next();
+        
+        final CompletableFuture<Response> replaced = this.live.update(message("b"));
+        final CompletableFuture<Response> newest = this.live.update(message("c"));
+        post.answer(200, "{\"id\":\"10\"}");
+        
+        final HeldRequest edit = this.transport.next();
+        assertEquals(body("c"), edit.body);
+        edit.answer(200, null);
+        
+        assertSame(newest.get(5, TimeUnit.SECONDS), replaced.get(5, TimeUnit.SECONDS));
+        assertNull(this.transport.held.poll(50, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    void skipsUnchangedState () throws Exception {
+        
+        final CompletableFuture<Response> posted = this.live.update(message("a"));
+        this.transport.next().answer(200, "{\"id\":\"10\"}");
+        
+        assertSame(posted.get(5, TimeUnit.SECONDS), this.live.update(message("a")).get(5, TimeUnit.SECONDS));
+        assertNull(this.transport.held.poll(50, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    void failsUpdatesDiscordDidNotAccept () throws Exception {
+        
+        this.live.update(message("a"));
+        this.transport.next().answer(200, "{\"id\":\"10\"}");
+        
+        final CompletableFuture<Response> rejected = this.live.update(message("b"));
+        this.transport.next().answer(404, null);
+        
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        
+        // The state was never accepted, so sending it again is not skipped.
+        final CompletableFuture<Response> retried = this.live.update(message("b"));
+        final HeldRequest edit = this.transport.next();
+        assertEquals(body("b"), edit.body);
+        edit.answer(200, null);
+        
+        assertEquals(200, retried.get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+    
+    @Test
+    void failsPostWithoutMessageId () throws Exception {
+        
+        final CompletableFuture<Response> posted = this.live.update(message("a"));
+        this.transport.next().answer(204, null);
+        
+        assertThrows(ExecutionException.class, () -> posted.get(5, TimeUnit.SECONDS));
+        assertNull(this.live.getMessageId());
+        
+        // Without an id the next update posts the message again.
+        this.live.update(message("a"));
+        assertEquals("POST", this.transport.next().method);
+    }
+    
+    @Test
+    void rejectsUpdatesAfterClose () {
+        
+        this.live.close();
+        
+        final CompletableFuture<Response> future = this.live.update(message("a"));
+        assertTrue(future.isCompletedExceptionally());
+    }
+    
+    @Test
+    void rejectsTransportsWhichCanNotEdit () {
+        
+        final Webhook webhook = new Webhook(URL, "Test", new UrlConnectionTransport());
+        
+        assertFalse(webhook.getTransport().supportsMethod("PATCH"));
+        assertThrows(IllegalArgumentException.class, () -> new LiveMessage(webhook));
+    }
+    
+    private static Message message (String content) {
+        
+        return new Message().setContent(content);
+    }
+    
+    private static String body (String content) {
+        
+        return new String(message(content).toBytes(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * A request which is waiting for the test to answer it.
+     */
+    private static final class HeldRequest {
+        
+        private final String method;
+        
+        private final String url;
+        
+        private final String body;
+        
+        private final CompletableFuture<Response> future = new CompletableFuture<>();
+        
+        private HeldRequest(Request request) throws IOException {
+            
+            this.method = request.getMethod();
+            this.url = request.getUrl();
+            this.body = new String(request.getBody().toByteArray(), StandardCharsets.UTF_8);
+        }
+        
+        private void answer (int statusCode, String body) {
+            
+            this.future.complete(new Response(statusCode, name -> null, body != null ? body.getBytes(StandardCharsets.UTF_8) : null));
+        }
+    }
+    
+    /**
+     * A transport which holds every request until the test answers it.
+     */
+    private static final class HeldTransport implements Transport {
+        
+        private final BlockingQueue<HeldRequest> held = new LinkedBlockingQueue<>();
+        
+        @Override
+        public Response send (Request request) {
+            
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            try {
+                
+                final HeldRequest held = new HeldRequest(request);
+                this.held.add(held);
+                return held.future;
+            }
+            
+            catch (final IOException e) {
+                
+                final CompletableFuture<Response> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+        
+        /**
+         * Waits for the next request.
+         * 
+         * @return The request, which has not been answered yet.
+         */
+        private HeldRequest next () throws InterruptedException {
+            
+            final HeldRequest request = this.held.poll(5, TimeUnit.SECONDS);
+            assertNotNull(request, "No request was sent");
+            return request;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class MessageBatcherTest {
+    
+    private final RecordingTransport transport = new RecordingTransport();
+    
+    private final MessageBatcher batcher = new MessageBatcher(new Webhook("https://discord.com/api/webhooks/1/token", "Test", this.transport).setRateLimiter(null)).setLinger(1, TimeUnit.HOURS);
+    
+    @Test
+    void combinesMessagesWithSameIdentity () throws Exception {
+        
+        final CompletableFuture<Response> first = this.batcher.submit(embed("a"));
+        final CompletableFuture<Response> second = this.batcher.submit(embed("b").setContent("two"));
+        final CompletableFuture<Response> third = this.batcher.submit(embed("c").setContent("three"));
+        this.batcher.flush();
+        
+        final List<Message> sent = this.transport.awaitMessages(1);
+        assertEquals(3, sent.get(0).getEmbeds().size());
+        assertEquals("a", sent.get(0).getEmbeds().get(0).getTitle());
+        assertEquals("two\nthree", sent.get(0).getContent());
+        
+        assertSame(first.get(5, TimeUnit.SECONDS), third.get(5, TimeUnit.SECONDS));
+        assertSame(second.get(5, TimeUnit.SECONDS), third.get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void keepsIdentitiesApart () throws Exception {
+        
+        this.batcher.submit(embed("a").setUsername("One"));
+        this.batcher.submit(embed("b").setUsername("Two"));
+        this.batcher.submit(embed("c").setUsername("One"));
+        this.batcher.submit(embed("d").setUsername("One").setTts(true));
+        this.batcher.flush();
+        
+        final List<Message> sent = this.transport.awaitMessages(3);
+        assertEquals(2, sent.get(0).getEmbeds().size());
+        assertEquals("Two", sent.get(1).getUsername());
+        assertTrue(sent.get(2).isTts());
+    }
+    
+    @Test
+    void staysWithinDiscordLimits () throws Exception {
+        
+        for (int i = 0; i < 12; i++) {
+            
+            this.batcher.submit(embed(Integer.toString(i)));
+        }
+        
+        this.batcher.submit(new Message().setContent(repeat('x', 1500)));
+        this.batcher.submit(new Message().setContent(repeat('y', 1500)));
+        this.batcher.flush();
+        
+        // Each message goes into the oldest batch that still has room for it.
+        final List<Message> sent = this.transport.awaitMessages(2);
+        assertEquals(10, sent.get(0).getEmbeds().size());
+        assertEquals(repeat('x', 1500), sent.get(0).getContent());
+        assertEquals(2, sent.get(1).getEmbeds().size());
+        assertEquals(repeat('y', 1500), sent.get(1).getContent());
+    }
+    
+    @Test
+    void sendsOnceBufferIsFull () throws Exception {
+        
+        this.batcher.setMaxBuffered(2);
+        this.batcher.submit(embed("a"));
+        this.batcher.submit(embed("b")).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(2, this.transport.awaitMessages(1).get(0).getEmbeds().size());
+    }
+    
+    @Test
+    void sendsOnceLingerRunsOut () throws Exception {
+        
+        this.batcher.setLinger(10, TimeUnit.MILLISECONDS);
+        
+        assertEquals(204, this.batcher.submit(embed("a")).get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+    
+    @Test
+    void failsEveryMessageInFailedRequest () {
+        
+        this.transport.failing = true;
+        
+        final CompletableFuture<Response> first = this.batcher.submit(embed("a"));
+        final CompletableFuture<Response> second = this.batcher.submit(embed("b"));
+        this.batcher.flush();
+        
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void closeSendsBufferedMessages () throws Exception {
+        
+        final CompletableFuture<Response> buffered = this.batcher.submit(embed("a"));
+        this.batcher.close();
+        
+        assertEquals(204, buffered.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertTrue(this.batcher.submit(embed("b")).isCompletedExceptionally());
+    }
+    
+    private static Message embed (String title) {
+        
+        return new Message().addEmbed(new Embed().setTitle(title));
+    }
+    
+    private static String repeat (char c, int times) {
+        
+        final StringBuilder builder = new StringBuilder(times);
+        
+        for (int i = 0; i < times; i++) {
+            
+            builder.append(c);
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * A transport which answers every request right away and keeps the messages it was sent.
+     */
+    private static final class RecordingTransport implements Transport {
+        
+        private final List<Message> messages = new ArrayList<>();
+        
+        private volatile boolean failing;
+        
+        @Override
+        public Response send (Request request) {
+            
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            final CompletableFuture<Response> future = new CompletableFuture<>();
+            
+            try {
+                
+                final String json = new String(request.getBody().toByteArray(), StandardCharsets.UTF_8);
+                
+                synchronized (this.messages) {
+                    
+                    this.messages.add(Json.fromJson(json));
+                }
+            }
+            
+            catch (final IOException e) {
+                
+                future.completeExceptionally(e);
+                return future;
+            }
+            
+            if (this.failing) {
+                
+                future.completeExceptionally(new IOException("Failed"));
+            }
+            
+            else {
+                
+                future.complete(new Response(204, name -> null));
+            }
+            
+            return future;
+        }
+        
+        /**
+         * Waits for an amount of messages to be sent.
+         * 
+         * @param amount The amount of messages to wait for.
+         * @return The messages, in the order they were sent.
+         */
+        private List<Message> awaitMessages (int amount) throws InterruptedException {
+            
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            
+            while (true) {
+                
+                synchronized (this.messages) {
+                    
+                    if (this.messages.size() >= amount) {
+                        
+                        assertEquals(amount, this.messages.size());
+                        return new ArrayList<>(this.messages);
+                    }
+                }
+                
+                assertTrue(System.nanoTime() < deadline, "Only " + this.messages.size() + " messages were sent");
+                Thread.sleep(1);
+            }
+        }
+    }
+}
\ No newline at end of file
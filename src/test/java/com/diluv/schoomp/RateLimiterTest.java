@@ -0,0 +1,219 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+    
+    private static final String BUCKET = "1";
+    
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    private static final long MARGIN = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private final RateLimiter limiter = new RateLimiter();
+    
+    /**
+     * An arbitrary start time, so the tests do not depend on the clock.
+     */
+    private final long start = 1_000 * SECOND;
+    
+    @Test
+    void assumesFiveRequestsForUnknownBuckets () {
+        
+        for (int i = 0; i < 5; i++) {
+            
+            assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        }
+        
+        assertTrue(this.limiter.reserve(BUCKET, this.start) > 0);
+    }
+    
+    @Test
+    void learnsLimitFromResponse () {
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        this.limiter.update(BUCKET, ok(2, 1, "1"), this.start);
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        
+        // The window ends when Discord says it does, plus a small margin.
+        assertEquals(SECOND + MARGIN, this.limiter.reserve(BUCKET, this.start));
+        assertTrue(this.limiter.claim(BUCKET, this.start + SECOND / 2) > 0);
+        assertEquals(0, this.limiter.claim(BUCKET, this.start + SECOND + MARGIN));
+    }
+    
+    @Test
+    void anchorsWindowToDiscord () {
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        
+        // The response took a while, so the window ends later than it would have locally.
+        this.limiter.update(BUCKET, ok(2, 1, "2"), this.start + SECOND);
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start + SECOND));
+        assertEquals(2 * SECOND + MARGIN, this.limiter.reserve(BUCKET, this.start + SECOND));
+    }
+    
+    @Test
+    void keepsLowerLocalCountWhileRequestsAreInFlight () {
+        
+        for (int i = 0; i < 3; i++) {
+            
+            assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        }
+        
+        // Discord only saw the first request, so it reports more remaining than are left.
+        this.limiter.update(BUCKET, ok(5, 4, "2"), this.start);
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        assertTrue(this.limiter.reserve(BUCKET, this.start) > 0);
+    }
+    
+    @Test
+    void carriesRequestsInFlightIntoNextWindow () {
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        this.limiter.update(BUCKET, ok(3, 2, "1"), this.start);
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        
+        // Two requests are unanswered when the window ends, so they may still land in the
+        // next one and only one slot is free.
+        final long next = this.start + SECOND;
+        assertEquals(0, this.limiter.reserve(BUCKET, next));
+        assertTrue(this.limiter.reserve(BUCKET, next) > 0);
+    }
+    
+    @Test
+    void lateResponseReturnsCarriedSlot () {
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        this.limiter.update(BUCKET, ok(2, 1, "1"), this.start);
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        
+        // The request is carried into the next window, which leaves one slot.
+        final long next = this.start + SECOND;
+        assertEquals(0, this.limiter.reserve(BUCKET, next));
+        
+        // Its response shows it was counted in the old window, so its slot is given back.
+        this.limiter.update(BUCKET, ok(2, 0, "0"), next);
+        assertEquals(0, this.limiter.reserve(BUCKET, next));
+        assertTrue(this.limiter.reserve(BUCKET, next) > 0);
+    }
+    
+    @Test
+    void waitsOutBucketRateLimit () {
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "3");
+        this.limiter.update(BUCKET, new Response(429, headers::get), this.start);
+        
+        assertEquals(3 * SECOND + MARGIN, this.limiter.reserve(BUCKET, this.start));
+        assertEquals(0, this.limiter.claim(BUCKET, this.start + 3 * SECOND + MARGIN));
+    }
+    
+    @Test
+    void recoversFromRateLimitOfForgottenBucket () {
+        
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start));
+        assertTrue(this.limiter.forget(BUCKET));
+        
+        // The response to the request in flight arrives at a new bucket that knows nothing.
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "1");
+        this.limiter.update(BUCKET, new Response(429, headers::get), this.start);
+        
+        assertEquals(SECOND + MARGIN, this.limiter.reserve(BUCKET, this.start));
+        assertEquals(0, this.limiter.claim(BUCKET, this.start + SECOND + MARGIN));
+        assertEquals(0, this.limiter.reserve(BUCKET, this.start + SECOND + MARGIN));
+    }
+    
+    @Test
+    void cancelReturnsSlot () {
+        
+        for (int i = 0; i < 5; i++) {
+            
+            this.limiter.reserve(BUCKET, this.start);
+        }
+        
+        assertTrue(this.limiter.reserve(BUCKET, this.start) > 0);
+        
+        this.limiter.cancel(BUCKET);
+        assertEquals(0, this.limiter.claim(BUCKET, this.start));
+    }
+    
+    @Test
+    void bucketsAreSeparate () {
+        
+        for (int i = 0; i < 5; i++) {
+            
+            this.limiter.reserve(BUCKET, this.start);
+        }
+        
+        assertEquals(0, this.limiter.reserve("2", this.start));
+    }
+    
+    @Test
+    void spacesRequestsUnderGlobalLimit () {
+        
+        final RateLimiter limiter = new RateLimiter(2);
+        final long now = System.nanoTime();
+        
+        assertEquals(0, limiter.reserveGlobal(now));
+        assertEquals(SECOND / 2, limiter.reserveGlobal(now));
+    }
+    
+    @Test
+    void waitsOutGlobalRateLimit () {
+        
+        final long now = System.nanoTime();
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "2");
+        headers.put("X-RateLimit-Global", "true");
+        
+        this.limiter.update(BUCKET, new Response(429, headers::get), now);
+        assertTrue(this.limiter.reserveGlobal(now) >= 2 * SECOND);
+    }
+    
+    @Test
+    void readsBucketIdFromUrl () {
+        
+        assertEquals("123", RateLimiter.getBucketId("https://discord.com/api/webhooks/123/token"));
+        assertEquals("https://example.com/hook", RateLimiter.getBucketId("https://example.com/hook"));
+    }
+    
+    @Test
+    void rejectsGlobalLimitBelowOne () {
+        
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0));
+    }
+    
+    /**
+     * Creates a successful response with rate limit headers.
+     * 
+     * @param limit The amount of requests allowed in a window.
+     * @param remaining The amount of requests left in the window.
+     * @param resetAfter The seconds until the window ends.
+     * @return The response.
+     */
+    private static Response ok (int limit, int remaining, String resetAfter) {
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", Integer.toString(limit));
+        headers.put("X-RateLimit-Remaining", Integer.toString(remaining));
+        headers.put("X-RateLimit-Reset-After", resetAfter);
+        return new Response(204, headers::get);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class ResponseTest {
+    
+    private static final String MESSAGE = "{\"id\":\"1001\",\"type\":0,\"content\":\"Hello\",\"channel_id\":\"2002\","
+            + "\"author\":{\"id\":\"3003\",\"username\":\"Test\",\"bot\":true},"
+            + "\"embeds\":[{\"title\":\"nested {\\\"id\\\":\\\"wrong\\\"}\",\"fields\":[{\"name\":\"a\",\"value\":\"b\"}]}],"
+            + "\"attachments\":[{\"id\":\"4004\",\"filename\":\"log.txt\",\"size\":1234,\"url\":\"https://cdn.discordapp.com/log.txt\","
+            + "\"proxy_url\":\"https://media.discordapp.net/log.txt\",\"content_type\":\"text/plain\",\"width\":null,\"ephemeral\":false}],"
+            + "\"mentions\":[],\"pinned\":false,\"timestamp\":\"2021-05-01T12:30:45.123000+00:00\",\"edited_timestamp\":null,\"flags\":0}";
+    
+    @Test
+    void readsCreatedMessage () {
+        
+        final Response response = new Response(200, name -> null, bytes(MESSAGE));
+        
+        assertEquals("1001", response.getMessageId());
+        assertEquals("2002", response.getChannelId());
+        assertEquals(OffsetDateTime.parse("2021-05-01T12:30:45.123Z"), response.getTimestamp());
+        assertNull(response.getEditedTimestamp());
+        
+        final List<Response.Attachment> attachments = response.getAttachments();
+        
+        assertEquals(1, attachments.size());
+        assertEquals("4004", attachments.get(0).getId());
+        assertEquals("log.txt", attachments.get(0).getFilename());
+        assertEquals(1234, attachments.get(0).getSize());
+        assertEquals("https://cdn.discordapp.com/log.txt", attachments.get(0).getUrl());
+        assertEquals("https://media.discordapp.net/log.txt", attachments.get(0).getProxyUrl());
+        assertEquals("text/plain", attachments.get(0).getContentType());
+    }
+    
+    @Test
+    void readsEditedTimestamp () {
+        
+        final Response response = new Response(200, name -> null, bytes("{\"id\":\"1\",\"edited_timestamp\":\"2021-05-01T13:00:00+02:00\",\"timestamp\":\"not a time\"}"));
+        
+        assertEquals(OffsetDateTime.parse("2021-05-01T13:00:00+02:00"), response.getEditedTimestamp());
+        assertNull(response.getTimestamp());
+    }
+    
+    @Test
+    void ignoresBodiesThatAreNotMessages () {
+        
+        assertNoMessage(new Response(204, name -> null));
+        assertNoMessage(new Response(200, name -> null, new byte[0]));
+        assertNoMessage(new Response(200, name -> null, bytes("[{\"id\":\"1\"}]")));
+        assertNoMessage(new Response(200, name -> null, bytes("{\"channel_id\":\"2\"}")));
+        assertNoMessage(new Response(200, name -> null, bytes("<html>Bad gateway</html>")));
+        assertNoMessage(new Response(200, name -> null, bytes("{\"id\":\"1\",\"attachments\":[{\"size\":\"big\"}]}")));
+        
+        // Error bodies are never read as messages.
+        assertNoMessage(new Response(400, name -> null, bytes("{\"id\":\"1\",\"code\":50006}")));
+    }
+    
+    @Test
+    void prefersRateLimitBodyOverHeaders () {
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "2");
+        
+        final Response response = new Response(429, headers::get, bytes("{\"message\":\"You are being rate limited.\",\"retry_after\":1.234,\"global\":true}"));
+        
+        assertTrue(response.isRateLimited());
+        assertTrue(response.isGlobal());
+        assertEquals(1234, response.getRetryAfterMillis());
+        assertNull(response.getMessageId());
+        
+        // A body that can not be read falls back to the headers.
+        assertEquals(2000, new Response(429, headers::get, bytes("Too many requests")).getRetryAfterMillis());
+    }
+    
+    @Test
+    void readsRateLimitHeaders () {
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", "5");
+        headers.put("X-RateLimit-Remaining", " 4 ");
+        headers.put("X-RateLimit-Reset", "1470173023.123");
+        headers.put("X-RateLimit-Reset-After", "1.001");
+        headers.put("X-RateLimit-Global", "bogus");
+        
+        final Response response = new Response(204, headers::get);
+        
+        assertEquals(5, response.getRateLimit());
+        assertEquals(4, response.getRateLimitRemaining());
+        assertEquals(1470173023L, response.getRateLimitReset());
+        assertEquals(2, response.getRateLimitResetAfter());
+        assertEquals(1001, response.getRateLimitResetAfterMillis());
+        assertFalse(response.isGlobal());
+        assertFalse(response.isRateLimited());
+        assertEquals(-1, response.getRetryAfterMillis());
+        assertNull(response.getRateLimitGlobal());
+        assertEquals(7, response.getRateLimitGlobal(7));
+    }
+    
+    @Test
+    void webhookWaitsForMessage () throws Exception {
+        
+        final String[] url = new String[1];
+        final Transport transport = new Transport() {
+            
+            @Override
+            public Response send (Request request) {
+                
+                url[0] = request.getUrl();
+                return new Response(200, name -> null, bytes(MESSAGE));
+            }
+            
+            @Override
+            public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+                
+                throw new UnsupportedOperationException();
+            }
+        };
+        
+        final Webhook webhook = new Webhook("https://discord.com/api/webhooks/1/token", "Test", transport).setRateLimiter(null).setWait(true);
+        final Response response = webhook.sendMessage(new Message().setContent("Hello"));
+        
+        assertTrue(url[0].contains("wait=true"));
+        assertEquals("1001", response.getMessageId());
+    }
+    
+    private static void assertNoMessage (Response response) {
+        
+        assertNull(response.getMessageId());
+        assertNull(response.getChannelId());
+        assertNull(response.getTimestamp());
+        assertTrue(response.getAttachments().isEmpty());
+    }
+    
+    private static byte[] bytes (String text) {
+        
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+    
+    private final RetryPolicy policy = new RetryPolicy();
+    
+    @Test
+    void retriesTransientStatusCodes () {
+        
+        assertTrue(this.policy.shouldRetry(1, response(429)));
+        assertTrue(this.policy.shouldRetry(1, response(503)));
+        assertFalse(this.policy.shouldRetry(1, response(400)));
+        assertFalse(this.policy.shouldRetry(1, response(404)));
+        assertFalse(this.policy.shouldRetry(1, response(500)));
+    }
+    
+    @Test
+    void stopsAfterMaxAttempts () {
+        
+        assertTrue(this.policy.shouldRetry(2, response(503)));
+        assertFalse(this.policy.shouldRetry(3, response(503)));
+        assertFalse(RetryPolicy.none().shouldRetry(1, response(503)));
+    }
+    
+    @Test
+    void retriesOnlyErrorsBeforeAnythingWasSent () {
+        
+        assertTrue(this.policy.shouldRetry(1, new ConnectException("Connection refused")));
+        assertTrue(this.policy.shouldRetry(1, new IOException("Wrapped", new ConnectException("Connection refused"))));
+        
+        // The request may have reached Discord before these happened.
+        assertFalse(this.policy.shouldRetry(1, new SocketException("Connection reset")));
+        assertFalse(this.policy.shouldRetry(1, new IOException("Broken pipe")));
+        assertFalse(this.policy.shouldRetry(1, new SocketTimeoutException("Read timed out")));
+    }
+    
+    @Test
+    void retriesResetsWhenAllowed () {
+        
+        final RetryPolicy policy = this.policy.withRetryOnReset(true);
+        
+        assertTrue(policy.shouldRetry(1, new SocketException("Connection reset")));
+        assertTrue(policy.shouldRetry(1, new IOException("Wrapped", new IOException("Broken pipe"))));
+        assertFalse(policy.shouldRetry(1, new SocketTimeoutException("Connection reset")));
+    }
+    
+    @Test
+    void copiesLeaveOriginalUnchanged () {
+        
+        final RetryPolicy copy = this.policy.withMaxAttempts(5).withRetryOnReset(true);
+        
+        assertEquals(5, copy.getMaxAttempts());
+        assertTrue(copy.isRetryOnReset());
+        assertEquals(3, this.policy.getMaxAttempts());
+        assertFalse(this.policy.isRetryOnReset());
+    }
+    
+    @Test
+    void growsBackoffUpToMax () {
+        
+        final RetryPolicy policy = this.policy.withBackoff(100, 1000, TimeUnit.MILLISECONDS).withMultiplier(3).withJitter(0);
+        
+        assertEquals(100, policy.getDelayMillis(1, null));
+        assertEquals(300, policy.getDelayMillis(2, null));
+        assertEquals(900, policy.getDelayMillis(3, null));
+        assertEquals(1000, policy.getDelayMillis(4, null));
+    }
+    
+    @Test
+    void removesAtMostJitterOfBackoff () {
+        
+        final RetryPolicy policy = this.policy.withBackoff(1000, 1000, TimeUnit.MILLISECONDS).withJitter(0.25);
+        
+        for (int i = 0; i < 100; i++) {
+            
+            final long delay = policy.getDelayMillis(1, null);
+            assertTrue(delay >= 750 && delay <= 1000, "Delay " + delay + " is out of range");
+        }
+    }
+    
+    @Test
+    void waitsAsLongAsDiscordSays () {
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "2.5");
+        
+        assertEquals(2500, this.policy.getDelayMillis(1, new Response(429, headers::get)));
+        
+        headers.clear();
+        headers.put("X-RateLimit-Remaining", "0");
+        headers.put("X-RateLimit-Reset-After", "1.5");
+        
+        assertEquals(1500, this.policy.getDelayMillis(1, new Response(503, headers::get)));
+    }
+    
+    @Test
+    void rejectsInvalidSettings () {
+        
+        assertThrows(IllegalArgumentException.class, () -> this.policy.withMaxAttempts(0));
+        assertThrows(IllegalArgumentException.class, () -> this.policy.withBackoff(10, 5, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> this.policy.withMultiplier(0.5));
+        assertThrows(IllegalArgumentException.class, () -> this.policy.withJitter(1.5));
+    }
+    
+    private static Response response (int statusCode) {
+        
+        return new Response(statusCode, name -> null);
+    }
+}
\ No newline at end of file
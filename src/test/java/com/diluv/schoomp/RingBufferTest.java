@@ -0,0 +1,127 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+    
+    @Test
+    void roundsCapacityUpToPowerOfTwo () {
+        
+        assertEquals(1, new RingBuffer<>(1).capacity());
+        assertEquals(8, new RingBuffer<>(5).capacity());
+        assertEquals(16, new RingBuffer<>(16).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+    
+    @Test
+    void rejectsElementsWhenFull () {
+        
+        final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        
+        for (int i = 0; i < 4; i++) {
+            
+            assertTrue(buffer.offer(i));
+        }
+        
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+        
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+    }
+    
+    @Test
+    void keepsOrderAcrossWrapAround () {
+        
+        final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        int next = 0;
+        
+        for (int i = 0; i < 1000; i++) {
+            
+            assertTrue(buffer.offer(i));
+            
+            // The buffer is drained a little slower than it is filled until it is full.
+            if (i % 3 != 0 || buffer.size() == buffer.capacity()) {
+                
+                assertEquals(next++, buffer.poll());
+            }
+        }
+        
+        while (buffer.size() > 0) {
+            
+            assertEquals(next++, buffer.poll());
+        }
+        
+        assertEquals(1000, next);
+        assertNull(buffer.poll());
+    }
+    
+    @Test
+    void handsEveryElementToOneConsumer () throws InterruptedException {
+        
+        final RingBuffer<Long> buffer = new RingBuffer<>(64);
+        final int producers = 4;
+        final int perProducer = 50_000;
+        final List<Thread> threads = new ArrayList<>();
+        
+        for (int p = 0; p < producers; p++) {
+            
+            final long base = (long) p * perProducer;
+            final Thread thread = new Thread( () -> {
+                
+                for (long i = 0; i < perProducer; i++) {
+                    
+                    while (!buffer.offer(base + i)) {
+                        
+                        Thread.yield();
+                    }
+                }
+            });
+            
+            threads.add(thread);
+            thread.start();
+        }
+        
+        long sum = 0;
+        final long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        
+        for (int received = 0; received < producers * perProducer;) {
+            
+            final Long element = buffer.poll();
+            
+            if (element == null) {
+                
+                Thread.yield();
+                continue;
+            }
+            
+            // Elements from the same producer come out in the order they went in.
+            final int producer = (int) (element / perProducer);
+            assertTrue(element > lastSeen[producer]);
+            lastSeen[producer] = element;
+            
+            sum += element;
+            received++;
+        }
+        
+        for (final Thread thread : threads) {
+            
+            thread.join();
+        }
+        
+        final long total = (long) producers * perProducer;
+        assertEquals(total * (total - 1) / 2, sum);
+        assertNull(buffer.poll());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class SendQueueTest {
+    
+    private final HeldTransport transport = new HeldTransport();
+    
+    private final Webhook webhook = new Webhook("https://discord.com/api/webhooks/1/token", "Test", this.transport).setRateLimiter(null);
+    
+    private SendQueue queue;
+    
+    @AfterEach
+    void close () {
+        
+        if (this.queue != null) {
+            
+            this.transport.open();
+            this.queue.close();
+        }
+    }
+    
+    @Test
+    void dropNewestKeepsQueuedMessages () throws InterruptedException {
+        
+        this.fill(OverflowPolicy.DROP_NEWEST);
+        
+        assertFalse(this.queue.offer(message("3")));
+        assertEquals(1, this.queue.getDroppedNewest());
+        assertEquals(2, this.queue.size());
+        
+        assertEquals(contents("0", "1", "2"), this.transport.releaseAll(3));
+    }
+    
+    @Test
+    void dropOldestMakesRoomForNewMessages () throws InterruptedException {
+        
+        this.fill(OverflowPolicy.DROP_OLDEST);
+        
+        assertTrue(this.queue.offer(message("3")));
+        assertEquals(1, this.queue.getDroppedOldest());
+        assertEquals(2, this.queue.size());
+        
+        assertEquals(contents("0", "2", "3"), this.transport.releaseAll(3));
+    }
+    
+    @Test
+    void failFastThrows () throws InterruptedException {
+        
+        this.fill(OverflowPolicy.FAIL_FAST);
+        
+        assertThrows(IllegalStateException.class, () -> this.queue.offer(message("3")));
+        assertEquals(1, this.queue.getRejected());
+        assertEquals(2, this.queue.size());
+    }
+    
+    @Test
+    void blockWaitsForRoom () throws InterruptedException {
+        
+        this.fill(OverflowPolicy.BLOCK);
+        
+        final AtomicBoolean added = new AtomicBoolean();
+        final Thread producer = new Thread( () -> added.set(this.queue.offer(message("3"))));
+        producer.start();
+        
+        producer.join(100);
+        assertTrue(producer.isAlive());
+        assertEquals(1, this.queue.getBlocked());
+        
+        // Answering the request in flight lets the consumer take a message, which frees a slot.
+        this.transport.release();
+        producer.join(5000);
+        assertTrue(added.get());
+        
+        assertEquals(contents("0", "1", "2", "3"), this.transport.releaseAll(3));
+    }
+    
+    @Test
+    void limitsQueueByEncodedSize () throws InterruptedException {
+        
+        this.queue = new SendQueue(this.webhook, 16, OverflowPolicy.DROP_NEWEST).setMaxInFlight(1);
+        this.queue.offer(message("0"));
+        this.transport.awaitRequest();
+        
+        final Message large = message(repeat('x', 500));
+        this.queue.setMaxBytes(large.estimatedSize() + 10);
+        
+        // A message larger than the limit is still accepted by an empty queue.
+        assertTrue(this.queue.offer(large));
+        assertEquals(large.estimatedSize(), this.queue.getBytes());
+        assertFalse(this.queue.offer(message(repeat('y', 100))));
+        assertEquals(1, this.queue.getDroppedNewest());
+    }
+    
+    /**
+     * Creates a queue with room for two messages, and fills it while a first message is held
+     * in flight.
+     * 
+     * @param policy The overflow policy of the queue.
+     */
+    private void fill (OverflowPolicy policy) throws InterruptedException {
+        
+        this.queue = new SendQueue(this.webhook, 2, policy).setMaxInFlight(1);
+        
+        assertTrue(this.queue.offer(message("0")));
+        this.transport.awaitRequest();
+        
+        assertTrue(this.queue.offer(message("1")));
+        assertTrue(this.queue.offer(message("2")));
+        assertEquals(2, this.queue.size());
+    }
+    
+    private static Message message (String content) {
+        
+        return new Message().setContent(content);
+    }
+    
+    private static List<String> contents (String... contents) {
+        
+        final List<String> bodies = new ArrayList<>();
+        
+        for (final String content : contents) {
+            
+            bodies.add(new String(message(content).toBytes(), StandardCharsets.UTF_8));
+        }
+        
+        return bodies;
+    }
+    
+    private static String repeat (char c, int times) {
+        
+        final char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+    
+    /**
+     * A transport which holds every request until the test answers it.
+     */
+    private static final class HeldTransport implements Transport {
+        
+        private final BlockingQueue<CompletableFuture<Response>> held = new LinkedBlockingQueue<>();
+        
+        private final List<String> bodies = new ArrayList<>();
+        
+        private boolean open;
+        
+        @Override
+        public Response send (Request request) {
+            
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            final CompletableFuture<Response> future = new CompletableFuture<>();
+            
+            synchronized (this.bodies) {
+                
+                try {
+                    
+                    this.bodies.add(new String(request.getBody().toByteArray(), StandardCharsets.UTF_8));
+                }
+                
+                catch (final IOException e) {
+                    
+                    future.completeExceptionally(e);
+                    return future;
+                }
+                
+                if (!this.open) {
+                    
+                    this.held.add(future);
+                    return future;
+                }
+            }
+            
+            future.complete(new Response(204, name -> null));
+            return future;
+        }
+        
+        /**
+         * Waits for a request to be held, without answering it.
+         */
+        private void awaitRequest () throws InterruptedException {
+            
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            
+            while (this.held.isEmpty()) {
+                
+                assertTrue(System.nanoTime() < deadline, "No request was sent");
+                Thread.sleep(1);
+            }
+        }
+        
+        /**
+         * Waits for the next request and answers it.
+         */
+        private void release () throws InterruptedException {
+            
+            final CompletableFuture<Response> future = this.held.poll(5, TimeUnit.SECONDS);
+            assertNotNull(future, "No request was sent");
+            future.complete(new Response(204, name -> null));
+        }
+        
+        /**
+         * Answers requests until the given amount have been sent, and gets their bodies.
+         * 
+         * @param amount The amount of requests to wait for.
+         * @return The bodies of every request sent so far.
+         */
+        private List<String> releaseAll (int amount) throws InterruptedException {
+            
+            for (int i = 0; i < amount; i++) {
+                
+                this.release();
+            }
+            
+            synchronized (this.bodies) {
+                
+                return new ArrayList<>(this.bodies);
+            }
+        }
+        
+        /**
+         * Answers every request that is being held, and every request sent from now on.
+         */
+        private void open () {
+            
+            synchronized (this.bodies) {
+                
+                this.open = true;
+            }
+            
+            CompletableFuture<Response> future;
+            
+            while ((future = this.held.poll()) != null) {
+                
+                future.complete(new Response(204, name -> null));
+            }
+        }
+    }
+}
\ No newline at end of file
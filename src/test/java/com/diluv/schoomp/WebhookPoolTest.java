@@ -0,0 +1,240 @@
+package com.diluv.schoomp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class WebhookPoolTest {
+    
+    private final RecordingTransport transport = new RecordingTransport();
+    
+    private final WebhookPool pool = new WebhookPool(webhook("1"), webhook("2"));
+    
+    @Test
+    void takesTurnsWhileBudgetIsEqual () throws Exception {
+        
+        for (int i = 0; i < 4; i++) {
+            
+            this.pool.sendMessage(message());
+        }
+        
+        assertEquals(Arrays.asList("1", "2", "1", "2"), this.transport.getSentTo());
+    }
+    
+    @Test
+    void prefersWebhookWithMostBudget () throws Exception {
+        
+        this.transport.answer("1", ok(5, 1, "60"));
+        this.transport.answer("2", ok(5, 3, "60"));
+        this.learn();
+        
+        for (int i = 0; i < 3; i++) {
+            
+            this.pool.sendMessage(message());
+        }
+        
+        assertEquals(Arrays.asList("2", "2", "2"), this.transport.getSentTo());
+    }
+    
+    @Test
+    void spillsOverOnceWindowIsUsedUp () throws Exception {
+        
+        this.transport.answer("1", ok(5, 0, "60"));
+        this.learn();
+        
+        for (int i = 0; i < 4; i++) {
+            
+            this.pool.sendMessage(message());
+        }
+        
+        assertEquals(Arrays.asList("2", "2", "2", "2"), this.transport.getSentTo());
+    }
+    
+    @Test
+    void avoidsRateLimitedWebhook () throws Exception {
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "60");
+        
+        this.transport.answer("2", new Response(429, headers::get));
+        this.learn();
+        this.transport.answer("2", null);
+        
+        for (int i = 0; i < 3; i++) {
+            
+            this.pool.sendMessage(message());
+        }
+        
+        assertEquals(Arrays.asList("1", "1", "1"), this.transport.getSentTo());
+    }
+    
+    @Test
+    void picksWebhookThatResetsFirstWhenAllAreUsedUp () throws Exception {
+        
+        this.transport.answer("1", ok(5, 0, "30"));
+        this.transport.answer("2", ok(5, 0, "5"));
+        this.learn();
+        
+        this.pool.sendMessage(message());
+        
+        assertEquals(Collections.singletonList("2"), this.transport.getSentTo());
+    }
+    
+    @Test
+    void countsRequestsInFlight () throws Exception {
+        
+        this.transport.answer("1", ok(5, 3, "60"));
+        this.transport.answer("2", ok(5, 1, "60"));
+        this.learn();
+        
+        this.transport.holding = true;
+        
+        for (int i = 0; i < 4; i++) {
+            
+            this.pool.sendMessageAsync(message());
+        }
+        
+        final List<String> sentTo = this.transport.awaitSent(4);
+        assertEquals(3, Collections.frequency(sentTo, "1"));
+        assertEquals(1, Collections.frequency(sentTo, "2"));
+    }
+    
+    @Test
+    void rejectsEmptyPool () {
+        
+        assertThrows(IllegalArgumentException.class, () -> new WebhookPool());
+        assertThrows(IllegalArgumentException.class, () -> new WebhookPool(Collections.emptyList()));
+    }
+    
+    /**
+     * Sends one message through each webhook so the pool learns their rate limits, and
+     * forgets which webhooks were used.
+     */
+    private void learn () throws Exception {
+        
+        this.pool.sendMessage(message());
+        this.pool.sendMessage(message());
+        
+        assertEquals(2, this.transport.getSentTo().stream().distinct().count());
+        this.transport.clear();
+    }
+    
+    private Webhook webhook (String id) {
+        
+        return new Webhook("https://discord.com/api/webhooks/" + id + "/token", "Test", this.transport).setRateLimiter(null).setRetryPolicy(RetryPolicy.none());
+    }
+    
+    private static Message message () {
+        
+        return new Message().setContent("Hello");
+    }
+    
+    /**
+     * Creates a successful response with rate limit headers.
+     * 
+     * @param limit The amount of requests allowed in a window.
+     * @param remaining The amount of requests left in the window.
+     * @param resetAfter The seconds until the window ends.
+     * @return The response.
+     */
+    private static Response ok (int limit, int remaining, String resetAfter) {
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", Integer.toString(limit));
+        headers.put("X-RateLimit-Remaining", Integer.toString(remaining));
+        headers.put("X-RateLimit-Reset-After", resetAfter);
+        return new Response(204, headers::get);
+    }
+    
+    /**
+     * A transport which keeps the id of the webhook every request was sent to, and answers
+     * each webhook with a fixed response.
+     */
+    private static final class RecordingTransport implements Transport {
+        
+        private final List<String> sentTo = new ArrayList<>();
+        
+        private final Map<String, Response> answers = new HashMap<>();
+        
+        /**
+         * Whether requests are left unanswered.
+         */
+        private volatile boolean holding;
+        
+        @Override
+        public synchronized Response send (Request request) {
+            
+            final String id = RateLimiter.getBucketId(request.getUrl());
+            this.sentTo.add(id);
+            
+            final Response response = this.answers.get(id);
+            return response != null ? response : new Response(204, name -> null);
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            if (this.holding) {
+                
+                synchronized (this) {
+                    
+                    this.sentTo.add(RateLimiter.getBucketId(request.getUrl()));
+                }
+                
+                return new CompletableFuture<>();
+            }
+            
+            return CompletableFuture.completedFuture(this.send(request));
+        }
+        
+        private synchronized void answer (String id, Response response) {
+            
+            this.answers.put(id, response);
+        }
+        
+        private synchronized List<String> getSentTo () {
+            
+            return new ArrayList<>(this.sentTo);
+        }
+        
+        private synchronized void clear () {
+            
+            this.sentTo.clear();
+        }
+        
+        /**
+         * Waits for an amount of requests to be sent.
+         * 
+         * @param amount The amount of requests to wait for.
+         * @return The ids of the webhooks the requests were sent to.
+         */
+        private List<String> awaitSent (int amount) throws InterruptedException {
+            
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            
+            while (this.getSentTo().size() < amount) {
+                
+                assertTrue(System.nanoTime() < deadline, "Only " + this.getSentTo().size() + " requests were sent");
+                Thread.sleep(1);
+            }
+            
+            return this.getSentTo();
+        }
+    }
+}
\ No newline at end of file
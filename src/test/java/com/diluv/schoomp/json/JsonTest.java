@@ -0,0 +1,83 @@
+package com.diluv.schoomp.json;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Embed;
+
+class JsonTest {
+    
+    /**
+     * Text which needs every kind of escaping and encoding the writer handles.
+     */
+    private static final String TRICKY = "<b>\"Tom\" & 'Jerry'</b>\\ \t\n\r\u0000\u001f\u007f \u2028\u2029 caf\u00E9 \u4E2D\u6587 \uD83D\uDE00 =";
+    
+    @Test
+    void encodesSameBytesAsGson () {
+        
+        final Message message = new Message().setUsername(TRICKY).setContent(TRICKY).addEmbed(new Embed().setTitle(TRICKY).setDescription(TRICKY).addField(TRICKY, TRICKY, true));
+        
+        assertEquals(Json.GSON.toJson(message), new String(Json.toBytes(message), StandardCharsets.UTF_8));
+        assertArrayEquals(Json.GSON.toJson(message).getBytes(StandardCharsets.UTF_8), Json.toBytes(message));
+    }
+    
+    @Test
+    void encodesTextAcrossBufferBoundaries () throws IOException {
+        
+        // Every offset of a surrogate pair and an escape against the end of the buffer.
+        for (int padding = 0; padding < 8; padding++) {
+            
+            final Message message = new Message().setContent(repeat("x", 8 * 1024 - 20 + padding) + "\uD83D\uDE00\u00E9<" + repeat("\u4E2D", 5000));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Json.write(message, out);
+            
+            assertArrayEquals(Json.GSON.toJson(message).getBytes(StandardCharsets.UTF_8), out.toByteArray(), "Wrong encoding with padding " + padding);
+        }
+    }
+    
+    @Test
+    void reusesBuffersWithoutLeakingContent () {
+        
+        Json.toBytes(new Message().setContent(repeat("long ", 10_000)));
+        
+        assertEquals("{\"content\":\"short\",\"tts\":false}", new String(Json.toBytes(new Message().setContent("short")), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void streamsUnfrozenMessages () throws IOException {
+        
+        final Message message = new Message().setContent(TRICKY);
+        final JsonBody body = new JsonBody(message);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        
+        assertEquals(-1, body.getContentLength());
+        assertArrayEquals(body.toByteArray(), out.toByteArray());
+        assertEquals(Json.CONTENT_TYPE, body.getContentType());
+    }
+    
+    @Test
+    void measuresEscapedText () {
+        
+        assertEquals(Json.GSON.toJson(TRICKY).getBytes(StandardCharsets.UTF_8).length - 2, Utf8Writer.getEscapedLength(TRICKY));
+    }
+    
+    private static String repeat (String text, int times) {
+        
+        final StringBuilder builder = new StringBuilder(text.length() * times);
+        
+        for (int i = 0; i < times; i++) {
+            
+            builder.append(text);
+        }
+        
+        return builder.toString();
+    }
+}
\ No newline at end of file
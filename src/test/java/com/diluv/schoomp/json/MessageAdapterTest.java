@@ -0,0 +1,80 @@
+package com.diluv.schoomp.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Author;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.message.embed.Footer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+class MessageAdapterTest {
+    
+    /**
+     * Serializes the message classes by reflection, the way they were serialized before they
+     * had adapters.
+     */
+    private static final Gson REFLECTIVE = new GsonBuilder().registerTypeAdapter(OffsetDateTime.class, Json.TIME_SERIALIZER).create();
+    
+    @Test
+    void writesSameJsonAsReflection () {
+        
+        final Message message = new Message().setUsername("Alerts").setAvatarUrl("https://example.com/a.png?x=1&y=2").setContent("Hello <world>").setTts(true);
+        message.addEmbed(full());
+        message.addEmbed(new Embed().setDescription("Only a description"));
+        
+        assertEquals(REFLECTIVE.toJson(message), Json.toJson(message));
+        assertEquals(REFLECTIVE.toJson(message), new String(Json.toBytes(message), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void leavesOutUnsetMembers () {
+        
+        assertEquals(REFLECTIVE.toJson(new Message()), Json.toJson(new Message()));
+        assertEquals("{\"tts\":false}", Json.toJson(new Message()));
+        assertEquals(REFLECTIVE.toJson(new Message().addEmbed(new Embed())), Json.toJson(new Message().addEmbed(new Embed())));
+    }
+    
+    @Test
+    void readsWhatItWrites () {
+        
+        final Message message = new Message().setUsername("Alerts").setContent("Hello").addEmbed(full());
+        final String json = Json.toJson(message);
+        
+        assertEquals(json, Json.toJson(Json.fromJson(json)));
+    }
+    
+    @Test
+    void skipsUnknownAndNullMembers () {
+        
+        final Message message = Json.fromJson("{\"id\":\"1\",\"content\":\"hi\",\"username\":null,\"embeds\":[{\"type\":\"rich\",\"title\":\"t\",\"fields\":null}],\"flags\":{\"a\":[1,2]}}");
+        
+        assertEquals("hi", message.getContent());
+        assertNull(message.getUsername());
+        assertEquals("t", message.getEmbeds().get(0).getTitle());
+    }
+    
+    private static Embed full () {
+        
+        return new Embed()
+                .setTitle("Title")
+                .setUrl("https://example.com")
+                .setDescription("Line one\nLine two")
+                .setColor(0x3366ff)
+                .setAuthor(new Author("Author", "https://example.com/author", "https://example.com/author.png"))
+                .addField("Name", "Value", true)
+                .addField("Count", 42, false)
+                .setThumbnail("https://example.com/thumb.png")
+                .setImage("https://example.com/image.png")
+                .setFooter(new Footer("Footer", "https://example.com/footer.png"))
+                .setTimestamp(OffsetDateTime.of(2021, 3, 4, 5, 6, 7, 0, ZoneOffset.ofHours(2)));
+    }
+}
\ No newline at end of file
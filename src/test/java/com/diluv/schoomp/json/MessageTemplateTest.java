@@ -0,0 +1,104 @@
+package com.diluv.schoomp.json;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.message.embed.Footer;
+
+class MessageTemplateTest {
+    
+    private static final String TRICKY = "<a href=\"x\">\u00E9 & \\ \n\uD83D\uDE00</a>";
+    
+    @Test
+    void splicesSameJsonAsEncodedMessage () throws IOException {
+        
+        final MessageTemplate template = MessageTemplate.compile(alert("{service}", "{count}", MessageTemplate.TIMESTAMP));
+        final Instant now = Instant.parse("2021-03-04T05:06:07Z");
+        
+        final MessageTemplate.Filled filled = template.fill()
+                .set("service", TRICKY)
+                .set(template.getSlot("count"), 42)
+                .setTimestamp(now);
+        
+        assertArrayEquals(Json.toBytes(alert(TRICKY, "42", now.atOffset(ZoneOffset.UTC))), filled.toByteArray());
+    }
+    
+    @Test
+    void measuresFilledLength () throws IOException {
+        
+        final MessageTemplate.Filled filled = MessageTemplate.compile(alert("{service}", "{count}", null)).fill().set("service", TRICKY).set("count", "\u4E2D\u6587\t");
+        
+        assertEquals(filled.toByteArray().length, filled.getContentLength());
+    }
+    
+    @Test
+    void sharesSlotsByName () {
+        
+        final MessageTemplate template = MessageTemplate.compile(alert("{service}", "{service}-{count}", null));
+        
+        assertEquals(2, template.getSlots().size());
+        assertEquals("service", template.getSlot("service").getName());
+    }
+    
+    @Test
+    void leavesTextThatIsNotASlot () throws IOException {
+        
+        final Message message = new Message().setContent("{} {not a slot} {\"a\":1} {unclosed");
+        
+        assertArrayEquals(Json.toBytes(message), MessageTemplate.compile(message).fill().toByteArray());
+        assertEquals(0, MessageTemplate.compile(message).getSlots().size());
+    }
+    
+    @Test
+    void ignoresChangesToPrototype () throws IOException {
+        
+        final Message prototype = new Message().setContent("{service} is down");
+        final MessageTemplate template = MessageTemplate.compile(prototype);
+        prototype.setContent("changed");
+        
+        assertArrayEquals(Json.toBytes(new Message().setContent("db is down")), template.fill().set("service", "db").toByteArray());
+    }
+    
+    @Test
+    void reusesFilledMessages () throws IOException {
+        
+        final MessageTemplate.Filled filled = MessageTemplate.compile(new Message().setContent("{service} is down")).fill();
+        
+        filled.set("service", "a much longer service name");
+        filled.toByteArray();
+        
+        assertArrayEquals(Json.toBytes(new Message().setContent("b is down")), filled.set("service", "b").toByteArray());
+    }
+    
+    @Test
+    void rejectsMissingSlots () {
+        
+        final MessageTemplate template = MessageTemplate.compile(new Message().setContent("{service} is down"));
+        
+        assertThrows(IllegalArgumentException.class, () -> template.getSlot("other"));
+        assertThrows(IllegalStateException.class, () -> template.fill().toByteArray());
+    }
+    
+    private static Message alert (String service, String count, OffsetDateTime timestamp) {
+        
+        final Embed embed = new Embed()
+                .setTitle("Alert")
+                .setColor(0xff0000)
+                .addField("Service", service, true)
+                .addField("Failures", count, true)
+                .setFooter(new Footer("Reported by " + service))
+                .setTimestamp(timestamp);
+        
+        return new Message().setUsername("Alerts").setContent(service + " is down!").addEmbed(embed);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.diluv.schoomp.json;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.diluv.schoomp.message.Attachment;
+import com.diluv.schoomp.message.Message;
+
+class MultipartBodyTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void knowsLengthUpFront () throws IOException {
+        
+        final MultipartBody body = new MultipartBody(this.message());
+        final byte[] written = body.toByteArray();
+        
+        assertEquals(written.length, body.getContentLength());
+        assertArrayEquals(written, concat(body.toBuffers()));
+    }
+    
+    @Test
+    void sendsPayloadAndFiles () throws IOException {
+        
+        final Message message = this.message();
+        final MultipartBody body = new MultipartBody(message);
+        final String boundary = body.getContentType().substring("multipart/form-data; boundary=".length());
+        final String written = new String(body.toByteArray(), StandardCharsets.ISO_8859_1);
+        
+        assertTrue(body.getContentType().startsWith("multipart/form-data; boundary="));
+        assertTrue(written.startsWith("--" + boundary + "\r\nContent-Disposition: form-data; name=\"payload_json\"\r\nContent-Type: " + Json.CONTENT_TYPE + "\r\n\r\n"));
+        assertTrue(written.contains(new String(message.toBytes(), StandardCharsets.ISO_8859_1) + "\r\n--" + boundary + "\r\n"));
+        assertTrue(written.contains("name=\"files[0]\"; filename=\"small.txt\"\r\nContent-Type: application/octet-stream\r\n\r\nHello, file!\r\n--" + boundary));
+        assertTrue(written.contains("name=\"files[1]\"; filename=\"large.bin\""));
+        assertTrue(written.endsWith("\r\n--" + boundary + "--\r\n"));
+        
+        // The large file is sent byte for byte.
+        final byte[] large = Files.readAllBytes(this.directory.resolve("large.bin"));
+        assertTrue(written.contains(new String(large, StandardCharsets.ISO_8859_1)));
+    }
+    
+    @Test
+    void returnsPayload () throws IOException {
+        
+        final Message message = this.message();
+        final MultipartBody body = new MultipartBody(message);
+        final byte[] payload = body.getPayload();
+        
+        assertArrayEquals(message.toBytes(), payload);
+        
+        // The payload is a copy, so changing it does not change the body.
+        payload[0] = 'x';
+        assertArrayEquals(message.toBytes(), body.getPayload());
+    }
+    
+    @Test
+    void escapesFilenames () throws IOException {
+        
+        final Path file = Files.write(this.directory.resolve("file.txt"), new byte[] { 1 });
+        final Message message = new Message().addAttachment(new Attachment("a\"b\r\nc.txt", file));
+        final String written = new String(new MultipartBody(message).toByteArray(), StandardCharsets.UTF_8);
+        
+        assertTrue(written.contains("filename=\"a%22b%0D%0Ac.txt\""));
+    }
+    
+    @Test
+    void failsWhenFileChangesSize () throws IOException {
+        
+        final Message message = this.message();
+        final MultipartBody body = new MultipartBody(message);
+        
+        Files.write(this.directory.resolve("small.txt"), "Hello, longer file!".getBytes(StandardCharsets.UTF_8));
+        
+        assertThrows(IOException.class, () -> body.writeTo(new ByteArrayOutputStream()));
+        assertThrows(IOException.class, body::toBuffers);
+    }
+    
+    private Message message () throws IOException {
+        
+        final byte[] large = new byte[300_000];
+        new Random(42).nextBytes(large);
+        
+        final Path small = Files.write(this.directory.resolve("small.txt"), "Hello, file!".getBytes(StandardCharsets.UTF_8));
+        final Path file = Files.write(this.directory.resolve("large.bin"), large);
+        
+        return new Message().setContent("Files").addAttachment(small).addAttachment(file);
+    }
+    
+    private static byte[] concat (ByteBuffer[] buffers) {
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        for (final ByteBuffer buffer : buffers) {
+            
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+        
+        return out.toByteArray();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.diluv.schoomp.message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class ContentSplitterTest {
+    
+    private static final int LIMIT = 2000;
+    
+    private static final Pattern EMPTY_BLOCK = Pattern.compile("```\\w*\n```$");
+    
+    @Test
+    void keepsTextThatFits () {
+        
+        final String text = repeat("word ", 400);
+        final List<String> parts = ContentSplitter.split(text, LIMIT);
+        
+        assertEquals(1, parts.size());
+        assertSame(text, parts.get(0));
+    }
+    
+    @Test
+    void splitsBetweenLines () {
+        
+        final StringBuilder text = new StringBuilder();
+        
+        for (int i = 0; i < 500; i++) {
+            
+            text.append("line ").append(i).append('\n');
+        }
+        
+        final List<String> parts = check(text.toString());
+        
+        // Only the new lines the text was split on are lost.
+        assertEquals(text.toString().trim(), String.join("\n", parts));
+    }
+    
+    @Test
+    void reopensCodeBlocksWithTheirLanguage () {
+        
+        final List<String> parts = check("Some code:\n```java\n" + repeat("int x = 0;\n", 400) + "```\nDone.");
+        
+        assertTrue(parts.size() > 1);
+        
+        for (int i = 1; i < parts.size(); i++) {
+            
+            assertTrue(parts.get(i).startsWith("```java\n"), "Part " + i + " does not reopen the block");
+        }
+        
+        assertTrue(parts.get(parts.size() - 1).endsWith("```\nDone."));
+    }
+    
+    @Test
+    void tracksFencesInsideLongLines () {
+        
+        check(repeat("abc ", 625) + "```py " + repeat("def ", 625));
+        check(repeat("abc ", 498) + "```py\n" + repeat("def ", 625));
+        check(repeat("a ", 997) + "```python" + repeat("y ", 1500));
+    }
+    
+    @Test
+    void doesNotEndPartsWithEmptyCodeBlocks () {
+        
+        final List<String> parts = check("intro ```java\n" + repeat("x ", 2500) + "\n```\nafter");
+        
+        assertTrue(parts.get(0).startsWith("intro ```java\nx x"));
+        
+        final List<String> later = check(repeat("t ", 250) + "\nintro ```java\n" + repeat("x ", 2500) + "\n```\nafter");
+        
+        assertTrue(later.get(1).startsWith("intro ```java\nx x"));
+    }
+    
+    @Test
+    void keepsSurrogatePairsTogether () {
+        
+        final String text = repeat("\uD83D\uDE00", 2500);
+        final List<String> parts = check(text);
+        
+        assertEquals(text, String.join("", parts));
+        
+        for (final String part : parts) {
+            
+            assertFalse(Character.isHighSurrogate(part.charAt(part.length() - 1)));
+            assertFalse(Character.isLowSurrogate(part.charAt(0)));
+        }
+    }
+    
+    @Test
+    void splitsLongLinesBetweenWords () {
+        
+        final List<String> parts = check(repeat("seven ", 1000));
+        
+        for (int i = 0; i < parts.size() - 1; i++) {
+            
+            assertTrue(parts.get(i).endsWith("seven "), "Part " + i + " was split inside a word");
+        }
+    }
+    
+    @Test
+    void dropsBlankTextBetweenParts () {
+        
+        final List<String> parts = check("\n" + repeat("a", 2500));
+        
+        assertEquals(2, parts.size());
+        assertEquals(repeat("a", 2500), String.join("", parts).trim());
+        
+        check(repeat("\n", 1999) + repeat("b", 100));
+        check("\n\n\t ```java\n" + repeat("\uD83D\uDE00", 1200));
+        check("text\n" + repeat(" ", 3000) + "\ntext");
+        check("```\n" + repeat("c", 1990) + "\n" + repeat("\n", 20) + repeat("d", 2500) + "\n```");
+        
+        assertTrue(ContentSplitter.split(repeat(" \n", 1500), LIMIT).isEmpty());
+        assertEquals(1, new Message().setContent(repeat(" \n", 1500)).split().size());
+    }
+    
+    @Test
+    void neverCreatesBlankParts () {
+        
+        final String[] pieces = { "\n", "\n\n", " ", "\t", "word ", "x", "```", "```java\n", "```py ", "\uD83D\uDE00" };
+        final Random random = new Random(42);
+        
+        for (int i = 0; i < 2000; i++) {
+            
+            final StringBuilder text = new StringBuilder();
+            final int length = LIMIT + 1 + random.nextInt(3 * LIMIT);
+            
+            while (text.length() < length) {
+                
+                final String piece = pieces[random.nextInt(pieces.length)];
+                final int times = random.nextInt(8) == 0 ? 1 + random.nextInt(LIMIT) : 1 + random.nextInt(4);
+                text.append(repeat(piece, times));
+            }
+            
+            for (final String part : ContentSplitter.split(text.toString(), LIMIT)) {
+                
+                assertTrue(part.length() <= LIMIT);
+                assertFalse(part.trim().isEmpty(), "Blank part for text " + i);
+            }
+        }
+    }
+    
+    @Test
+    void rejectsTinyLimits () {
+        
+        assertThrows(IllegalArgumentException.class, () -> ContentSplitter.split(repeat("x", 100), 20));
+    }
+    
+    /**
+     * Splits text and checks that every part fits, is not empty, and closes every code block
+     * it opens without leaving it empty.
+     * 
+     * @param text The text to split.
+     * @return The parts of the text.
+     */
+    private static List<String> check (String text) {
+        
+        final List<String> parts = ContentSplitter.split(text, LIMIT);
+        
+        for (int i = 0; i < parts.size(); i++) {
+            
+            final String part = parts.get(i);
+            
+            assertTrue(part.length() <= LIMIT, "Part " + i + " is " + part.length() + " characters long");
+            assertFalse(part.trim().isEmpty(), "Part " + i + " is empty");
+            assertFalse(EMPTY_BLOCK.matcher(part).find(), "Part " + i + " ends with an empty code block");
+            assertEquals(0, countFences(part) % 2, "Part " + i + " leaves a code block open");
+        }
+        
+        return parts;
+    }
+    
+    private static int countFences (String text) {
+        
+        int count = 0;
+        
+        for (int index = text.indexOf("```"); index >= 0; index = text.indexOf("```", index + 3)) {
+            
+            count++;
+        }
+        
+        return count;
+    }
+    
+    private static String repeat (String text, int times) {
+        
+        final StringBuilder builder = new StringBuilder(text.length() * times);
+        
+        for (int i = 0; i < times; i++) {
+            
+            builder.append(text);
+        }
+        
+        return builder.toString();
+    }
+}
\ No newline at end of file
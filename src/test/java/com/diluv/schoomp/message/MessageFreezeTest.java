@@ -0,0 +1,123 @@
+package com.diluv.schoomp.message;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.json.JsonBody;
+import com.diluv.schoomp.message.embed.Author;
+import com.diluv.schoomp.message.embed.Embed;
+import com.diluv.schoomp.message.embed.Footer;
+
+class MessageFreezeTest {
+    
+    @Test
+    void copiesTheMessage () {
+        
+        final Message message = message();
+        final Message frozen = message.freeze();
+        
+        assertNotSame(message, frozen);
+        assertTrue(frozen.isFrozen());
+        assertFalse(message.isFrozen());
+        assertArrayEquals(Json.toBytes(message), frozen.toBytes());
+        
+        // The original can still be changed without affecting the copy.
+        message.setContent("Changed");
+        message.getEmbeds().get(0).setTitle("Changed");
+        
+        assertEquals("Hello", frozen.getContent());
+        assertEquals("Title", frozen.getEmbeds().get(0).getTitle());
+    }
+    
+    @Test
+    void rejectsChanges () {
+        
+        final Message frozen = message().freeze();
+        final Embed embed = frozen.getEmbeds().get(0);
+        
+        assertThrows(IllegalStateException.class, () -> frozen.setContent("Changed"));
+        assertThrows(IllegalStateException.class, () -> frozen.addEmbed(new Embed()));
+        assertThrows(IllegalStateException.class, frozen::reset);
+        assertThrows(IllegalStateException.class, () -> embed.setTitle("Changed"));
+        assertThrows(IllegalStateException.class, () -> embed.addField("a", "b", false));
+        assertThrows(IllegalStateException.class, () -> embed.getAuthor().setName("Changed"));
+        assertThrows(IllegalStateException.class, () -> embed.getFooter().setText("Changed"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getEmbeds().clear());
+    }
+    
+    @Test
+    void encodesOnlyOnce () {
+        
+        final Message message = message();
+        final Message frozen = message.freeze();
+        
+        assertSame(frozen.toBytes(), frozen.toBytes());
+        assertNotSame(message.toBytes(), message.toBytes());
+    }
+    
+    @Test
+    void sharesFrozenParts () {
+        
+        final Message frozen = message().freeze();
+        
+        assertSame(frozen, frozen.freeze());
+        
+        final Embed embed = new Embed().setTitle("Shared").freeze();
+        final Message message = new Message().addEmbed(embed);
+        
+        assertSame(embed, message.freeze().getEmbeds().get(0));
+    }
+    
+    @Test
+    void freezesSplitParts () {
+        
+        final StringBuilder content = new StringBuilder();
+        
+        for (int i = 0; i < 500; i++) {
+            
+            content.append("line ").append(i).append('\n');
+        }
+        
+        final List<Message> parts = new Message().setContent(content.toString()).freeze().split();
+        
+        assertTrue(parts.size() > 1);
+        
+        for (final Message part : parts) {
+            
+            assertTrue(part.isFrozen());
+        }
+    }
+    
+    @Test
+    void knowsLengthOfFrozenBody () throws Exception {
+        
+        final Message message = message();
+        final Message frozen = message.freeze();
+        
+        assertEquals(-1, new JsonBody(message).getContentLength());
+        assertEquals(frozen.toBytes().length, new JsonBody(frozen).getContentLength());
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonBody(frozen).writeTo(out);
+        
+        assertArrayEquals(frozen.toBytes(), out.toByteArray());
+        assertSame(frozen.toBytes(), new JsonBody(frozen).toByteArray());
+    }
+    
+    private static Message message () {
+        
+        final Embed embed = new Embed().setTitle("Title").setDescription("Description").setAuthor(new Author("Author")).setFooter(new Footer("Footer")).addField("Name", "Value", true);
+        return new Message().setUsername("Test").setContent("Hello").addEmbed(embed);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.diluv.schoomp.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    
+    @Test
+    void keepsSmallValuesExact () {
+        
+        for (long value = 0; value < 128; value++) {
+            
+            assertEquals(value, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value)));
+        }
+    }
+    
+    @Test
+    void keepsValuesWithinBucketPrecision () {
+        
+        final Random random = new Random(42);
+        
+        for (int i = 0; i < 100_000; i++) {
+            
+            final long value = random.nextLong() >>> 28 + random.nextInt(36);
+            final long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+            
+            assertTrue(highest >= value, "Bucket of " + value + " ends at " + highest);
+            assertTrue(highest - value <= value / 64, "Bucket of " + value + " ends at " + highest);
+        }
+    }
+    
+    @Test
+    void bucketsAreContiguous () {
+        
+        final int last = LatencyHistogram.indexOf((1L << 36) - 1);
+        
+        for (int index = 0; index < last; index++) {
+            
+            assertEquals(index + 1, LatencyHistogram.indexOf(LatencyHistogram.highestValueOf(index) + 1));
+        }
+    }
+    
+    @Test
+    void readsPercentiles () {
+        
+        final LatencyHistogram histogram = new LatencyHistogram();
+        
+        for (int millis = 1; millis <= 1000; millis++) {
+            
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMinMicros());
+        assertEquals(1_000_000, snapshot.getMaxMicros());
+        assertEquals(500_500, snapshot.getMeanMicros(), 0.001);
+        assertClose(500_000, snapshot.getP50Micros());
+        assertClose(900_000, snapshot.getP90Micros());
+        assertClose(990_000, snapshot.getP99Micros());
+        assertEquals(1_000_000, snapshot.getP999Micros());
+        assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+        assertClose(1000, snapshot.getValueAtPercentile(0));
+    }
+    
+    @Test
+    void neverReportsMoreThanMax () {
+        
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1_000_001));
+        
+        // The bucket of the value ends well above it.
+        assertTrue(LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(1_000_001)) > 1_000_001);
+        assertEquals(1_000_001, histogram.snapshot().getP50Micros());
+    }
+    
+    @Test
+    void countsHugeAndNegativeDurations () {
+        
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.DAYS.toNanos(2));
+        histogram.record(-5);
+        
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getMinMicros());
+        assertEquals(TimeUnit.DAYS.toMicros(2), snapshot.getMaxMicros());
+        
+        // The duration is too long for the buckets, so it is counted in the last one.
+        assertEquals((1L << 36) - 1, snapshot.getValueAtPercentile(100));
+    }
+    
+    @Test
+    void reportsZerosWhenEmpty () {
+        
+        final HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+        
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMinMicros());
+        assertEquals(0, snapshot.getMaxMicros());
+        assertEquals(0, snapshot.getMeanMicros(), 0);
+        assertEquals(0, snapshot.getP99Micros());
+    }
+    
+    @Test
+    void recordsFromManyThreads () throws InterruptedException {
+        
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final List<Thread> threads = new ArrayList<>();
+        
+        for (int t = 0; t < 4; t++) {
+            
+            final Thread thread = new Thread( () -> {
+                
+                for (int i = 1; i <= 25_000; i++) {
+                    
+                    histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+                }
+            });
+            
+            threads.add(thread);
+            thread.start();
+        }
+        
+        for (final Thread thread : threads) {
+            
+            thread.join();
+        }
+        
+        final HistogramSnapshot snapshot = histogram.snapshot();
+        
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(1, snapshot.getMinMicros());
+        assertEquals(25_000, snapshot.getMaxMicros());
+        assertEquals(12_500.5, snapshot.getMeanMicros(), 0.001);
+    }
+    
+    private static void assertClose (long expected, long actual) {
+        
+        assertTrue(actual >= expected && actual - expected <= expected / 64, "Expected about " + expected + " but was " + actual);
+    }
+}
\ No newline at end of file
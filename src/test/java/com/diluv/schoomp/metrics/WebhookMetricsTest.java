@@ -0,0 +1,141 @@
+package com.diluv.schoomp.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.Response;
+import com.diluv.schoomp.RetryPolicy;
+import com.diluv.schoomp.Webhook;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class WebhookMetricsTest {
+    
+    private final WebhookMetrics metrics = new WebhookMetrics();
+    
+    @Test
+    void countsRequestsByOutcome () {
+        
+        this.metrics.recordStart();
+        this.metrics.recordStart();
+        this.metrics.recordStart();
+        assertEquals(3, this.metrics.getInFlight());
+        
+        this.metrics.recordResponse(204, TimeUnit.MILLISECONDS.toNanos(10));
+        this.metrics.recordResponse(429, TimeUnit.MILLISECONDS.toNanos(20));
+        this.metrics.recordFailure(TimeUnit.MILLISECONDS.toNanos(30));
+        this.metrics.recordRetry();
+        
+        final MetricsSnapshot snapshot = this.metrics.snapshot();
+        
+        assertEquals(0, snapshot.getInFlight());
+        assertEquals(2, snapshot.getRequests());
+        assertEquals(1, snapshot.getFailures());
+        assertEquals(1, snapshot.getRetries());
+        assertEquals(1, snapshot.getRateLimited());
+        assertEquals(1L, snapshot.getStatusCounts().get(204));
+        assertEquals(1L, snapshot.getStatusCounts().get(429));
+        assertEquals(2, snapshot.getStatusCounts().size());
+        assertEquals(3, snapshot.getTotal().getCount());
+        assertEquals(30_000, snapshot.getTotal().getMaxMicros());
+    }
+    
+    @Test
+    void countsUnknownStatusCodesAsZero () {
+        
+        this.metrics.recordStart();
+        this.metrics.recordResponse(999, 0);
+        
+        assertEquals(1L, this.metrics.getStatusCounts().get(0));
+    }
+    
+    @Test
+    void recordsIntoGlobalMetrics () {
+        
+        final long before = WebhookMetrics.global().getRetries();
+        this.metrics.recordRetry();
+        
+        assertEquals(before + 1, WebhookMetrics.global().getRetries());
+    }
+    
+    @Test
+    void recordsRequestsSentByWebhook () throws Exception {
+        
+        final Webhook webhook = new Webhook("https://discord.com/api/webhooks/1/token", "Test", new AnsweringTransport()).setRateLimiter(null).setRetryPolicy(RetryPolicy.none()).setMetrics(this.metrics);
+        
+        webhook.sendMessage(new Message().setContent("Hello"));
+        
+        final MetricsSnapshot snapshot = this.metrics.snapshot();
+        
+        assertEquals(1, snapshot.getRequests());
+        assertEquals(0, snapshot.getInFlight());
+        assertEquals(1L, snapshot.getStatusCounts().get(204));
+        assertEquals(new Message().setContent("Hello").toBytes().length, snapshot.getBytesSent());
+        assertEquals(1, snapshot.getSerialization().getCount());
+    }
+    
+    @Test
+    void registersWithJmx () throws Exception {
+        
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("com.diluv.schoomp:type=WebhookMetrics,name=WebhookMetricsTest");
+        
+        this.metrics.register("WebhookMetricsTest");
+        
+        try {
+            
+            this.metrics.recordRetry();
+            assertEquals(1L, server.getAttribute(name, "Retries"));
+            assertThrows(IllegalStateException.class, () -> new WebhookMetrics().register("WebhookMetricsTest"));
+        }
+        
+        finally {
+            
+            this.metrics.unregister();
+        }
+        
+        assertFalse(server.isRegistered(name));
+    }
+    
+    /**
+     * A transport which reads the body of every request and answers it with 204 right away.
+     */
+    private static final class AnsweringTransport implements Transport {
+        
+        @Override
+        public Response send (Request request) throws IOException {
+            
+            request.getBody().toByteArray();
+            return new Response(204, name -> null);
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            try {
+                
+                return CompletableFuture.completedFuture(this.send(request));
+            }
+            
+            catch (final IOException e) {
+                
+                final CompletableFuture<Response> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+        }
+    }
+}
\ No newline at end of file
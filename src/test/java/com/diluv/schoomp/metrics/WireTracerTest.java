@@ -0,0 +1,145 @@
+package com.diluv.schoomp.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.diluv.schoomp.Response;
+import com.diluv.schoomp.transport.RequestBody;
+import com.diluv.schoomp.transport.RequestListener;
+
+class WireTracerTest {
+    
+    private final WireTracer tracer = new WireTracer(2, 1);
+    
+    @Test
+    void recordsEveryReportedResponseHeader () {
+        
+        final WireTracer.Span span = this.start();
+        span.begin();
+        
+        assertTrue(span.wantsResponseHeaders());
+        
+        final Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("CF-Ray", "abc-AMS");
+        headers.put("Set-Cookie", "__cf_bm=secret");
+        headers.put("X-RateLimit-Limit", "5");
+        span.onResponseHeaders(headers);
+        span.finish(new Response(204, headers::get));
+        
+        final Map<String, String> recorded = this.last().getResponseHeaders();
+        assertEquals("abc-AMS", recorded.get("CF-Ray"));
+        assertEquals("5", recorded.get("X-RateLimit-Limit"));
+        assertFalse(recorded.containsKey("Set-Cookie"));
+    }
+    
+    @Test
+    void fallsBackToRateLimitHeaders () {
+        
+        final WireTracer.Span span = this.start();
+        span.begin();
+        
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Limit", "5");
+        headers.put("X-RateLimit-Remaining", "4");
+        span.finish(new Response(204, headers::get));
+        
+        final Map<String, String> recorded = this.last().getResponseHeaders();
+        assertEquals("5", recorded.get("X-RateLimit-Limit"));
+        assertEquals("4", recorded.get("X-RateLimit-Remaining"));
+    }
+    
+    @Test
+    void recordsEachAttemptSeparately () throws IOException {
+        
+        final WireTracer.Span span = this.start();
+        final RequestBody body = span.wrap(RequestBody.of("application/json", "{\"content\":\"hi\"}".getBytes(StandardCharsets.UTF_8)));
+        
+        span.begin();
+        body.toByteArray();
+        span.onResponseHeaders(Collections.singletonMap("CF-Ray", "first"));
+        span.finish(new Response(503, name -> null));
+        
+        span.begin();
+        body.toByteArray();
+        span.fail(new IOException("Connection refused"));
+        
+        final List<WireTrace> traces = this.tracer.getTraces();
+        assertEquals(2, traces.size());
+        assertEquals(1, traces.get(0).getAttempt());
+        assertEquals("first", traces.get(0).getResponseHeaders().get("CF-Ray"));
+        assertEquals(2, traces.get(1).getAttempt());
+        assertEquals(-1, traces.get(1).getStatusCode());
+        assertTrue(traces.get(1).getResponseHeaders().isEmpty());
+        assertEquals("IOException: Connection refused", traces.get(1).getError());
+        assertArrayEquals("{\"content\":\"hi\"}".getBytes(StandardCharsets.UTF_8), traces.get(1).getPayload());
+    }
+    
+    @Test
+    void keepsStartOfPayload () throws IOException {
+        
+        this.tracer.setMaxPayloadBytes(4);
+        
+        final WireTracer.Span span = this.start();
+        final RequestBody body = span.wrap(RequestBody.of("application/json", "0123456789".getBytes(StandardCharsets.UTF_8)));
+        
+        span.begin();
+        body.toByteArray();
+        span.finish(new Response(204, name -> null));
+        
+        assertArrayEquals("0123".getBytes(StandardCharsets.UTF_8), this.last().getPayload());
+        assertEquals(10, this.last().getPayloadLength());
+        assertNull(this.last().getResponseBody());
+    }
+    
+    @Test
+    void keepsOnlyRecentTraces () {
+        
+        for (int i = 0; i < 3; i++) {
+            
+            final WireTracer.Span span = this.start();
+            span.begin();
+            span.finish(new Response(200 + i, name -> null));
+        }
+        
+        assertEquals(3, this.tracer.getRecorded());
+        assertEquals(2, this.tracer.getTraces().size());
+        assertEquals(201, this.tracer.getTraces().get(0).getStatusCode());
+        
+        this.tracer.clear();
+        assertTrue(this.tracer.getTraces().isEmpty());
+    }
+    
+    @Test
+    void samplesByRate () {
+        
+        assertTrue(this.tracer.sample());
+        assertFalse(new WireTracer(1, 0).sample());
+        assertThrows(IllegalArgumentException.class, () -> this.tracer.setSampleRate(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new WireTracer(0, 1));
+    }
+    
+    private WireTracer.Span start () {
+        
+        return this.tracer.start("POST", "https://discord.com/api/webhooks/1/:token", "Test", RequestListener.NONE);
+    }
+    
+    private WireTrace last () {
+        
+        final List<WireTrace> traces = this.tracer.getTraces();
+        return traces.get(traces.size() - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,329 @@
+package com.diluv.schoomp.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.diluv.schoomp.Response;
+import com.diluv.schoomp.RetryPolicy;
+import com.diluv.schoomp.Webhook;
+import com.diluv.schoomp.json.Json;
+import com.diluv.schoomp.message.Message;
+import com.diluv.schoomp.transport.Request;
+import com.diluv.schoomp.transport.Transport;
+
+class OutboxTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void deliversMessagesInOrder () throws Exception {
+        
+        final ScriptedTransport transport = new ScriptedTransport();
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(transport)).start()) {
+            
+            for (int i = 0; i < 5; i++) {
+                
+                outbox.append(message(i));
+            }
+            
+            assertEquals(contents(0, 1, 2, 3, 4), transport.awaitContents(5));
+            awaitDelivered(outbox);
+        }
+    }
+    
+    @Test
+    void replaysMessagesAfterRestart () throws Exception {
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(new ScriptedTransport()))) {
+            
+            for (int i = 0; i < 3; i++) {
+                
+                outbox.append(message(i));
+            }
+        }
+        
+        final ScriptedTransport transport = new ScriptedTransport();
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(transport))) {
+            
+            assertEquals(3, outbox.getPending());
+            
+            outbox.start();
+            assertEquals(contents(0, 1, 2), transport.awaitContents(3));
+            awaitDelivered(outbox);
+        }
+        
+        // Everything was delivered, so nothing is replayed again.
+        try (Outbox outbox = new Outbox(this.directory, webhook(new ScriptedTransport()))) {
+            
+            assertEquals(0, outbox.getPending());
+        }
+    }
+    
+    @Test
+    void replaysOnlyUndeliveredMessages () throws Exception {
+        
+        // The third message is answered with an error that is waited out until the outbox closes.
+        final ScriptedTransport first = new ScriptedTransport(204, 204, 503);
+        first.retryAfter = "60";
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(first)).start()) {
+            
+            for (int i = 0; i < 3; i++) {
+                
+                outbox.append(message(i));
+            }
+            
+            first.awaitContents(3);
+        }
+        
+        final ScriptedTransport second = new ScriptedTransport();
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(second))) {
+            
+            assertEquals(1, outbox.getPending());
+            
+            outbox.start();
+            assertEquals(contents(2), second.awaitContents(1));
+            awaitDelivered(outbox);
+        }
+    }
+    
+    @Test
+    void retriesTransientFailures () throws Exception {
+        
+        final ScriptedTransport transport = new ScriptedTransport(503);
+        transport.retryAfter = "0.01";
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(transport)).start()) {
+            
+            outbox.append(message(0));
+            outbox.append(message(1));
+            
+            assertEquals(contents(0, 0, 1), transport.awaitContents(3));
+            awaitDelivered(outbox);
+        }
+    }
+    
+    @Test
+    void dropsRejectedMessages () throws Exception {
+        
+        final ScriptedTransport transport = new ScriptedTransport(400);
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(transport)).start()) {
+            
+            outbox.append(message(0));
+            outbox.append(message(1));
+            
+            assertEquals(contents(0, 1), transport.awaitContents(2));
+            awaitDelivered(outbox);
+        }
+    }
+    
+    @Test
+    void rollsOverToNewSegments () throws Exception {
+        
+        final ScriptedTransport transport = new ScriptedTransport();
+        final List<String> expected = new ArrayList<>();
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(new ScriptedTransport()), 1024)) {
+            
+            for (int i = 0; i < 20; i++) {
+                
+                final String content = i + ":" + repeat('x', 300);
+                outbox.append(new Message().setContent(content));
+                expected.add(content);
+            }
+            
+            // A message larger than a segment gets a segment of its own.
+            final String large = repeat('y', 1900);
+            outbox.append(new Message().setContent(large));
+            expected.add(large);
+        }
+        
+        assertTrue(countSegments() > 5);
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(transport), 1024).start()) {
+            
+            assertEquals(expected, transport.awaitContents(expected.size()));
+            awaitDelivered(outbox);
+            
+            // Delivered segments are deleted, leaving only the one new messages go to.
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            
+            while (countSegments() > 1) {
+                
+                assertTrue(System.nanoTime() < deadline, countSegments() + " segments were left");
+                Thread.sleep(1);
+            }
+        }
+    }
+    
+    @Test
+    void splitsLongMessages () throws Exception {
+        
+        final ScriptedTransport transport = new ScriptedTransport();
+        
+        try (Outbox outbox = new Outbox(this.directory, webhook(transport)).start()) {
+            
+            outbox.append(new Message().setContent(repeat('z', 2500)));
+            
+            final List<String> parts = transport.awaitContents(2);
+            assertEquals(repeat('z', 2500), String.join("", parts));
+            awaitDelivered(outbox);
+        }
+    }
+    
+    @Test
+    void rejectsInvalidUse () throws Exception {
+        
+        assertThrows(IllegalArgumentException.class, () -> new Outbox(this.directory, webhook(new ScriptedTransport()), 100));
+        
+        final Outbox outbox = new Outbox(this.directory, webhook(new ScriptedTransport()));
+        outbox.close();
+        
+        assertThrows(IOException.class, () -> outbox.append(message(0)));
+        assertThrows(IllegalStateException.class, outbox::start);
+    }
+    
+    private long countSegments () throws IOException {
+        
+        try (Stream<Path> files = Files.list(this.directory)) {
+            
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+    
+    private static void awaitDelivered (Outbox outbox) throws InterruptedException {
+        
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        
+        while (outbox.getPending() > 0) {
+            
+            assertTrue(System.nanoTime() < deadline, outbox.getPending() + " messages were not delivered");
+            Thread.sleep(1);
+        }
+    }
+    
+    private static Webhook webhook (Transport transport) {
+        
+        return new Webhook("https://discord.com/api/webhooks/1/token", "Test", transport).setRateLimiter(null).setRetryPolicy(RetryPolicy.none());
+    }
+    
+    private static Message message (int index) {
+        
+        return new Message().setContent("message " + index);
+    }
+    
+    private static List<String> contents (int... indices) {
+        
+        final List<String> contents = new ArrayList<>();
+        
+        for (final int index : indices) {
+            
+            contents.add(message(index).getContent());
+        }
+        
+        return contents;
+    }
+    
+    private static String repeat (char c, int times) {
+        
+        final char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+    
+    /**
+     * A transport which answers requests with a scripted list of status codes, and with 204
+     * once the script runs out. The content of every message it is sent is kept.
+     */
+    private static final class ScriptedTransport implements Transport {
+        
+        private final Deque<Integer> script = new ArrayDeque<>();
+        
+        private final List<String> contents = Collections.synchronizedList(new ArrayList<>());
+        
+        private volatile String retryAfter;
+        
+        private ScriptedTransport(Integer... statusCodes) {
+            
+            this.script.addAll(Arrays.asList(statusCodes));
+        }
+        
+        @Override
+        public Response send (Request request) throws IOException {
+            
+            final String json = new String(request.getBody().toByteArray(), StandardCharsets.UTF_8);
+            this.contents.add(Json.fromJson(json).getContent());
+            
+            final Integer status;
+            
+            synchronized (this.script) {
+                
+                status = this.script.poll();
+            }
+            
+            final Map<String, String> headers = new HashMap<>();
+            
+            if (this.retryAfter != null) {
+                
+                headers.put("Retry-After", this.retryAfter);
+            }
+            
+            return new Response(status != null ? status : 204, headers::get);
+        }
+        
+        @Override
+        public CompletableFuture<Response> sendAsync (Request request, Executor executor) {
+            
+            throw new UnsupportedOperationException();
+        }
+        
+        /**
+         * Waits for an amount of messages to be sent.
+         * 
+         * @param amount The amount of messages to wait for.
+         * @return The content of the messages, in the order they were sent.
+         */
+        private List<String> awaitContents (int amount) throws InterruptedException {
+            
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            
+            while (this.contents.size() < amount) {
+                
+                assertTrue(System.nanoTime() < deadline, "Only " + this.contents.size() + " messages were sent");
+                Thread.sleep(1);
+            }
+            
+            synchronized (this.contents) {
+                
+                assertEquals(amount, this.contents.size());
+                return new ArrayList<>(this.contents);
+            }
+        }
+    }
+}
\ No newline at end of file
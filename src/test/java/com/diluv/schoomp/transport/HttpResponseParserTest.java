@@ -0,0 +1,174 @@
+package com.diluv.schoomp.transport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class HttpResponseParserTest {
+    
+    private static final String CHUNKED = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5;name=value\r\nhello\r\n7\r\n, world\r\n0\r\nTrailer: ignored\r\n\r\n";
+    
+    private final HttpResponseParser parser = new HttpResponseParser();
+    
+    @Test
+    void readsBodyWithContentLength () throws IOException {
+        
+        assertTrue(this.feed("HTTP/1.1 200 OK\r\nContent-Length: 5\r\nX-RateLimit-Remaining: 4\r\n\r\nhello"));
+        assertEquals(200, this.parser.getStatusCode());
+        assertEquals("4", this.parser.getHeader("x-ratelimit-remaining"));
+        assertEquals("hello", this.body());
+        assertTrue(this.parser.isKeepAlive());
+    }
+    
+    @Test
+    void readsChunkedBody () throws IOException {
+        
+        assertTrue(this.feed(CHUNKED));
+        assertEquals("hello, world", this.body());
+        assertNull(this.parser.getHeader("Trailer"));
+    }
+    
+    @Test
+    void readsResponseSplitAcrossReads () throws IOException {
+        
+        final byte[] bytes = CHUNKED.getBytes(StandardCharsets.US_ASCII);
+        
+        // Every possible split point, including inside the CRLF that ends a line.
+        for (int split = 1; split < bytes.length; split++) {
+            
+            this.parser.reset(false);
+            assertFalse(this.parser.feed(ByteBuffer.wrap(bytes, 0, split)), "Finished early when split at " + split);
+            assertTrue(this.parser.feed(ByteBuffer.wrap(bytes, split, bytes.length - split)), "Did not finish when split at " + split);
+            assertEquals("hello, world", this.body());
+        }
+    }
+    
+    @Test
+    void readsResponseOneByteAtATime () throws IOException {
+        
+        final byte[] bytes = "HTTP/1.1 429 Too Many Requests\r\nRetry-After: 2\r\nContent-Length: 2\r\n\r\n{}".getBytes(StandardCharsets.US_ASCII);
+        
+        for (int i = 0; i < bytes.length; i++) {
+            
+            assertEquals(i == bytes.length - 1, this.parser.feed(ByteBuffer.wrap(bytes, i, 1)));
+        }
+        
+        assertEquals(429, this.parser.getStatusCode());
+        assertEquals("2", this.parser.getHeader("Retry-After"));
+        assertEquals("{}", this.body());
+    }
+    
+    @Test
+    void unfoldsFoldedHeaders () throws IOException {
+        
+        assertTrue(this.feed("HTTP/1.1 204 No Content\r\nX-RateLimit-Global:\r\n true\r\nConnection: keep-\r\n\t alive  \r\n\r\n"));
+        assertEquals("true", this.parser.getHeader("X-RateLimit-Global"));
+        assertEquals("keep- alive", this.parser.getHeader("Connection"));
+    }
+    
+    @Test
+    void ignoresFoldedLinesOfSkippedHeaders () throws IOException {
+        
+        assertTrue(this.feed("HTTP/1.1 204 No Content\r\nX-Other: value\r\n Retry-After: 5\r\n\r\n"));
+        assertNull(this.parser.getHeader("Retry-After"));
+    }
+    
+    @Test
+    void leavesNextResponseInBuffer () throws IOException {
+        
+        final ByteBuffer buffer = ByteBuffer.wrap("HTTP/1.1 204 No Content\r\n\r\nHTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+        
+        assertTrue(this.parser.feed(buffer));
+        assertEquals(204, this.parser.getStatusCode());
+        
+        this.parser.reset(false);
+        assertTrue(this.parser.feed(buffer));
+        assertEquals(200, this.parser.getStatusCode());
+        assertEquals("ok", this.body());
+    }
+    
+    @Test
+    void skipsInterimResponses () throws IOException {
+        
+        assertTrue(this.feed("HTTP/1.1 100 Continue\r\nRetry-After: 9\r\n\r\nHTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n"));
+        assertEquals(200, this.parser.getStatusCode());
+        assertNull(this.parser.getHeader("Retry-After"));
+    }
+    
+    @Test
+    void keepsEveryHeaderWhenAsked () throws IOException {
+        
+        this.parser.reset(false, true);
+        assertTrue(this.feed("HTTP/1.1 100 Continue\r\nX-Interim: 1\r\n\r\nHTTP/1.1 200 OK\r\nCF-Ray: abc\r\nVia: 1.1 a\r\nX-RateLimit-Limit: 5\r\n\tand more\r\nVia: 1.1 b\r\nX-Folded: one\r\n two\r\nContent-Length: 0\r\n\r\n"));
+        
+        final Map<String, String> headers = this.parser.getAllHeaders();
+        assertEquals("abc", headers.get("CF-Ray"));
+        assertEquals("1.1 a, 1.1 b", headers.get("Via"));
+        assertEquals("5 and more", headers.get("X-RateLimit-Limit"));
+        assertEquals("one two", headers.get("X-Folded"));
+        assertEquals("0", headers.get("Content-Length"));
+        assertFalse(headers.containsKey("X-Interim"));
+        assertEquals("5 and more", this.parser.getHeader("X-RateLimit-Limit"));
+        
+        this.parser.reset(false);
+        assertTrue(this.feed("HTTP/1.1 204 No Content\r\nCF-Ray: abc\r\n\r\n"));
+        assertNull(this.parser.getAllHeaders());
+    }
+    
+    @Test
+    void readsBodyUntilClose () throws IOException {
+        
+        assertFalse(this.feed("HTTP/1.0 200 OK\r\n\r\npartial"));
+        assertFalse(this.parser.isKeepAlive());
+        assertTrue(this.parser.finishOnClose());
+        assertEquals("partial", this.body());
+    }
+    
+    @Test
+    void headResponseHasNoBody () throws IOException {
+        
+        this.parser.reset(true);
+        assertTrue(this.feed("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n"));
+        assertArrayEquals(new byte[0], this.parser.getBody());
+    }
+    
+    @Test
+    void honoursConnectionClose () throws IOException {
+        
+        assertTrue(this.feed("HTTP/1.1 204 No Content\r\nConnection: close\r\n\r\n"));
+        assertFalse(this.parser.isKeepAlive());
+    }
+    
+    @Test
+    void rejectsInvalidResponses () {
+        
+        assertThrows(ProtocolException.class, () -> this.feed("SMTP 220 hello\r\n"));
+        
+        this.parser.reset(false);
+        assertThrows(ProtocolException.class, () -> this.feed("HTTP/1.1 2x0 OK\r\n"));
+        
+        this.parser.reset(false);
+        assertThrows(ProtocolException.class, () -> this.feed("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n"));
+    }
+    
+    private boolean feed (String response) throws IOException {
+        
+        return this.parser.feed(ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    private String body () {
+        
+        return new String(this.parser.getBody(), StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file